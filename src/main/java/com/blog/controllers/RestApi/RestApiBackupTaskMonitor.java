@@ -4,6 +4,7 @@ import com.blog.entities.task.ErrorTask;
 import com.blog.entities.task.Task;
 import com.blog.manager.ErrorTasksManager;
 import com.blog.manager.TasksManager;
+import com.blog.service.TaskThroughputService;
 import com.blog.webUI.renderModels.WebBackupTask;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,11 +32,18 @@ public class RestApiBackupTaskMonitor {
 
     private ErrorTasksManager errorTasksManager;
 
+    private TaskThroughputService taskThroughputService;
+
     @Autowired
     public void setErrorTasksManager(ErrorTasksManager errorTasksManager) {
         this.errorTasksManager = errorTasksManager;
     }
 
+    @Autowired
+    public void setTaskThroughputService(TaskThroughputService taskThroughputService) {
+        this.taskThroughputService = taskThroughputService;
+    }
+
     @Autowired
     public void setWebDateFormatter(DateTimeFormatter webDateFormatter) {
         this.webDateFormatter = webDateFormatter;
@@ -57,6 +65,8 @@ public class RestApiBackupTaskMonitor {
                 .collect(Collectors.toCollection(HashSet::new));
 
         for (Task task : tasksManager.findAllByRunTypeOrderByDateDesc(Task.RunType.USER)) {
+            // throughput is measured only while restored data is transferred
+            String throughput = task.getState() == Task.State.RESTORING ? taskThroughputService.getThroughputAsString(task.getId()) : "";
             WebBackupTask webBackupTask = new WebBackupTask.Builder()
                     .withId(task.getId())
                     .withType(task.getType().toString())
@@ -64,6 +74,7 @@ public class RestApiBackupTaskMonitor {
                     .withIsError(errorTaskIds.contains(task.getId()))
                     .withIsInterrupted(task.getInterrupted())
                     .withTime(webDateFormatter.format(task.getDate()))
+                    .withThroughput(throughput)
                     .build();
 
             backupTaskList.add(webBackupTask);
@@ -1,8 +1,11 @@
 package com.blog.controllers.WebApi.Validator;
 
 import com.blog.controllers.Errors.ValidationException;
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.database.DatabaseType;
+import com.blog.entities.database.PostgresBackupEngine;
 import com.blog.webUI.formTransfer.WebAddDatabaseRequest;
+import com.blog.webUI.formTransfer.database.WebPostgresSettings;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BindingResult;
@@ -31,6 +34,7 @@ public class WebAddDatabaseRequestValidator {
         DatabaseType databaseType = optionalDatabaseType.get();
         switch (databaseType) {
             case POSTGRES: {
+                validatePostgresSettings(webAddDatabaseRequest.getPostgresSettings(), errors);
                 break;
             }
             default: {
@@ -39,6 +43,67 @@ public class WebAddDatabaseRequestValidator {
         }
     }
 
+    private void validatePostgresSettings(WebPostgresSettings webPostgresSettings, Errors errors) {
+        // all PostgreSQL specific fields are optional
+        if (webPostgresSettings == null) {
+            return;
+        }
+
+        String engine = webPostgresSettings.getEngine();
+        if (engine != null && !engine.trim().isEmpty() && !PostgresBackupEngine.of(engine).isPresent()) {
+            errors.rejectValue("postgresSettings.engine", "error.addDatabaseRequest.postgresSettings.engine.malformed");
+        }
+
+        String backupFormat = webPostgresSettings.getBackupFormat();
+        // copy archives are created only by JDBC engine and base backups only by WAL archiving tasks
+        if (backupFormat != null && !backupFormat.trim().isEmpty() && !BackupFormat.of(backupFormat)
+                .filter(format -> format != BackupFormat.COPY_ARCHIVE && format != BackupFormat.BASE_BACKUP).isPresent()) {
+            errors.rejectValue("postgresSettings.backupFormat", "error.addDatabaseRequest.postgresSettings.backupFormat.malformed");
+        }
+
+        String backupJobs = webPostgresSettings.getBackupJobs();
+        if (backupJobs != null && !backupJobs.trim().isEmpty()) {
+            try {
+                if (Integer.valueOf(backupJobs) < 1) {
+                    errors.rejectValue("postgresSettings.backupJobs", "error.addDatabaseRequest.postgresSettings.backupJobs.malformed");
+                }
+            } catch (NumberFormatException ex) {
+                errors.rejectValue("postgresSettings.backupJobs", "error.addDatabaseRequest.postgresSettings.backupJobs.malformed");
+            }
+        }
+
+        String binaryCopy = webPostgresSettings.getBinaryCopy();
+        if (binaryCopy != null && !binaryCopy.trim().isEmpty() && !binaryCopy.equals("true") && !binaryCopy.equals("false")) {
+            errors.rejectValue("postgresSettings.binaryCopy", "error.addDatabaseRequest.postgresSettings.binaryCopy.malformed");
+        }
+
+        String splitTableThresholdMb = webPostgresSettings.getSplitTableThresholdMb();
+        if (splitTableThresholdMb != null && !splitTableThresholdMb.trim().isEmpty()) {
+            try {
+                if (Integer.valueOf(splitTableThresholdMb) < 0) {
+                    errors.rejectValue("postgresSettings.splitTableThresholdMb",
+                            "error.addDatabaseRequest.postgresSettings.splitTableThresholdMb.malformed");
+                }
+            } catch (NumberFormatException ex) {
+                errors.rejectValue("postgresSettings.splitTableThresholdMb",
+                        "error.addDatabaseRequest.postgresSettings.splitTableThresholdMb.malformed");
+            }
+        }
+
+        String splitTableJobs = webPostgresSettings.getSplitTableJobs();
+        if (splitTableJobs != null && !splitTableJobs.trim().isEmpty()) {
+            try {
+                if (Integer.valueOf(splitTableJobs) < 1) {
+                    errors.rejectValue("postgresSettings.splitTableJobs",
+                            "error.addDatabaseRequest.postgresSettings.splitTableJobs.malformed");
+                }
+            } catch (NumberFormatException ex) {
+                errors.rejectValue("postgresSettings.splitTableJobs",
+                        "error.addDatabaseRequest.postgresSettings.splitTableJobs.malformed");
+            }
+        }
+    }
+
     public void validate(@NotNull Object target, @NotNull Errors errors) throws ValidationException {
         Objects.requireNonNull(target);
         Objects.requireNonNull(errors);
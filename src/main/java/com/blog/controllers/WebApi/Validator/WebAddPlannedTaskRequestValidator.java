@@ -37,5 +37,14 @@ public class WebAddPlannedTaskRequestValidator {
                 errors.rejectValue("interval", "error.addPlannedTaskRequest.interval.malformed");
             }
         }
+
+        String compressionLevel = webAddPlannedTaskRequest.getCompressionLevel();
+        if (compressionLevel != null && !compressionLevel.trim().isEmpty()) {
+            try {
+                Integer.valueOf(compressionLevel.trim());
+            } catch (NumberFormatException ex) {
+                errors.rejectValue("compressionLevel", "error.addPlannedTaskRequest.compressionLevel.malformed");
+            }
+        }
     }
 }
@@ -25,5 +25,16 @@ public class WebCreateBackupRequestValidator {
 
         ValidationUtils.rejectIfEmptyOrWhitespace(errors, "storageSettingsNameList",
                 "error.createBackupRequest.storageSettingsNameList.empty");
+
+        WebCreateBackupRequest webCreateBackupRequest = (WebCreateBackupRequest) target;
+
+        String compressionLevel = webCreateBackupRequest.getCompressionLevel();
+        if (compressionLevel != null && !compressionLevel.trim().isEmpty()) {
+            try {
+                Integer.valueOf(compressionLevel.trim());
+            } catch (NumberFormatException ex) {
+                errors.rejectValue("compressionLevel", "error.createBackupRequest.compressionLevel.malformed");
+            }
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.blog.controllers.WebApi.Validator;
 
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresChangeCapture;
 import com.blog.webUI.formTransfer.WebRestoreBackupRequest;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
@@ -7,6 +8,9 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.validation.ValidationUtils;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Objects;
 
 
@@ -17,25 +21,86 @@ import java.util.Objects;
  */
 @Component
 public class WebRestoreBackupRequestValidator {
+    /**
+     * Format of point-in-time recovery target time.
+     */
+    public static final DateTimeFormatter targetTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     public void validate(@NotNull Object target, @NotNull Errors errors) {
         Objects.requireNonNull(target);
         Objects.requireNonNull(errors);
 
         ValidationUtils.rejectIfEmptyOrWhitespace(errors, "backupId",
                 "error.restoreBackupRequest.backupId.empty");
-        ValidationUtils.rejectIfEmptyOrWhitespace(errors, "databaseSettingsName",
-                "error.restoreBackupRequest.databaseSettingsName.empty");
         ValidationUtils.rejectIfEmptyOrWhitespace(errors, "storageSettingsName",
                 "error.restoreBackupRequest.storageSettingsName.empty");
 
+        WebRestoreBackupRequest webRestoreBackupRequest = (WebRestoreBackupRequest) target;
+
+        // base backups are restored into data directory instead of database
+        String dataDirectory = webRestoreBackupRequest.getDataDirectory();
+        if (dataDirectory == null || dataDirectory.trim().isEmpty()) {
+            ValidationUtils.rejectIfEmptyOrWhitespace(errors, "databaseSettingsName",
+                    "error.restoreBackupRequest.databaseSettingsName.empty");
+        }
+
+        // target time is optional
+        String targetTime = webRestoreBackupRequest.getTargetTime();
+        if (targetTime != null && !targetTime.trim().isEmpty()) {
+            try {
+                LocalDateTime.parse(targetTime.trim(), targetTimeFormatter);
+            } catch (DateTimeParseException ex) {
+                errors.rejectValue("targetTime", "error.restoreBackupRequest.targetTime.malformed");
+            }
+        }
+
+        // target WAL position is optional
+        String targetLsn = webRestoreBackupRequest.getTargetLsn();
+        if (targetLsn != null && !targetLsn.trim().isEmpty()) {
+            try {
+                PostgresChangeCapture.parseLsn(targetLsn.trim());
+            } catch (IllegalArgumentException ex) {
+                errors.rejectValue("targetLsn", "error.restoreBackupRequest.targetLsn.malformed");
+            }
+        }
+
         if (!errors.hasFieldErrors("backupId")) {
             try {
-                WebRestoreBackupRequest webRestoreBackupRequest = (WebRestoreBackupRequest) target;
                 Integer.valueOf(webRestoreBackupRequest.getBackupId());
             } catch (NumberFormatException ex) {
                 errors.rejectValue("backupId", "error.restoreBackupRequest.backupId.malformed");
             }
         }
+
+        // number of restore jobs is optional
+        String restoreJobs = webRestoreBackupRequest.getRestoreJobs();
+        if (restoreJobs != null && !restoreJobs.trim().isEmpty()) {
+            try {
+                if (Integer.parseInt(restoreJobs.trim()) < 1) {
+                    errors.rejectValue("restoreJobs", "error.restoreBackupRequest.restoreJobs.malformed");
+                }
+            } catch (NumberFormatException ex) {
+                errors.rejectValue("restoreJobs", "error.restoreBackupRequest.restoreJobs.malformed");
+            }
+        }
+
+        // restore filter patterns are optional
+        validatePatterns(webRestoreBackupRequest.getIncludeSchemas(), "includeSchemas", errors);
+        validatePatterns(webRestoreBackupRequest.getExcludeSchemas(), "excludeSchemas", errors);
+        validatePatterns(webRestoreBackupRequest.getIncludeTables(), "includeTables", errors);
+        validatePatterns(webRestoreBackupRequest.getExcludeTables(), "excludeTables", errors);
+    }
+
+    private void validatePatterns(String patterns, String field, Errors errors) {
+        if (patterns == null || patterns.trim().isEmpty()) {
+            return;
+        }
+        for (String pattern : patterns.split(",", -1)) {
+            if (pattern.trim().isEmpty()) {
+                errors.rejectValue(field, "error.restoreBackupRequest." + field + ".malformed");
+                return;
+            }
+        }
     }
 }
 
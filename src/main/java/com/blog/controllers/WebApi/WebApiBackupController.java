@@ -3,14 +3,21 @@ package com.blog.controllers.WebApi;
 import com.blog.controllers.Errors.ValidationException;
 import com.blog.controllers.WebApi.Validator.WebCreateBackupRequestValidator;
 import com.blog.controllers.WebApi.Validator.WebRestoreBackupRequestValidator;
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.backup.BackupProperties;
 import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.storage.StorageSettings;
 import com.blog.entities.task.Task;
+import com.blog.manager.BackupProcessorManager;
 import com.blog.manager.BackupPropertiesManager;
+import com.blog.manager.BackupTablesManager;
+import com.blog.manager.ChangeSegmentsManager;
 import com.blog.manager.DatabaseSettingsManager;
 import com.blog.manager.StorageSettingsManager;
 import com.blog.service.TasksStarterService;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresChangeCapture;
+import com.blog.service.databaseBackup.RestoreFilter;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import com.blog.webUI.formTransfer.WebCreateBackupRequest;
 import com.blog.webUI.formTransfer.WebDeleteBackupRequest;
@@ -24,6 +31,10 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -48,6 +59,12 @@ public class WebApiBackupController {
 
     private TasksStarterService tasksStarterService;
 
+    private ChangeSegmentsManager changeSegmentsManager;
+
+    private BackupTablesManager backupTablesManager;
+
+    private BackupProcessorManager backupProcessorManager;
+
     @Autowired
     public void setDatabaseSettingsManager(DatabaseSettingsManager databaseSettingsManager) {
         this.databaseSettingsManager = databaseSettingsManager;
@@ -78,6 +95,21 @@ public class WebApiBackupController {
         this.tasksStarterService = tasksStarterService;
     }
 
+    @Autowired
+    public void setChangeSegmentsManager(ChangeSegmentsManager changeSegmentsManager) {
+        this.changeSegmentsManager = changeSegmentsManager;
+    }
+
+    @Autowired
+    public void setBackupTablesManager(BackupTablesManager backupTablesManager) {
+        this.backupTablesManager = backupTablesManager;
+    }
+
+    @Autowired
+    public void setBackupProcessorManager(BackupProcessorManager backupProcessorManager) {
+        this.backupProcessorManager = backupProcessorManager;
+    }
+
     @PostMapping(path = "/create-backup")
     public String createBackup(WebCreateBackupRequest webCreateBackupRequest,
                                BindingResult bindingResult) {
@@ -113,7 +145,30 @@ public class WebApiBackupController {
             processors.add(optionalProcessorType.get());
         }
 
-        tasksStarterService.startBackupTask(Task.RunType.USER, storageSettingsNameList, processors, databaseSettings);
+        String compressionLevel = webCreateBackupRequest.getCompressionLevel();
+        ProcessorOptions processorOptions = new ProcessorOptions(
+                compressionLevel == null || compressionLevel.trim().isEmpty() ? null : Integer.valueOf(compressionLevel.trim()),
+                webCreateBackupRequest.isLongRange());
+        try {
+            backupProcessorManager.checkOptions(processors, processorOptions);
+        } catch (IllegalArgumentException ex) {
+            throw new ValidationException("Can't create backup: " + ex.getMessage());
+        }
+
+        if (webCreateBackupRequest.isWalArchiving() && webCreateBackupRequest.isChangeCapture()) {
+            throw new ValidationException("Can't create backup: WAL archiving and change capture can't be combined");
+        }
+
+        if (webCreateBackupRequest.isWalArchiving()) {
+            tasksStarterService.startWalArchivingTask(Task.RunType.USER, storageSettingsNameList, processors, processorOptions,
+                    databaseSettings);
+        } else if (webCreateBackupRequest.isChangeCapture()) {
+            tasksStarterService.startChangeCaptureTask(Task.RunType.USER, storageSettingsNameList, processors, processorOptions,
+                    databaseSettings);
+        } else {
+            tasksStarterService.startBackupTask(Task.RunType.USER, storageSettingsNameList, processors, processorOptions,
+                    databaseSettings);
+        }
 
         return "redirect:/dashboard";
     }
@@ -129,26 +184,124 @@ public class WebApiBackupController {
             return "dashboard";
         }
 
-        Integer backupId = Integer.valueOf(webRestoreBackupRequest.getBackupId());
-        BackupProperties backupProperties = backupPropertiesManager.findById(backupId).orElseThrow(() ->
-                new IllegalStateException("Can't restore backup: no such backup properties with ID " + backupId));
+        Integer requestedBackupId = Integer.valueOf(webRestoreBackupRequest.getBackupId());
+        BackupProperties requestedBackupProperties = backupPropertiesManager.findById(requestedBackupId).orElseThrow(() ->
+                new IllegalStateException("Can't restore backup: no such backup properties with ID " + requestedBackupId));
+        // no-change backup contains the same data as its source backup
+        Integer backupId = Optional.ofNullable(requestedBackupProperties.getSourceBackupPropertiesId()).orElse(requestedBackupId);
+        BackupProperties backupProperties = backupId.equals(requestedBackupId) ? requestedBackupProperties :
+                backupPropertiesManager.findById(backupId).orElseThrow(() ->
+                        new IllegalStateException("Can't restore backup: no such source backup properties with ID " + backupId));
 
         String storageSettingsName = webRestoreBackupRequest.getStorageSettingsName();
         StorageSettings storageSettings = storageSettingsManager.findById(storageSettingsName).orElseThrow(() ->
                 new IllegalStateException("Can't restore backup: no such storage settings with name " + storageSettingsName));
 
+        String dataDirectory = webRestoreBackupRequest.getDataDirectory();
+        boolean isBaseBackup = backupProperties.getFormat() == BackupFormat.BASE_BACKUP;
+        if (dataDirectory != null && !dataDirectory.trim().isEmpty()) {
+            if (!isBaseBackup) {
+                throw new ValidationException("Can't restore backup: only base backups can be restored into data directory");
+            }
+            return restoreBaseBackup(webRestoreBackupRequest, backupProperties, storageSettings, dataDirectory.trim());
+        }
+        if (isBaseBackup) {
+            throw new ValidationException("Can't restore backup: please, provide data directory to restore base backup into");
+        }
+
         String databaseSettingsName = webRestoreBackupRequest.getDatabaseSettingsName();
         DatabaseSettings databaseSettings = databaseSettingsManager.findById(databaseSettingsName).orElseThrow(() ->
                 new IllegalStateException("Can't restore backup: no such database settings with name " + databaseSettingsName));
 
+        // backups with captured changes are always restored together with the changes
+        if (changeSegmentsManager.countByBackupPropertiesId(backupId) != 0) {
+            return restoreBackupWithChanges(webRestoreBackupRequest, backupProperties, storageSettings, databaseSettings);
+        }
+        String targetLsn = webRestoreBackupRequest.getTargetLsn();
+        if (targetLsn != null && !targetLsn.trim().isEmpty()) {
+            throw new ValidationException("Can't restore backup: backup has no captured changes to replay up to target WAL position");
+        }
+
         logger.info("restoreBackup(): Starting backup restoration... Backup properties: {}. Storage: {}. Database: {}",
                 backupProperties, storageSettings, databaseSettings);
 
-        tasksStarterService.startRestoreTask(Task.RunType.USER, backupProperties, storageSettingsName, databaseSettings);
+        String restoreJobsAsString = webRestoreBackupRequest.getRestoreJobs();
+        int restoreJobs = 1;
+        if (restoreJobsAsString != null && !restoreJobsAsString.trim().isEmpty()) {
+            restoreJobs = Integer.parseInt(restoreJobsAsString.trim());
+        }
+
+        RestoreFilter restoreFilter = RestoreFilter.of(
+                parsePatterns(webRestoreBackupRequest.getIncludeSchemas()), parsePatterns(webRestoreBackupRequest.getExcludeSchemas()),
+                parsePatterns(webRestoreBackupRequest.getIncludeTables()), parsePatterns(webRestoreBackupRequest.getExcludeTables()));
+
+        // data of unchanged tables of incremental backup is restored from earlier backups
+        if (!backupTablesManager.getBaseBackupTables(backupId).isEmpty()) {
+            tasksStarterService.startIncrementalRestoreTask(Task.RunType.USER, backupProperties, storageSettingsName, databaseSettings,
+                    restoreJobs, restoreFilter);
+        } else {
+            tasksStarterService.startRestoreTask(Task.RunType.USER, backupProperties, storageSettingsName, databaseSettings, restoreJobs,
+                    restoreFilter);
+        }
+
+        return "redirect:/dashboard";
+    }
+
+    private String restoreBaseBackup(WebRestoreBackupRequest webRestoreBackupRequest, BackupProperties backupProperties,
+                                     StorageSettings storageSettings, String dataDirectory) {
+        Path dataDirectoryPath;
+        try {
+            dataDirectoryPath = Paths.get(dataDirectory);
+        } catch (InvalidPathException ex) {
+            throw new ValidationException("Can't restore backup: invalid data directory '" + dataDirectory + "'");
+        }
+
+        String targetTimeAsString = webRestoreBackupRequest.getTargetTime();
+        LocalDateTime targetTime = null;
+        if (targetTimeAsString != null && !targetTimeAsString.trim().isEmpty()) {
+            targetTime = LocalDateTime.parse(targetTimeAsString.trim(), WebRestoreBackupRequestValidator.targetTimeFormatter);
+        }
+
+        logger.info("restoreBackup(): Starting point-in-time restoration... Backup properties: {}. Storage: {}. Data directory: {}. " +
+                "Target time: {}", backupProperties, storageSettings, dataDirectoryPath, targetTime);
+
+        tasksStarterService.startPointInTimeRestoreTask(Task.RunType.USER, backupProperties, storageSettings.getSettingsName(),
+                dataDirectoryPath, targetTime);
 
         return "redirect:/dashboard";
     }
 
+    private String restoreBackupWithChanges(WebRestoreBackupRequest webRestoreBackupRequest, BackupProperties backupProperties,
+                                            StorageSettings storageSettings, DatabaseSettings databaseSettings) {
+        String targetLsnAsString = webRestoreBackupRequest.getTargetLsn();
+        Long targetLsn = null;
+        if (targetLsnAsString != null && !targetLsnAsString.trim().isEmpty()) {
+            targetLsn = PostgresChangeCapture.parseLsn(targetLsnAsString.trim());
+        }
+
+        logger.info("restoreBackup(): Starting backup restoration with captured changes... Backup properties: {}. Storage: {}. " +
+                "Database: {}. Target position: {}", backupProperties, storageSettings, databaseSettings, targetLsnAsString);
+
+        tasksStarterService.startChangeReplayRestoreTask(Task.RunType.USER, backupProperties, storageSettings.getSettingsName(),
+                databaseSettings, targetLsn);
+
+        return "redirect:/dashboard";
+    }
+
+    /**
+     * Parses comma-separated restore filter patterns.
+     */
+    private List<String> parsePatterns(@Nullable String patterns) {
+        List<String> patternList = new ArrayList<>();
+        if (patterns == null || patterns.trim().isEmpty()) {
+            return patternList;
+        }
+        for (String pattern : patterns.split(",")) {
+            patternList.add(pattern.trim());
+        }
+        return patternList;
+    }
+
     @Nullable
     private String validateDeleteBackupRequest(WebDeleteBackupRequest webDeleteBackupRequest) {
         String backupIdAsString = webDeleteBackupRequest.getBackupId();
@@ -180,7 +333,19 @@ public class WebApiBackupController {
         BackupProperties backupProperties = backupPropertiesManager.findById(backupId).orElseThrow(() ->
                 new IllegalStateException("Can't delete backup: no such backup properties with ID " + backupId));
 
+        if (backupTablesManager.isReferencedByOtherBackups(backupId)) {
+            throw new ValidationException("Can't delete backup: data of its tables is used by later incremental backups");
+        }
+        if (backupPropertiesManager.isSourceOfOtherBackups(backupId)) {
+            throw new ValidationException("Can't delete backup: it is referred to by no-change backups. Delete them first");
+        }
+
         backupPropertiesManager.deleteById(backupId);
+        // no-change backup shares data on storages with its source backup, so there is nothing to delete
+        if (backupProperties.getSourceBackupPropertiesId() != null) {
+            logger.info("deleteBackup(): No-change backup deleted. Backup properties: {}", backupProperties);
+            return "redirect:/dashboard";
+        }
         tasksStarterService.startDeleteTask(Task.RunType.USER, backupProperties);
 
         return "redirect:/dashboard";
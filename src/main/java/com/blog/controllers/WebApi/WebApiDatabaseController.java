@@ -2,11 +2,14 @@ package com.blog.controllers.WebApi;
 
 import com.blog.controllers.Errors.ValidationException;
 import com.blog.controllers.WebApi.Validator.WebAddDatabaseRequestValidator;
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.database.DatabaseType;
+import com.blog.entities.database.PostgresBackupEngine;
 import com.blog.entities.database.PostgresSettings;
 import com.blog.manager.DatabaseSettingsManager;
 import com.blog.webUI.formTransfer.WebAddDatabaseRequest;
+import com.blog.webUI.formTransfer.database.WebPostgresSettings;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,6 +68,35 @@ public class WebApiDatabaseController {
         switch (databaseType.get()) {
             case POSTGRES: {
                 PostgresSettings postgresSettings = new PostgresSettings();
+                WebPostgresSettings webPostgresSettings = addDatabaseRequest.getPostgresSettings();
+                if (webPostgresSettings != null) {
+                    String engine = webPostgresSettings.getEngine();
+                    if (engine != null && !engine.trim().isEmpty()) {
+                        postgresSettings.setEngine(PostgresBackupEngine.of(engine).orElseThrow(() ->
+                                new IllegalStateException("Can't create database settings: Invalid backup engine")));
+                    }
+                    String backupFormat = webPostgresSettings.getBackupFormat();
+                    if (backupFormat != null && !backupFormat.trim().isEmpty()) {
+                        postgresSettings.setBackupFormat(BackupFormat.of(backupFormat).orElseThrow(() ->
+                                new IllegalStateException("Can't create database settings: Invalid backup format")));
+                    }
+                    String backupJobs = webPostgresSettings.getBackupJobs();
+                    if (backupJobs != null && !backupJobs.trim().isEmpty()) {
+                        postgresSettings.setBackupJobs(Integer.valueOf(backupJobs));
+                    }
+                    String binaryCopy = webPostgresSettings.getBinaryCopy();
+                    if (binaryCopy != null && !binaryCopy.trim().isEmpty()) {
+                        postgresSettings.setBinaryCopy(Boolean.parseBoolean(binaryCopy));
+                    }
+                    String splitTableThresholdMb = webPostgresSettings.getSplitTableThresholdMb();
+                    if (splitTableThresholdMb != null && !splitTableThresholdMb.trim().isEmpty()) {
+                        postgresSettings.setSplitTableThresholdMb(Integer.valueOf(splitTableThresholdMb));
+                    }
+                    String splitTableJobs = webPostgresSettings.getSplitTableJobs();
+                    if (splitTableJobs != null && !splitTableJobs.trim().isEmpty()) {
+                        postgresSettings.setSplitTableJobs(Integer.valueOf(splitTableJobs));
+                    }
+                }
 
                 databaseSettings = DatabaseSettings.postgresSettings(postgresSettings)
                         .withHost(addDatabaseRequest.getHost())
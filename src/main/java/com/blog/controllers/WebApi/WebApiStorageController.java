@@ -77,6 +77,7 @@ public class WebApiStorageController {
                 storageSettings = StorageSettings.dropboxSettings(dropboxSettings)
                         .withSettingsName(addStorageRequest.getSettingsName())
                         .withDate(LocalDateTime.now(ZoneOffset.UTC))
+                        .withDeduplication(addStorageRequest.isDeduplication())
                         .build();
                 break;
             }
@@ -90,6 +91,7 @@ public class WebApiStorageController {
                 storageSettings = StorageSettings.localFileSystemSettings(localFileSystemSettings)
                         .withSettingsName(addStorageRequest.getSettingsName())
                         .withDate(LocalDateTime.now(ZoneOffset.UTC))
+                        .withDeduplication(addStorageRequest.isDeduplication())
                         .build();
                 break;
             }
@@ -3,10 +3,12 @@ package com.blog.controllers.WebApi;
 import com.blog.controllers.Errors.ValidationException;
 import com.blog.controllers.WebApi.Validator.WebAddPlannedTaskRequestValidator;
 import com.blog.entities.task.PlannedTask;
+import com.blog.manager.BackupProcessorManager;
 import com.blog.manager.CancelTasksManager;
 import com.blog.manager.DatabaseSettingsManager;
 import com.blog.manager.PlannedTasksManager;
 import com.blog.manager.StorageSettingsManager;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import com.blog.webUI.formTransfer.WebAddPlannedTaskRequest;
 import org.jetbrains.annotations.Nullable;
@@ -39,6 +41,8 @@ public class WebApiTaskController {
 
     private CancelTasksManager cancelTasksManager;
 
+    private BackupProcessorManager backupProcessorManager;
+
     @Autowired
     public void setWebAddPlannedTaskRequestValidator(WebAddPlannedTaskRequestValidator webAddPlannedTaskRequestValidator) {
         this.webAddPlannedTaskRequestValidator = webAddPlannedTaskRequestValidator;
@@ -64,6 +68,11 @@ public class WebApiTaskController {
         this.cancelTasksManager = cancelTasksManager;
     }
 
+    @Autowired
+    public void setBackupProcessorManager(BackupProcessorManager backupProcessorManager) {
+        this.backupProcessorManager = backupProcessorManager;
+    }
+
     @PostMapping(path = "/planned-task")
     public String addPlannedTask(WebAddPlannedTaskRequest webAddPlannedTaskRequest, BindingResult bindingResult) {
         logger.info("addPlannedTask(): Got planned task creation request");
@@ -97,10 +106,20 @@ public class WebApiTaskController {
             processors.add(optionalProcessorType.get());
         }
 
+        String compressionLevel = webAddPlannedTaskRequest.getCompressionLevel();
+        ProcessorOptions processorOptions = new ProcessorOptions(
+                compressionLevel == null || compressionLevel.trim().isEmpty() ? null : Integer.valueOf(compressionLevel.trim()),
+                webAddPlannedTaskRequest.isLongRange());
+        try {
+            backupProcessorManager.checkOptions(processors, processorOptions);
+        } catch (IllegalArgumentException ex) {
+            throw new ValidationException("Can't create planned task: " + ex.getMessage());
+        }
+
         PlannedTask savedPlannedTask = plannedTasksManager.addNewTask(
                 webAddPlannedTaskRequest.getDatabaseSettingsName(),
-                webAddPlannedTaskRequest.getStorageSettingsNameList(), processors,
-                Long.valueOf(webAddPlannedTaskRequest.getInterval()));
+                webAddPlannedTaskRequest.getStorageSettingsNameList(), processors, processorOptions,
+                Long.valueOf(webAddPlannedTaskRequest.getInterval()), webAddPlannedTaskRequest.isIncremental());
 
         logger.info("addPlannedTask(): Planned backup task saved into database. Saved task: {}", savedPlannedTask);
 
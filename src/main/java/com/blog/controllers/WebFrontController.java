@@ -1,6 +1,8 @@
 package com.blog.controllers;
 
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.backup.ChangeSegment;
 import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.database.DatabaseType;
 import com.blog.entities.storage.DropboxSettings;
@@ -10,6 +12,9 @@ import com.blog.entities.storage.StorageType;
 import com.blog.entities.task.ErrorTask;
 import com.blog.entities.task.Task;
 import com.blog.manager.*;
+import com.blog.service.TaskThroughputService;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresChangeCapture;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.webUI.formTransfer.*;
 import com.blog.webUI.renderModels.WebBackupItem;
 import com.blog.webUI.renderModels.WebBackupTask;
@@ -42,6 +47,12 @@ public class WebFrontController {
 
     private ErrorTasksManager errorTasksManager;
 
+    private TaskThroughputService taskThroughputService;
+
+    private WalSegmentsManager walSegmentsManager;
+
+    private ChangeSegmentsManager changeSegmentsManager;
+
     @Autowired
     public void setWebDateFormatter(DateTimeFormatter webDateFormatter) {
         this.webDateFormatter = webDateFormatter;
@@ -67,11 +78,26 @@ public class WebFrontController {
         this.tasksManager = tasksManager;
     }
 
+    @Autowired
+    public void setWalSegmentsManager(WalSegmentsManager walSegmentsManager) {
+        this.walSegmentsManager = walSegmentsManager;
+    }
+
+    @Autowired
+    public void setChangeSegmentsManager(ChangeSegmentsManager changeSegmentsManager) {
+        this.changeSegmentsManager = changeSegmentsManager;
+    }
+
     @Autowired
     public void setErrorTasksManager(ErrorTasksManager errorTasksManager) {
         this.errorTasksManager = errorTasksManager;
     }
 
+    @Autowired
+    public void setTaskThroughputService(TaskThroughputService taskThroughputService) {
+        this.taskThroughputService = taskThroughputService;
+    }
+
     @RequestMapping("/")
     public String index() {
         return "redirect:/dashboard";
@@ -99,6 +125,9 @@ public class WebFrontController {
                 HashMap<String, String> webStorageProperties = new HashMap<>();
                 webStorageProperties.put("Settings name", storageSettings.getSettingsName());
                 webStorageProperties.put("Backup path", localFileSystemSettings.getBackupPath());
+                if (storageSettings.isDeduplication()) {
+                    webStorageProperties.put("Deduplication", "Yes");
+                }
 
                 WebStorageItem storageItem = new WebStorageItem.Builder()
                         .withType(storageSettings.getType())
@@ -121,6 +150,9 @@ public class WebFrontController {
                 HashMap<String, String> webStorageProperties = new HashMap<>();
                 webStorageProperties.put("Settings name", storageSettings.getSettingsName());
                 webStorageProperties.put("Access token", dropboxSettings.getAccessToken());
+                if (storageSettings.isDeduplication()) {
+                    webStorageProperties.put("Deduplication", "Yes");
+                }
 
                 WebStorageItem storageItem = new WebStorageItem.Builder()
                         .withType(storageSettings.getType())
@@ -167,6 +199,30 @@ public class WebFrontController {
                 HashMap<String, String> webBackupProperties = new HashMap<>();
 
                 webBackupProperties.put("Processors", backupProperties.getProcessors().toString());
+                ProcessorOptions processorOptions = backupProperties.getProcessorOptions();
+                if (processorOptions.getCompressionLevel() != null) {
+                    webBackupProperties.put("Compression level", processorOptions.getCompressionLevel().toString());
+                }
+                if (processorOptions.isLongRange()) {
+                    webBackupProperties.put("Long range mode", "Yes");
+                }
+                if (processorOptions.getDictionaryId() != null) {
+                    webBackupProperties.put("Compression dictionary", processorOptions.getDictionaryId().toString());
+                }
+                webBackupProperties.put("Format", backupProperties.getFormat().toString());
+                if (backupProperties.getSourceBackupPropertiesId() != null) {
+                    webBackupProperties.put("No changes since backup", backupProperties.getSourceBackupPropertiesId().toString());
+                }
+                if (backupProperties.getFormat() == BackupFormat.BASE_BACKUP) {
+                    webBackupProperties.put("WAL segments", Long.toString(
+                            walSegmentsManager.countByBackupPropertiesId(backupProperties.getId())));
+                }
+                Optional<ChangeSegment> lastChangeSegment = changeSegmentsManager.findLastByBackupPropertiesId(backupProperties.getId());
+                if (lastChangeSegment.isPresent()) {
+                    webBackupProperties.put("Change segments", Long.toString(
+                            changeSegmentsManager.countByBackupPropertiesId(backupProperties.getId())));
+                    webBackupProperties.put("Captured up to", PostgresChangeCapture.formatLsn(lastChangeSegment.get().getEndLsn()));
+                }
 
                 WebBackupItem webBackupItem = new WebBackupItem.Builder()
                         .withId(backupProperties.getId())
@@ -193,6 +249,9 @@ public class WebFrontController {
                     .collect(Collectors.toCollection(HashSet::new));
 
             for (Task task : tasksManager.findAllByRunTypeOrderByDateDesc(Task.RunType.USER)) {
+                // throughput is measured only while restored data is transferred
+                String throughput = task.getState() == Task.State.RESTORING ?
+                        taskThroughputService.getThroughputAsString(task.getId()) : "";
                 WebBackupTask webBackupTask = new WebBackupTask.Builder()
                         .withId(task.getId())
                         .withType(task.getType().toString())
@@ -200,6 +259,7 @@ public class WebFrontController {
                         .withIsError(errorTaskIds.contains(task.getId()))
                         .withIsInterrupted(task.getInterrupted())
                         .withTime(webDateFormatter.format(task.getDate()))
+                        .withThroughput(throughput)
                         .build();
 
                 backupTaskList.add(webBackupTask);
@@ -0,0 +1,73 @@
+package com.blog.entities;
+
+import com.blog.service.processor.ProcessorOptions;
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.AttributeConverter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Converts processor options into comma separated list of {@literal key=value} pairs and back.
+ * <p>
+ * Options with default values are not written, so the default options are converted into empty string. Unknown keys are ignored.
+ */
+public class ProcessorOptionsToStringFieldConverter implements AttributeConverter<ProcessorOptions, String> {
+    private static final String DELIMITER = ",";
+
+    private static final String KEY_VALUE_DELIMITER = "=";
+
+    private static final String COMPRESSION_LEVEL_KEY = "compressionLevel";
+
+    private static final String LONG_RANGE_KEY = "longRange";
+
+    private static final String DICTIONARY_ID_KEY = "dictionaryId";
+
+    @Override
+    public String convertToDatabaseColumn(@NotNull ProcessorOptions attribute) {
+        Objects.requireNonNull(attribute);
+
+        List<String> options = new ArrayList<>();
+        if (attribute.getCompressionLevel() != null) {
+            options.add(COMPRESSION_LEVEL_KEY + KEY_VALUE_DELIMITER + attribute.getCompressionLevel());
+        }
+        if (attribute.isLongRange()) {
+            options.add(LONG_RANGE_KEY + KEY_VALUE_DELIMITER + true);
+        }
+        if (attribute.getDictionaryId() != null) {
+            options.add(DICTIONARY_ID_KEY + KEY_VALUE_DELIMITER + attribute.getDictionaryId());
+        }
+        return String.join(DELIMITER, options);
+    }
+
+    @Override
+    public ProcessorOptions convertToEntityAttribute(String dbData) {
+        Integer compressionLevel = null;
+        boolean longRange = false;
+        Integer dictionaryId = null;
+        if (dbData != null && !dbData.isEmpty()) {
+            for (String option : dbData.split(DELIMITER)) {
+                String[] keyValue = option.split(KEY_VALUE_DELIMITER, 2);
+                if (keyValue.length != 2) {
+                    continue;
+                }
+                switch (keyValue[0]) {
+                    case COMPRESSION_LEVEL_KEY:
+                        compressionLevel = Integer.valueOf(keyValue[1]);
+                        break;
+                    case LONG_RANGE_KEY:
+                        longRange = Boolean.parseBoolean(keyValue[1]);
+                        break;
+                    case DICTIONARY_ID_KEY:
+                        dictionaryId = Integer.valueOf(keyValue[1]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        ProcessorOptions options = new ProcessorOptions(compressionLevel, longRange, dictionaryId);
+        return options.equals(ProcessorOptions.DEFAULT) ? ProcessorOptions.DEFAULT : options;
+    }
+}
@@ -0,0 +1,79 @@
+package com.blog.entities.backup;
+
+import java.util.Optional;
+
+/**
+ * Format of created backup.
+ * <p>
+ * Format defines how backup stream is produced by {@link com.blog.service.databaseBackup.DatabaseBackup} services and how it should be
+ * restored.
+ */
+public enum BackupFormat {
+    /**
+     * Plain-text SQL script.
+     */
+    PLAIN("plain") {
+        @Override
+        public String toString() {
+            return "Plain";
+        }
+    },
+    /**
+     * <i>pg_dump</i> custom format archive.
+     */
+    CUSTOM("custom") {
+        @Override
+        public String toString() {
+            return "Custom";
+        }
+    },
+    /**
+     * Directory format archive. Every file of the dump directory is streamed as a separate archive entry.
+     */
+    DIRECTORY("directory") {
+        @Override
+        public String toString() {
+            return "Directory";
+        }
+    },
+    /**
+     * Archive created by in-process JDBC engine. Contains schema scripts and table data dumped using <i>COPY</i> protocol.
+     *
+     * @see com.blog.entities.database.PostgresBackupEngine#JDBC_COPY
+     */
+    COPY_ARCHIVE("copy_archive") {
+        @Override
+        public String toString() {
+            return "Copy archive";
+        }
+    },
+    /**
+     * Physical base backup: tar archive of the database cluster data directory created by <i>pg_basebackup</i>. WAL segments archived
+     * after the base backup (see {@link WalSegment}) allow to restore the cluster to any point in time.
+     */
+    BASE_BACKUP("base_backup") {
+        @Override
+        public String toString() {
+            return "Base backup";
+        }
+    };
+
+    private final String formatAsString;
+
+    BackupFormat(String formatAsString) {
+        this.formatAsString = formatAsString;
+    }
+
+    public static Optional<BackupFormat> of(String format) {
+        for (BackupFormat value : values()) {
+            if (value.formatAsString.equals(format)) {
+                return Optional.of(value);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public String getFormatAsString() {
+        return formatAsString;
+    }
+}
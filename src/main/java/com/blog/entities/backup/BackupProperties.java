@@ -1,10 +1,13 @@
 package com.blog.entities.backup;
 
+import com.blog.entities.ProcessorOptionsToStringFieldConverter;
 import com.blog.entities.ProcessorTypeEnumListToStringFieldConverter;
 import com.blog.entities.StringListToStringFieldConverter;
 import com.blog.entities.storage.StorageSettings;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -54,12 +57,48 @@ public class BackupProperties {
     @Convert(converter = ProcessorTypeEnumListToStringFieldConverter.class)
     private List<ProcessorType> processors;
 
+    /**
+     * Options, with which processors were applied on backup.
+     */
+    @Column(updatable = false)
+    @Convert(converter = ProcessorOptionsToStringFieldConverter.class)
+    private ProcessorOptions processorOptions = ProcessorOptions.DEFAULT;
+
     /**
      * List of storage identifiers where backup is saved.
      */
     @Convert(converter = StringListToStringFieldConverter.class)
     private List<String> storageSettingsNameList;
 
+    /**
+     * Format of backup. Format defines how backup should be restored.
+     *
+     * @see BackupFormat
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private BackupFormat format = BackupFormat.PLAIN;
+
+    /**
+     * Marker of the database state read before the backup creation.
+     * <p>
+     * May be null if the backup was not created by planned task or changes of the database can't be tracked.
+     *
+     * @see com.blog.manager.DatabaseBackupManager#readChangeMarker(com.blog.entities.database.DatabaseSettings)
+     */
+    @Nullable
+    private String changeMarker;
+
+    /**
+     * Identifier of backup properties of the backup containing the same data.
+     * <p>
+     * Set only for no-change backups, which are recorded instead of dumping the database if it has not changed since the previous
+     * backup. No-change backup shares the backup name, storages and processors of its source backup, so nothing is uploaded for it.
+     */
+    @Nullable
+    @Column(updatable = false)
+    private Integer sourceBackupPropertiesId;
+
     BackupProperties() {
 
     }
@@ -72,6 +111,12 @@ public class BackupProperties {
         this.storageSettingsNameList = Objects.requireNonNull(storageSettingsNameList);
     }
 
+    public BackupProperties(@NotNull String backupName, @NotNull List<ProcessorType> processors, @NotNull LocalDateTime date,
+                            @NotNull List<String> storageSettingsNameList, @NotNull BackupFormat format) {
+        this(backupName, processors, date, storageSettingsNameList);
+        this.format = Objects.requireNonNull(format);
+    }
+
     public Integer getId() {
         return id;
     }
@@ -104,6 +149,14 @@ public class BackupProperties {
         this.processors = processors;
     }
 
+    public ProcessorOptions getProcessorOptions() {
+        return processorOptions;
+    }
+
+    public void setProcessorOptions(ProcessorOptions processorOptions) {
+        this.processorOptions = processorOptions;
+    }
+
     public List<String> getStorageSettingsNameList() {
         return storageSettingsNameList;
     }
@@ -112,6 +165,32 @@ public class BackupProperties {
         this.storageSettingsNameList = storageSettingsNameList;
     }
 
+    public BackupFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(BackupFormat format) {
+        this.format = format;
+    }
+
+    @Nullable
+    public String getChangeMarker() {
+        return changeMarker;
+    }
+
+    public void setChangeMarker(@Nullable String changeMarker) {
+        this.changeMarker = changeMarker;
+    }
+
+    @Nullable
+    public Integer getSourceBackupPropertiesId() {
+        return sourceBackupPropertiesId;
+    }
+
+    public void setSourceBackupPropertiesId(@Nullable Integer sourceBackupPropertiesId) {
+        this.sourceBackupPropertiesId = sourceBackupPropertiesId;
+    }
+
     @Override
     public String toString() {
         return "BackupProperties{" +
@@ -119,7 +198,11 @@ public class BackupProperties {
                 ", date=" + date +
                 ", backupName='" + backupName + '\'' +
                 ", processors=" + processors +
+                ", processorOptions=" + processorOptions +
                 ", storageSettingsNameList=" + storageSettingsNameList +
+                ", format=" + format +
+                ", changeMarker='" + changeMarker + '\'' +
+                ", sourceBackupPropertiesId=" + sourceBackupPropertiesId +
                 '}';
     }
 }
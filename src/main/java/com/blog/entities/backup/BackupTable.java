@@ -0,0 +1,118 @@
+package com.blog.entities.backup;
+
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.TableStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.*;
+import java.util.Objects;
+
+/**
+ * This entity represents a table of incremental backup manifest.
+ * <p>
+ * Manifest of the backup lists all tables of the database at the time of backup creation together with their change counters. Data of
+ * the table is saved in the backup referenced by {@link #dataBackupPropertiesId}: the backup itself if the table was changed since the
+ * previous backup, otherwise the backup the table data was saved in last time.
+ */
+@Entity
+@Table(name = "backup_tables")
+public class BackupTable {
+    /**
+     * Identifier of each manifest entry.
+     */
+    @Id
+    @Column(insertable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * Identifier of {@link BackupProperties} of the backup the manifest belongs to.
+     */
+    @Column(updatable = false)
+    private Integer backupPropertiesId;
+
+    /**
+     * Quoted qualified table name.
+     */
+    @Column(updatable = false)
+    private String tableName;
+
+    /**
+     * Identifier of {@link BackupProperties} of the backup containing the table data.
+     */
+    @Column(updatable = false)
+    private Integer dataBackupPropertiesId;
+
+    @Column(updatable = false)
+    private Long insertedTuples;
+
+    @Column(updatable = false)
+    private Long updatedTuples;
+
+    @Column(updatable = false)
+    private Long deletedTuples;
+
+    @Column(updatable = false)
+    private Long size;
+
+    @Column(updatable = false)
+    private Long fileNode;
+
+    @Column(updatable = false)
+    private String columnsSignature;
+
+    BackupTable() {
+
+    }
+
+    public BackupTable(@NotNull Integer backupPropertiesId, @NotNull String tableName, @NotNull Integer dataBackupPropertiesId,
+                       @NotNull TableStatistics statistics) {
+        this.backupPropertiesId = Objects.requireNonNull(backupPropertiesId);
+        this.tableName = Objects.requireNonNull(tableName);
+        this.dataBackupPropertiesId = Objects.requireNonNull(dataBackupPropertiesId);
+        this.insertedTuples = statistics.getInsertedTuples();
+        this.updatedTuples = statistics.getUpdatedTuples();
+        this.deletedTuples = statistics.getDeletedTuples();
+        this.size = statistics.getSize();
+        this.fileNode = statistics.getFileNode();
+        this.columnsSignature = statistics.getColumnsSignature();
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getBackupPropertiesId() {
+        return backupPropertiesId;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Integer getDataBackupPropertiesId() {
+        return dataBackupPropertiesId;
+    }
+
+    /**
+     * Returns change counters of the table at the time of backup creation.
+     */
+    public TableStatistics getStatistics() {
+        return new TableStatistics(insertedTuples, updatedTuples, deletedTuples, size, fileNode, columnsSignature);
+    }
+
+    @Override
+    public String toString() {
+        return "BackupTable{" +
+                "id=" + id +
+                ", backupPropertiesId=" + backupPropertiesId +
+                ", tableName='" + tableName + '\'' +
+                ", dataBackupPropertiesId=" + dataBackupPropertiesId +
+                ", insertedTuples=" + insertedTuples +
+                ", updatedTuples=" + updatedTuples +
+                ", deletedTuples=" + deletedTuples +
+                ", size=" + size +
+                ", fileNode=" + fileNode +
+                ", columnsSignature='" + columnsSignature + '\'' +
+                '}';
+    }
+}
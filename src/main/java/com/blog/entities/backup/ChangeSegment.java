@@ -0,0 +1,105 @@
+package com.blog.entities.backup;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * This entity represents segment of database changes captured by logical decoding after the full backup was created.
+ * <p>
+ * Every segment contains whole transactions committed between {@link #startLsn} and {@link #endLsn}. Segment is saved on the same storages
+ * and processed by the same processors as the full backup, so it can be accessed the same way as the full backup using
+ * {@link #backupName}.
+ */
+@Entity
+@Table(name = "change_segments")
+public class ChangeSegment {
+    /**
+     * Identifier of each change segment.
+     */
+    @Id
+    @Column(insertable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * Identifier of {@link BackupProperties} of the full backup the changes are captured for.
+     */
+    @Column(updatable = false)
+    private Integer backupPropertiesId;
+
+    /**
+     * WAL position of the first change of the segment.
+     */
+    @Column(updatable = false)
+    private Long startLsn;
+
+    /**
+     * WAL position of the commit of the last transaction of the segment.
+     */
+    @Column(updatable = false)
+    private Long endLsn;
+
+    /**
+     * Name the segment is saved under on storages.
+     */
+    @Column(updatable = false)
+    private String backupName;
+
+    /**
+     * Time the segment was uploaded.
+     */
+    @Column(updatable = false)
+    private LocalDateTime date;
+
+    ChangeSegment() {
+
+    }
+
+    public ChangeSegment(@NotNull Integer backupPropertiesId, long startLsn, long endLsn, @NotNull String backupName,
+                         @NotNull LocalDateTime date) {
+        this.backupPropertiesId = Objects.requireNonNull(backupPropertiesId);
+        this.startLsn = startLsn;
+        this.endLsn = endLsn;
+        this.backupName = Objects.requireNonNull(backupName);
+        this.date = Objects.requireNonNull(date);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getBackupPropertiesId() {
+        return backupPropertiesId;
+    }
+
+    public long getStartLsn() {
+        return startLsn;
+    }
+
+    public long getEndLsn() {
+        return endLsn;
+    }
+
+    public String getBackupName() {
+        return backupName;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSegment{" +
+                "id=" + id +
+                ", backupPropertiesId=" + backupPropertiesId +
+                ", startLsn=" + startLsn +
+                ", endLsn=" + endLsn +
+                ", backupName='" + backupName + '\'' +
+                ", date=" + date +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package com.blog.entities.backup;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * This entity represents compression dictionary trained on backups of the database.
+ * <p>
+ * Dictionary contains content common to backups of the database (e.g. DDL and {@code COPY} headers), so small backups don't have to
+ * repeat it. Dictionaries are retrained from recent backups and every new one gets the next {@link #version}. Backup compressed with
+ * dictionary saves its {@link #id} in processor options (see {@link BackupProperties#getProcessorOptions()}), so dictionaries are never
+ * changed after creation.
+ */
+@Entity
+@Table(name = "compression_dictionaries")
+public class CompressionDictionary {
+    /**
+     * Identifier of each compression dictionary.
+     */
+    @Id
+    @Column(insertable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * Name of database settings of the database the dictionary is trained for.
+     */
+    @Column(updatable = false)
+    private String databaseSettingsName;
+
+    /**
+     * Version of the dictionary among dictionaries of the database, starting from {@literal 1}.
+     */
+    @Column(updatable = false)
+    private Integer version;
+
+    /**
+     * Time the dictionary was trained.
+     */
+    @Column(updatable = false)
+    private LocalDateTime date;
+
+    /**
+     * Dictionary content in Zstandard format.
+     */
+    @Column(updatable = false)
+    private byte[] dictionary;
+
+    CompressionDictionary() {
+
+    }
+
+    public CompressionDictionary(@NotNull String databaseSettingsName, int version, @NotNull LocalDateTime date,
+                                 @NotNull byte[] dictionary) {
+        this.databaseSettingsName = Objects.requireNonNull(databaseSettingsName);
+        this.version = version;
+        this.date = Objects.requireNonNull(date);
+        this.dictionary = Objects.requireNonNull(dictionary);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getDatabaseSettingsName() {
+        return databaseSettingsName;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionDictionary{" +
+                "id=" + id +
+                ", databaseSettingsName='" + databaseSettingsName + '\'' +
+                ", version=" + version +
+                ", date=" + date +
+                ", dictionarySize=" + dictionary.length +
+                '}';
+    }
+}
@@ -0,0 +1,92 @@
+package com.blog.entities.backup;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * This entity represents archived WAL segment of {@link BackupFormat#BASE_BACKUP} backup.
+ * <p>
+ * Every segment is saved on the same storages and processed by the same processors as the base backup, so it can be accessed the same
+ * way as the base backup using {@link #backupName}.
+ */
+@Entity
+@Table(name = "wal_segments")
+public class WalSegment {
+    /**
+     * Identifier of each WAL segment.
+     */
+    @Id
+    @Column(insertable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * Identifier of {@link BackupProperties} of the base backup the segment is archived for.
+     */
+    @Column(updatable = false)
+    private Integer backupPropertiesId;
+
+    /**
+     * WAL file name (e.g. {@literal 000000010000000000000003} or timeline history file {@literal 00000002.history}).
+     */
+    @Column(updatable = false)
+    private String segmentName;
+
+    /**
+     * Name the segment is saved under on storages.
+     */
+    @Column(updatable = false)
+    private String backupName;
+
+    /**
+     * Time the segment was archived. All transactions of the segment were committed before this time.
+     */
+    @Column(updatable = false)
+    private LocalDateTime date;
+
+    WalSegment() {
+
+    }
+
+    public WalSegment(@NotNull Integer backupPropertiesId, @NotNull String segmentName, @NotNull String backupName,
+                      @NotNull LocalDateTime date) {
+        this.backupPropertiesId = Objects.requireNonNull(backupPropertiesId);
+        this.segmentName = Objects.requireNonNull(segmentName);
+        this.backupName = Objects.requireNonNull(backupName);
+        this.date = Objects.requireNonNull(date);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getBackupPropertiesId() {
+        return backupPropertiesId;
+    }
+
+    public String getSegmentName() {
+        return segmentName;
+    }
+
+    public String getBackupName() {
+        return backupName;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return "WalSegment{" +
+                "id=" + id +
+                ", backupPropertiesId=" + backupPropertiesId +
+                ", segmentName='" + segmentName + '\'' +
+                ", backupName='" + backupName + '\'' +
+                ", date=" + date +
+                '}';
+    }
+}
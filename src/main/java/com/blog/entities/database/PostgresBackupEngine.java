@@ -0,0 +1,47 @@
+package com.blog.entities.database;
+
+import java.util.Optional;
+
+/**
+ * Engine used to create PostgreSQL backups.
+ */
+public enum PostgresBackupEngine {
+    /**
+     * Backups are created by <i>pg_dump</i> tool.
+     */
+    PG_DUMP("pg_dump") {
+        @Override
+        public String toString() {
+            return "pg_dump";
+        }
+    },
+    /**
+     * Backups are created in-process: table data is dumped by parallel JDBC connections using <i>COPY</i> protocol under the single
+     * exported snapshot.
+     */
+    JDBC_COPY("jdbc_copy") {
+        @Override
+        public String toString() {
+            return "JDBC COPY";
+        }
+    };
+
+    private final String engineAsString;
+
+    PostgresBackupEngine(String engineAsString) {
+        this.engineAsString = engineAsString;
+    }
+
+    public static Optional<PostgresBackupEngine> of(String engine) {
+        for (PostgresBackupEngine value : values()) {
+            if (value.engineAsString.equals(engine)) {
+                return Optional.of(value);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public String getEngineAsString() {
+        return engineAsString;
+    }
+}
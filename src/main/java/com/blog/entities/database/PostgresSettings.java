@@ -1,11 +1,116 @@
 package com.blog.entities.database;
 
+import com.blog.entities.backup.BackupFormat;
+
 /**
  * This entity represents PostgreSQL specific properties.
  */
 public class PostgresSettings {
+    /**
+     * Engine that creates backups.
+     * <p>
+     * Default is {@link PostgresBackupEngine#PG_DUMP}.
+     */
+    private PostgresBackupEngine engine = PostgresBackupEngine.PG_DUMP;
+
+    /**
+     * Format of backups created by {@link PostgresBackupEngine#PG_DUMP} engine.
+     * <p>
+     * Default is {@link BackupFormat#PLAIN}.
+     */
+    private BackupFormat backupFormat = BackupFormat.PLAIN;
+
+    /**
+     * Number of parallel <i>pg_dump</i> jobs.
+     * <p>
+     * Used with {@link BackupFormat#DIRECTORY} format, since only this format supports parallel dumping, and as number of worker
+     * connections of {@link PostgresBackupEngine#JDBC_COPY} engine.
+     * <p>
+     * Backups of {@link BackupFormat#CUSTOM} and {@link BackupFormat#DIRECTORY} formats can be restored in parallel regardless of this
+     * setting. Number of restore jobs is set per restoration.
+     */
+    private int backupJobs = 1;
+
+    /**
+     * Whether table data should be dumped in binary <i>COPY</i> format.
+     * <p>
+     * Used only with {@link PostgresBackupEngine#JDBC_COPY} engine. Binary format is faster to dump and restore, but it can be restored
+     * only into the same PostgreSQL major version.
+     */
+    private boolean binaryCopy = false;
+
+    /**
+     * Size of table in megabytes starting from which the table is split into <i>ctid</i> block ranges dumped concurrently.
+     * <p>
+     * Used only with {@link PostgresBackupEngine#JDBC_COPY} engine and PostgreSQL 14 or later. {@literal 0} disables table splitting.
+     */
+    private int splitTableThresholdMb = 0;
+
+    /**
+     * Number of <i>ctid</i> block ranges, and so the maximum number of concurrent workers, a large table is split into.
+     * <p>
+     * Used only with {@link PostgresBackupEngine#JDBC_COPY} engine. Ranges of all tables are dumped by {@link #backupJobs} worker
+     * connections.
+     */
+    private int splitTableJobs = 4;
+
+    public PostgresBackupEngine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(PostgresBackupEngine engine) {
+        this.engine = engine;
+    }
+
+    public BackupFormat getBackupFormat() {
+        return backupFormat;
+    }
+
+    public void setBackupFormat(BackupFormat backupFormat) {
+        this.backupFormat = backupFormat;
+    }
+
+    public int getBackupJobs() {
+        return backupJobs;
+    }
+
+    public void setBackupJobs(int backupJobs) {
+        this.backupJobs = backupJobs;
+    }
+
+    public boolean isBinaryCopy() {
+        return binaryCopy;
+    }
+
+    public void setBinaryCopy(boolean binaryCopy) {
+        this.binaryCopy = binaryCopy;
+    }
+
+    public int getSplitTableThresholdMb() {
+        return splitTableThresholdMb;
+    }
+
+    public void setSplitTableThresholdMb(int splitTableThresholdMb) {
+        this.splitTableThresholdMb = splitTableThresholdMb;
+    }
+
+    public int getSplitTableJobs() {
+        return splitTableJobs;
+    }
+
+    public void setSplitTableJobs(int splitTableJobs) {
+        this.splitTableJobs = splitTableJobs;
+    }
+
     @Override
     public String toString() {
-        return "PostgresSettings{}";
+        return "PostgresSettings{" +
+                "engine=" + engine +
+                ", backupFormat=" + backupFormat +
+                ", backupJobs=" + backupJobs +
+                ", binaryCopy=" + binaryCopy +
+                ", splitTableThresholdMb=" + splitTableThresholdMb +
+                ", splitTableJobs=" + splitTableJobs +
+                '}';
     }
 }
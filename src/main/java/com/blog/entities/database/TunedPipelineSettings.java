@@ -0,0 +1,121 @@
+package com.blog.entities.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * This entity represents backup creation pipeline settings chosen by the autotuner for the database.
+ * <p>
+ * The next backup creation of the database starts from these settings.
+ *
+ * @see com.blog.manager.PipelineAutotuner
+ */
+@Entity
+@Table(name = "tuned_pipeline_settings")
+public class TunedPipelineSettings {
+    /**
+     * Name of database settings of the database the settings are chosen for.
+     */
+    @Id
+    private String databaseSettingsName;
+
+    /**
+     * Compression level or {@literal null} if it was never tuned.
+     */
+    @Nullable
+    private Integer compressionLevel;
+
+    /**
+     * Number of compression threads or {@literal null} if it was never tuned.
+     */
+    @Nullable
+    private Integer compressionThreads;
+
+    /**
+     * Number of backup parts uploaded concurrently or {@literal null} if it was never tuned.
+     */
+    @Nullable
+    private Integer uploadConcurrency;
+
+    /**
+     * Throughput of backup creation with these settings in bytes of unprocessed backup per second.
+     */
+    private Long bytesPerSecond;
+
+    /**
+     * Time the settings were chosen.
+     */
+    private LocalDateTime date;
+
+    TunedPipelineSettings() {
+
+    }
+
+    public TunedPipelineSettings(@NotNull String databaseSettingsName) {
+        this.databaseSettingsName = Objects.requireNonNull(databaseSettingsName);
+        this.bytesPerSecond = 0L;
+    }
+
+    public String getDatabaseSettingsName() {
+        return databaseSettingsName;
+    }
+
+    @Nullable
+    public Integer getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(@Nullable Integer compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Nullable
+    public Integer getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public void setCompressionThreads(@Nullable Integer compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
+    @Nullable
+    public Integer getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public void setUploadConcurrency(@Nullable Integer uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDateTime date) {
+        this.date = date;
+    }
+
+    @Override
+    public String toString() {
+        return "TunedPipelineSettings{" +
+                "databaseSettingsName='" + databaseSettingsName + '\'' +
+                ", compressionLevel=" + compressionLevel +
+                ", compressionThreads=" + compressionThreads +
+                ", uploadConcurrency=" + uploadConcurrency +
+                ", bytesPerSecond=" + bytesPerSecond +
+                ", date=" + date +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package com.blog.entities.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.*;
+import java.util.Objects;
+
+/**
+ * This entity represents chunk of backups stored on storage with deduplication.
+ * <p>
+ * Chunk is stored once per storage and referenced by manifests of backups containing it. Number of references is counted, so the chunk
+ * is deleted from storage as soon as the last backup referencing it is deleted.
+ *
+ * @see com.blog.service.storage.DeduplicatingStorage
+ */
+@Entity
+@Table(name = "backup_chunks")
+public class BackupChunk {
+    /**
+     * Identifier of each backup chunk.
+     */
+    @Id
+    @Column(insertable = false, updatable = false)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * Name of storage settings of the storage the chunk is stored on.
+     */
+    @Column(updatable = false)
+    private String storageSettingsName;
+
+    /**
+     * SHA-256 hash of chunk content as hex string.
+     */
+    @Column(updatable = false)
+    private String hash;
+
+    /**
+     * Chunk size in bytes.
+     */
+    @Column(updatable = false)
+    private Integer size;
+
+    /**
+     * Number of references to the chunk from manifests of backups.
+     */
+    private Integer referenceCount;
+
+    BackupChunk() {
+
+    }
+
+    public BackupChunk(@NotNull String storageSettingsName, @NotNull String hash, int size) {
+        this.storageSettingsName = Objects.requireNonNull(storageSettingsName);
+        this.hash = Objects.requireNonNull(hash);
+        this.size = size;
+        this.referenceCount = 1;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getStorageSettingsName() {
+        return storageSettingsName;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public void setReferenceCount(int referenceCount) {
+        this.referenceCount = referenceCount;
+    }
+
+    @Override
+    public String toString() {
+        return "BackupChunk{" +
+                "id=" + id +
+                ", storageSettingsName='" + storageSettingsName + '\'' +
+                ", hash='" + hash + '\'' +
+                ", size=" + size +
+                ", referenceCount=" + referenceCount +
+                '}';
+    }
+}
@@ -67,15 +67,26 @@ public class StorageSettings {
     @Convert(converter = AdditionalStorageSettingsConverter.class)
     private AdditionalStorageSettings additionalStorageSettings;
 
+    /**
+     * Whether backups are stored on the storage with deduplication.
+     * <p>
+     * This field can't be changed, because backups stored with and without deduplication have different representation on storage.
+     *
+     * @see com.blog.service.storage.DeduplicatingStorage
+     */
+    @Column(updatable = false)
+    private boolean deduplication;
+
     StorageSettings() {
     }
 
     private StorageSettings(@NotNull StorageType type, @NotNull String settingsName, @NotNull LocalDateTime date,
-                            @NotNull AdditionalStorageSettings additionalStorageSettings) {
+                            @NotNull AdditionalStorageSettings additionalStorageSettings, boolean deduplication) {
         this.type = Objects.requireNonNull(type);
         this.settingsName = Objects.requireNonNull(settingsName);
         this.date = Objects.requireNonNull(date);
         this.additionalStorageSettings = Objects.requireNonNull(additionalStorageSettings);
+        this.deduplication = deduplication;
     }
 
     /**
@@ -128,6 +139,10 @@ public class StorageSettings {
         this.date = date;
     }
 
+    public boolean isDeduplication() {
+        return deduplication;
+    }
+
     public Optional<DropboxSettings> getDropboxSettings() {
         return Optional.ofNullable(additionalStorageSettings.getDropboxSettings());
     }
@@ -143,13 +158,14 @@ public class StorageSettings {
                 ", type=" + type +
                 ", date=" + date +
                 ", additionalStorageSettings=" + additionalStorageSettings +
+                ", deduplication=" + deduplication +
                 '}';
     }
 
     /**
      * Builder for this entity.
      * <p>
-     * All fields are required and there are no optional fields.
+     * All fields are required except deduplication, which is disabled by default.
      */
     public static final class Builder {
         private StorageType type;
@@ -162,13 +178,15 @@ public class StorageSettings {
 
         private DropboxSettings dropboxSettings;
 
+        private boolean deduplication;
+
         private Builder() {
         }
 
         public StorageSettings build() {
             AdditionalStorageSettings additionalStorageSettings = new AdditionalStorageSettings(
                     type, localFileSystemSettings, dropboxSettings);
-            return new StorageSettings(type, settingsName, date, additionalStorageSettings);
+            return new StorageSettings(type, settingsName, date, additionalStorageSettings, deduplication);
         }
 
         public Builder withSettingsName(@NotNull String settingsName) {
@@ -180,5 +198,10 @@ public class StorageSettings {
             this.date = date;
             return this;
         }
+
+        public Builder withDeduplication(boolean deduplication) {
+            this.deduplication = deduplication;
+            return this;
+        }
     }
 }
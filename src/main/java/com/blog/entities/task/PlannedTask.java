@@ -1,7 +1,9 @@
 package com.blog.entities.task;
 
+import com.blog.entities.ProcessorOptionsToStringFieldConverter;
 import com.blog.entities.ProcessorTypeEnumListToStringFieldConverter;
 import com.blog.entities.StringListToStringFieldConverter;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -58,6 +60,13 @@ public class PlannedTask {
     @Convert(converter = ProcessorTypeEnumListToStringFieldConverter.class)
     private List<ProcessorType> processors;
 
+    /**
+     * Options of processors to apply on backup.
+     */
+    @Column(updatable = false)
+    @Convert(converter = ProcessorOptionsToStringFieldConverter.class)
+    private ProcessorOptions processorOptions = ProcessorOptions.DEFAULT;
+
     /**
      * Timestamp of moment when task was started last time.
      * <p>
@@ -78,20 +87,38 @@ public class PlannedTask {
     @Nullable
     private Integer handlerTaskId;
 
+    /**
+     * Whether only tables changed since the previous backup should be dumped.
+     */
+    @Column(updatable = false)
+    private boolean incremental;
+
+    /**
+     * Identifier of {@literal BackupProperties} of the last backup created by this planned task.
+     * <p>
+     * Incremental backup is compared with this backup. May be null if no backup was created yet.
+     */
+    @Nullable
+    private Integer lastBackupPropertiesId;
+
     PlannedTask() {
 
     }
 
     private PlannedTask(@NotNull State state, @NotNull List<String> storageSettingsNameList, @NotNull String databaseSettingsName,
-                        @NotNull List<ProcessorType> processors, @NotNull LocalDateTime lastStartedTime, @NotNull Duration interval,
-                        @Nullable Integer handlerTaskId) {
+                        @NotNull List<ProcessorType> processors, @NotNull ProcessorOptions processorOptions,
+                        @NotNull LocalDateTime lastStartedTime, @NotNull Duration interval, @Nullable Integer handlerTaskId,
+                        boolean incremental, @Nullable Integer lastBackupPropertiesId) {
         this.state = Objects.requireNonNull(state);
         this.storageSettingsNameList = Objects.requireNonNull(storageSettingsNameList);
         this.databaseSettingsName = Objects.requireNonNull(databaseSettingsName);
         this.processors = Objects.requireNonNull(processors);
+        this.processorOptions = Objects.requireNonNull(processorOptions);
         this.lastStartedTime = Objects.requireNonNull(lastStartedTime);
         this.interval = Objects.requireNonNull(interval);
         this.handlerTaskId = handlerTaskId;
+        this.incremental = incremental;
+        this.lastBackupPropertiesId = lastBackupPropertiesId;
     }
 
     public Integer getId() {
@@ -126,6 +153,14 @@ public class PlannedTask {
         this.processors = processors;
     }
 
+    public ProcessorOptions getProcessorOptions() {
+        return processorOptions;
+    }
+
+    public void setProcessorOptions(ProcessorOptions processorOptions) {
+        this.processorOptions = processorOptions;
+    }
+
     public LocalDateTime getLastStartedTime() {
         return lastStartedTime;
     }
@@ -151,6 +186,19 @@ public class PlannedTask {
         this.handlerTaskId = handlerTaskId;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    @Nullable
+    public Integer getLastBackupPropertiesId() {
+        return lastBackupPropertiesId;
+    }
+
+    public void setLastBackupPropertiesId(@Nullable Integer lastBackupPropertiesId) {
+        this.lastBackupPropertiesId = lastBackupPropertiesId;
+    }
+
     public State getState() {
         return state;
     }
@@ -167,9 +215,12 @@ public class PlannedTask {
                 ", storageSettingsNameList=" + storageSettingsNameList +
                 ", databaseSettingsName='" + databaseSettingsName + '\'' +
                 ", processors=" + processors +
+                ", processorOptions=" + processorOptions +
                 ", lastStartedTime=" + lastStartedTime +
                 ", interval=" + interval +
                 ", handlerTaskId=" + handlerTaskId +
+                ", incremental=" + incremental +
+                ", lastBackupPropertiesId=" + lastBackupPropertiesId +
                 '}';
     }
 
@@ -184,9 +235,12 @@ public class PlannedTask {
         private List<String> storageSettingsNameList;
         private String databaseSettingsName;
         private List<ProcessorType> processors;
+        private ProcessorOptions processorOptions = ProcessorOptions.DEFAULT;
         private LocalDateTime lastStartedTime;
         private Duration interval;
         private Integer handlerTaskId;
+        private boolean incremental;
+        private Integer lastBackupPropertiesId;
 
         public Builder() {
         }
@@ -211,6 +265,11 @@ public class PlannedTask {
             return this;
         }
 
+        public Builder withProcessorOptions(ProcessorOptions processorOptions) {
+            this.processorOptions = processorOptions;
+            return this;
+        }
+
         public Builder withLastStartedTime(LocalDateTime lastStartedTime) {
             this.lastStartedTime = lastStartedTime;
             return this;
@@ -226,9 +285,19 @@ public class PlannedTask {
             return this;
         }
 
+        public Builder withIncremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public Builder withLastBackupPropertiesId(@Nullable Integer lastBackupPropertiesId) {
+            this.lastBackupPropertiesId = lastBackupPropertiesId;
+            return this;
+        }
+
         public PlannedTask build() {
-            return new PlannedTask(state, storageSettingsNameList, databaseSettingsName, processors, lastStartedTime,
-                    interval, handlerTaskId);
+            return new PlannedTask(state, storageSettingsNameList, databaseSettingsName, processors, processorOptions,
+                    lastStartedTime, interval, handlerTaskId, incremental, lastBackupPropertiesId);
         }
     }
 }
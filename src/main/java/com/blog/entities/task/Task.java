@@ -2,6 +2,7 @@ package com.blog.entities.task;
 
 import com.blog.entities.backup.BackupProperties;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -75,6 +76,15 @@ public class Task {
     @Column(updatable = false)
     private LocalDateTime date;
 
+    /**
+     * Identifier of database settings of the database the task holds resources on (e.g. replication slot).
+     * <p>
+     * We need to know database to release the resources when reverting the task. May be null if the task holds no resources.
+     */
+    @Nullable
+    @Column(updatable = false)
+    private String databaseSettingsName;
+
     Task() {
 
     }
@@ -136,6 +146,15 @@ public class Task {
         this.date = date;
     }
 
+    @Nullable
+    public String getDatabaseSettingsName() {
+        return databaseSettingsName;
+    }
+
+    public void setDatabaseSettingsName(@Nullable String databaseSettingsName) {
+        this.databaseSettingsName = databaseSettingsName;
+    }
+
     @Override
     public String toString() {
         return "Task{" +
@@ -146,6 +165,7 @@ public class Task {
                 ", interrupted=" + interrupted +
                 ", backupPropertiesId=" + backupPropertiesId +
                 ", date=" + date +
+                ", databaseSettingsName=" + databaseSettingsName +
                 '}';
     }
 
@@ -163,6 +183,21 @@ public class Task {
         APPLYING_DEPROCESSORS,
         DOWNLOADING,
         UPLOADING,
+        /**
+         * Processed backup is being written to the local spool file. Backup is uploaded from the spool file after creation completes.
+         */
+        SPOOLING,
+        /**
+         * Backup is being uploaded from the spool file.
+         */
+        UPLOADING_FROM_SPOOL,
+        /**
+         * Upload from the spool file failed and will be retried after a delay.
+         */
+        WAITING_FOR_UPLOAD_RETRY,
+        ARCHIVING_WAL,
+        CAPTURING_CHANGES,
+        REPLAYING_CHANGES,
         COMPLETED,
     }
 
@@ -184,6 +219,42 @@ public class Task {
             public String toString() {
                 return "DELETE BACKUP";
             }
+        },
+        /**
+         * Creates base backup and continuously archives WAL segments until canceled.
+         */
+        ARCHIVE_WAL {
+            @Override
+            public String toString() {
+                return "ARCHIVE WAL";
+            }
+        },
+        /**
+         * Restores base backup and archived WAL segments into data directory to recover the cluster to a point in time.
+         */
+        RESTORE_POINT_IN_TIME {
+            @Override
+            public String toString() {
+                return "RESTORE TO POINT IN TIME";
+            }
+        },
+        /**
+         * Creates full backup and continuously captures database changes by logical decoding until canceled.
+         */
+        CAPTURE_CHANGES {
+            @Override
+            public String toString() {
+                return "CAPTURE CHANGES";
+            }
+        },
+        /**
+         * Restores full backup and replays captured changes up to the target WAL position.
+         */
+        RESTORE_CHANGES {
+            @Override
+            public String toString() {
+                return "RESTORE WITH CHANGES";
+            }
         }
     }
 
@@ -193,6 +264,7 @@ public class Task {
         private State state;
         private Integer backupPropertiesId;
         private LocalDateTime date;
+        private String databaseSettingsName;
 
         public Builder() {
         }
@@ -222,8 +294,15 @@ public class Task {
             return this;
         }
 
+        public Builder withDatabaseSettingsName(String databaseSettingsName) {
+            this.databaseSettingsName = databaseSettingsName;
+            return this;
+        }
+
         public Task build() {
-            return new Task(type, runType, state, backupPropertiesId, date);
+            Task task = new Task(type, runType, state, backupPropertiesId, date);
+            task.setDatabaseSettingsName(databaseSettingsName);
+            return task;
         }
     }
 }
@@ -0,0 +1,103 @@
+package com.blog.manager;
+
+import com.blog.entities.storage.BackupChunk;
+import com.blog.repositories.BackupChunksRepository;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class provides API to count references to chunks of backups stored on storages with deduplication.
+ * <p>
+ * Methods of this class don't synchronize access to the same chunk, so callers must not change references to the same chunk
+ * concurrently.
+ *
+ * @see BackupChunk
+ * @see com.blog.service.storage.DeduplicatingStorage
+ */
+@Component
+@Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+public class BackupChunksManager {
+    private BackupChunksRepository backupChunksRepository;
+
+    @Autowired
+    public void setBackupChunksRepository(BackupChunksRepository backupChunksRepository) {
+        this.backupChunksRepository = backupChunksRepository;
+    }
+
+    /**
+     * Retrieves a chunk stored on the storage.
+     *
+     * @param storageSettingsName name of storage settings
+     * @param hash                chunk hash
+     * @return the chunk or {@literal Optional#empty()} if the chunk is not stored on the storage
+     */
+    public Optional<BackupChunk> findChunk(@NotNull String storageSettingsName, @NotNull String hash) {
+        Objects.requireNonNull(storageSettingsName);
+        Objects.requireNonNull(hash);
+
+        return backupChunksRepository.findByStorageSettingsNameAndHash(storageSettingsName, hash);
+    }
+
+    /**
+     * Adds reference to the chunk if it is stored on the storage.
+     *
+     * @param storageSettingsName name of storage settings
+     * @param hash                chunk hash
+     * @return {@literal true} if reference is added, {@literal false} if the chunk is not stored on the storage yet
+     */
+    public boolean addReference(@NotNull String storageSettingsName, @NotNull String hash) {
+        Optional<BackupChunk> optionalBackupChunk = findChunk(storageSettingsName, hash);
+        if (!optionalBackupChunk.isPresent()) {
+            return false;
+        }
+        BackupChunk backupChunk = optionalBackupChunk.get();
+        backupChunk.setReferenceCount(backupChunk.getReferenceCount() + 1);
+        backupChunksRepository.save(backupChunk);
+        return true;
+    }
+
+    /**
+     * Saves chunk uploaded to the storage with a single reference.
+     * <p>
+     * Chunk should be saved only after it is fully uploaded.
+     *
+     * @param storageSettingsName name of storage settings
+     * @param hash                chunk hash
+     * @param size                chunk size
+     * @return saved entity
+     */
+    public BackupChunk addChunk(@NotNull String storageSettingsName, @NotNull String hash, int size) {
+        return backupChunksRepository.save(new BackupChunk(storageSettingsName, hash, size));
+    }
+
+    /**
+     * Removes reference to the chunk.
+     * <p>
+     * The chunk is forgotten when its last reference is removed, so it must be deleted from the storage.
+     *
+     * @param storageSettingsName name of storage settings
+     * @param hash                chunk hash
+     * @return {@literal true} if the last reference is removed or the chunk is not known, {@literal false} otherwise
+     */
+    public boolean removeReference(@NotNull String storageSettingsName, @NotNull String hash) {
+        Optional<BackupChunk> optionalBackupChunk = findChunk(storageSettingsName, hash);
+        if (!optionalBackupChunk.isPresent()) {
+            return true;
+        }
+        BackupChunk backupChunk = optionalBackupChunk.get();
+        if (backupChunk.getReferenceCount() <= 1) {
+            backupChunksRepository.delete(backupChunk);
+            return true;
+        }
+        backupChunk.setReferenceCount(backupChunk.getReferenceCount() - 1);
+        backupChunksRepository.save(backupChunk);
+        return false;
+    }
+}
@@ -4,8 +4,12 @@ import com.blog.entities.backup.BackupProperties;
 import com.blog.entities.storage.StorageSettings;
 import com.blog.entities.storage.StorageType;
 import com.blog.service.ErrorCallbackService;
+import com.blog.service.PipelineTuning;
+import com.blog.service.storage.DeduplicatingStorage;
 import com.blog.service.storage.DropboxStorage;
 import com.blog.service.storage.FileSystemStorage;
+import com.blog.service.storage.Storage;
+import com.blog.settings.UserSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -14,12 +18,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +45,10 @@ public class BackupLoadManager {
 
     private ErrorCallbackService errorCallbackService;
 
+    private BackupChunksManager backupChunksManager;
+
+    private UserSettings userSettings;
+
     @Autowired
     public void setBackupLoadManagerExecutorService(ExecutorService backupLoadManagerExecutorService) {
         this.backupLoadManagerExecutorService = backupLoadManagerExecutorService;
@@ -64,6 +74,51 @@ public class BackupLoadManager {
         this.errorCallbackService = errorCallbackService;
     }
 
+    @Autowired
+    public void setBackupChunksManager(BackupChunksManager backupChunksManager) {
+        this.backupChunksManager = backupChunksManager;
+    }
+
+    @Autowired
+    public void setUserSettings(UserSettings userSettings) {
+        this.userSettings = userSettings;
+    }
+
+    /**
+     * Creates buffer to broadcast backup to storages, spilling backup of storages lagging behind others to spool files if spooling is
+     * enabled.
+     */
+    private BroadcastBuffer newBroadcastBuffer() {
+        Long uploadSpoolMaxSize = userSettings.getUploadSpoolMaxSize();
+        if (uploadSpoolMaxSize == null || uploadSpoolMaxSize <= 0) {
+            return new BroadcastBuffer();
+        }
+        String uploadSpoolDirectory = userSettings.getUploadSpoolDirectory();
+        Path spoolDirectory = uploadSpoolDirectory == null || uploadSpoolDirectory.trim().isEmpty() ?
+                Path.of(System.getProperty("java.io.tmpdir")) : Path.of(uploadSpoolDirectory.trim());
+        return new BroadcastBuffer(spoolDirectory, uploadSpoolMaxSize * 1024 * 1024);
+    }
+
+    /**
+     * Returns storage, which stores backups with deduplication on the storage of the given type.
+     *
+     * @param storageType type of the storage to store chunks and manifests on
+     * @return storage with deduplication
+     */
+    private Storage getDeduplicatingStorage(StorageType storageType) {
+        switch (storageType) {
+            case LOCAL_FILE_SYSTEM: {
+                return new DeduplicatingStorage(fileSystemStorage, backupChunksManager);
+            }
+            case DROPBOX: {
+                return new DeduplicatingStorage(dropboxStorage, backupChunksManager);
+            }
+            default: {
+                throw new RuntimeException("Can't use deduplication: unknown storage type: " + storageType);
+            }
+        }
+    }
+
     /**
      * Uploads backup.
      * <p>
@@ -74,6 +129,10 @@ public class BackupLoadManager {
      * @param id               task ID
      * @implNote When uploading a backup, each storage uploading is performing in its own thread.
      * <p>
+     * Backup is read once and broadcast to all storages through {@link BroadcastBuffer}. If spooling is enabled, backup of storages
+     * lagging behind others is spilled to spool files, so the backup is read as fast as the fastest storage uploads it. Otherwise
+     * uploading is limited by the slowest storage.
+     * <p>
      * If any upload task reports about exception (either throwing it from the main thread or using {@link ErrorCallbackService}), all
      * tasks will be canceled.
      * <p>
@@ -81,9 +140,28 @@ public class BackupLoadManager {
      * stop the work.
      */
     public void uploadBackup(@NotNull InputStream backupStream, @NotNull BackupProperties backupProperties, @NotNull Integer id) {
+        uploadBackup(backupStream, backupProperties, id, PipelineTuning.defaults());
+    }
+
+    /**
+     * Uploads backup using settings, which can be changed while uploading.
+     * <p>
+     * Uploading to multiple storages is performing in parallel. Storages supporting concurrent upload of backup parts use upload
+     * concurrency of the settings.
+     *
+     * @param backupStream     InputStream from which backup can be read
+     * @param backupProperties pre-created BackupProperties of backup that should be uploaded to storage
+     * @param id               task ID
+     * @param tuning           upload settings
+     * @see #uploadBackup(InputStream, BackupProperties, Integer)
+     * @see PipelineAutotuner
+     */
+    public void uploadBackup(@NotNull InputStream backupStream, @NotNull BackupProperties backupProperties, @NotNull Integer id,
+                             @NotNull PipelineTuning tuning) {
         Objects.requireNonNull(backupStream);
         Objects.requireNonNull(backupProperties);
         Objects.requireNonNull(id);
+        Objects.requireNonNull(tuning);
 
         List<String> storageSettingsNameList = backupProperties.getStorageSettingsNameList();
         List<StorageSettings> storageSettingsList = new ArrayList<>();
@@ -98,42 +176,23 @@ public class BackupLoadManager {
         String backupName = backupProperties.getBackupName();
 
         List<Runnable> runnables = new ArrayList<>();
-        List<PipedOutputStream> pipedOutputStreamList = new ArrayList<>();
-        List<PipedInputStream> pipedInputStreamList = new ArrayList<>();
+        BroadcastBuffer broadcastBuffer = newBroadcastBuffer();
         for (StorageSettings storageSettings : storageSettingsList) {
-            PipedInputStream pipedInputStream = new PipedInputStream();
-            PipedOutputStream pipedOutputStream = new PipedOutputStream();
-
-            pipedInputStreamList.add(pipedInputStream);
-            pipedOutputStreamList.add(pipedOutputStream);
-
-            try {
-                pipedOutputStream.connect(pipedInputStream);
-            } catch (IOException ex) {
-                for (PipedInputStream pipedInputStream_ : pipedInputStreamList) {
-                    try {
-                        pipedInputStream_.close();
-                    } catch (IOException ignore) {
-                    }
-                }
-                for (PipedOutputStream pipedOutputStream_ : pipedOutputStreamList) {
-                    try {
-                        pipedOutputStream_.close();
-                    } catch (IOException ignore) {
-                    }
-                }
-
-                throw new RuntimeException("Error initializing backup uploading", ex);
-            }
+            InputStream storageInputStream = broadcastBuffer.newConsumer();
 
             StorageType storageType = storageSettings.getType();
+            if (storageSettings.isDeduplication()) {
+                Storage deduplicatingStorage = getDeduplicatingStorage(storageType);
+                runnables.add(() -> deduplicatingStorage.uploadBackup(storageInputStream, storageSettings, backupName, id));
+                continue;
+            }
             switch (storageType) {
                 case LOCAL_FILE_SYSTEM: {
-                    runnables.add(() -> fileSystemStorage.uploadBackup(pipedInputStream, storageSettings, backupName, id));
+                    runnables.add(() -> fileSystemStorage.uploadBackup(storageInputStream, storageSettings, backupName, id));
                     break;
                 }
                 case DROPBOX: {
-                    runnables.add(() -> dropboxStorage.uploadBackup(pipedInputStream, storageSettings, backupName, id));
+                    runnables.add(() -> dropboxStorage.uploadBackup(storageInputStream, storageSettings, backupName, id, tuning));
                     break;
                 }
                 default: {
@@ -143,16 +202,14 @@ public class BackupLoadManager {
         }
 
         // we need this variable to know if IO exception occurred because of interrupt or not
-        // it is not enough just to check of InterruptedIOException, because exception might occur when writing to the closed stream, which
-        // was closed by upload task after interruption
-        // also we can wait some time before closing output streams, to make all tasks get InterruptedIOException instead of EOF while
-        // calling any blocking I/O method on related PipedInputStream
+        // it is not enough just to check of InterruptedIOException, because exception might occur when the stream was closed by upload
+        // task after interruption
+        // upload tasks never get EOF instead of the rest of backup, because broadcasting is aborted on interruption
         AtomicBoolean uploadInterrupted = new AtomicBoolean(false);
         Future uploadTask = backupLoadManagerExecutorService.submit(() -> {
-                    try (BackupUploadSplitter backupUploadSplitter =
-                                 new BackupUploadSplitter(backupStream, pipedOutputStreamList, uploadInterrupted)) {
+                    try (backupStream) {
                         try {
-                            backupUploadSplitter.upload();
+                            broadcastBuffer.broadcast(backupStream);
                         } catch (IOException ex) {
                             if (!uploadInterrupted.get()) {
                                 errorCallbackService.onError(new RuntimeException("Error uploading backup", ex), id);
@@ -185,6 +242,7 @@ public class BackupLoadManager {
                                 // but without setting the flag
                                 uploadInterrupted.set(true);
                                 uploadTask.cancel(true);
+                                broadcastBuffer.abort();
 
                                 // cancel all tasks
                                 // if a task is still executing, CancellationException as task result will be set
@@ -206,33 +264,109 @@ public class BackupLoadManager {
             ));
         }
 
-        // wait for tasks to complete
         try {
-            countDownLatch.await();
-        } catch (InterruptedException e) {
-            logger.error("Error uploading backup: uploading was canceled. Backup info: {}", backupProperties);
+            // wait for tasks to complete
+            try {
+                countDownLatch.await();
+            } catch (InterruptedException e) {
+                logger.error("Error uploading backup: uploading was canceled. Backup info: {}", backupProperties);
 
-            uploadInterrupted.set(true);
-            uploadTask.cancel(true);
-            futures.forEach(future_ -> future_.cancel(true));
+                uploadInterrupted.set(true);
+                uploadTask.cancel(true);
+                broadcastBuffer.abort();
+                futures.forEach(future_ -> future_.cancel(true));
 
-            Thread.currentThread().interrupt();
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // check for exceptions
+            for (Future future : futures) {
+                try {
+                    future.get();
+                } catch (CancellationException ignore) {
+                } catch (InterruptedException e) {
+                    logger.error("Error uploading backup: uploading was canceled. Backup info: {}", backupProperties);
+
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException("Error uploading backup: one of the storages returned an exception", ex.getCause());
+                }
+            }
+        } finally {
+            broadcastBuffer.close();
+        }
+
+        logger.info("Backup successfully uploaded. Backup info: {}", backupProperties);
+    }
+
+    /**
+     * Checks whether backup can be transferred to or from all the storages as a file.
+     *
+     * @param storageSettingsNameList identifiers of {@link StorageSettings} where backup is or will be stored
+     * @return {@literal true} if all storages are {@link StorageType#LOCAL_FILE_SYSTEM} storages without deduplication
+     * @see #uploadBackup(Consumer, BackupProperties, Integer)
+     * @see #downloadBackup(String, String, Consumer, Integer)
+     */
+    public boolean supportsFileTransfer(@NotNull List<String> storageSettingsNameList) {
+        Objects.requireNonNull(storageSettingsNameList);
+
+        return !storageSettingsNameList.isEmpty() && storageSettingsNameList.stream().allMatch(storageSettingsName ->
+                storageSettingsManager.findById(storageSettingsName).filter(storageSettings -> !storageSettings.isDeduplication())
+                        .map(StorageSettings::getType).orElse(null) == StorageType.LOCAL_FILE_SYSTEM);
+    }
+
+    /**
+     * Uploads backup written to file by the backup file writer.
+     * <p>
+     * The writer writes the whole backup directly into the file on the first storage (e.g. redirecting output of dump process), so the
+     * backup is not copied through the application. The file is kept as a single backup part and copied to the rest storages.
+     * <p>
+     * All storages must support file transfer.
+     *
+     * @param backupFileWriter writer of the backup file
+     * @param backupProperties pre-created BackupProperties of backup that should be uploaded to storage
+     * @param id               task ID
+     * @see #supportsFileTransfer(List)
+     */
+    public void uploadBackup(@NotNull Consumer<Path> backupFileWriter, @NotNull BackupProperties backupProperties, @NotNull Integer id) {
+        Objects.requireNonNull(backupFileWriter);
+        Objects.requireNonNull(backupProperties);
+        Objects.requireNonNull(id);
+
+        List<String> storageSettingsNameList = backupProperties.getStorageSettingsNameList();
+        List<StorageSettings> storageSettingsList = new ArrayList<>();
+
+        for (String storageSettingsName : storageSettingsNameList) {
+            StorageSettings storageSettings = storageSettingsManager.findById(storageSettingsName).orElseThrow(() ->
+                    new RuntimeException("Can't upload backup: no such storage settings with name " + storageSettingsName));
+            if (storageSettings.getType() != StorageType.LOCAL_FILE_SYSTEM) {
+                throw new RuntimeException("Can't upload backup as file: unsupported storage type: " + storageSettings.getType());
+            }
+            if (storageSettings.isDeduplication()) {
+                throw new RuntimeException("Can't upload backup as file: storage uses deduplication: " + storageSettingsName);
+            }
+            storageSettingsList.add(storageSettings);
+        }
+
+        logger.info("Uploading backup as file to storages: {}", storageSettingsNameList);
+
+        String backupName = backupProperties.getBackupName();
+        StorageSettings primaryStorageSettings = storageSettingsList.get(0);
+
+        backupFileWriter.accept(fileSystemStorage.createBackupFile(primaryStorageSettings, backupName));
+        if (Thread.currentThread().isInterrupted()) {
+            logger.error("Error uploading backup: uploading was canceled. Backup info: {}", backupProperties);
             return;
         }
 
-        // check for exceptions
-        for (Future future : futures) {
-            try {
-                future.get();
-            } catch (CancellationException ignore) {
-            } catch (InterruptedException e) {
+        for (StorageSettings storageSettings : storageSettingsList.subList(1, storageSettingsList.size())) {
+            if (Thread.currentThread().isInterrupted()) {
                 logger.error("Error uploading backup: uploading was canceled. Backup info: {}", backupProperties);
-
-                Thread.currentThread().interrupt();
                 return;
-            } catch (ExecutionException ex) {
-                throw new RuntimeException("Error uploading backup: one of the storages returned an exception", ex.getCause());
             }
+            fileSystemStorage.copyBackup(primaryStorageSettings, storageSettings, backupName);
         }
 
         logger.info("Backup successfully uploaded. Backup info: {}", backupProperties);
@@ -259,17 +393,21 @@ public class BackupLoadManager {
         StorageType storageType = storageSettings.getType();
 
         InputStream downloadedBackup;
-        switch (storageType) {
-            case LOCAL_FILE_SYSTEM: {
-                downloadedBackup = fileSystemStorage.downloadBackup(storageSettings, backupName, id);
-                break;
-            }
-            case DROPBOX: {
-                downloadedBackup = dropboxStorage.downloadBackup(storageSettings, backupName, id);
-                break;
-            }
-            default: {
-                throw new RuntimeException(String.format("Can't download backup. Unknown storage type: %s", storageType));
+        if (storageSettings.isDeduplication()) {
+            downloadedBackup = getDeduplicatingStorage(storageType).downloadBackup(storageSettings, backupName, id);
+        } else {
+            switch (storageType) {
+                case LOCAL_FILE_SYSTEM: {
+                    downloadedBackup = fileSystemStorage.downloadBackup(storageSettings, backupName, id);
+                    break;
+                }
+                case DROPBOX: {
+                    downloadedBackup = dropboxStorage.downloadBackup(storageSettings, backupName, id);
+                    break;
+                }
+                default: {
+                    throw new RuntimeException(String.format("Can't download backup. Unknown storage type: %s", storageType));
+                }
             }
         }
         logger.info("Backup successfully downloaded from {}. Backup name: {}", storageType, backupName);
@@ -282,6 +420,40 @@ public class BackupLoadManager {
         return downloadedBackup;
     }
 
+    /**
+     * Downloads backup as files and passes them to the backup files reader.
+     * <p>
+     * The reader reads backup part files in order directly from the storage (e.g. redirecting input of restore process), so the backup is
+     * not copied through the application. The storage must support file transfer.
+     *
+     * @param backupName          identifier of the backup
+     * @param storageSettingsName identifier of {@link StorageSettings} where backup is stored
+     * @param backupFilesReader   reader of the backup part files
+     * @param id                  backup restoration task ID
+     * @see #supportsFileTransfer(List)
+     */
+    public void downloadBackup(@NotNull String backupName, @NotNull String storageSettingsName,
+                               @NotNull Consumer<List<Path>> backupFilesReader, @NotNull Integer id) {
+        Objects.requireNonNull(backupName);
+        Objects.requireNonNull(storageSettingsName);
+        Objects.requireNonNull(backupFilesReader);
+        Objects.requireNonNull(id);
+
+        logger.info("Downloading backup as file... Backup name: {}", backupName);
+
+        StorageSettings storageSettings = storageSettingsManager.findById(storageSettingsName).orElseThrow(
+                () -> new RuntimeException("Can't download backup: no such storage settings with name " + storageSettingsName));
+        StorageType storageType = storageSettings.getType();
+        if (storageType != StorageType.LOCAL_FILE_SYSTEM) {
+            throw new RuntimeException("Can't download backup as file: unsupported storage type: " + storageType);
+        }
+        if (storageSettings.isDeduplication()) {
+            throw new RuntimeException("Can't download backup as file: storage uses deduplication: " + storageSettingsName);
+        }
+
+        fileSystemStorage.readBackupFiles(storageSettings, backupName, id, backupFilesReader);
+    }
+
     /**
      * Deletes backup.
      *
@@ -303,6 +475,11 @@ public class BackupLoadManager {
 
             String backupName = backupProperties.getBackupName();
 
+            if (storageSettings.isDeduplication()) {
+                Storage deduplicatingStorage = getDeduplicatingStorage(storageType);
+                runnableList.add(() -> deduplicatingStorage.deleteBackup(storageSettings, backupName, id));
+                continue;
+            }
             switch (storageType) {
                 case LOCAL_FILE_SYSTEM: {
                     runnableList.add(() -> fileSystemStorage.deleteBackup(storageSettings, backupName, id));
@@ -339,78 +516,10 @@ public class BackupLoadManager {
     }
 
     /**
-     * Uploads backup to multiple storages in parallel.
+     * Throws {@link InterruptedIOException} on reading if the current thread is interrupted.
+     * <p>
+     * Bulk reads are passed to the underlying stream directly, so the interrupt flag is checked once per buffer, not per byte.
      */
-    private static final class BackupUploadSplitter implements AutoCloseable {
-        List<BufferedOutputStream> outputStreamList;
-        AtomicBoolean wasInterrupted;
-        private BufferedInputStream source;
-
-        BackupUploadSplitter(InputStream source, List<PipedOutputStream> outputStreamList, AtomicBoolean wasInterrupted) {
-            if (!(source instanceof BufferedInputStream)) {
-                this.source = new BufferedInputStream(source);
-            } else {
-                this.source = (BufferedInputStream) source;
-            }
-            List<BufferedOutputStream> bufferedOutputStreamList = new ArrayList<>();
-            for (OutputStream outputStream : outputStreamList) {
-                BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
-                bufferedOutputStreamList.add(bufferedOutputStream);
-            }
-            this.outputStreamList = bufferedOutputStreamList;
-            this.wasInterrupted = wasInterrupted;
-        }
-
-        void upload() throws IOException {
-            final byte[] buffer = new byte[8096];
-            int bytesRead;
-            while ((bytesRead = source.read(buffer)) != -1) {
-                for (BufferedOutputStream outputStream : outputStreamList) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-            }
-        }
-
-        @Override
-        public void close() throws IOException {
-            boolean inputStreamIsClosed = true;
-            int outputStreamsClosed = 0;
-            boolean exceptionOccurred = false;
-
-            try {
-                source.close();
-            } catch (IOException ignored) {
-                exceptionOccurred = true;
-                inputStreamIsClosed = false;
-            }
-
-            if (wasInterrupted.get()) {
-                // we wait before closing output streams to let all upload tasks handle interrupt and to not get EOF, but get
-                // InterruptedIOException while trying to call blocking I/O operation on related PipedInputStream
-                try {
-                    Thread.sleep(30000);
-                } catch (InterruptedException ignored) {
-                    // should not happen
-                }
-            }
-
-            for (BufferedOutputStream outputStream : outputStreamList) {
-                try {
-                    outputStream.close();
-                } catch (IOException ignored) {
-                    exceptionOccurred = true;
-                    continue;
-                }
-                outputStreamsClosed++;
-            }
-
-            if (exceptionOccurred) {
-                throw new IOException(String.format("Error closing streams. Input stream is closed: %s. Output streams closed: [%s/%s]",
-                        inputStreamIsClosed, outputStreamsClosed, outputStreamList.size()));
-            }
-        }
-    }
-
     private final class InterruptDetectInputStream extends InputStream {
         private InputStream in;
 
@@ -425,5 +534,23 @@ public class BackupLoadManager {
             }
             return in.read();
         }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException();
+            }
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.blog.manager;
 
+import com.blog.service.PipelineTuning;
 import com.blog.service.processor.Processor;
+import com.blog.service.processor.ProcessorOptions;
+import com.blog.service.processor.ProcessorPipeline;
 import com.blog.service.processor.ProcessorType;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -9,9 +12,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -23,13 +32,22 @@ import java.util.stream.Collectors;
 public class BackupProcessorManager {
     private static final Logger logger = LoggerFactory.getLogger(BackupProcessorManager.class);
 
+    private final List<ProcessorPipeline> activePipelines = new CopyOnWriteArrayList<>();
+
     private List<Processor> allProcessors;
 
+    private ExecutorService processorExecutorService;
+
     @Autowired
     public void setAllProcessors(List<Processor> allProcessors) {
         this.allProcessors = allProcessors;
     }
 
+    @Autowired
+    public void setProcessorExecutorService(ExecutorService processorExecutorService) {
+        this.processorExecutorService = processorExecutorService;
+    }
+
     List<Processor> getProcessorsToApplySorted(List<ProcessorType> processorTypes) {
         return allProcessors.stream()
                 .filter(processor -> processorTypes.contains(processor.getType()))
@@ -48,29 +66,65 @@ public class BackupProcessorManager {
      */
     @NotNull
     public InputStream process(@NotNull InputStream in, @NotNull List<ProcessorType> processorTypes) {
+        return process(in, processorTypes, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Applies processors on backup using the options.
+     * <p>
+     * Processors is applied in descending order by processor precedence.
+     *
+     * @param in             InputStream from which backup can be read
+     * @param processorTypes processors to apply
+     * @param options        options of processors
+     * @return processed backup
+     */
+    @NotNull
+    public InputStream process(@NotNull InputStream in, @NotNull List<ProcessorType> processorTypes, @NotNull ProcessorOptions options) {
+        return process(in, processorTypes, options, PipelineTuning.defaults());
+    }
+
+    /**
+     * Applies processors on backup using the options and settings, which can be changed while processing.
+     * <p>
+     * Processors is applied in descending order by processor precedence.
+     *
+     * @param in             InputStream from which backup can be read
+     * @param processorTypes processors to apply
+     * @param options        options of processors
+     * @param tuning         settings of processors, which can be changed while processing
+     * @return processed backup
+     * @see PipelineAutotuner
+     */
+    @NotNull
+    public InputStream process(@NotNull InputStream in, @NotNull List<ProcessorType> processorTypes, @NotNull ProcessorOptions options,
+                               @NotNull PipelineTuning tuning) {
         Objects.requireNonNull(in);
         Objects.requireNonNull(processorTypes);
+        Objects.requireNonNull(options);
+        Objects.requireNonNull(tuning);
 
         List<Processor> processors = getProcessorsToApplySorted(processorTypes);
 
-        logger.info("Processing backup... Processors: {}", processorTypes);
+        logger.info("Processing backup... Processors: {}. Options: {}", processorTypes, options);
 
+        LinkedHashMap<String, UnaryOperator<InputStream>> stages = new LinkedHashMap<>();
         int processorsAmount = processors.size();
         for (int currentProcessor = 0; currentProcessor < processorsAmount; currentProcessor++) {
             final Processor processor = processors.get(currentProcessor);
 
             logger.info("Applying processor [{}/{}]: {}", currentProcessor + 1, processorsAmount, processor.getType());
 
-            in = processor.process(in);
+            stages.put("process " + processor.getType(), processorIn -> processor.process(processorIn, options, tuning));
         }
 
-        return in;
+        return startPipeline("processing", in, stages);
     }
 
     /**
      * Applies deprocessors on backup.
      * <p>
-     * Deprocessors is applied in descending order by deprocessor precedence.
+     * Deprocessors is applied in ascending order by deprocessor precedence, that is in reverse order of processing.
      *
      * @param in               InputStream from which backup can be read
      * @param deprocessorTypes deprocessors to apply
@@ -78,22 +132,84 @@ public class BackupProcessorManager {
      */
     @NotNull
     public InputStream deprocess(@NotNull InputStream in, @NotNull List<ProcessorType> deprocessorTypes) {
+        return deprocess(in, deprocessorTypes, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Applies deprocessors on backup, which was processed using the options.
+     * <p>
+     * Deprocessors is applied in ascending order by deprocessor precedence, that is in reverse order of processing.
+     *
+     * @param in               InputStream from which backup can be read
+     * @param deprocessorTypes deprocessors to apply
+     * @param options          options, with which backup was processed
+     * @return deprocessed backup
+     */
+    @NotNull
+    public InputStream deprocess(@NotNull InputStream in, @NotNull List<ProcessorType> deprocessorTypes,
+                                 @NotNull ProcessorOptions options) {
         Objects.requireNonNull(in);
         Objects.requireNonNull(deprocessorTypes);
+        Objects.requireNonNull(options);
 
         List<Processor> deprocessors = getProcessorsToApplySorted(deprocessorTypes);
+        Collections.reverse(deprocessors);
 
-        logger.info("Deprocessing backup... Deprocessors: {}", deprocessors);
+        logger.info("Deprocessing backup... Deprocessors: {}. Options: {}", deprocessors, options);
 
+        LinkedHashMap<String, UnaryOperator<InputStream>> stages = new LinkedHashMap<>();
         int deprocessorsAmount = deprocessors.size();
         for (int currentDeprocessor = 0; currentDeprocessor < deprocessorsAmount; currentDeprocessor++) {
             final Processor deprocessor = deprocessors.get(currentDeprocessor);
 
             logger.info("Applying deprocessor [{}/{}]: {}", currentDeprocessor + 1, deprocessorsAmount, deprocessor.getType());
 
-            in = deprocessor.deprocess(in);
+            stages.put("deprocess " + deprocessor.getType(), deprocessorIn -> deprocessor.deprocess(deprocessorIn, options));
+        }
+
+        return startPipeline("deprocessing", in, stages);
+    }
+
+    /**
+     * Checks whether processors can be applied with the options.
+     *
+     * @param processorTypes processors to apply
+     * @param options        options of processors
+     * @throws IllegalArgumentException if any of processors doesn't support the options
+     */
+    public void checkOptions(@NotNull List<ProcessorType> processorTypes, @NotNull ProcessorOptions options) {
+        Objects.requireNonNull(processorTypes);
+        Objects.requireNonNull(options);
+
+        for (Processor processor : getProcessorsToApplySorted(processorTypes)) {
+            processor.checkOptions(options);
+        }
+    }
+
+    /**
+     * Runs each stage on its own thread, so stages and the pipeline consumer work concurrently.
+     * <p>
+     * If there are no stages, the input stream is returned as is.
+     */
+    private InputStream startPipeline(String name, InputStream in, LinkedHashMap<String, UnaryOperator<InputStream>> stages) {
+        if (stages.isEmpty()) {
+            return in;
         }
 
-        return in;
+        ProcessorPipeline pipeline = ProcessorPipeline.start(name, in, stages, processorExecutorService, activePipelines::remove);
+        activePipelines.add(pipeline);
+        return pipeline.getOutput();
+    }
+
+    /**
+     * Returns pipelines, output of which is not closed yet.
+     * <p>
+     * Statistics of the pipelines show queue depth and busy and idle time of each stage.
+     *
+     * @return running pipelines
+     */
+    @NotNull
+    public List<ProcessorPipeline> getActivePipelines() {
+        return new ArrayList<>(activePipelines);
     }
 }
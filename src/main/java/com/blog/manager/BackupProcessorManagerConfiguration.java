@@ -0,0 +1,19 @@
+package com.blog.manager;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class BackupProcessorManagerConfiguration {
+
+    /**
+     * Runs stages of processor pipelines. Stages of the pipeline block each other, so the pool is not bounded to avoid deadlocks.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService processorExecutorService() {
+        return Executors.newCachedThreadPool();
+    }
+}
@@ -1,7 +1,9 @@
 package com.blog.manager;
 
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.backup.BackupProperties;
 import com.blog.repositories.BackupPropertiesRepository;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import com.blog.service.storage.StorageConstants;
 import org.jetbrains.annotations.NotNull;
@@ -17,6 +19,7 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -44,6 +47,37 @@ public class BackupPropertiesManager {
      */
     public BackupProperties initNewBackupProperties(@NotNull List<String> storageSettingsNameList, @Nullable List<ProcessorType> processors,
                                                     @NotNull String databaseName) {
+        return initNewBackupProperties(storageSettingsNameList, processors, databaseName, BackupFormat.PLAIN);
+    }
+
+    /**
+     * Creates a new instance of {@link BackupProperties} of backup of the specified format.
+     *
+     * @param storageSettingsNameList list of storage settings identifiers where backup will be uploaded to
+     * @param processors              processors that applies on backup
+     * @param databaseName            database name of database of which backup was created
+     * @param format                  backup format
+     * @return saved entity
+     */
+    public BackupProperties initNewBackupProperties(@NotNull List<String> storageSettingsNameList, @Nullable List<ProcessorType> processors,
+                                                    @NotNull String databaseName, @NotNull BackupFormat format) {
+        return initNewBackupProperties(storageSettingsNameList, processors, ProcessorOptions.DEFAULT, databaseName, format);
+    }
+
+    /**
+     * Creates a new instance of {@link BackupProperties} of backup of the specified format, processors of which are applied with the
+     * specified options.
+     *
+     * @param storageSettingsNameList list of storage settings identifiers where backup will be uploaded to
+     * @param processors              processors that applies on backup
+     * @param processorOptions        options of processors
+     * @param databaseName            database name of database of which backup was created
+     * @param format                  backup format
+     * @return saved entity
+     */
+    public BackupProperties initNewBackupProperties(@NotNull List<String> storageSettingsNameList, @Nullable List<ProcessorType> processors,
+                                                    @Nullable ProcessorOptions processorOptions, @NotNull String databaseName,
+                                                    @NotNull BackupFormat format) {
         LocalDateTime creationTime = LocalDateTime.now(ZoneOffset.UTC);
         String backupName = String.format(
                 StorageConstants.BACKUP_NAME_TEMPLATE, databaseName, StorageConstants.dateFormatter.format(creationTime));
@@ -52,7 +86,12 @@ public class BackupPropertiesManager {
             processors = Collections.emptyList();
         }
 
-        return backupPropertiesRepository.save(new BackupProperties(backupName, processors, creationTime, storageSettingsNameList));
+        BackupProperties backupProperties = new BackupProperties(backupName, processors, creationTime, storageSettingsNameList, format);
+        if (processorOptions != null) {
+            backupProperties.setProcessorOptions(processorOptions);
+        }
+
+        return backupPropertiesRepository.save(backupProperties);
     }
 
     /**
@@ -68,6 +107,72 @@ public class BackupPropertiesManager {
         return initNewBackupProperties(Collections.singletonList(storageSettingsName), processors, databaseName);
     }
 
+    /**
+     * Creates a new instance of {@link BackupProperties} of backup of the specified format with single storage.
+     *
+     * @param storageSettingsName identifier of storage settings where backup will be uploaded to
+     * @param processors          processors that applies on backup
+     * @param databaseName        database name of database of which backup was created
+     * @param format              backup format
+     * @return saved entity
+     */
+    public BackupProperties initNewBackupProperties(@NotNull String storageSettingsName, @Nullable List<ProcessorType> processors,
+                                                    @NotNull String databaseName, @NotNull BackupFormat format) {
+        return initNewBackupProperties(Collections.singletonList(storageSettingsName), processors, databaseName, format);
+    }
+
+    /**
+     * Creates a new instance of {@link BackupProperties} of no-change backup.
+     * <p>
+     * No-change backup is recorded instead of creating a backup if the database has not changed since the source backup. It refers
+     * to the same backup on storages as the source backup.
+     *
+     * @param sourceBackupProperties backup properties of the backup containing the same data. Must not be a no-change backup
+     * @param changeMarker           marker of the database state
+     * @return saved entity
+     */
+    public BackupProperties initNoChangeBackupProperties(@NotNull BackupProperties sourceBackupProperties, @NotNull String changeMarker) {
+        Objects.requireNonNull(sourceBackupProperties);
+        Objects.requireNonNull(changeMarker);
+        if (sourceBackupProperties.getSourceBackupPropertiesId() != null) {
+            throw new IllegalArgumentException("Source backup must not be a no-change backup: " + sourceBackupProperties);
+        }
+
+        BackupProperties backupProperties = new BackupProperties(sourceBackupProperties.getBackupName(),
+                sourceBackupProperties.getProcessors(), LocalDateTime.now(ZoneOffset.UTC),
+                sourceBackupProperties.getStorageSettingsNameList(), sourceBackupProperties.getFormat());
+        backupProperties.setProcessorOptions(sourceBackupProperties.getProcessorOptions());
+        backupProperties.setChangeMarker(changeMarker);
+        backupProperties.setSourceBackupPropertiesId(sourceBackupProperties.getId());
+
+        return backupPropertiesRepository.save(backupProperties);
+    }
+
+    /**
+     * Saves marker of the database state read before the backup creation.
+     *
+     * @param id           backup properties ID
+     * @param changeMarker marker of the database state
+     */
+    public void setChangeMarker(@NotNull Integer id, @Nullable String changeMarker) {
+        backupPropertiesRepository.findById(id).ifPresent(backupProperties -> {
+            backupProperties.setChangeMarker(changeMarker);
+            backupPropertiesRepository.save(backupProperties);
+        });
+    }
+
+    /**
+     * Returns whether any no-change backup refers to the backup.
+     * <p>
+     * Such backup can't be deleted, since no-change backups share its data on storages.
+     *
+     * @param id backup properties ID
+     * @return {@literal true} if the backup is a source of any no-change backup
+     */
+    public boolean isSourceOfOtherBackups(@NotNull Integer id) {
+        return backupPropertiesRepository.existsBySourceBackupPropertiesId(id);
+    }
+
     /**
      * Retrieves an entity by its id.
      *
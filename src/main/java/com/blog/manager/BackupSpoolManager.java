@@ -0,0 +1,199 @@
+package com.blog.manager;
+
+import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.task.Task;
+import com.blog.service.PipelineTuning;
+import com.blog.settings.UserSettings;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class provides API to spool created backups to local disk and upload them to storages from spool files.
+ * <p>
+ * Backup is written to the spool file as fast as local disk allows, so backup creation completes and the database snapshot is released
+ * without waiting for storages. If uploading from the spool file fails, it is retried without creating backup again.
+ * <p>
+ * Spooling is enabled by setting spool directory (see {@link UserSettings#getBackupSpoolDirectory()}).
+ */
+@Component
+public class BackupSpoolManager {
+    private static final Logger logger = LoggerFactory.getLogger(BackupSpoolManager.class);
+
+    /**
+     * Spool file name template. The argument is task ID.
+     */
+    private static final String SPOOL_FILE_NAME_TEMPLATE = "backup_spool_%d.dat";
+
+    private static final int DEFAULT_UPLOAD_ATTEMPTS = 3;
+
+    private static final long DEFAULT_UPLOAD_RETRY_DELAY = 60;
+
+    private BackupLoadManager backupLoadManager;
+
+    private TasksManager tasksManager;
+
+    private UserSettings userSettings;
+
+    @Autowired
+    public void setBackupLoadManager(BackupLoadManager backupLoadManager) {
+        this.backupLoadManager = backupLoadManager;
+    }
+
+    @Autowired
+    public void setTasksManager(TasksManager tasksManager) {
+        this.tasksManager = tasksManager;
+    }
+
+    @Autowired
+    public void setUserSettings(UserSettings userSettings) {
+        this.userSettings = userSettings;
+    }
+
+    /**
+     * Checks whether created backups should be spooled before uploading.
+     *
+     * @return {@literal true} if spool directory is set
+     */
+    public boolean isEnabled() {
+        String spoolDirectory = userSettings.getBackupSpoolDirectory();
+        return spoolDirectory != null && !spoolDirectory.isBlank();
+    }
+
+    private Path getSpoolFile(Integer taskId) {
+        if (!isEnabled()) {
+            throw new RuntimeException("Can't get spool file: spool directory is not set");
+        }
+
+        return Paths.get(userSettings.getBackupSpoolDirectory().trim()).resolve(String.format(SPOOL_FILE_NAME_TEMPLATE, taskId));
+    }
+
+    /**
+     * Writes backup to the spool file of the task.
+     * <p>
+     * The stream is read until the end, but not closed.
+     *
+     * @param backupStream InputStream from which backup can be read
+     * @param taskId       task ID
+     * @throws InterruptedException if the task was interrupted while writing backup
+     */
+    public void spoolBackup(@NotNull InputStream backupStream, @NotNull Integer taskId) throws InterruptedException {
+        Objects.requireNonNull(backupStream);
+        Objects.requireNonNull(taskId);
+
+        Path spoolFile = getSpoolFile(taskId);
+        logger.info("Writing backup to the spool file {}...", spoolFile);
+
+        try {
+            Files.createDirectories(spoolFile.getParent());
+            long size = Files.copy(backupStream, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Backup written to the spool file {}. Size: {}", spoolFile, size);
+        } catch (IOException ex) {
+            deleteSpoolFile(taskId);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            throw new RuntimeException("Error writing backup to the spool file " + spoolFile, ex);
+        }
+    }
+
+    /**
+     * Uploads backup from the spool file of the task and deletes the spool file.
+     * <p>
+     * If uploading fails, backup uploaded partially is deleted from storages and uploading is retried after a delay until attempts
+     * are exhausted (see {@link UserSettings#getBackupUploadAttempts()} and {@link UserSettings#getBackupUploadRetryDelay()}).
+     * State of the task is {@link Task.State#UPLOADING_FROM_SPOOL} while uploading and {@link Task.State#WAITING_FOR_UPLOAD_RETRY}
+     * between attempts.
+     * <p>
+     * The spool file is deleted either if uploading succeeds, fails or is interrupted.
+     *
+     * @param backupProperties pre-created BackupProperties of backup that should be uploaded to storage
+     * @param taskId           task ID
+     * @param tuning           upload settings
+     * @throws InterruptedException if the task was interrupted while uploading or waiting for the next attempt
+     * @see BackupLoadManager#uploadBackup(InputStream, BackupProperties, Integer, PipelineTuning)
+     */
+    public void uploadSpooledBackup(@NotNull BackupProperties backupProperties, @NotNull Integer taskId, @NotNull PipelineTuning tuning)
+            throws InterruptedException {
+        Objects.requireNonNull(backupProperties);
+        Objects.requireNonNull(taskId);
+        Objects.requireNonNull(tuning);
+
+        Path spoolFile = getSpoolFile(taskId);
+        Integer uploadAttempts = userSettings.getBackupUploadAttempts();
+        int maxAttempts = uploadAttempts == null ? DEFAULT_UPLOAD_ATTEMPTS : Math.max(1, uploadAttempts);
+        Long uploadRetryDelay = userSettings.getBackupUploadRetryDelay();
+        long retryDelay = uploadRetryDelay == null ? DEFAULT_UPLOAD_RETRY_DELAY : Math.max(0, uploadRetryDelay);
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                tasksManager.updateTaskState(taskId, Task.State.UPLOADING_FROM_SPOOL);
+                logger.info("Uploading backup from the spool file {}. Attempt {} of {}", spoolFile, attempt, maxAttempts);
+
+                try {
+                    try (InputStream spooledBackup = Files.newInputStream(spoolFile)) {
+                        backupLoadManager.uploadBackup(spooledBackup, backupProperties, taskId, tuning);
+                    } catch (IOException ex) {
+                        throw new RuntimeException("Error reading backup from the spool file " + spoolFile, ex);
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    return;
+                } catch (RuntimeException ex) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (attempt >= maxAttempts) {
+                        throw ex;
+                    }
+                    logger.error("Error uploading backup from the spool file. Attempt {} of {}. Retrying in {} seconds. Backup info: {}",
+                            attempt, maxAttempts, retryDelay, backupProperties, ex);
+                }
+
+                tasksManager.updateTaskState(taskId, Task.State.WAITING_FOR_UPLOAD_RETRY);
+                // backup uploaded partially is deleted, so storages don't get parts of two uploads
+                backupLoadManager.deleteBackup(backupProperties, taskId);
+                TimeUnit.SECONDS.sleep(retryDelay);
+            }
+        } finally {
+            deleteSpoolFile(taskId);
+        }
+    }
+
+    /**
+     * Deletes the spool file of the task if it exists.
+     * <p>
+     * Usually you don't want to call this method directly, since spool file is deleted after uploading. Use it to revert tasks,
+     * which were not completed before the server shutdown.
+     *
+     * @param taskId task ID
+     */
+    public void deleteSpoolFile(@NotNull Integer taskId) {
+        Objects.requireNonNull(taskId);
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        Path spoolFile = getSpoolFile(taskId);
+        try {
+            if (Files.deleteIfExists(spoolFile)) {
+                logger.info("Spool file {} deleted", spoolFile);
+            }
+        } catch (IOException ex) {
+            logger.error("Error deleting spool file {}", spoolFile, ex);
+        }
+    }
+}
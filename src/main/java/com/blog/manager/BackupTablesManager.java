@@ -0,0 +1,123 @@
+package com.blog.manager;
+
+import com.blog.entities.backup.BackupTable;
+import com.blog.repositories.BackupTablesRepository;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.TableStatistics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * This class provides API to manage table manifests of incremental backups.
+ *
+ * @see BackupTable
+ */
+@Component
+@Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+public class BackupTablesManager {
+    private BackupTablesRepository backupTablesRepository;
+
+    @Autowired
+    public void setBackupTablesRepository(BackupTablesRepository backupTablesRepository) {
+        this.backupTablesRepository = backupTablesRepository;
+    }
+
+    /**
+     * Returns tables not changed since the previous backup.
+     * <p>
+     * The table is unchanged if it is listed in manifest of the previous backup with the same statistics. Tables created after the
+     * previous backup are always considered changed.
+     *
+     * @param previousBackupPropertiesId identifier of backup properties of the previous backup or {@literal null} if there is no one
+     * @param statistics                 current statistics by quoted qualified table names
+     * @return identifiers of backup properties of backups containing data of unchanged tables, by quoted qualified table names
+     */
+    public Map<String, Integer> findUnchangedTables(@Nullable Integer previousBackupPropertiesId,
+                                                    @NotNull Map<String, TableStatistics> statistics) {
+        Objects.requireNonNull(statistics);
+
+        Map<String, Integer> unchangedTables = new HashMap<>();
+        if (previousBackupPropertiesId == null) {
+            return unchangedTables;
+        }
+        for (BackupTable backupTable : backupTablesRepository.findAllByBackupPropertiesId(previousBackupPropertiesId)) {
+            if (backupTable.getStatistics().equals(statistics.get(backupTable.getTableName()))) {
+                unchangedTables.put(backupTable.getTableName(), backupTable.getDataBackupPropertiesId());
+            }
+        }
+        return unchangedTables;
+    }
+
+    /**
+     * Saves manifest of the backup.
+     * <p>
+     * Manifest should be saved only after the backup is uploaded to all storages.
+     *
+     * @param backupPropertiesId identifier of backup properties of the backup
+     * @param statistics         statistics of all tables of the database by quoted qualified table names
+     * @param unchangedTables    identifiers of backup properties of backups containing data of tables not dumped into the backup
+     * @return saved entities
+     */
+    public Iterable<BackupTable> addManifest(@NotNull Integer backupPropertiesId, @NotNull Map<String, TableStatistics> statistics,
+                                             @NotNull Map<String, Integer> unchangedTables) {
+        Objects.requireNonNull(backupPropertiesId);
+        Objects.requireNonNull(statistics);
+        Objects.requireNonNull(unchangedTables);
+
+        List<BackupTable> backupTables = new ArrayList<>();
+        for (Map.Entry<String, TableStatistics> table : statistics.entrySet()) {
+            Integer dataBackupPropertiesId = unchangedTables.getOrDefault(table.getKey(), backupPropertiesId);
+            backupTables.add(new BackupTable(backupPropertiesId, table.getKey(), dataBackupPropertiesId, table.getValue()));
+        }
+        return backupTablesRepository.saveAll(backupTables);
+    }
+
+    /**
+     * Returns tables, data of which is saved in earlier backups.
+     *
+     * @param backupPropertiesId identifier of backup properties of the backup
+     * @return quoted qualified table names by identifiers of backup properties of earlier backups in ascending order. The map is empty if
+     * the backup is not incremental or contains data of all tables
+     */
+    public Map<Integer, Set<String>> getBaseBackupTables(@NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(backupPropertiesId);
+
+        Map<Integer, Set<String>> baseBackupTables = new TreeMap<>();
+        for (BackupTable backupTable : backupTablesRepository.findAllByBackupPropertiesId(backupPropertiesId)) {
+            if (!backupTable.getDataBackupPropertiesId().equals(backupPropertiesId)) {
+                baseBackupTables.computeIfAbsent(backupTable.getDataBackupPropertiesId(), id -> new HashSet<>())
+                        .add(backupTable.getTableName());
+            }
+        }
+        return new LinkedHashMap<>(baseBackupTables);
+    }
+
+    /**
+     * Checks whether data of any table of the backup is used by later incremental backups.
+     * <p>
+     * Such backup can't be deleted without breaking restoration of later backups.
+     *
+     * @param backupPropertiesId identifier of backup properties of the backup
+     * @return {@literal true} if the backup is referenced by manifest of other backup
+     */
+    public boolean isReferencedByOtherBackups(@NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(backupPropertiesId);
+
+        return backupTablesRepository.existsByDataBackupPropertiesIdAndBackupPropertiesIdNot(backupPropertiesId, backupPropertiesId);
+    }
+
+    /**
+     * Deletes manifest of the backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the backup
+     */
+    public void deleteAllByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        backupTablesRepository.deleteAllByBackupPropertiesId(backupPropertiesId);
+    }
+}
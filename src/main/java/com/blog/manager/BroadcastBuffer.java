@@ -0,0 +1,595 @@
+package com.blog.manager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer, which broadcasts the stream to multiple consumers without copying it for each consumer.
+ * <p>
+ * Producer reads the source stream into the ring of pooled chunks once, and each consumer reads the same chunks through its own cursor.
+ * The chunk is reused only after all consumers have read it, so the producer is ahead of the slowest consumer by the buffer size at most.
+ * Threads are synchronized once per chunk, not per read.
+ * <p>
+ * If spool is enabled, consumers lagging behind others don't hold the producer: when the ring is full, chunks not read by the lagging
+ * consumers yet are spilled into their own spool files, and consumers read them back from the spool before returning to the ring. So the
+ * throughput is limited by the fastest consumer, until the spool of the lagging one is full.
+ * <p>
+ * If broadcasting is aborted or fails, consumers get an exception instead of the end of stream, so partially read stream is never
+ * mistaken for the whole one.
+ */
+final class BroadcastBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastBuffer.class);
+
+    static final int CHUNK_SIZE = 512 * 1024;
+
+    static final int CHUNKS_COUNT = 16;
+
+    private final int chunkSize;
+
+    private final byte[][] chunks;
+
+    private final int[] chunkLengths;
+
+    @Nullable
+    private final Path spoolDirectory;
+
+    private final long maxSpoolSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition chunkPublished = lock.newCondition();
+
+    private final Condition chunkReleased = lock.newCondition();
+
+    private final List<BroadcastInputStream> consumers = new ArrayList<>();
+
+    private long publishedChunks = 0;
+
+    private boolean finished = false;
+
+    private IOException failure;
+
+    /**
+     * Creates buffer without spool.
+     */
+    BroadcastBuffer() {
+        this(CHUNK_SIZE, CHUNKS_COUNT, null, 0);
+    }
+
+    /**
+     * Creates buffer spilling chunks not read by the lagging consumers into spool files.
+     *
+     * @param spoolDirectory directory to create spool files in
+     * @param maxSpoolSize   max size of spool file of each consumer in bytes
+     */
+    BroadcastBuffer(@NotNull Path spoolDirectory, long maxSpoolSize) {
+        this(CHUNK_SIZE, CHUNKS_COUNT, Objects.requireNonNull(spoolDirectory), maxSpoolSize);
+    }
+
+    BroadcastBuffer(int chunkSize, int chunksCount, @Nullable Path spoolDirectory, long maxSpoolSize) {
+        this.chunkSize = chunkSize;
+        this.chunks = new byte[chunksCount][chunkSize];
+        this.chunkLengths = new int[chunksCount];
+        this.spoolDirectory = spoolDirectory;
+        this.maxSpoolSize = spoolDirectory == null ? 0 : maxSpoolSize;
+    }
+
+    /**
+     * Creates a new consumer of the stream.
+     * <p>
+     * All consumers must be created before broadcasting is started.
+     *
+     * @return input stream, from which broadcast stream can be read
+     */
+    InputStream newConsumer() {
+        lock.lock();
+        try {
+            if (publishedChunks != 0 || finished) {
+                throw new IllegalStateException("Can't add consumer: broadcasting is already started");
+            }
+            BroadcastInputStream consumer = new BroadcastInputStream();
+            consumers.add(consumer);
+            return consumer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns number of the oldest chunk in the ring, which is still needed by any of the consumers.
+     */
+    private long getOldestReadChunk() {
+        long oldestReadChunk = publishedChunks;
+        for (BroadcastInputStream consumer : consumers) {
+            if (!consumer.closed) {
+                oldestReadChunk = Math.min(oldestReadChunk, consumer.getRingChunkNumber());
+            }
+        }
+        return oldestReadChunk;
+    }
+
+    private int getChunkIndex(long chunkNumber) {
+        return (int) (chunkNumber % chunks.length);
+    }
+
+    /**
+     * Moves chunks not read by the lagging consumers from the ring to their spools.
+     * <p>
+     * Consumers are spilled only if any other consumer is ahead of them, because otherwise no consumer needs the ring to be freed. If
+     * spool of any lagging consumer is full, no consumer is spilled, because the ring can't be freed anyway.
+     *
+     * @return spills to write or empty list if the ring can't be freed
+     */
+    private List<Spill> planSpills() {
+        List<Spill> spills = new ArrayList<>();
+        long oldestReadChunk = getOldestReadChunk();
+        if (maxSpoolSize == 0 || consumers.stream().noneMatch(consumer -> !consumer.closed &&
+                consumer.getRingChunkNumber() > oldestReadChunk)) {
+            return spills;
+        }
+
+        boolean oldestChunkIsRead = false;
+        for (BroadcastInputStream consumer : consumers) {
+            if (consumer.closed || consumer.getRingChunkNumber() != oldestReadChunk) {
+                continue;
+            }
+            // the chunk being read from the ring is left to the consumer
+            boolean readingRingChunk = consumer.chunk != null && !consumer.readingSpool && consumer.chunkNumber == oldestReadChunk;
+            Spill spill = new Spill(consumer);
+            for (long chunkNumber = readingRingChunk ? oldestReadChunk + 1 : oldestReadChunk; chunkNumber < publishedChunks;
+                 chunkNumber++) {
+                spill.add(chunks[getChunkIndex(chunkNumber)], chunkLengths[getChunkIndex(chunkNumber)]);
+            }
+            if (spill.size > maxSpoolSize - (consumer.spoolWritePosition - consumer.spoolReadPosition)) {
+                return new ArrayList<>();
+            }
+            oldestChunkIsRead |= readingRingChunk;
+            spills.add(spill);
+        }
+
+        for (Spill spill : spills) {
+            spill.spoolPosition = spill.consumer.spoolWritePosition;
+            spill.consumer.spoolWritePosition += spill.size;
+            spill.consumer.spoolEnd = publishedChunks;
+        }
+        if (oldestChunkIsRead) {
+            // the chunk is still read by the spilled consumer, so the ring gets a new one
+            chunks[getChunkIndex(oldestReadChunk)] = new byte[chunkSize];
+        }
+        return spills;
+    }
+
+    private void writeSpill(Spill spill) throws IOException {
+        BroadcastInputStream consumer = spill.consumer;
+        if (spill.chunkLengths.isEmpty()) {
+            return;
+        }
+        // spool is assigned by the producer only, so it can be checked without holding the lock
+        if (consumer.spool == null) {
+            Path spoolFile = Files.createTempFile(spoolDirectory, "upload-spool", ".tmp");
+            FileChannel spool = FileChannel.open(spoolFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            lock.lock();
+            try {
+                if (consumer.closed) {
+                    spool.close();
+                    throw new IOException("Consumer closed the stream before the end of broadcast stream");
+                }
+                consumer.spool = spool;
+            } finally {
+                lock.unlock();
+            }
+            logger.info("Consumer of broadcast stream is lagging behind, spilling stream to the spool file: {}", spoolFile);
+        }
+
+        long spoolPosition = spill.spoolPosition;
+        for (int spilledChunk = 0; spilledChunk < spill.chunkLengths.size(); spilledChunk++) {
+            int chunkLength = spill.chunkLengths.get(spilledChunk);
+            consumer.writeSpool(spill.chunks.get(spilledChunk), chunkLength, spoolPosition);
+            spoolPosition += chunkLength;
+        }
+    }
+
+    /**
+     * Waits until the ring has a free chunk, spilling chunks of the lagging consumers if needed.
+     */
+    private void awaitFreeChunk() throws IOException, InterruptedException {
+        while (true) {
+            List<Spill> spills;
+            lock.lock();
+            try {
+                while (true) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    if (consumers.stream().anyMatch(consumer -> consumer.closed)) {
+                        throw new IOException("Consumer closed the stream before the end of broadcast stream");
+                    }
+                    if (publishedChunks - getOldestReadChunk() < chunks.length) {
+                        return;
+                    }
+                    spills = planSpills();
+                    if (!spills.isEmpty()) {
+                        break;
+                    }
+                    chunkReleased.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // spilled chunks are not reused until they are written, so they can be written without holding the lock
+            for (Spill spill : spills) {
+                writeSpill(spill);
+            }
+
+            lock.lock();
+            try {
+                for (Spill spill : spills) {
+                    spill.consumer.spooledChunkLengths.addAll(spill.chunkLengths);
+                }
+                chunkPublished.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the source stream and broadcasts it to all consumers.
+     * <p>
+     * This method returns when the whole stream is read by the producer, that is, consumers may still read the last chunks from the
+     * ring or spool.
+     *
+     * @param source the stream to broadcast
+     * @throws IOException if an I/O error occurs while reading source stream or writing spool, any of consumers is closed before the end
+     *                     of stream or broadcasting is aborted. Consumers get an exception too
+     */
+    void broadcast(@NotNull InputStream source) throws IOException {
+        Objects.requireNonNull(source);
+
+        try {
+            while (true) {
+                awaitFreeChunk();
+
+                // the chunk is not read by any consumer, so it can be filled without holding the lock
+                int chunkIndex = getChunkIndex(publishedChunks);
+                int chunkLength = source.readNBytes(chunks[chunkIndex], 0, chunks[chunkIndex].length);
+
+                lock.lock();
+                try {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    if (chunkLength == 0) {
+                        finished = true;
+                    } else {
+                        chunkLengths[chunkIndex] = chunkLength;
+                        publishedChunks++;
+                    }
+                    chunkPublished.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (chunkLength == 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interruptedIOException = new InterruptedIOException("Broadcasting was interrupted");
+            abort(interruptedIOException);
+            throw interruptedIOException;
+        } catch (IOException ex) {
+            abort(ex);
+            throw ex;
+        }
+    }
+
+    private void abort(IOException cause) {
+        lock.lock();
+        try {
+            if (failure == null && !finished) {
+                failure = cause;
+            }
+            chunkPublished.signalAll();
+            chunkReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aborts broadcasting.
+     * <p>
+     * Producer and consumers get {@link InterruptedIOException} instead of reading the rest of the stream. Does nothing if the whole
+     * stream is already read by the producer.
+     */
+    void abort() {
+        abort(new InterruptedIOException("Broadcasting was aborted"));
+    }
+
+    /**
+     * Closes all consumers and deletes their spool files.
+     * <p>
+     * Should be called when consumers finished reading, because consumers might not close the stream themselves.
+     */
+    void close() {
+        for (BroadcastInputStream consumer : consumers) {
+            try {
+                consumer.close();
+            } catch (IOException ex) {
+                logger.error("Error closing spool file of broadcast stream consumer", ex);
+            }
+        }
+    }
+
+    /**
+     * Chunks moved from the ring to the spool of the consumer.
+     */
+    private static final class Spill {
+        private final BroadcastInputStream consumer;
+
+        private final List<byte[]> chunks = new ArrayList<>();
+
+        private final List<Integer> chunkLengths = new ArrayList<>();
+
+        private long size = 0;
+
+        private long spoolPosition;
+
+        Spill(BroadcastInputStream consumer) {
+            this.consumer = consumer;
+        }
+
+        void add(byte[] chunk, int chunkLength) {
+            chunks.add(chunk);
+            chunkLengths.add(chunkLength);
+            size += chunkLength;
+        }
+    }
+
+    /**
+     * Consumer of the stream.
+     * <p>
+     * Chunks before {@link #spoolEnd} are read from the spool, the rest chunks are read from the ring. Spool file is used as a circular
+     * buffer of {@link #maxSpoolSize} bytes. All fields, except the chunk being read, are guarded by the lock.
+     */
+    private final class BroadcastInputStream extends InputStream {
+        private final Queue<Integer> spooledChunkLengths = new ArrayDeque<>();
+
+        /**
+         * Number of the chunk the consumer reads.
+         */
+        private long chunkNumber = 0;
+
+        private long spoolEnd = 0;
+
+        private long spoolReadPosition = 0;
+
+        private long spoolWritePosition = 0;
+
+        private FileChannel spool;
+
+        private boolean closed = false;
+
+        private boolean readingSpool = false;
+
+        private byte[] spoolChunk;
+
+        private byte[] chunk;
+
+        private int chunkLength;
+
+        private int position;
+
+        /**
+         * Returns number of the first chunk in the ring the consumer needs.
+         */
+        private long getRingChunkNumber() {
+            return Math.max(chunkNumber, spoolEnd);
+        }
+
+        private void writeSpool(byte[] data, int length, long spoolPosition) throws IOException {
+            int written = 0;
+            while (written < length) {
+                long filePosition = spoolPosition % maxSpoolSize;
+                int count = (int) Math.min(length - written, maxSpoolSize - filePosition);
+                ByteBuffer buffer = ByteBuffer.wrap(data, written, count);
+                while (buffer.hasRemaining()) {
+                    filePosition += spool.write(buffer, filePosition);
+                }
+                written += count;
+                spoolPosition += count;
+            }
+        }
+
+        private void readSpool(byte[] data, int length, long spoolPosition) throws IOException {
+            int read = 0;
+            while (read < length) {
+                long filePosition = spoolPosition % maxSpoolSize;
+                int count = (int) Math.min(length - read, maxSpoolSize - filePosition);
+                ByteBuffer buffer = ByteBuffer.wrap(data, read, count);
+                while (buffer.hasRemaining()) {
+                    int bytesRead = spool.read(buffer, filePosition);
+                    if (bytesRead == -1) {
+                        throw new EOFException("Unexpected end of spool file");
+                    }
+                    filePosition += bytesRead;
+                }
+                read += count;
+                spoolPosition += count;
+            }
+        }
+
+        private IOException getFailure() {
+            if (failure instanceof InterruptedIOException) {
+                InterruptedIOException interruptedIOException = new InterruptedIOException("Broadcasting was interrupted");
+                interruptedIOException.initCause(failure);
+                return interruptedIOException;
+            }
+            return new IOException("Error broadcasting stream", failure);
+        }
+
+        /**
+         * Waits for the next chunk to be published.
+         *
+         * @return {@literal false} if the end of stream is reached
+         */
+        private boolean acquireChunk() throws IOException {
+            if (chunk != null) {
+                return true;
+            }
+
+            long spoolPosition;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new IOException("Stream closed");
+                    }
+                    if (failure != null) {
+                        throw getFailure();
+                    }
+                    if (chunkNumber < spoolEnd) {
+                        if (!spooledChunkLengths.isEmpty()) {
+                            break;
+                        }
+                    } else if (chunkNumber < publishedChunks) {
+                        int chunkIndex = getChunkIndex(chunkNumber);
+                        chunk = chunks[chunkIndex];
+                        chunkLength = chunkLengths[chunkIndex];
+                        position = 0;
+                        return true;
+                    } else if (finished) {
+                        return false;
+                    }
+                    chunkPublished.await();
+                }
+
+                if (spoolChunk == null) {
+                    spoolChunk = new byte[chunkSize];
+                }
+                chunk = spoolChunk;
+                chunkLength = spooledChunkLengths.peek();
+                position = 0;
+                readingSpool = true;
+                spoolPosition = spoolReadPosition;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Reading of broadcast stream was interrupted");
+            } finally {
+                lock.unlock();
+            }
+
+            // the chunk is not overwritten until it is released, so it can be read without holding the lock
+            readSpool(spoolChunk, chunkLength, spoolPosition);
+            return true;
+        }
+
+        private void releaseChunk() {
+            lock.lock();
+            try {
+                if (readingSpool) {
+                    spoolReadPosition += spooledChunkLengths.remove();
+                    readingSpool = false;
+                }
+                chunk = null;
+                chunkNumber++;
+                chunkReleased.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!acquireChunk()) {
+                return -1;
+            }
+            int b = chunk[position++] & 0xff;
+            if (position == chunkLength) {
+                releaseChunk();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!acquireChunk()) {
+                return -1;
+            }
+            int bytesRead = Math.min(len, chunkLength - position);
+            System.arraycopy(chunk, position, b, off, bytesRead);
+            position += bytesRead;
+            if (position == chunkLength) {
+                releaseChunk();
+            }
+            return bytesRead;
+        }
+
+        /**
+         * Writes chunks to the output stream directly, without copying them into intermediate buffer.
+         */
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            Objects.requireNonNull(out);
+            long transferred = 0;
+            while (acquireChunk()) {
+                out.write(chunk, position, chunkLength - position);
+                transferred += chunkLength - position;
+                releaseChunk();
+            }
+            return transferred;
+        }
+
+        @Override
+        public int available() {
+            return chunk == null ? 0 : chunkLength - position;
+        }
+
+        /**
+         * Closes the stream and deletes the spool file.
+         */
+        @Override
+        public void close() throws IOException {
+            FileChannel spoolToClose;
+            lock.lock();
+            try {
+                closed = true;
+                chunk = null;
+                spoolToClose = spool;
+                chunkReleased.signal();
+            } finally {
+                lock.unlock();
+            }
+            if (spoolToClose != null) {
+                spoolToClose.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.blog.manager;
+
+import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.backup.ChangeSegment;
+import com.blog.repositories.ChangeSegmentsRepository;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class provides API to manage captured change segments of full backups.
+ *
+ * @see ChangeSegment
+ */
+@Component
+@Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+public class ChangeSegmentsManager {
+    private static final String SEGMENT_BACKUP_NAME_TEMPLATE = "%s_changes_%016X";
+
+    private ChangeSegmentsRepository changeSegmentsRepository;
+
+    @Autowired
+    public void setChangeSegmentsRepository(ChangeSegmentsRepository changeSegmentsRepository) {
+        this.changeSegmentsRepository = changeSegmentsRepository;
+    }
+
+    /**
+     * Returns name the segment should be saved under on storages.
+     *
+     * @param backupProperties backup properties of the full backup
+     * @param startLsn         WAL position of the first change of the segment
+     * @return segment backup name
+     */
+    public String getSegmentBackupName(@NotNull BackupProperties backupProperties, long startLsn) {
+        return String.format(SEGMENT_BACKUP_NAME_TEMPLATE, backupProperties.getBackupName(), startLsn);
+    }
+
+    /**
+     * Creates a new instance of {@link ChangeSegment}.
+     * <p>
+     * Segment should be saved only after it is uploaded to all storages of the full backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @param startLsn           WAL position of the first change of the segment
+     * @param endLsn             WAL position of the commit of the last transaction of the segment
+     * @param backupName         name the segment is saved under on storages
+     * @return saved entity
+     */
+    public ChangeSegment addNewSegment(@NotNull Integer backupPropertiesId, long startLsn, long endLsn, @NotNull String backupName) {
+        Objects.requireNonNull(backupPropertiesId);
+        Objects.requireNonNull(backupName);
+
+        return changeSegmentsRepository.save(
+                new ChangeSegment(backupPropertiesId, startLsn, endLsn, backupName, LocalDateTime.now(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Returns all segments of the full backup in order of WAL positions.
+     *
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @return all segments of the full backup
+     */
+    public List<ChangeSegment> findAllByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        return changeSegmentsRepository.findAllByBackupPropertiesIdOrderByStartLsnAsc(backupPropertiesId);
+    }
+
+    /**
+     * Returns the last captured segment of the full backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @return the last segment or {@literal Optional#empty()} if no changes were captured
+     */
+    public Optional<ChangeSegment> findLastByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        return changeSegmentsRepository.findFirstByBackupPropertiesIdOrderByEndLsnDesc(backupPropertiesId);
+    }
+
+    /**
+     * Returns number of segments of the full backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @return number of segments
+     */
+    public long countByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        return changeSegmentsRepository.countByBackupPropertiesId(backupPropertiesId);
+    }
+
+    /**
+     * Deletes all segments of the full backup.
+     * <p>
+     * This method does not delete the segments from storages.
+     *
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     */
+    public void deleteAllByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        changeSegmentsRepository.deleteAllByBackupPropertiesId(backupPropertiesId);
+    }
+}
@@ -0,0 +1,179 @@
+package com.blog.manager;
+
+import com.blog.entities.backup.CompressionDictionary;
+import com.blog.repositories.CompressionDictionariesRepository;
+import com.blog.service.processor.DictionarySampler;
+import com.blog.service.processor.ProcessorOptions;
+import com.blog.service.processor.ProcessorType;
+import com.blog.service.processor.ZstdBackupCompressor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class provides API to manage compression dictionaries of databases.
+ * <p>
+ * Samples of backups compressed by {@link ProcessorType#ZSTD_COMPRESSOR} are accumulated per database. As soon as samples of recent
+ * backups reach {@link #TRAINING_SAMPLES_SIZE}, a new version of the dictionary is trained on them and the samples are discarded, so the
+ * dictionary follows changes of the database. The first version is trained as soon as {@link #FIRST_TRAINING_SAMPLES_SIZE} is reached,
+ * so small databases get dictionary after a few backups. New backups are compressed with the latest version. Old versions are kept,
+ * because backups compressed with them reference them.
+ * <p>
+ * Samples are kept in memory, so at most {@link #TRAINING_SAMPLES_SIZE} plus samples of one backup are kept per database and samples
+ * collected before restart are lost.
+ *
+ * @see CompressionDictionary
+ */
+@Component
+@Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+public class CompressionDictionariesManager {
+    private static final Logger logger = LoggerFactory.getLogger(CompressionDictionariesManager.class);
+
+    /**
+     * Maximum size of samples taken from one backup.
+     */
+    public static final int MAX_BACKUP_SAMPLES_SIZE = 128 * 1024;
+
+    /**
+     * Size of samples of recent backups the dictionary is trained on.
+     */
+    static final int TRAINING_SAMPLES_SIZE = 256 * 1024;
+
+    /**
+     * Size of samples of recent backups the first version of the dictionary is trained on.
+     */
+    static final int FIRST_TRAINING_SAMPLES_SIZE = 64 * 1024;
+
+    /**
+     * Maximum size of the dictionary.
+     */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final Map<String, List<byte[]>> samplesByDatabase = new ConcurrentHashMap<>();
+
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+    private CompressionDictionariesRepository compressionDictionariesRepository;
+
+    @Autowired
+    public void setCompressionDictionariesRepository(CompressionDictionariesRepository compressionDictionariesRepository) {
+        this.compressionDictionariesRepository = compressionDictionariesRepository;
+    }
+
+    /**
+     * Checks whether backup processed by the processors is compressed with dictionary.
+     *
+     * @param processors processors applied on backup
+     * @return {@literal true} if the processors use dictionaries
+     */
+    public boolean usesDictionary(@NotNull List<ProcessorType> processors) {
+        return processors.contains(ProcessorType.ZSTD_COMPRESSOR);
+    }
+
+    /**
+     * Returns options with the latest dictionary of the database.
+     *
+     * @param databaseSettingsName name of database settings
+     * @param processors           processors applied on backup
+     * @param options              options of processors. If null, default options are used
+     * @return options with identifier of the latest dictionary or the same options if processors don't use dictionaries or no dictionary
+     * is trained yet
+     */
+    public ProcessorOptions withLatestDictionary(@NotNull String databaseSettingsName, @NotNull List<ProcessorType> processors,
+                                                 @Nullable ProcessorOptions options) {
+        Objects.requireNonNull(databaseSettingsName);
+        Objects.requireNonNull(processors);
+
+        ProcessorOptions processorOptions = options != null ? options : ProcessorOptions.DEFAULT;
+        if (!usesDictionary(processors)) {
+            return processorOptions;
+        }
+        return findLatest(databaseSettingsName)
+                .map(dictionary -> processorOptions.withDictionaryId(dictionary.getId()))
+                .orElse(processorOptions);
+    }
+
+    /**
+     * Returns the latest dictionary of the database.
+     *
+     * @param databaseSettingsName name of database settings
+     * @return the latest dictionary or {@literal Optional#empty()} if no dictionary is trained yet
+     */
+    public Optional<CompressionDictionary> findLatest(@NotNull String databaseSettingsName) {
+        return compressionDictionariesRepository.findFirstByDatabaseSettingsNameOrderByVersionDesc(databaseSettingsName);
+    }
+
+    /**
+     * Returns content of the dictionary.
+     * <p>
+     * Dictionaries never change, so content is cached.
+     *
+     * @param id identifier of the dictionary
+     * @return dictionary content
+     * @throws RuntimeException if there is no such dictionary
+     */
+    public byte[] getDictionary(@NotNull Integer id) {
+        Objects.requireNonNull(id);
+
+        return dictionaries.computeIfAbsent(id, dictionaryId -> compressionDictionariesRepository.findById(dictionaryId)
+                .orElseThrow(() -> new RuntimeException(String.format("Compression dictionary with ID %d not found", dictionaryId)))
+                .getDictionary());
+    }
+
+    /**
+     * Adds samples of successfully created backup and trains a new version of the dictionary if enough samples are accumulated.
+     * <p>
+     * Training failure is logged and doesn't affect the backup.
+     *
+     * @param databaseSettingsName name of database settings
+     * @param samples              samples of the backup
+     * @return the trained dictionary or {@literal Optional#empty()} if dictionary was not trained
+     * @see DictionarySampler
+     */
+    public Optional<CompressionDictionary> addSamples(@NotNull String databaseSettingsName, @NotNull List<byte[]> samples) {
+        Objects.requireNonNull(databaseSettingsName);
+        Objects.requireNonNull(samples);
+
+        List<byte[]> trainingSamples;
+        List<byte[]> databaseSamples = samplesByDatabase.computeIfAbsent(databaseSettingsName, name -> new ArrayList<>());
+        synchronized (databaseSamples) {
+            databaseSamples.addAll(samples);
+            int samplesSize = databaseSamples.stream().mapToInt(sample -> sample.length).sum();
+            if (samplesSize < FIRST_TRAINING_SAMPLES_SIZE || samplesSize < TRAINING_SAMPLES_SIZE &&
+                    compressionDictionariesRepository.existsByDatabaseSettingsName(databaseSettingsName)) {
+                return Optional.empty();
+            }
+            trainingSamples = new ArrayList<>(databaseSamples);
+            databaseSamples.clear();
+        }
+
+        byte[] dictionary;
+        try {
+            dictionary = ZstdBackupCompressor.trainDictionary(trainingSamples, DICTIONARY_SIZE);
+        } catch (RuntimeException ex) {
+            logger.warn("Error training compression dictionary of database {}", databaseSettingsName, ex);
+            return Optional.empty();
+        }
+
+        int version = findLatest(databaseSettingsName).map(CompressionDictionary::getVersion).orElse(0) + 1;
+        CompressionDictionary compressionDictionary = compressionDictionariesRepository.save(
+                new CompressionDictionary(databaseSettingsName, version, LocalDateTime.now(ZoneOffset.UTC), dictionary));
+        logger.info("Trained new compression dictionary: {}", compressionDictionary);
+        return Optional.of(compressionDictionary);
+    }
+}
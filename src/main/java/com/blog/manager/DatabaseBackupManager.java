@@ -1,16 +1,34 @@
 package com.blog.manager;
 
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.database.DatabaseType;
+import com.blog.entities.database.PostgresBackupEngine;
+import com.blog.entities.database.PostgresSettings;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.LogicalChangeStream;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresChangeCapture;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresCopyDatabaseBackup;
 import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresDatabaseBackup;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresPhysicalBackup;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.TableStatistics;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.WalReceiver;
+import com.blog.service.databaseBackup.RestoreFilter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * This class provides API to create and restore backups.
@@ -21,13 +39,41 @@ public class DatabaseBackupManager {
 
     private PostgresDatabaseBackup postgresDatabaseBackup;
 
+    private PostgresCopyDatabaseBackup postgresCopyDatabaseBackup;
+
+    private PostgresPhysicalBackup postgresPhysicalBackup;
+
+    private PostgresChangeCapture postgresChangeCapture;
+
     @Autowired
     public void setPostgresDatabaseBackup(PostgresDatabaseBackup postgresDatabaseBackup) {
         this.postgresDatabaseBackup = postgresDatabaseBackup;
     }
 
+    @Autowired
+    public void setPostgresCopyDatabaseBackup(PostgresCopyDatabaseBackup postgresCopyDatabaseBackup) {
+        this.postgresCopyDatabaseBackup = postgresCopyDatabaseBackup;
+    }
+
+    @Autowired
+    public void setPostgresPhysicalBackup(PostgresPhysicalBackup postgresPhysicalBackup) {
+        this.postgresPhysicalBackup = postgresPhysicalBackup;
+    }
+
+    @Autowired
+    public void setPostgresChangeCapture(PostgresChangeCapture postgresChangeCapture) {
+        this.postgresChangeCapture = postgresChangeCapture;
+    }
+
+    private boolean isPostgresCopyEngine(@NotNull DatabaseSettings databaseSettings) {
+        return databaseSettings.getPostgresSettings().map(PostgresSettings::getEngine).orElse(PostgresBackupEngine.PG_DUMP) ==
+                PostgresBackupEngine.JDBC_COPY;
+    }
+
     /**
      * Created database backup.
+     * <p>
+     * PostgreSQL backups are created by the engine set in {@link PostgresSettings#getEngine()}.
      *
      * @param databaseSettings database settings of database to dump
      * @param id               create backup task ID
@@ -45,7 +91,11 @@ public class DatabaseBackupManager {
         DatabaseType databaseType = databaseSettings.getType();
         switch (databaseType) {
             case POSTGRES: {
-                backupStream = postgresDatabaseBackup.createBackup(databaseSettings, id);
+                if (isPostgresCopyEngine(databaseSettings)) {
+                    backupStream = postgresCopyDatabaseBackup.createBackup(databaseSettings, id);
+                } else {
+                    backupStream = postgresDatabaseBackup.createBackup(databaseSettings, id);
+                }
                 break;
             }
             default: {
@@ -59,23 +109,186 @@ public class DatabaseBackupManager {
     }
 
     /**
-     * Restores database backup.
+     * Returns format of backups that will be created with the specified database settings.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @return backup format
+     */
+    @NotNull
+    public BackupFormat getBackupFormat(@NotNull DatabaseSettings databaseSettings) {
+        Objects.requireNonNull(databaseSettings);
+
+        DatabaseType databaseType = databaseSettings.getType();
+        switch (databaseType) {
+            case POSTGRES: {
+                if (isPostgresCopyEngine(databaseSettings)) {
+                    return postgresCopyDatabaseBackup.getBackupFormat(databaseSettings);
+                }
+                return postgresDatabaseBackup.getBackupFormat(databaseSettings);
+            }
+            default: {
+                throw new RuntimeException("Can't get backup format: unknown database type " + databaseType);
+            }
+        }
+    }
+
+    /**
+     * Returns marker of the database state, which changes once any data or schema of the database is changed.
+     * <p>
+     * Equal markers read before creation of two backups mean that the second backup would contain the same data as the first one.
+     *
+     * @param databaseSettings database settings
+     * @return state marker or {@literal null} if changes of the database can't be tracked
+     */
+    @Nullable
+    public String readChangeMarker(@NotNull DatabaseSettings databaseSettings) {
+        Objects.requireNonNull(databaseSettings);
+
+        DatabaseType databaseType = databaseSettings.getType();
+        switch (databaseType) {
+            case POSTGRES: {
+                return postgresDatabaseBackup.readChangeMarker(databaseSettings);
+            }
+            default: {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Checks whether backup of the format can be created or restored directly in a file, without streaming it through the application.
+     *
+     * @param format           backup format
+     * @param databaseSettings database settings
+     * @return {@literal true} if the backup can be transferred as a file
+     * @see #createBackup(DatabaseSettings, Path, Integer)
+     * @see #restoreBackup(List, DatabaseSettings, Integer)
+     */
+    public boolean supportsFileTransfer(@NotNull BackupFormat format, @NotNull DatabaseSettings databaseSettings) {
+        Objects.requireNonNull(format);
+        Objects.requireNonNull(databaseSettings);
+
+        // plain backups are written by pg_dump and read by psql sequentially, so they can be redirected from/to a file
+        return databaseSettings.getType() == DatabaseType.POSTGRES && format == BackupFormat.PLAIN;
+    }
+
+    /**
+     * Creates database backup directly in the file.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param backupFile       file to write backup to
+     * @param id               create backup task ID
+     * @see #supportsFileTransfer(BackupFormat, DatabaseSettings)
+     */
+    public void createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Path backupFile, @NotNull Integer id) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupFile);
+        Objects.requireNonNull(id);
+
+        logger.info("Creating backup in file... Database info: {}", databaseSettings);
+
+        DatabaseType databaseType = databaseSettings.getType();
+        switch (databaseType) {
+            case POSTGRES: {
+                postgresDatabaseBackup.createBackup(databaseSettings, backupFile, id);
+                break;
+            }
+            default: {
+                throw new RuntimeException("Can't create backup in file: unknown database type " + databaseType);
+            }
+        }
+    }
+
+    /**
+     * Restores database backup directly from the files.
+     *
+     * @param backupFiles      backup part files in order
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     * @see #supportsFileTransfer(BackupFormat, DatabaseSettings)
+     */
+    public void restoreBackup(@NotNull List<Path> backupFiles, @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        Objects.requireNonNull(backupFiles);
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(id);
+
+        logger.info("Restoring backup from file... Database info: {}", databaseSettings);
+
+        DatabaseType databaseType = databaseSettings.getType();
+        switch (databaseType) {
+            case POSTGRES: {
+                postgresDatabaseBackup.restoreBackup(backupFiles, databaseSettings, id);
+                break;
+            }
+            default: {
+                throw new RuntimeException("Can't restore backup from file: unknown database type: " + databaseType);
+            }
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            logger.info("Backup restoration interrupted. Database info: {}", databaseSettings);
+            return;
+        }
+
+        logger.info("Backup successfully restored. Database info: {}", databaseSettings);
+    }
+
+    /**
+     * Restores database backup of {@link BackupFormat#PLAIN} format.
      *
      * @param in               input stream, from which plain text backup can be read.
      * @param databaseSettings database settings of database to restore backup to
      * @param id               restore backup task ID
      */
     public void restoreBackup(@NotNull InputStream in, @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        restoreBackup(in, BackupFormat.PLAIN, 1, databaseSettings, id);
+    }
+
+    /**
+     * Restores database backup.
+     *
+     * @param in               input stream, from which backup can be read.
+     * @param format           backup format
+     * @param jobs             number of parallel restore jobs
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     * @see com.blog.entities.backup.BackupProperties#getFormat()
+     */
+    public void restoreBackup(@NotNull InputStream in, @NotNull BackupFormat format, int jobs, @NotNull DatabaseSettings databaseSettings,
+                              @NotNull Integer id) {
+        restoreBackup(in, format, jobs, RestoreFilter.all(), databaseSettings, id);
+    }
+
+    /**
+     * Restores only tables and schemas matching the filter from database backup.
+     *
+     * @param in               input stream, from which backup can be read.
+     * @param format           backup format
+     * @param jobs             number of parallel restore jobs
+     * @param filter           tables and schemas to restore
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     * @see com.blog.entities.backup.BackupProperties#getFormat()
+     */
+    public void restoreBackup(@NotNull InputStream in, @NotNull BackupFormat format, int jobs, @NotNull RestoreFilter filter,
+                              @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
         Objects.requireNonNull(in);
+        Objects.requireNonNull(format);
+        Objects.requireNonNull(filter);
         Objects.requireNonNull(databaseSettings);
         Objects.requireNonNull(id);
 
-        logger.info("Restoring backup... Database info: {}", databaseSettings);
+        logger.info("Restoring backup... Format: {}. Jobs: {}. Filter: {}. Database info: {}", format, jobs, filter, databaseSettings);
 
         DatabaseType databaseType = databaseSettings.getType();
         switch (databaseType) {
             case POSTGRES: {
-                postgresDatabaseBackup.restoreBackup(in, databaseSettings, id);
+                // backup is restored by the engine that created it
+                if (format == BackupFormat.COPY_ARCHIVE) {
+                    postgresCopyDatabaseBackup.restoreBackup(in, format, jobs, filter, databaseSettings, id);
+                } else {
+                    postgresDatabaseBackup.restoreBackup(in, format, jobs, filter, databaseSettings, id);
+                }
                 break;
             }
             default: {
@@ -90,4 +303,251 @@ public class DatabaseBackupManager {
 
         logger.info("Backup successfully restored. Database info: {}", databaseSettings);
     }
+
+    private void checkPhysicalBackupSupported(@NotNull DatabaseSettings databaseSettings) {
+        DatabaseType databaseType = databaseSettings.getType();
+        if (databaseType != DatabaseType.POSTGRES) {
+            throw new RuntimeException("Physical backups are not supported for database type " + databaseType);
+        }
+    }
+
+    /**
+     * Creates base backup of the whole database cluster.
+     * <p>
+     * Base backup is a backup of {@link BackupFormat#BASE_BACKUP} format. Together with WAL archived by {@link WalReceiver}, it can be
+     * restored to any point in time after the backup creation.
+     *
+     * @param databaseSettings database settings of any database of the cluster
+     * @param id               create backup task ID
+     * @return input stream, from which base backup can be read
+     */
+    @NotNull
+    public InputStream createBaseBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(id);
+        checkPhysicalBackupSupported(databaseSettings);
+
+        logger.info("Creating base backup... Database info: {}", databaseSettings);
+
+        return postgresPhysicalBackup.createBaseBackup(databaseSettings, id);
+    }
+
+    /**
+     * Starts streaming WAL of the database cluster.
+     *
+     * @param databaseSettings   database settings of any database of the cluster
+     * @param backupPropertiesId identifier of backup properties of the base backup WAL is archived for
+     * @param id                 task ID
+     * @return started receiver
+     */
+    @NotNull
+    public WalReceiver startWalReceiver(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId,
+                                        @NotNull Integer id) throws InterruptedException {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+        Objects.requireNonNull(id);
+        checkPhysicalBackupSupported(databaseSettings);
+
+        return postgresPhysicalBackup.startWalReceiver(databaseSettings, backupPropertiesId, id);
+    }
+
+    /**
+     * Drops replication slot used to stream WAL of the base backup if it still exists.
+     *
+     * @param databaseSettings   database settings of any database of the cluster
+     * @param backupPropertiesId identifier of backup properties of the base backup WAL is archived for
+     */
+    public void dropWalSlot(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+        checkPhysicalBackupSupported(databaseSettings);
+
+        postgresPhysicalBackup.dropSlot(databaseSettings, backupPropertiesId);
+    }
+
+    /**
+     * Restores base backup into the data directory.
+     *
+     * @param in            input stream, from which base backup can be read
+     * @param dataDirectory empty data directory
+     */
+    public void restoreBaseBackup(@NotNull InputStream in, @NotNull Path dataDirectory) {
+        postgresPhysicalBackup.restoreBaseBackup(in, dataDirectory);
+    }
+
+    /**
+     * Restores archived WAL segment into the data directory.
+     *
+     * @param in            input stream, from which WAL segment can be read
+     * @param dataDirectory data directory base backup was restored into
+     * @param segmentName   WAL file name
+     */
+    public void restoreWalSegment(@NotNull InputStream in, @NotNull Path dataDirectory, @NotNull String segmentName) {
+        postgresPhysicalBackup.restoreWalSegment(in, dataDirectory, segmentName);
+    }
+
+    /**
+     * Configures recovery of the restored database cluster to the target time.
+     *
+     * @param dataDirectory data directory base backup was restored into
+     * @param targetTime    UTC time to recover the cluster to or {@literal null} to recover to the end of archived WAL
+     */
+    public void configureRecovery(@NotNull Path dataDirectory, @Nullable LocalDateTime targetTime) {
+        postgresPhysicalBackup.configureRecovery(dataDirectory, targetTime);
+    }
+
+    private void checkChangeCaptureSupported(@NotNull DatabaseSettings databaseSettings) {
+        DatabaseType databaseType = databaseSettings.getType();
+        if (databaseType != DatabaseType.POSTGRES) {
+            throw new RuntimeException("Change capture is not supported for database type " + databaseType);
+        }
+    }
+
+    /**
+     * Starts capturing changes of the database.
+     * <p>
+     * The full backup the changes follow must be created by {@link #createBackup(DatabaseSettings, String, Integer)} using snapshot of
+     * the returned stream before the stream is started.
+     *
+     * @param databaseSettings   database settings of database to capture changes of
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @return not started stream of changes
+     */
+    @NotNull
+    public LogicalChangeStream createChangeStream(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+        checkChangeCaptureSupported(databaseSettings);
+
+        return postgresChangeCapture.createChangeStream(databaseSettings, backupPropertiesId);
+    }
+
+    /**
+     * Drops replication slot used to capture changes following the full backup if it still exists.
+     *
+     * @param databaseSettings   database settings of database changes are captured of
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     */
+    public void dropChangeCaptureSlot(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+        checkChangeCaptureSupported(databaseSettings);
+
+        postgresChangeCapture.dropSlot(databaseSettings, backupPropertiesId);
+    }
+
+    /**
+     * Creates database backup of {@link BackupFormat#PLAIN} format seeing the data of the snapshot.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param snapshot         snapshot identifier of {@link LogicalChangeStream}
+     * @param id               create backup task ID
+     * @return input stream, from which backup can be read
+     */
+    @NotNull
+    public InputStream createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull String snapshot, @NotNull Integer id) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(snapshot);
+        Objects.requireNonNull(id);
+        checkChangeCaptureSupported(databaseSettings);
+
+        logger.info("Creating backup of snapshot {}... Database info: {}", snapshot, databaseSettings);
+
+        return postgresDatabaseBackup.createBackup(databaseSettings, snapshot, id);
+    }
+
+    /**
+     * Replays captured changes into the database the full backup was restored into.
+     *
+     * @param segments         input streams of change segments in order of WAL positions
+     * @param databaseSettings database settings of database to replay changes into
+     * @param targetLsn        WAL position to replay changes up to or {@literal null} to replay all changes
+     */
+    public void replayChanges(@NotNull Iterator<InputStream> segments, @NotNull DatabaseSettings databaseSettings,
+                              @Nullable Long targetLsn) {
+        Objects.requireNonNull(segments);
+        Objects.requireNonNull(databaseSettings);
+        checkChangeCaptureSupported(databaseSettings);
+
+        postgresChangeCapture.replayChanges(databaseSettings, segments, targetLsn);
+    }
+
+    private void checkIncrementalBackupSupported(@NotNull DatabaseSettings databaseSettings) {
+        DatabaseType databaseType = databaseSettings.getType();
+        if (databaseType != DatabaseType.POSTGRES) {
+            throw new RuntimeException("Incremental backups are not supported for database type " + databaseType);
+        }
+    }
+
+    /**
+     * Reads change counters of all tables of the database.
+     *
+     * @param databaseSettings database settings
+     * @return statistics by quoted qualified table names
+     */
+    @NotNull
+    public Map<String, TableStatistics> readTableStatistics(@NotNull DatabaseSettings databaseSettings) {
+        Objects.requireNonNull(databaseSettings);
+        checkIncrementalBackupSupported(databaseSettings);
+
+        return postgresCopyDatabaseBackup.readTableStatistics(databaseSettings);
+    }
+
+    /**
+     * Creates database backup of {@link BackupFormat#COPY_ARCHIVE} format without data of unchanged tables.
+     * <p>
+     * Backup is always created by COPY engine, since its archive keeps data of each table in separate entries.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param skippedTables    quoted qualified names of tables, data of which is not dumped
+     * @param id               create backup task ID
+     * @return input stream, from which backup can be read
+     */
+    @NotNull
+    public InputStream createIncrementalBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Set<String> skippedTables,
+                                               @NotNull Integer id) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(skippedTables);
+        Objects.requireNonNull(id);
+        checkIncrementalBackupSupported(databaseSettings);
+
+        logger.info("Creating incremental backup... Skipped tables: {}. Database info: {}", skippedTables.size(), databaseSettings);
+
+        return postgresCopyDatabaseBackup.createBackup(databaseSettings, skippedTables, id);
+    }
+
+    /**
+     * Restores incremental backup together with data of unchanged tables from earlier backups.
+     *
+     * @param in               input stream, from which the latest backup can be read
+     * @param baseBackupTables tables to restore from each earlier backup, by identifiers of their backup properties
+     * @param baseBackupOpener opens input stream of earlier backup by identifier of its backup properties
+     * @param jobs             number of parallel restore jobs
+     * @param filter           tables and schemas to restore
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     */
+    public void restoreBackupChain(@NotNull InputStream in, @NotNull Map<Integer, Set<String>> baseBackupTables,
+                                   @NotNull Function<Integer, InputStream> baseBackupOpener, int jobs, @NotNull RestoreFilter filter,
+                                   @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        Objects.requireNonNull(in);
+        Objects.requireNonNull(baseBackupTables);
+        Objects.requireNonNull(baseBackupOpener);
+        Objects.requireNonNull(filter);
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(id);
+        checkIncrementalBackupSupported(databaseSettings);
+
+        logger.info("Restoring incremental backup... Base backups: {}. Jobs: {}. Filter: {}. Database info: {}",
+                baseBackupTables.keySet(), jobs, filter, databaseSettings);
+
+        postgresCopyDatabaseBackup.restoreBackupChain(in, baseBackupTables, baseBackupOpener, jobs, filter, databaseSettings, id);
+
+        if (Thread.currentThread().isInterrupted()) {
+            logger.info("Backup restoration interrupted. Database info: {}", databaseSettings);
+            return;
+        }
+
+        logger.info("Incremental backup successfully restored. Database info: {}", databaseSettings);
+    }
 }
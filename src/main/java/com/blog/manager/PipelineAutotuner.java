@@ -0,0 +1,477 @@
+package com.blog.manager;
+
+import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.database.TunedPipelineSettings;
+import com.blog.entities.storage.StorageSettings;
+import com.blog.entities.storage.StorageType;
+import com.blog.repositories.TunedPipelineSettingsRepository;
+import com.blog.service.PipelineTuning;
+import com.blog.service.processor.ProcessorType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class adjusts settings of backup creation pipeline to maximize throughput of backup creation.
+ * <p>
+ * During the first {@link #MAX_MEASUREMENTS} periods of {@link #MEASUREMENT_PERIOD_MILLIS} of backup creation, throughput of the
+ * pipeline is measured in bytes of unprocessed backup per second, together with fraction of time the uploader waits for processed data.
+ * If the uploader waits most of the time, the pipeline is CPU-bound, so more compression threads and lower compression level are tried,
+ * otherwise it is bound by storage, so higher upload concurrency and higher compression level are tried. Each change is kept if it
+ * improves throughput by {@link #MIN_IMPROVEMENT} and reverted otherwise. Tuning stops when no change improves throughput.
+ * <p>
+ * The best settings are saved per database when backup creation finishes, so the next backup creation starts from them.
+ * <p>
+ * Only settings supported by the pipeline are tuned: compression level and number of compression threads if backup is compressed by
+ * {@link ProcessorType#PARALLEL_COMPRESSOR} (compression level only if it is not set by user), upload concurrency if backup is uploaded
+ * to Dropbox. Without saved settings, compression starts from half of available threads, so the autotuner can find out whether the
+ * rest of threads are better spent on compression or left to the database dump, and upload concurrency is not limited, so the storage
+ * uploads as many parts concurrently as its upload memory allows. Upload concurrency is tuned only if saved settings limit it.
+ *
+ * @see PipelineTuning
+ * @see TunedPipelineSettings
+ */
+@Component
+public class PipelineAutotuner {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineAutotuner.class);
+
+    static final long MEASUREMENT_PERIOD_MILLIS = 2000;
+
+    static final int MAX_MEASUREMENTS = 15;
+
+    /**
+     * Minimal relative throughput improvement a change of settings must give to be kept.
+     */
+    static final double MIN_IMPROVEMENT = 0.05;
+
+    /**
+     * Fraction of time the uploader waits for processed data, above which the pipeline is considered CPU-bound.
+     */
+    static final double CPU_BOUND_OUTPUT_WAIT_FRACTION = 0.5;
+
+    static final int MIN_COMPRESSION_LEVEL = 1;
+
+    static final int MAX_COMPRESSION_LEVEL = 9;
+
+    static final int DEFAULT_COMPRESSION_LEVEL = 6;
+
+    static final int MAX_UPLOAD_CONCURRENCY = 4;
+
+    private ScheduledExecutorService pipelineAutotunerScheduledExecutorService;
+
+    private ForkJoinPool parallelCompressorForkJoinPool;
+
+    private TunedPipelineSettingsRepository tunedPipelineSettingsRepository;
+
+    private StorageSettingsManager storageSettingsManager;
+
+    @Autowired
+    public void setPipelineAutotunerScheduledExecutorService(ScheduledExecutorService pipelineAutotunerScheduledExecutorService) {
+        this.pipelineAutotunerScheduledExecutorService = pipelineAutotunerScheduledExecutorService;
+    }
+
+    @Autowired
+    public void setParallelCompressorForkJoinPool(ForkJoinPool parallelCompressorForkJoinPool) {
+        this.parallelCompressorForkJoinPool = parallelCompressorForkJoinPool;
+    }
+
+    @Autowired
+    public void setTunedPipelineSettingsRepository(TunedPipelineSettingsRepository tunedPipelineSettingsRepository) {
+        this.tunedPipelineSettingsRepository = tunedPipelineSettingsRepository;
+    }
+
+    @Autowired
+    public void setStorageSettingsManager(StorageSettingsManager storageSettingsManager) {
+        this.storageSettingsManager = storageSettingsManager;
+    }
+
+    private static int clamp(@Nullable Integer value, int defaultValue, int min, int max) {
+        return value == null ? defaultValue : Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Returns settings saved for the database.
+     *
+     * @param databaseSettingsName name of database settings
+     * @return saved settings or settings with nothing tuned if there are no saved settings
+     */
+    public TunedPipelineSettings getTunedSettings(@NotNull String databaseSettingsName) {
+        Objects.requireNonNull(databaseSettingsName);
+
+        return tunedPipelineSettingsRepository.findById(databaseSettingsName).orElseGet(
+                () -> new TunedPipelineSettings(databaseSettingsName));
+    }
+
+    /**
+     * Starts tuning of backup creation pipeline.
+     * <p>
+     * Backup stream should be wrapped by {@link Session#monitorSource(InputStream)} before processing and processed stream should be
+     * wrapped by {@link Session#monitorOutput(InputStream)} before uploading. Settings of {@link Session#getTuning()} should be passed to
+     * {@link BackupProcessorManager} and {@link BackupLoadManager}.
+     *
+     * @param databaseSettingsName name of database settings
+     * @param backupProperties     backup properties of the created backup
+     * @return tuning session, which should be closed after backup creation finishes
+     */
+    public Session start(@NotNull String databaseSettingsName, @NotNull BackupProperties backupProperties) {
+        Objects.requireNonNull(databaseSettingsName);
+        Objects.requireNonNull(backupProperties);
+
+        boolean parallelCompressor = backupProperties.getProcessors().contains(ProcessorType.PARALLEL_COMPRESSOR);
+        boolean compressionLevelTunable = parallelCompressor && backupProperties.getProcessorOptions().getCompressionLevel() == null;
+        boolean uploadConcurrencyTunable = backupProperties.getStorageSettingsNameList().stream()
+                .map(storageSettingsManager::findById)
+                .anyMatch(storageSettings -> storageSettings.map(StorageSettings::getType).orElse(null) == StorageType.DROPBOX);
+
+        int maxCompressionThreads = parallelCompressorForkJoinPool.getParallelism();
+        TunedPipelineSettings tunedSettings = getTunedSettings(databaseSettingsName);
+        PipelineTuning tuning = new PipelineTuning(
+                compressionLevelTunable ? clamp(tunedSettings.getCompressionLevel(), DEFAULT_COMPRESSION_LEVEL, MIN_COMPRESSION_LEVEL,
+                        MAX_COMPRESSION_LEVEL) : null,
+                clamp(tunedSettings.getCompressionThreads(), Math.max(1, maxCompressionThreads / 2), 1, maxCompressionThreads),
+                clamp(uploadConcurrencyTunable ? tunedSettings.getUploadConcurrency() : null,
+                        PipelineTuning.defaults().getUploadConcurrency(), 1, MAX_UPLOAD_CONCURRENCY));
+
+        Set<Move> moves = EnumSet.noneOf(Move.class);
+        if (compressionLevelTunable) {
+            moves.add(Move.COMPRESSION_LEVEL_UP);
+            moves.add(Move.COMPRESSION_LEVEL_DOWN);
+        }
+        if (parallelCompressor && maxCompressionThreads > 1) {
+            moves.add(Move.COMPRESSION_THREADS_UP);
+        }
+        if (uploadConcurrencyTunable && tuning.getUploadConcurrency() < MAX_UPLOAD_CONCURRENCY) {
+            moves.add(Move.UPLOAD_CONCURRENCY_UP);
+        }
+
+        Session session = new Session(tunedSettings, tuning, moves, maxCompressionThreads);
+        logger.info("Starting pipeline tuning. Database settings name: {}. Initial settings: {}. Tuned settings: {}", databaseSettingsName,
+                tuning, moves);
+        if (!moves.isEmpty()) {
+            session.measurementFuture = pipelineAutotunerScheduledExecutorService.scheduleAtFixedRate(session::measure,
+                    MEASUREMENT_PERIOD_MILLIS, MEASUREMENT_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return session;
+    }
+
+    /**
+     * Change of pipeline settings tried by the autotuner.
+     */
+    enum Move {
+        COMPRESSION_THREADS_UP,
+        COMPRESSION_LEVEL_DOWN,
+        UPLOAD_CONCURRENCY_UP,
+        COMPRESSION_LEVEL_UP;
+
+        /**
+         * Moves, which might improve throughput of CPU-bound pipeline, in order of preference.
+         */
+        static final List<Move> CPU_BOUND_MOVES = Arrays.asList(COMPRESSION_THREADS_UP, COMPRESSION_LEVEL_DOWN);
+
+        /**
+         * Moves, which might improve throughput of storage-bound pipeline, in order of preference.
+         */
+        static final List<Move> STORAGE_BOUND_MOVES = Arrays.asList(UPLOAD_CONCURRENCY_UP, COMPRESSION_LEVEL_UP);
+    }
+
+    /**
+     * Tuning session of one backup creation.
+     */
+    public final class Session implements AutoCloseable {
+        private final TunedPipelineSettings tunedSettings;
+
+        private final PipelineTuning tuning;
+
+        private final Set<Move> moves;
+
+        private final int maxCompressionThreads;
+
+        private final AtomicLong sourceBytes = new AtomicLong();
+
+        private final AtomicLong outputWaitNanos = new AtomicLong();
+
+        private final Set<Move> rejectedMoves = EnumSet.noneOf(Move.class);
+
+        private volatile ScheduledFuture<?> measurementFuture;
+
+        private volatile boolean sourceExhausted = false;
+
+        private long lastMeasurementNanos = System.nanoTime();
+
+        private long lastSourceBytes = 0;
+
+        private long lastOutputWaitNanos = 0;
+
+        private int measurements = 0;
+
+        @Nullable
+        private Move trialMove;
+
+        @Nullable
+        private PipelineTuning bestTuning;
+
+        private double bestBytesPerSecond;
+
+        private boolean finished = false;
+
+        private Session(TunedPipelineSettings tunedSettings, PipelineTuning tuning, Set<Move> moves, int maxCompressionThreads) {
+            this.tunedSettings = tunedSettings;
+            this.tuning = tuning;
+            this.moves = moves;
+            this.maxCompressionThreads = maxCompressionThreads;
+        }
+
+        /**
+         * Returns settings, which are adjusted while backup is being created.
+         */
+        public PipelineTuning getTuning() {
+            return tuning;
+        }
+
+        /**
+         * Returns stream counting bytes of unprocessed backup.
+         * <p>
+         * Tuning stops as soon as the backup is read entirely.
+         *
+         * @param in backup stream
+         * @return input stream, from which backup can be read
+         */
+        public InputStream monitorSource(@NotNull InputStream in) {
+            Objects.requireNonNull(in);
+
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = in.read();
+                    if (b != -1) {
+                        sourceBytes.incrementAndGet();
+                    } else {
+                        sourceExhausted = true;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(@NotNull byte[] b, int off, int len) throws IOException {
+                    int bytesRead = in.read(b, off, len);
+                    if (bytesRead > 0) {
+                        sourceBytes.addAndGet(bytesRead);
+                    } else if (bytesRead == -1) {
+                        sourceExhausted = true;
+                    }
+                    return bytesRead;
+                }
+            };
+        }
+
+        /**
+         * Returns stream measuring time the uploader waits for processed backup.
+         *
+         * @param in processed backup stream
+         * @return input stream, from which processed backup can be read
+         */
+        public InputStream monitorOutput(@NotNull InputStream in) {
+            Objects.requireNonNull(in);
+
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    long startNanos = System.nanoTime();
+                    try {
+                        return in.read();
+                    } finally {
+                        outputWaitNanos.addAndGet(System.nanoTime() - startNanos);
+                    }
+                }
+
+                @Override
+                public int read(@NotNull byte[] b, int off, int len) throws IOException {
+                    long startNanos = System.nanoTime();
+                    try {
+                        return in.read(b, off, len);
+                    } finally {
+                        outputWaitNanos.addAndGet(System.nanoTime() - startNanos);
+                    }
+                }
+            };
+        }
+
+        private void measure() {
+            // the last period is incomplete and the pipeline is only draining, so it says nothing about the settings
+            if (sourceExhausted) {
+                synchronized (this) {
+                    finished = true;
+                    measurementFuture.cancel(false);
+                }
+                return;
+            }
+
+            long now = System.nanoTime();
+            long currentSourceBytes = sourceBytes.get();
+            long currentOutputWaitNanos = outputWaitNanos.get();
+            long elapsedNanos = Math.max(1, now - lastMeasurementNanos);
+
+            double bytesPerSecond = (currentSourceBytes - lastSourceBytes) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            double outputWaitFraction = (currentOutputWaitNanos - lastOutputWaitNanos) / (double) elapsedNanos;
+            lastMeasurementNanos = now;
+            lastSourceBytes = currentSourceBytes;
+            lastOutputWaitNanos = currentOutputWaitNanos;
+
+            onMeasurement(bytesPerSecond, outputWaitFraction);
+        }
+
+        /**
+         * Evaluates the current settings and applies the next change to try.
+         *
+         * @param bytesPerSecond     throughput of the last period in bytes of unprocessed backup per second
+         * @param outputWaitFraction fraction of the last period the uploader waited for processed backup
+         */
+        synchronized void onMeasurement(double bytesPerSecond, double outputWaitFraction) {
+            if (finished) {
+                return;
+            }
+            measurements++;
+
+            if (trialMove == null) {
+                bestTuning = copy(tuning);
+                bestBytesPerSecond = bytesPerSecond;
+            } else if (bytesPerSecond > bestBytesPerSecond * (1 + MIN_IMPROVEMENT)) {
+                logger.info("Pipeline settings change {} improved throughput from {} to {} B/s. Settings: {}", trialMove,
+                        (long) bestBytesPerSecond, (long) bytesPerSecond, tuning);
+                bestTuning = copy(tuning);
+                bestBytesPerSecond = bytesPerSecond;
+                rejectedMoves.clear();
+            } else {
+                rejectedMoves.add(trialMove);
+                restore(bestTuning);
+            }
+
+            Move lastMove = trialMove;
+            trialMove = null;
+            if (measurements < MAX_MEASUREMENTS) {
+                List<Move> candidates = new ArrayList<>();
+                // keep moving in the direction, which improved throughput
+                if (lastMove != null && !rejectedMoves.contains(lastMove)) {
+                    candidates.add(lastMove);
+                }
+                boolean cpuBound = outputWaitFraction > CPU_BOUND_OUTPUT_WAIT_FRACTION;
+                candidates.addAll(cpuBound ? Move.CPU_BOUND_MOVES : Move.STORAGE_BOUND_MOVES);
+                candidates.addAll(cpuBound ? Move.STORAGE_BOUND_MOVES : Move.CPU_BOUND_MOVES);
+                for (Move move : candidates) {
+                    if (moves.contains(move) && !rejectedMoves.contains(move) && apply(move)) {
+                        trialMove = move;
+                        break;
+                    }
+                }
+            }
+
+            if (trialMove == null) {
+                logger.info("Pipeline tuning finished. Settings: {}. Throughput: {} B/s", tuning, (long) bestBytesPerSecond);
+                finished = true;
+                if (measurementFuture != null) {
+                    measurementFuture.cancel(false);
+                }
+            }
+        }
+
+        private boolean apply(Move move) {
+            switch (move) {
+                case COMPRESSION_THREADS_UP:
+                    if (tuning.getCompressionThreads() >= maxCompressionThreads) {
+                        return false;
+                    }
+                    tuning.setCompressionThreads(tuning.getCompressionThreads() + 1);
+                    return true;
+                case COMPRESSION_LEVEL_DOWN:
+                    if (tuning.getCompressionLevel() == null || tuning.getCompressionLevel() <= MIN_COMPRESSION_LEVEL) {
+                        return false;
+                    }
+                    tuning.setCompressionLevel(tuning.getCompressionLevel() - 1);
+                    return true;
+                case COMPRESSION_LEVEL_UP:
+                    if (tuning.getCompressionLevel() == null || tuning.getCompressionLevel() >= MAX_COMPRESSION_LEVEL) {
+                        return false;
+                    }
+                    tuning.setCompressionLevel(tuning.getCompressionLevel() + 1);
+                    return true;
+                case UPLOAD_CONCURRENCY_UP:
+                    if (tuning.getUploadConcurrency() >= MAX_UPLOAD_CONCURRENCY) {
+                        return false;
+                    }
+                    tuning.setUploadConcurrency(tuning.getUploadConcurrency() + 1);
+                    return true;
+                default:
+                    throw new IllegalArgumentException("Unknown move: " + move);
+            }
+        }
+
+        private PipelineTuning copy(PipelineTuning source) {
+            return new PipelineTuning(source.getCompressionLevel(), source.getCompressionThreads(), source.getUploadConcurrency());
+        }
+
+        private void restore(PipelineTuning source) {
+            tuning.setCompressionLevel(source.getCompressionLevel());
+            tuning.setCompressionThreads(source.getCompressionThreads());
+            tuning.setUploadConcurrency(source.getUploadConcurrency());
+        }
+
+        /**
+         * Stops tuning and saves the best settings for the database.
+         * <p>
+         * Nothing is saved if no settings are tuned or throughput was never measured.
+         */
+        @Override
+        public void close() {
+            PipelineTuning best;
+            synchronized (this) {
+                finished = true;
+                if (measurementFuture != null) {
+                    measurementFuture.cancel(false);
+                }
+                best = bestTuning;
+            }
+            if (moves.isEmpty() || best == null) {
+                return;
+            }
+
+            if (moves.contains(Move.COMPRESSION_LEVEL_UP)) {
+                tunedSettings.setCompressionLevel(best.getCompressionLevel());
+            }
+            if (moves.contains(Move.COMPRESSION_THREADS_UP)) {
+                tunedSettings.setCompressionThreads(best.getCompressionThreads());
+            }
+            if (moves.contains(Move.UPLOAD_CONCURRENCY_UP)) {
+                tunedSettings.setUploadConcurrency(best.getUploadConcurrency());
+            }
+            tunedSettings.setBytesPerSecond((long) bestBytesPerSecond);
+            tunedSettings.setDate(LocalDateTime.now(ZoneOffset.UTC));
+            // settings are only a hint for the next backup creation, so failure to save them must not fail the backup
+            try {
+                tunedPipelineSettingsRepository.save(tunedSettings);
+                logger.info("Saved tuned pipeline settings: {}", tunedSettings);
+            } catch (RuntimeException ex) {
+                logger.error("Error saving tuned pipeline settings: {}", tunedSettings, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.blog.manager;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class PipelineAutotunerConfiguration {
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService pipelineAutotunerScheduledExecutorService() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+}
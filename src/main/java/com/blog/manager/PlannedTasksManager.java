@@ -2,6 +2,7 @@ package com.blog.manager;
 
 import com.blog.entities.task.PlannedTask;
 import com.blog.repositories.PlannedTasksRepository;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,14 +50,18 @@ public class PlannedTasksManager {
      * @param databaseSettingsName    name of related {@literal DatabaseSettings}
      * @param storageSettingsNameList names of related {@literal StorageSettings}
      * @param processors              processors to apply on backup when starting planned task
+     * @param processorOptions        options of processors
      * @param interval                interval between previous start and next start of planned task
+     * @param incremental             whether only tables changed since the previous backup should be dumped
      * @return saved entity
      */
     public PlannedTask addNewTask(@NotNull String databaseSettingsName, @NotNull List<String> storageSettingsNameList,
-                                  @NotNull List<ProcessorType> processors, @NotNull Long interval) {
+                                  @NotNull List<ProcessorType> processors, @NotNull ProcessorOptions processorOptions,
+                                  @NotNull Long interval, boolean incremental) {
         Objects.requireNonNull(databaseSettingsName);
         Objects.requireNonNull(storageSettingsNameList);
         Objects.requireNonNull(processors);
+        Objects.requireNonNull(processorOptions);
         Objects.requireNonNull(interval);
 
         PlannedTask plannedTask = new PlannedTask.Builder()
@@ -66,7 +71,10 @@ public class PlannedTasksManager {
                 .withLastStartedTime(LocalDateTime.now(ZoneOffset.UTC))
                 .withHandlerTaskId(null)
                 .withProcessors(processors)
+                .withProcessorOptions(processorOptions)
                 .withInterval(Duration.ofSeconds(interval))
+                .withIncremental(incremental)
+                .withLastBackupPropertiesId(null)
                 .build();
 
         return plannedTasksRepository.save(plannedTask);
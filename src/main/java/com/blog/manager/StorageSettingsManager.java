@@ -2,6 +2,7 @@ package com.blog.manager;
 
 import com.blog.entities.storage.StorageSettings;
 import com.blog.entities.storage.StorageType;
+import com.blog.repositories.BackupChunksRepository;
 import com.blog.repositories.StorageSettingsRepository;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,11 +24,18 @@ import java.util.Optional;
 public class StorageSettingsManager {
     private StorageSettingsRepository storageSettingsRepository;
 
+    private BackupChunksRepository backupChunksRepository;
+
     @Autowired
     public void setStorageSettingsRepository(@NotNull StorageSettingsRepository storageSettingsRepository) {
         this.storageSettingsRepository = storageSettingsRepository;
     }
 
+    @Autowired
+    public void setBackupChunksRepository(BackupChunksRepository backupChunksRepository) {
+        this.backupChunksRepository = backupChunksRepository;
+    }
+
     /**
      * Saves a given entity.
      *
@@ -50,11 +58,16 @@ public class StorageSettingsManager {
 
     /**
      * Attempts to delete the entity with the given id if the one exists.
+     * <p>
+     * Chunks of backups stored on the storage with deduplication are forgotten too.
      *
      * @param id entity ID
      */
     public void deleteById(@NotNull String id) {
-        storageSettingsRepository.findById(id).ifPresent(storageSettings -> storageSettingsRepository.delete(storageSettings));
+        storageSettingsRepository.findById(id).ifPresent(storageSettings -> {
+            storageSettingsRepository.delete(storageSettings);
+            backupChunksRepository.deleteAllByStorageSettingsName(storageSettings.getSettingsName());
+        });
     }
 
     /**
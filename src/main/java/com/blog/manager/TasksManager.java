@@ -1,10 +1,14 @@
 package com.blog.manager;
 
 import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.task.Task;
 import com.blog.repositories.TasksRepository;
 import com.blog.service.TasksStarterService;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresChangeCapture;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.PostgresPhysicalBackup;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +42,27 @@ public class TasksManager {
 
     private BackupPropertiesManager backupPropertiesManager;
 
+    private BackupSpoolManager backupSpoolManager;
+
+    private DatabaseBackupManager databaseBackupManager;
+
+    private DatabaseSettingsManager databaseSettingsManager;
+
+    @Autowired
+    public void setDatabaseBackupManager(DatabaseBackupManager databaseBackupManager) {
+        this.databaseBackupManager = databaseBackupManager;
+    }
+
+    @Autowired
+    public void setDatabaseSettingsManager(DatabaseSettingsManager databaseSettingsManager) {
+        this.databaseSettingsManager = databaseSettingsManager;
+    }
+
+    @Autowired
+    public void setBackupSpoolManager(BackupSpoolManager backupSpoolManager) {
+        this.backupSpoolManager = backupSpoolManager;
+    }
+
     @Autowired
     public void setBackupPropertiesManager(BackupPropertiesManager backupPropertiesManager) {
         this.backupPropertiesManager = backupPropertiesManager;
@@ -63,12 +88,27 @@ public class TasksManager {
      * @see BackupPropertiesManager#initNewBackupProperties(List, List, String)
      */
     public Task initNewTask(Task.Type taskType, Task.RunType runType, Integer backupPropertiesId) {
+        return initNewTask(taskType, runType, backupPropertiesId, null);
+    }
+
+    /**
+     * Creates a new {@link Task} instance holding resources on the database.
+     *
+     * @param taskType             backup task type
+     * @param runType              task initiator
+     * @param backupPropertiesId   identifier of backup properties of created or being created backup
+     * @param databaseSettingsName identifier of database settings of the database the task holds resources on
+     * @return ID of created task
+     * @see #revertTask(Task)
+     */
+    public Task initNewTask(Task.Type taskType, Task.RunType runType, Integer backupPropertiesId, @Nullable String databaseSettingsName) {
         Task task = new Task.Builder()
                 .withType(taskType)
                 .withRunType(runType)
                 .withBackupPropertiesId(backupPropertiesId)
                 .withState(initialBackupTaskState)
                 .withDate(LocalDateTime.now(ZoneOffset.UTC))
+                .withDatabaseSettingsName(databaseSettingsName)
                 .build();
 
         return tasksRepository.save(task);
@@ -99,6 +139,8 @@ public class TasksManager {
      * Use this function only after canceling related {@literal Future}.
      * <p>
      * If the task was of the type {@link Task.Type#CREATE_BACKUP} then related {@link BackupProperties} will be deleted.
+     * Spool file of the task is deleted too (see {@link BackupSpoolManager}). Replication slots of WAL archiving and change capture tasks
+     * are dropped.
      *
      * @param task the entity
      */
@@ -107,18 +149,40 @@ public class TasksManager {
 
         Task.State state = task.getState();
 
+        if (task.getType() == Task.Type.ARCHIVE_WAL) {
+            // the slot is created before the base backup, so it might be left in any state, and it would keep WAL on the server
+            dropWalSlot(task);
+        } else if (task.getType() == Task.Type.CAPTURE_CHANGES) {
+            // the slot is created before the full backup, and it would keep WAL and catalog rows on the server
+            dropChangeCaptureSlot(task);
+        }
+
         switch (state) {
             case DOWNLOADING:
             case APPLYING_DEPROCESSORS:
             case RESTORING:
+            case REPLAYING_CHANGES:
             case DELETING: {
                 logger.info("Handling broken operation. Operation: {}: No extra actions required. Task info: {}", state, task);
                 break;
             }
+            case ARCHIVING_WAL: {
+                // base backup and already archived segments stay valid
+                logger.info("Handling broken operation. Operation: {}: No extra actions required. Task info: {}", state, task);
+                break;
+            }
+            case CAPTURING_CHANGES: {
+                // full backup and already saved segments stay valid
+                logger.info("Handling broken operation. Operation: {}: No extra actions required. Task info: {}", state, task);
+                break;
+            }
             case CREATING:
-            case APPLYING_PROCESSORS: {
+            case APPLYING_PROCESSORS:
+            case SPOOLING: {
                 logger.info("Handling broken operation. Operation: {}: Deleting backup properties... Task info: {}", state, task);
 
+                backupSpoolManager.deleteSpoolFile(task.getId());
+
                 Integer backupPropertiesID = task.getBackupPropertiesId();
 
                 if (!backupPropertiesManager.existsById(backupPropertiesID)) {
@@ -129,9 +193,13 @@ public class TasksManager {
                 backupPropertiesManager.deleteById(backupPropertiesID);
                 break;
             }
-            case UPLOADING: {
+            case UPLOADING:
+            case UPLOADING_FROM_SPOOL:
+            case WAITING_FOR_UPLOAD_RETRY: {
                 logger.info("Handling broken operation. Operation: {}: Deleting backup from storage... Task info: {}", state, task);
 
+                backupSpoolManager.deleteSpoolFile(task.getId());
+
                 Integer backupPropertiesId = task.getBackupPropertiesId();
                 Optional<BackupProperties> optionalBackupProperties = backupPropertiesManager.findById(backupPropertiesId);
                 if (optionalBackupProperties.isEmpty()) {
@@ -149,6 +217,39 @@ public class TasksManager {
         }
     }
 
+    private void dropWalSlot(Task task) {
+        logger.info("Handling broken operation. Dropping replication slot of WAL archiving... Task info: {}", task);
+
+        Integer backupPropertiesId = task.getBackupPropertiesId();
+        try {
+            databaseBackupManager.dropWalSlot(getDatabaseSettings(task), backupPropertiesId);
+        } catch (RuntimeException ex) {
+            logger.error("Error dropping replication slot {}. It should be dropped manually. Task info: {}",
+                    PostgresPhysicalBackup.getSlotName(backupPropertiesId), task, ex);
+        }
+    }
+
+    private void dropChangeCaptureSlot(Task task) {
+        logger.info("Handling broken operation. Dropping replication slot of change capture... Task info: {}", task);
+
+        Integer backupPropertiesId = task.getBackupPropertiesId();
+        try {
+            databaseBackupManager.dropChangeCaptureSlot(getDatabaseSettings(task), backupPropertiesId);
+        } catch (RuntimeException ex) {
+            logger.error("Error dropping replication slot {}. It should be dropped manually. Task info: {}",
+                    PostgresChangeCapture.getSlotName(backupPropertiesId), task, ex);
+        }
+    }
+
+    private DatabaseSettings getDatabaseSettings(Task task) {
+        String databaseSettingsName = task.getDatabaseSettingsName();
+        if (databaseSettingsName == null) {
+            throw new RuntimeException("Task has no related database settings");
+        }
+        return databaseSettingsManager.findById(databaseSettingsName).orElseThrow(() ->
+                new RuntimeException("No such database settings with name " + databaseSettingsName));
+    }
+
     /**
      * Retrieves an entity by its id.
      *
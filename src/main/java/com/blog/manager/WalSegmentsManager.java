@@ -0,0 +1,94 @@
+package com.blog.manager;
+
+import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.backup.WalSegment;
+import com.blog.repositories.WalSegmentsRepository;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class provides API to manage archived WAL segments of base backups.
+ *
+ * @see WalSegment
+ */
+@Component
+@Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
+public class WalSegmentsManager {
+    private static final String SEGMENT_BACKUP_NAME_TEMPLATE = "%s_wal_%s";
+
+    private WalSegmentsRepository walSegmentsRepository;
+
+    @Autowired
+    public void setWalSegmentsRepository(WalSegmentsRepository walSegmentsRepository) {
+        this.walSegmentsRepository = walSegmentsRepository;
+    }
+
+    /**
+     * Returns name the segment should be saved under on storages.
+     *
+     * @param backupProperties backup properties of the base backup
+     * @param segmentName      WAL file name
+     * @return segment backup name
+     */
+    public String getSegmentBackupName(@NotNull BackupProperties backupProperties, @NotNull String segmentName) {
+        return String.format(SEGMENT_BACKUP_NAME_TEMPLATE, backupProperties.getBackupName(), segmentName);
+    }
+
+    /**
+     * Creates a new instance of {@link WalSegment}.
+     * <p>
+     * Segment should be saved only after it is uploaded to all storages of the base backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     * @param segmentName        WAL file name
+     * @param backupName         name the segment is saved under on storages
+     * @return saved entity
+     */
+    public WalSegment addNewSegment(@NotNull Integer backupPropertiesId, @NotNull String segmentName, @NotNull String backupName) {
+        Objects.requireNonNull(backupPropertiesId);
+        Objects.requireNonNull(segmentName);
+        Objects.requireNonNull(backupName);
+
+        return walSegmentsRepository.save(new WalSegment(backupPropertiesId, segmentName, backupName, LocalDateTime.now(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Returns all segments of the base backup in order of archiving.
+     *
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     * @return all segments of the base backup
+     */
+    public List<WalSegment> findAllByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        return walSegmentsRepository.findAllByBackupPropertiesIdOrderByIdAsc(backupPropertiesId);
+    }
+
+    /**
+     * Returns number of segments of the base backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     * @return number of segments
+     */
+    public long countByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        return walSegmentsRepository.countByBackupPropertiesId(backupPropertiesId);
+    }
+
+    /**
+     * Deletes all segments of the base backup.
+     * <p>
+     * This method does not delete the segments from storages.
+     *
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     */
+    public void deleteAllByBackupPropertiesId(@NotNull Integer backupPropertiesId) {
+        walSegmentsRepository.deleteAllByBackupPropertiesId(backupPropertiesId);
+    }
+}
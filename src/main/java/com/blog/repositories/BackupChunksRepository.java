@@ -0,0 +1,12 @@
+package com.blog.repositories;
+
+import com.blog.entities.storage.BackupChunk;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface BackupChunksRepository extends CrudRepository<BackupChunk, Integer> {
+    Optional<BackupChunk> findByStorageSettingsNameAndHash(String storageSettingsName, String hash);
+
+    void deleteAllByStorageSettingsName(String storageSettingsName);
+}
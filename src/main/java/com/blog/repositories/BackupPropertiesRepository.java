@@ -7,4 +7,6 @@ import java.util.ArrayList;
 
 public interface BackupPropertiesRepository extends CrudRepository<BackupProperties, Integer> {
     ArrayList<BackupProperties> findAllByOrderByIdDesc();
+
+    boolean existsBySourceBackupPropertiesId(Integer sourceBackupPropertiesId);
 }
@@ -0,0 +1,14 @@
+package com.blog.repositories;
+
+import com.blog.entities.backup.BackupTable;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface BackupTablesRepository extends CrudRepository<BackupTable, Integer> {
+    List<BackupTable> findAllByBackupPropertiesId(Integer backupPropertiesId);
+
+    boolean existsByDataBackupPropertiesIdAndBackupPropertiesIdNot(Integer dataBackupPropertiesId, Integer backupPropertiesId);
+
+    void deleteAllByBackupPropertiesId(Integer backupPropertiesId);
+}
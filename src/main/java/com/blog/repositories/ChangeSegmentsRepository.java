@@ -0,0 +1,17 @@
+package com.blog.repositories;
+
+import com.blog.entities.backup.ChangeSegment;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ChangeSegmentsRepository extends CrudRepository<ChangeSegment, Integer> {
+    List<ChangeSegment> findAllByBackupPropertiesIdOrderByStartLsnAsc(Integer backupPropertiesId);
+
+    Optional<ChangeSegment> findFirstByBackupPropertiesIdOrderByEndLsnDesc(Integer backupPropertiesId);
+
+    long countByBackupPropertiesId(Integer backupPropertiesId);
+
+    void deleteAllByBackupPropertiesId(Integer backupPropertiesId);
+}
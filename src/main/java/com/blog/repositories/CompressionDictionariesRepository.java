@@ -0,0 +1,12 @@
+package com.blog.repositories;
+
+import com.blog.entities.backup.CompressionDictionary;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface CompressionDictionariesRepository extends CrudRepository<CompressionDictionary, Integer> {
+    Optional<CompressionDictionary> findFirstByDatabaseSettingsNameOrderByVersionDesc(String databaseSettingsName);
+
+    boolean existsByDatabaseSettingsName(String databaseSettingsName);
+}
@@ -0,0 +1,7 @@
+package com.blog.repositories;
+
+import com.blog.entities.database.TunedPipelineSettings;
+import org.springframework.data.repository.CrudRepository;
+
+public interface TunedPipelineSettingsRepository extends CrudRepository<TunedPipelineSettings, String> {
+}
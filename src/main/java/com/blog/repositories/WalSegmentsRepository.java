@@ -0,0 +1,14 @@
+package com.blog.repositories;
+
+import com.blog.entities.backup.WalSegment;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface WalSegmentsRepository extends CrudRepository<WalSegment, Integer> {
+    List<WalSegment> findAllByBackupPropertiesIdOrderByIdAsc(Integer backupPropertiesId);
+
+    long countByBackupPropertiesId(Integer backupPropertiesId);
+
+    void deleteAllByBackupPropertiesId(Integer backupPropertiesId);
+}
@@ -0,0 +1,77 @@
+package com.blog.service;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Settings of backup creation pipeline, which can be changed while the backup is being created.
+ * <p>
+ * Settings are read by pipeline participants supporting them each time they start a new unit of work: compression level and number of
+ * compression threads are read by {@link com.blog.service.processor.ParallelBackupCompressor} before compressing each block, upload
+ * concurrency is read by {@link com.blog.service.storage.DropboxStorage} before uploading each backup part.
+ *
+ * @see com.blog.manager.PipelineAutotuner
+ */
+public final class PipelineTuning {
+    @Nullable
+    private volatile Integer compressionLevel;
+
+    private volatile int compressionThreads;
+
+    private volatile int uploadConcurrency;
+
+    /**
+     * @param compressionLevel   compression level. If null, compressor uses level from processor options
+     * @param compressionThreads number of threads compressing the backup
+     * @param uploadConcurrency  number of backup parts uploaded to a storage concurrently. Storage may upload fewer parts concurrently if its
+     *                           upload memory is not enough
+     */
+    public PipelineTuning(@Nullable Integer compressionLevel, int compressionThreads, int uploadConcurrency) {
+        if (compressionThreads < 1 || uploadConcurrency < 1) {
+            throw new IllegalArgumentException("Number of compression threads and upload concurrency must be positive");
+        }
+        this.compressionLevel = compressionLevel;
+        this.compressionThreads = compressionThreads;
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    /**
+     * Returns settings with which each pipeline participant uses its default behaviour.
+     */
+    public static PipelineTuning defaults() {
+        return new PipelineTuning(null, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Nullable
+    public Integer getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(@Nullable Integer compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineTuning{" +
+                "compressionLevel=" + compressionLevel +
+                ", compressionThreads=" + compressionThreads +
+                ", uploadConcurrency=" + uploadConcurrency +
+                '}';
+    }
+}
@@ -0,0 +1,169 @@
+package com.blog.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class measures throughput of executing tasks.
+ * <p>
+ * Task streams wrapped by {@link #monitor(InputStream, Integer)} count read bytes, so the current throughput of the task can be shown on
+ * the dashboard.
+ */
+@Component
+public class TaskThroughputService {
+    /**
+     * Minimal period throughput is averaged over.
+     */
+    private static final long MEASUREMENT_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final String[] THROUGHPUT_UNITS = {"B/s", "KB/s", "MB/s", "GB/s"};
+
+    private final Map<Integer, ThroughputMeter> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Starts measuring throughput of the task.
+     * <p>
+     * Measuring stops when the returned stream is closed.
+     *
+     * @param in     stream processed by the task
+     * @param taskId task ID
+     * @return stream counting read bytes
+     */
+    @NotNull
+    public InputStream monitor(@NotNull InputStream in, @NotNull Integer taskId) {
+        Objects.requireNonNull(in);
+        Objects.requireNonNull(taskId);
+
+        ThroughputMeter meter = new ThroughputMeter();
+        meters.put(taskId, meter);
+        return new CountingInputStream(in, meter, taskId);
+    }
+
+    /**
+     * Returns current throughput of the task.
+     *
+     * @param taskId task ID
+     * @return bytes per second or empty optional if throughput of the task is not measured
+     */
+    public OptionalLong getBytesPerSecond(@NotNull Integer taskId) {
+        ThroughputMeter meter = meters.get(taskId);
+        if (meter == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(meter.getBytesPerSecond());
+    }
+
+    /**
+     * Returns current throughput of the task in human-readable form (e.g. {@code 12.3 MB/s}).
+     *
+     * @param taskId task ID
+     * @return formatted throughput or empty string if throughput of the task is not measured
+     */
+    @NotNull
+    public String getThroughputAsString(@NotNull Integer taskId) {
+        OptionalLong bytesPerSecond = getBytesPerSecond(taskId);
+        if (bytesPerSecond.isEmpty()) {
+            return "";
+        }
+
+        double value = bytesPerSecond.getAsLong();
+        int unit = 0;
+        while (value >= 1024 && unit < THROUGHPUT_UNITS.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ROOT, unit == 0 ? "%.0f %s" : "%.1f %s", value, THROUGHPUT_UNITS[unit]);
+    }
+
+    private static final class ThroughputMeter {
+        private final AtomicLong bytes = new AtomicLong();
+
+        private long periodStartNanos = System.nanoTime();
+
+        private long periodStartBytes = 0;
+
+        private long bytesPerSecond = 0;
+
+        synchronized long getBytesPerSecond() {
+            long now = System.nanoTime();
+            long currentBytes = bytes.get();
+            long elapsedNanos = now - periodStartNanos;
+            if (elapsedNanos <= 0) {
+                return bytesPerSecond;
+            }
+
+            long periodBytesPerSecond = (currentBytes - periodStartBytes) * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            if (elapsedNanos < MEASUREMENT_PERIOD_NANOS) {
+                // period is too short, so the rate of the previous period is preferred
+                return bytesPerSecond == 0 ? periodBytesPerSecond : bytesPerSecond;
+            }
+
+            bytesPerSecond = periodBytesPerSecond;
+            periodStartNanos = now;
+            periodStartBytes = currentBytes;
+            return bytesPerSecond;
+        }
+    }
+
+    private final class CountingInputStream extends FilterInputStream {
+        private final ThroughputMeter meter;
+
+        private final Integer taskId;
+
+        CountingInputStream(InputStream in, ThroughputMeter meter, Integer taskId) {
+            super(in);
+            this.meter = meter;
+            this.taskId = taskId;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                meter.bytes.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            int bytesRead = in.read(b, off, len);
+            if (bytesRead > 0) {
+                meter.bytes.addAndGet(bytesRead);
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            meter.bytes.addAndGet(skipped);
+            return skipped;
+        }
+
+        /**
+         * Marks are not supported, so re-read bytes are not counted twice.
+         */
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            meters.remove(taskId, meter);
+            super.close();
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package com.blog.service;
 
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.backup.ChangeSegment;
+import com.blog.entities.backup.WalSegment;
 import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.task.Task;
 import com.blog.manager.*;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.LogicalChangeStream;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.TableStatistics;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.WalReceiver;
+import com.blog.service.databaseBackup.RestoreFilter;
+import com.blog.service.processor.DictionarySampler;
+import com.blog.service.processor.ProcessorOptions;
 import com.blog.service.processor.ProcessorType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -17,9 +26,18 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -31,6 +49,8 @@ import java.util.concurrent.Future;
 @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
 public class TasksStarterService {
     private static final Logger logger = LoggerFactory.getLogger(TasksStarterService.class);
+    private static final long CHANGE_SEGMENT_MAX_BYTES = 16 * 1024 * 1024;
+    private static final long CHANGE_SEGMENT_MAX_MILLIS = 60 * 1000;
     private final ConcurrentHashMap<Integer, Future> futures = new ConcurrentHashMap<>();
 
     private ExecutorService tasksStarterExecutorService;
@@ -40,6 +60,13 @@ public class TasksStarterService {
     private BackupLoadManager backupLoadManager;
     private BackupPropertiesManager backupPropertiesManager;
     private ErrorTasksManager errorTasksManager;
+    private TaskThroughputService taskThroughputService;
+    private WalSegmentsManager walSegmentsManager;
+    private ChangeSegmentsManager changeSegmentsManager;
+    private BackupTablesManager backupTablesManager;
+    private CompressionDictionariesManager compressionDictionariesManager;
+    private PipelineAutotuner pipelineAutotuner;
+    private BackupSpoolManager backupSpoolManager;
 
     @Autowired
     public void setTasksStarterExecutorService(ExecutorService tasksStarterExecutorService) {
@@ -76,6 +103,41 @@ public class TasksStarterService {
         this.errorTasksManager = errorTasksManager;
     }
 
+    @Autowired
+    public void setTaskThroughputService(TaskThroughputService taskThroughputService) {
+        this.taskThroughputService = taskThroughputService;
+    }
+
+    @Autowired
+    public void setWalSegmentsManager(WalSegmentsManager walSegmentsManager) {
+        this.walSegmentsManager = walSegmentsManager;
+    }
+
+    @Autowired
+    public void setChangeSegmentsManager(ChangeSegmentsManager changeSegmentsManager) {
+        this.changeSegmentsManager = changeSegmentsManager;
+    }
+
+    @Autowired
+    public void setBackupTablesManager(BackupTablesManager backupTablesManager) {
+        this.backupTablesManager = backupTablesManager;
+    }
+
+    @Autowired
+    public void setCompressionDictionariesManager(CompressionDictionariesManager compressionDictionariesManager) {
+        this.compressionDictionariesManager = compressionDictionariesManager;
+    }
+
+    @Autowired
+    public void setPipelineAutotuner(PipelineAutotuner pipelineAutotuner) {
+        this.pipelineAutotuner = pipelineAutotuner;
+    }
+
+    @Autowired
+    public void setBackupSpoolManager(BackupSpoolManager backupSpoolManager) {
+        this.backupSpoolManager = backupSpoolManager;
+    }
+
     /**
      * Returns the {@literal Future} related to specified {@link Task}.
      * <p>
@@ -90,49 +152,91 @@ public class TasksStarterService {
 
     /**
      * Starts backup creation task.
+     * <p>
+     * If processors use compression dictionaries, backup is compressed with the latest dictionary of the database and its samples are
+     * used to train the next version (see {@link CompressionDictionariesManager}).
+     * <p>
+     * Settings of processing and uploading are adjusted during backup creation by {@link PipelineAutotuner}.
+     * <p>
+     * If spooling is enabled, processed backup is written to the spool file and uploaded from it with retries after backup creation
+     * completes (see {@link BackupSpoolManager}).
      *
+     * @param processorOptions options of processors. If null, default options are used
      * @param databaseSettings database settings
      * @return the {@link Task} entity of started task
      * @see BackupPropertiesManager#initNewBackupProperties(List, List, String)
      */
     public Task startBackupTask(@NotNull Task.RunType runType, @NotNull List<String> storageSettingsNameList, @Nullable List<ProcessorType> processors,
-                                @NotNull DatabaseSettings databaseSettings) {
+                                @Nullable ProcessorOptions processorOptions, @NotNull DatabaseSettings databaseSettings) {
         Objects.requireNonNull(runType);
         Objects.requireNonNull(storageSettingsNameList);
         Objects.requireNonNull(processors);
         Objects.requireNonNull(databaseSettings);
 
-        BackupProperties backupProperties =
-                backupPropertiesManager.initNewBackupProperties(storageSettingsNameList, processors, databaseSettings.getName());
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(storageSettingsNameList, processors,
+                compressionDictionariesManager.withLatestDictionary(databaseSettings.getSettingsName(), processors, processorOptions),
+                databaseSettings.getName(), databaseBackupManager.getBackupFormat(databaseSettings));
         Task task = tasksManager.initNewTask(Task.Type.CREATE_BACKUP, runType, backupProperties.getId());
         Integer taskId = task.getId();
 
+        // backup without processors can be written by the dump process right into storage files
+        if (processors.isEmpty() && databaseBackupManager.supportsFileTransfer(backupProperties.getFormat(), databaseSettings) &&
+                backupLoadManager.supportsFileTransfer(storageSettingsNameList)) {
+            Future future = tasksStarterExecutorService.submit(() -> createBackupInFile(backupProperties, databaseSettings, taskId));
+            futures.put(taskId, future);
+            return task;
+        }
+
         Future future = tasksStarterExecutorService.submit(() -> {
             tasksManager.updateTaskState(taskId, Task.State.CREATING);
             logger.info("Creating backup...");
 
-            try (InputStream backupStream = databaseBackupManager.createBackup(databaseSettings, taskId)) {
-                if (Thread.interrupted()) {
-                    throw new InterruptedException();
-                }
-
-                tasksManager.updateTaskState(taskId, Task.State.APPLYING_PROCESSORS);
-                logger.info("Applying processors on created backup. Processors: {}", processors);
-
-                try (InputStream processedBackupStream = backupProcessorManager.process(backupStream, processors)) {
+            DictionarySampler dictionarySampler = new DictionarySampler(CompressionDictionariesManager.MAX_BACKUP_SAMPLES_SIZE);
+            try {
+                PipelineTuning tuning;
+                boolean spooled;
+                try (InputStream backupStream = databaseBackupManager.createBackup(databaseSettings, taskId);
+                     PipelineAutotuner.Session autotuning = pipelineAutotuner.start(databaseSettings.getSettingsName(),
+                             backupProperties)) {
                     if (Thread.interrupted()) {
                         throw new InterruptedException();
                     }
 
-                    tasksManager.updateTaskState(taskId, Task.State.UPLOADING);
-                    logger.info("Uploading backup...");
+                    tasksManager.updateTaskState(taskId, Task.State.APPLYING_PROCESSORS);
+                    logger.info("Applying processors on created backup. Processors: {}", processors);
 
-                    backupLoadManager.uploadBackup(processedBackupStream, backupProperties, taskId);
+                    InputStream sampledBackupStream = compressionDictionariesManager.usesDictionary(processors) ?
+                            dictionarySampler.wrap(backupStream) : backupStream;
+                    tuning = autotuning.getTuning();
+                    try (InputStream processedBackupStream = backupProcessorManager.process(
+                            autotuning.monitorSource(sampledBackupStream), processors, backupProperties.getProcessorOptions(), tuning)) {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+
+                        spooled = uploadOrSpoolBackup(autotuning.monitorOutput(processedBackupStream), backupProperties, taskId, tuning);
+                        if (!spooled) {
+                            Thread.sleep(5000);
+                            tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+                            logger.info("Creating backup completed. Backup properties: {}", backupProperties);
+                        }
+                    }
+                }
+
+                // backup stream is closed here, so the database snapshot is released before uploading
+                if (spooled) {
+                    backupSpoolManager.uploadSpooledBackup(backupProperties, taskId, tuning);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
 
-                    Thread.sleep(5000);
                     tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
                     logger.info("Creating backup completed. Backup properties: {}", backupProperties);
                 }
+
+                if (compressionDictionariesManager.usesDictionary(processors)) {
+                    compressionDictionariesManager.addSamples(databaseSettings.getSettingsName(), dictionarySampler.getSamples());
+                }
             } catch (IOException ex) {
                 logger.error("Error occurred while closing input stream of created backup", ex);
             } catch (RuntimeException ex) {
@@ -142,6 +246,7 @@ public class TasksStarterService {
                 tasksManager.setInterrupted(taskId);
                 logger.error("Backup creation task was interrupted. Task ID: {}", taskId);
             } finally {
+                backupSpoolManager.deleteSpoolFile(taskId);
                 futures.remove(taskId);
             }
         });
@@ -152,22 +257,37 @@ public class TasksStarterService {
 
     /**
      * Starts backup restoration task.
+     * <p>
+     * Backup is restored according to its format (see {@link BackupProperties#getFormat()}).
      *
      * @param backupProperties    backup properties of backup saved on storage
      * @param storageSettingsName storage settings name
      * @param databaseSettings    database settings
+     * @param restoreJobs         number of parallel restore jobs. Used only if backup format supports parallel restoration
+     * @param restoreFilter       tables and schemas to restore
      * @return the {@link Task} entity of started task
      */
     public Task startRestoreTask(@NotNull Task.RunType runType, @NotNull BackupProperties backupProperties, @NotNull String storageSettingsName,
-                                 @NotNull DatabaseSettings databaseSettings) {
+                                 @NotNull DatabaseSettings databaseSettings, int restoreJobs, @NotNull RestoreFilter restoreFilter) {
         Objects.requireNonNull(runType);
         Objects.requireNonNull(backupProperties);
         Objects.requireNonNull(storageSettingsName);
         Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(restoreFilter);
 
         Task task = tasksManager.initNewTask(Task.Type.RESTORE_BACKUP, runType, backupProperties.getId());
         Integer taskId = task.getId();
 
+        // backup without processors can be read by the restore process right from the storage file
+        if (backupProperties.getProcessors().isEmpty() && restoreJobs <= 1 && restoreFilter.isEmpty() &&
+                databaseBackupManager.supportsFileTransfer(backupProperties.getFormat(), databaseSettings) &&
+                backupLoadManager.supportsFileTransfer(Collections.singletonList(storageSettingsName))) {
+            Future future = tasksStarterExecutorService.submit(() ->
+                    restoreBackupFromFile(backupProperties, storageSettingsName, databaseSettings, taskId));
+            futures.put(taskId, future);
+            return task;
+        }
+
         Future future = tasksStarterExecutorService.submit(() -> {
             tasksManager.updateTaskState(taskId, Task.State.DOWNLOADING);
             logger.info("Downloading backup...");
@@ -181,7 +301,10 @@ public class TasksStarterService {
                 tasksManager.updateTaskState(taskId, Task.State.APPLYING_DEPROCESSORS);
                 logger.info("Deprocessing backup...");
 
-                try (InputStream deprocessedBackup = backupProcessorManager.deprocess(downloadedBackup, backupProperties.getProcessors())) {
+                // throughput of restoration is measured as the rate of restored data
+                try (InputStream deprocessedBackup = taskThroughputService.monitor(
+                        backupProcessorManager.deprocess(downloadedBackup, backupProperties.getProcessors(),
+                                backupProperties.getProcessorOptions()), taskId)) {
                     if (Thread.interrupted()) {
                         throw new InterruptedException();
                     }
@@ -189,7 +312,9 @@ public class TasksStarterService {
                     tasksManager.updateTaskState(taskId, Task.State.RESTORING);
                     logger.info("Restoring backup...");
 
-                    databaseBackupManager.restoreBackup(deprocessedBackup, databaseSettings, taskId);
+                    // download stops as soon as all data to restore is read, since the streams are closed then
+                    databaseBackupManager.restoreBackup(deprocessedBackup, backupProperties.getFormat(), restoreJobs, restoreFilter,
+                            databaseSettings, taskId);
                     if (Thread.interrupted()) {
                         throw new InterruptedException();
                     }
@@ -214,6 +339,657 @@ public class TasksStarterService {
         return task;
     }
 
+    /**
+     * Uploads processed backup to storages or writes it to the spool file if spooling is enabled.
+     *
+     * @return {@literal true} if backup was written to the spool file and should be uploaded from it after the backup stream is closed
+     * @see BackupSpoolManager#uploadSpooledBackup(BackupProperties, Integer, PipelineTuning)
+     */
+    private boolean uploadOrSpoolBackup(InputStream processedBackupStream, BackupProperties backupProperties, Integer taskId,
+                                        PipelineTuning tuning) throws InterruptedException {
+        if (backupSpoolManager.isEnabled()) {
+            tasksManager.updateTaskState(taskId, Task.State.SPOOLING);
+            logger.info("Spooling backup...");
+
+            backupSpoolManager.spoolBackup(processedBackupStream, taskId);
+            return true;
+        }
+
+        tasksManager.updateTaskState(taskId, Task.State.UPLOADING);
+        logger.info("Uploading backup...");
+
+        backupLoadManager.uploadBackup(processedBackupStream, backupProperties, taskId, tuning);
+        return false;
+    }
+
+    private void createBackupInFile(BackupProperties backupProperties, DatabaseSettings databaseSettings, Integer taskId) {
+        tasksManager.updateTaskState(taskId, Task.State.CREATING);
+        logger.info("Creating backup directly in storage files...");
+
+        try {
+            backupLoadManager.uploadBackup(backupFile -> databaseBackupManager.createBackup(databaseSettings, backupFile, taskId),
+                    backupProperties, taskId);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+            logger.info("Creating backup completed. Backup properties: {}", backupProperties);
+        } catch (RuntimeException ex) {
+            logger.error("Error occurred while creating backup. Backup properties: {}", backupProperties, ex);
+            errorTasksManager.addErrorTask(taskId);
+        } catch (InterruptedException ex) {
+            tasksManager.setInterrupted(taskId);
+            logger.error("Backup creation task was interrupted. Task ID: {}", taskId);
+        } finally {
+            futures.remove(taskId);
+        }
+    }
+
+    private void restoreBackupFromFile(BackupProperties backupProperties, String storageSettingsName, DatabaseSettings databaseSettings,
+                                       Integer taskId) {
+        tasksManager.updateTaskState(taskId, Task.State.RESTORING);
+        logger.info("Restoring backup directly from storage file...");
+
+        try {
+            backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName,
+                    backupFiles -> databaseBackupManager.restoreBackup(backupFiles, databaseSettings, taskId), taskId);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+            logger.info("Restoring backup completed. Backup properties: {}", backupProperties);
+        } catch (RuntimeException ex) {
+            logger.info("Error occurred while restoring backup. Backup properties: {}", backupProperties, ex);
+            errorTasksManager.addErrorTask(taskId);
+        } catch (InterruptedException ex) {
+            tasksManager.setInterrupted(taskId);
+            logger.error("Task was interrupted. Task ID: {}", taskId);
+        } finally {
+            futures.remove(taskId);
+        }
+    }
+
+    /**
+     * Starts continuous WAL archiving task.
+     * <p>
+     * Base backup of the whole database cluster is created and uploaded first. Then every complete WAL segment is processed and uploaded
+     * to the same storages as the base backup, so the cluster can be restored to any point in time after the base backup creation (see
+     * {@link #startPointInTimeRestoreTask(Task.RunType, BackupProperties, String, Path, LocalDateTime)}).
+     * <p>
+     * The task runs until it is cancelled.
+     *
+     * @param processorOptions options of processors. If null, default options are used
+     * @param databaseSettings database settings of any database of the cluster
+     * @return the {@link Task} entity of started task
+     */
+    public Task startWalArchivingTask(@NotNull Task.RunType runType, @NotNull List<String> storageSettingsNameList,
+                                      @Nullable List<ProcessorType> processors, @Nullable ProcessorOptions processorOptions,
+                                      @NotNull DatabaseSettings databaseSettings) {
+        Objects.requireNonNull(runType);
+        Objects.requireNonNull(storageSettingsNameList);
+        Objects.requireNonNull(databaseSettings);
+
+        List<ProcessorType> segmentProcessors = processors == null ? Collections.emptyList() : processors;
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(storageSettingsNameList, segmentProcessors,
+                processorOptions, databaseSettings.getName(), BackupFormat.BASE_BACKUP);
+        Task task = tasksManager.initNewTask(Task.Type.ARCHIVE_WAL, runType, backupProperties.getId(), databaseSettings.getSettingsName());
+        Integer taskId = task.getId();
+
+        Future future = tasksStarterExecutorService.submit(() -> {
+            tasksManager.updateTaskState(taskId, Task.State.CREATING);
+            logger.info("Creating base backup...");
+
+            // receiver is started first, so WAL written while base backup is created is archived too
+            try (WalReceiver walReceiver = databaseBackupManager.startWalReceiver(databaseSettings, backupProperties.getId(), taskId)) {
+                try (InputStream backupStream = databaseBackupManager.createBaseBackup(databaseSettings, taskId);
+                     InputStream processedBackupStream = backupProcessorManager.process(backupStream, segmentProcessors,
+                             backupProperties.getProcessorOptions())) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    tasksManager.updateTaskState(taskId, Task.State.UPLOADING);
+                    logger.info("Uploading base backup...");
+
+                    backupLoadManager.uploadBackup(processedBackupStream, backupProperties, taskId);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+
+                tasksManager.updateTaskState(taskId, Task.State.ARCHIVING_WAL);
+                logger.info("Base backup uploaded. Archiving WAL... Backup properties: {}", backupProperties);
+
+                while (true) {
+                    Path segmentFile = walReceiver.takeSegment();
+                    String segmentName = segmentFile.getFileName().toString();
+                    String segmentBackupName = walSegmentsManager.getSegmentBackupName(backupProperties, segmentName);
+
+                    // segment is saved the same way as a backup, but it has no backup properties of its own
+                    BackupProperties segmentProperties = new BackupProperties(segmentBackupName, segmentProcessors,
+                            LocalDateTime.now(ZoneOffset.UTC), storageSettingsNameList);
+                    try (InputStream segmentStream = backupProcessorManager.process(Files.newInputStream(segmentFile),
+                            segmentProcessors, backupProperties.getProcessorOptions())) {
+                        backupLoadManager.uploadBackup(segmentStream, segmentProperties, taskId);
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    walSegmentsManager.addNewSegment(backupProperties.getId(), segmentName, segmentBackupName);
+                    Files.delete(segmentFile);
+                    logger.info("WAL segment archived. Segment: {}. Backup properties: {}", segmentName, backupProperties);
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.error("Error occurred while archiving WAL. Backup properties: {}", backupProperties, ex);
+                errorTasksManager.addErrorTask(taskId);
+            } catch (InterruptedException ex) {
+                tasksManager.setInterrupted(taskId);
+                logger.info("WAL archiving task was interrupted. Task ID: {}", taskId);
+            } finally {
+                futures.remove(taskId);
+            }
+        });
+
+        futures.put(taskId, future);
+        return task;
+    }
+
+    /**
+     * Starts point-in-time restoration task.
+     * <p>
+     * Base backup and archived WAL segments are restored into the data directory and recovery is configured. The cluster is recovered to
+     * the target time when PostgreSQL server is started on the data directory. Segments archived after the target time are not needed,
+     * so they are not downloaded.
+     *
+     * @param backupProperties    backup properties of {@link BackupFormat#BASE_BACKUP} backup
+     * @param storageSettingsName storage settings name
+     * @param dataDirectory       empty data directory to restore the cluster into
+     * @param targetTime          UTC time to recover the cluster to or {@literal null} to recover to the end of archived WAL
+     * @return the {@link Task} entity of started task
+     */
+    public Task startPointInTimeRestoreTask(@NotNull Task.RunType runType, @NotNull BackupProperties backupProperties,
+                                            @NotNull String storageSettingsName, @NotNull Path dataDirectory,
+                                            @Nullable LocalDateTime targetTime) {
+        Objects.requireNonNull(runType);
+        Objects.requireNonNull(backupProperties);
+        Objects.requireNonNull(storageSettingsName);
+        Objects.requireNonNull(dataDirectory);
+
+        Task task = tasksManager.initNewTask(Task.Type.RESTORE_POINT_IN_TIME, runType, backupProperties.getId());
+        Integer taskId = task.getId();
+
+        Future future = tasksStarterExecutorService.submit(() -> {
+            try {
+                tasksManager.updateTaskState(taskId, Task.State.DOWNLOADING);
+                logger.info("Downloading base backup...");
+
+                try (InputStream downloadedBackup =
+                             backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName, taskId)) {
+                    if (Thread.interrupted() || downloadedBackup == null) {
+                        throw new InterruptedException();
+                    }
+
+                    tasksManager.updateTaskState(taskId, Task.State.APPLYING_DEPROCESSORS);
+                    try (InputStream deprocessedBackup = taskThroughputService.monitor(
+                            backupProcessorManager.deprocess(downloadedBackup, backupProperties.getProcessors(),
+                                    backupProperties.getProcessorOptions()), taskId)) {
+                        tasksManager.updateTaskState(taskId, Task.State.RESTORING);
+                        logger.info("Restoring base backup...");
+
+                        databaseBackupManager.restoreBaseBackup(deprocessedBackup, dataDirectory);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                }
+
+                logger.info("Restoring WAL segments... Target time: {}", targetTime);
+                for (WalSegment segment : walSegmentsManager.findAllByBackupPropertiesId(backupProperties.getId())) {
+                    try (InputStream downloadedSegment =
+                                 backupLoadManager.downloadBackup(segment.getBackupName(), storageSettingsName, taskId)) {
+                        if (Thread.interrupted() || downloadedSegment == null) {
+                            throw new InterruptedException();
+                        }
+
+                        try (InputStream deprocessedSegment = backupProcessorManager.deprocess(downloadedSegment,
+                                backupProperties.getProcessors(), backupProperties.getProcessorOptions())) {
+                            databaseBackupManager.restoreWalSegment(deprocessedSegment, dataDirectory, segment.getSegmentName());
+                            if (Thread.interrupted()) {
+                                throw new InterruptedException();
+                            }
+                        }
+                    }
+
+                    // the segment archived after the target time contains the target time, later segments are not needed
+                    if (targetTime != null && segment.getDate().isAfter(targetTime)) {
+                        break;
+                    }
+                }
+
+                databaseBackupManager.configureRecovery(dataDirectory, targetTime);
+
+                tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+                logger.info("Point-in-time restoration completed. Data directory: {}. Backup properties: {}", dataDirectory,
+                        backupProperties);
+            } catch (IOException ex) {
+                logger.error("Error occurred while closing input stream of downloaded backup", ex);
+            } catch (RuntimeException ex) {
+                logger.info("Error occurred while restoring backup. Backup properties: {}", backupProperties, ex);
+                errorTasksManager.addErrorTask(taskId);
+            } catch (InterruptedException ex) {
+                tasksManager.setInterrupted(taskId);
+                logger.error("Task was interrupted. Task ID: {}", taskId);
+            } finally {
+                futures.remove(taskId);
+            }
+        });
+
+        futures.put(taskId, future);
+        return task;
+    }
+
+    /**
+     * Starts change capture task.
+     * <p>
+     * Full backup of {@link BackupFormat#PLAIN} format is created from the snapshot of a new logical replication slot and uploaded first.
+     * Then changes committed after the snapshot are captured, batched into segments and uploaded to the same storages as the full
+     * backup, so the database can be restored to any captured position (see
+     * {@link #startChangeReplayRestoreTask(Task.RunType, BackupProperties, String, DatabaseSettings, Long)}).
+     * <p>
+     * Segments are always compressed. The task runs until it is cancelled.
+     *
+     * @param databaseSettings database settings
+     * @return the {@link Task} entity of started task
+     */
+    public Task startChangeCaptureTask(@NotNull Task.RunType runType, @NotNull List<String> storageSettingsNameList,
+                                       @Nullable List<ProcessorType> processors, @Nullable ProcessorOptions processorOptions,
+                                       @NotNull DatabaseSettings databaseSettings) {
+        Objects.requireNonNull(runType);
+        Objects.requireNonNull(storageSettingsNameList);
+        Objects.requireNonNull(databaseSettings);
+
+        // textual changes compress well, and segments are small enough to be compressed in one pass
+        List<ProcessorType> segmentProcessors = processors == null ? new ArrayList<>() : new ArrayList<>(processors);
+        if (segmentProcessors.stream().noneMatch(ProcessorType::isCompressor)) {
+            segmentProcessors.add(ProcessorType.COMPRESSOR);
+        }
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(storageSettingsNameList, segmentProcessors,
+                processorOptions, databaseSettings.getName(), BackupFormat.PLAIN);
+        Task task = tasksManager.initNewTask(Task.Type.CAPTURE_CHANGES, runType, backupProperties.getId(),
+                databaseSettings.getSettingsName());
+        Integer taskId = task.getId();
+
+        Future future = tasksStarterExecutorService.submit(() -> {
+            tasksManager.updateTaskState(taskId, Task.State.CREATING);
+            logger.info("Creating backup of change capture snapshot...");
+
+            try (LogicalChangeStream changeStream = databaseBackupManager.createChangeStream(databaseSettings, backupProperties.getId())) {
+                // snapshot is valid only until the stream is started, so the stream is started after the backup is completed
+                try (InputStream backupStream = databaseBackupManager.createBackup(databaseSettings, changeStream.getSnapshot(), taskId);
+                     InputStream processedBackupStream = backupProcessorManager.process(backupStream, segmentProcessors,
+                             backupProperties.getProcessorOptions())) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    tasksManager.updateTaskState(taskId, Task.State.UPLOADING);
+                    logger.info("Uploading backup...");
+
+                    backupLoadManager.uploadBackup(processedBackupStream, backupProperties, taskId);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+
+                changeStream.start();
+                tasksManager.updateTaskState(taskId, Task.State.CAPTURING_CHANGES);
+                logger.info("Backup uploaded. Capturing changes... Backup properties: {}", backupProperties);
+
+                while (true) {
+                    LogicalChangeStream.ChangeBatch batch = changeStream.takeBatch(CHANGE_SEGMENT_MAX_BYTES, CHANGE_SEGMENT_MAX_MILLIS);
+                    String segmentBackupName = changeSegmentsManager.getSegmentBackupName(backupProperties, batch.getStartLsn());
+
+                    // segment is saved the same way as a backup, but it has no backup properties of its own
+                    BackupProperties segmentProperties = new BackupProperties(segmentBackupName, segmentProcessors,
+                            LocalDateTime.now(ZoneOffset.UTC), storageSettingsNameList);
+                    try (InputStream segmentStream = backupProcessorManager.process(Files.newInputStream(batch.getFile()),
+                            segmentProcessors, backupProperties.getProcessorOptions())) {
+                        backupLoadManager.uploadBackup(segmentStream, segmentProperties, taskId);
+                    } finally {
+                        Files.delete(batch.getFile());
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    changeSegmentsManager.addNewSegment(backupProperties.getId(), batch.getStartLsn(), batch.getEndLsn(),
+                            segmentBackupName);
+                    // server may discard WAL of the changes only when they are saved
+                    changeStream.confirm(batch.getEndLsn());
+                    logger.info("Change segment saved. Segment: {}. Backup properties: {}", segmentBackupName, backupProperties);
+                }
+            } catch (IOException | RuntimeException ex) {
+                logger.error("Error occurred while capturing changes. Backup properties: {}", backupProperties, ex);
+                errorTasksManager.addErrorTask(taskId);
+            } catch (InterruptedException ex) {
+                tasksManager.setInterrupted(taskId);
+                logger.info("Change capture task was interrupted. Task ID: {}", taskId);
+            } finally {
+                futures.remove(taskId);
+            }
+        });
+
+        futures.put(taskId, future);
+        return task;
+    }
+
+    /**
+     * Starts restoration task of the full backup with captured changes.
+     * <p>
+     * The full backup is restored first, then captured changes are replayed up to the target position. Segments following the target
+     * position are not downloaded.
+     *
+     * @param backupProperties    backup properties of the full backup created by change capture task
+     * @param storageSettingsName storage settings name
+     * @param databaseSettings    database settings
+     * @param targetLsn           WAL position to replay changes up to or {@literal null} to replay all captured changes
+     * @return the {@link Task} entity of started task
+     */
+    public Task startChangeReplayRestoreTask(@NotNull Task.RunType runType, @NotNull BackupProperties backupProperties,
+                                             @NotNull String storageSettingsName, @NotNull DatabaseSettings databaseSettings,
+                                             @Nullable Long targetLsn) {
+        Objects.requireNonNull(runType);
+        Objects.requireNonNull(backupProperties);
+        Objects.requireNonNull(storageSettingsName);
+        Objects.requireNonNull(databaseSettings);
+
+        Task task = tasksManager.initNewTask(Task.Type.RESTORE_CHANGES, runType, backupProperties.getId());
+        Integer taskId = task.getId();
+
+        Future future = tasksStarterExecutorService.submit(() -> {
+            try {
+                tasksManager.updateTaskState(taskId, Task.State.DOWNLOADING);
+                logger.info("Downloading backup...");
+
+                try (InputStream downloadedBackup =
+                             backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName, taskId)) {
+                    if (Thread.interrupted() || downloadedBackup == null) {
+                        throw new InterruptedException();
+                    }
+
+                    tasksManager.updateTaskState(taskId, Task.State.APPLYING_DEPROCESSORS);
+                    try (InputStream deprocessedBackup = taskThroughputService.monitor(
+                            backupProcessorManager.deprocess(downloadedBackup, backupProperties.getProcessors(),
+                                    backupProperties.getProcessorOptions()), taskId)) {
+                        tasksManager.updateTaskState(taskId, Task.State.RESTORING);
+                        logger.info("Restoring backup...");
+
+                        databaseBackupManager.restoreBackup(deprocessedBackup, databaseSettings, taskId);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                }
+
+                tasksManager.updateTaskState(taskId, Task.State.REPLAYING_CHANGES);
+                logger.info("Replaying captured changes...");
+
+                // segments are downloaded lazily one by one as they are replayed
+                Iterator<InputStream> segments = changeSegmentsManager.findAllByBackupPropertiesId(backupProperties.getId()).stream()
+                        .filter(segment -> targetLsn == null || Long.compareUnsigned(segment.getStartLsn(), targetLsn) <= 0)
+                        .map(ChangeSegment::getBackupName)
+                        .map(segmentBackupName -> {
+                            InputStream downloadedSegment =
+                                    backupLoadManager.downloadBackup(segmentBackupName, storageSettingsName, taskId);
+                            if (downloadedSegment == null) {
+                                Thread.currentThread().interrupt();
+                                return InputStream.nullInputStream();
+                            }
+                            return backupProcessorManager.deprocess(downloadedSegment, backupProperties.getProcessors(),
+                                    backupProperties.getProcessorOptions());
+                        })
+                        .iterator();
+                databaseBackupManager.replayChanges(segments, databaseSettings, targetLsn);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+                logger.info("Restoring backup with captured changes completed. Backup properties: {}", backupProperties);
+            } catch (IOException ex) {
+                logger.error("Error occurred while closing input stream of downloaded backup", ex);
+            } catch (RuntimeException ex) {
+                logger.info("Error occurred while restoring backup. Backup properties: {}", backupProperties, ex);
+                errorTasksManager.addErrorTask(taskId);
+            } catch (InterruptedException ex) {
+                tasksManager.setInterrupted(taskId);
+                logger.error("Task was interrupted. Task ID: {}", taskId);
+            } finally {
+                futures.remove(taskId);
+            }
+        });
+
+        futures.put(taskId, future);
+        return task;
+    }
+
+    /**
+     * Starts incremental backup creation task.
+     * <p>
+     * Change counters of tables are compared with ones saved in manifest of the previous backup and only data of changed tables is
+     * dumped. Manifest of the created backup references backups containing data of unchanged tables, so the whole database can be
+     * restored (see {@link #startIncrementalRestoreTask(Task.RunType, BackupProperties, String, DatabaseSettings, int, RestoreFilter)}).
+     * <p>
+     * Statistics are collected by the server asynchronously, so changes committed just before the backup might be dumped only by the
+     * next backup.
+     * <p>
+     * Compression dictionaries, pipeline autotuning and spooling are used the same way as by {@link #startBackupTask(Task.RunType, List,
+     * List, ProcessorOptions, DatabaseSettings)}.
+     *
+     * @param processorOptions           options of processors. If null, default options are used
+     * @param databaseSettings           database settings
+     * @param previousBackupPropertiesId identifier of backup properties of the previous backup or {@literal null} to dump all tables
+     * @return the {@link Task} entity of started task
+     */
+    public Task startIncrementalBackupTask(@NotNull Task.RunType runType, @NotNull List<String> storageSettingsNameList,
+                                           @Nullable List<ProcessorType> processors, @Nullable ProcessorOptions processorOptions,
+                                           @NotNull DatabaseSettings databaseSettings, @Nullable Integer previousBackupPropertiesId) {
+        Objects.requireNonNull(runType);
+        Objects.requireNonNull(storageSettingsNameList);
+        Objects.requireNonNull(processors);
+        Objects.requireNonNull(databaseSettings);
+
+        // data of each table is kept in separate entries only by COPY archive
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(storageSettingsNameList, processors,
+                compressionDictionariesManager.withLatestDictionary(databaseSettings.getSettingsName(), processors, processorOptions),
+                databaseSettings.getName(), BackupFormat.COPY_ARCHIVE);
+        Task task = tasksManager.initNewTask(Task.Type.CREATE_BACKUP, runType, backupProperties.getId());
+        Integer taskId = task.getId();
+
+        Future future = tasksStarterExecutorService.submit(() -> {
+            tasksManager.updateTaskState(taskId, Task.State.CREATING);
+            logger.info("Creating incremental backup... Previous backup properties ID: {}", previousBackupPropertiesId);
+
+            try {
+                // statistics are read before the backup snapshot is taken, so changes made during dumping are found by the next backup
+                Map<String, TableStatistics> statistics = databaseBackupManager.readTableStatistics(databaseSettings);
+                Map<String, Integer> unchangedTables = backupTablesManager.findUnchangedTables(previousBackupPropertiesId, statistics);
+                logger.info("Tables changed since the previous backup: {}. Unchanged tables: {}",
+                        statistics.size() - unchangedTables.size(), unchangedTables.size());
+
+                DictionarySampler dictionarySampler = new DictionarySampler(CompressionDictionariesManager.MAX_BACKUP_SAMPLES_SIZE);
+                PipelineTuning tuning;
+                boolean spooled;
+                try (InputStream backupStream = databaseBackupManager.createIncrementalBackup(databaseSettings,
+                        unchangedTables.keySet(), taskId);
+                     PipelineAutotuner.Session autotuning = pipelineAutotuner.start(databaseSettings.getSettingsName(),
+                             backupProperties)) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    tasksManager.updateTaskState(taskId, Task.State.APPLYING_PROCESSORS);
+                    logger.info("Applying processors on created backup. Processors: {}", processors);
+
+                    InputStream sampledBackupStream = compressionDictionariesManager.usesDictionary(processors) ?
+                            dictionarySampler.wrap(backupStream) : backupStream;
+                    tuning = autotuning.getTuning();
+                    try (InputStream processedBackupStream = backupProcessorManager.process(
+                            autotuning.monitorSource(sampledBackupStream), processors, backupProperties.getProcessorOptions(), tuning)) {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+
+                        spooled = uploadOrSpoolBackup(autotuning.monitorOutput(processedBackupStream), backupProperties, taskId, tuning);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                }
+
+                // backup stream is closed here, so the database snapshot is released before uploading
+                if (spooled) {
+                    backupSpoolManager.uploadSpooledBackup(backupProperties, taskId, tuning);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+
+                backupTablesManager.addManifest(backupProperties.getId(), statistics, unchangedTables);
+
+                tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+                logger.info("Creating incremental backup completed. Backup properties: {}", backupProperties);
+
+                if (compressionDictionariesManager.usesDictionary(processors)) {
+                    compressionDictionariesManager.addSamples(databaseSettings.getSettingsName(), dictionarySampler.getSamples());
+                }
+            } catch (IOException ex) {
+                logger.error("Error occurred while closing input stream of created backup", ex);
+            } catch (RuntimeException ex) {
+                logger.error("Error occurred while creating backup. Backup properties: {}", backupProperties, ex);
+                errorTasksManager.addErrorTask(taskId);
+            } catch (InterruptedException ex) {
+                tasksManager.setInterrupted(taskId);
+                logger.error("Backup creation task was interrupted. Task ID: {}", taskId);
+            } finally {
+                backupSpoolManager.deleteSpoolFile(taskId);
+                futures.remove(taskId);
+            }
+        });
+
+        futures.put(taskId, future);
+        return task;
+    }
+
+    /**
+     * Starts restoration task of incremental backup.
+     * <p>
+     * The backup is restored first, then data of unchanged tables is restored from backups referenced by its manifest. All backups are
+     * downloaded from the same storage.
+     *
+     * @param backupProperties    backup properties of incremental backup
+     * @param storageSettingsName storage settings name
+     * @param databaseSettings    database settings
+     * @param restoreJobs         number of parallel restore jobs
+     * @param restoreFilter       tables and schemas to restore
+     * @return the {@link Task} entity of started task
+     */
+    public Task startIncrementalRestoreTask(@NotNull Task.RunType runType, @NotNull BackupProperties backupProperties,
+                                            @NotNull String storageSettingsName, @NotNull DatabaseSettings databaseSettings,
+                                            int restoreJobs, @NotNull RestoreFilter restoreFilter) {
+        Objects.requireNonNull(runType);
+        Objects.requireNonNull(backupProperties);
+        Objects.requireNonNull(storageSettingsName);
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(restoreFilter);
+
+        Task task = tasksManager.initNewTask(Task.Type.RESTORE_BACKUP, runType, backupProperties.getId());
+        Integer taskId = task.getId();
+
+        Future future = tasksStarterExecutorService.submit(() -> {
+            tasksManager.updateTaskState(taskId, Task.State.DOWNLOADING);
+            logger.info("Downloading backup...");
+
+            try {
+                Map<Integer, Set<String>> baseBackupTables = backupTablesManager.getBaseBackupTables(backupProperties.getId());
+
+                try (InputStream downloadedBackup =
+                             backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName, taskId)) {
+                    if (Thread.interrupted() || downloadedBackup == null) {
+                        throw new InterruptedException();
+                    }
+
+                    tasksManager.updateTaskState(taskId, Task.State.APPLYING_DEPROCESSORS);
+                    logger.info("Deprocessing backup...");
+
+                    try (InputStream deprocessedBackup = taskThroughputService.monitor(
+                            backupProcessorManager.deprocess(downloadedBackup, backupProperties.getProcessors(),
+                                    backupProperties.getProcessorOptions()), taskId)) {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+
+                        tasksManager.updateTaskState(taskId, Task.State.RESTORING);
+                        logger.info("Restoring incremental backup... Base backups: {}", baseBackupTables.keySet());
+
+                        // base backups are downloaded one by one after the latest backup is read
+                        databaseBackupManager.restoreBackupChain(deprocessedBackup, baseBackupTables,
+                                baseBackupPropertiesId -> downloadBaseBackup(baseBackupPropertiesId, storageSettingsName, taskId),
+                                restoreJobs, restoreFilter, databaseSettings, taskId);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+
+                        tasksManager.updateTaskState(taskId, Task.State.COMPLETED);
+                        logger.info("Restoring incremental backup completed. Backup properties: {}", backupProperties);
+                    }
+                }
+            } catch (IOException ex) {
+                logger.error("Error occurred while closing input stream of downloaded backup", ex);
+            } catch (RuntimeException ex) {
+                logger.info("Error occurred while restoring backup. Backup properties: {}", backupProperties, ex);
+                errorTasksManager.addErrorTask(taskId);
+            } catch (InterruptedException ex) {
+                tasksManager.setInterrupted(taskId);
+                logger.error("Task was interrupted. Task ID: {}", taskId);
+            } finally {
+                futures.remove(taskId);
+            }
+        });
+
+        futures.put(taskId, future);
+        return task;
+    }
+
+    /**
+     * Downloads and deprocesses backup, data of which is used by incremental backup.
+     *
+     * @return deprocessed backup or {@literal null} if the thread was interrupted
+     */
+    @Nullable
+    private InputStream downloadBaseBackup(@NotNull Integer backupPropertiesId, @NotNull String storageSettingsName,
+                                           @NotNull Integer taskId) {
+        BackupProperties baseBackupProperties = backupPropertiesManager.findById(backupPropertiesId).orElseThrow(() ->
+                new RuntimeException("Can't restore incremental backup: missing base backup with backup properties ID " +
+                        backupPropertiesId));
+        if (!baseBackupProperties.getStorageSettingsNameList().contains(storageSettingsName)) {
+            throw new RuntimeException(String.format("Can't restore incremental backup: base backup %s is not saved on storage %s",
+                    baseBackupProperties.getBackupName(), storageSettingsName));
+        }
+
+        logger.info("Downloading base backup... Backup properties: {}", baseBackupProperties);
+
+        InputStream downloadedBackup = backupLoadManager.downloadBackup(baseBackupProperties.getBackupName(), storageSettingsName, taskId);
+        if (downloadedBackup == null) {
+            return null;
+        }
+        return backupProcessorManager.deprocess(downloadedBackup, baseBackupProperties.getProcessors(),
+                baseBackupProperties.getProcessorOptions());
+    }
+
     /**
      * Starts backup deletion task.
      * <p>
@@ -235,6 +1011,19 @@ public class TasksStarterService {
                 tasksManager.updateTaskState(taskId, Task.State.DELETING);
 
                 backupLoadManager.deleteBackup(backupProperties, taskId);
+                // archived WAL segments are deleted together with the base backup
+                for (WalSegment segment : walSegmentsManager.findAllByBackupPropertiesId(backupProperties.getId())) {
+                    backupLoadManager.deleteBackup(new BackupProperties(segment.getBackupName(), backupProperties.getProcessors(),
+                            segment.getDate(), backupProperties.getStorageSettingsNameList()), taskId);
+                }
+                walSegmentsManager.deleteAllByBackupPropertiesId(backupProperties.getId());
+                // captured change segments are deleted together with the full backup
+                for (ChangeSegment segment : changeSegmentsManager.findAllByBackupPropertiesId(backupProperties.getId())) {
+                    backupLoadManager.deleteBackup(new BackupProperties(segment.getBackupName(), backupProperties.getProcessors(),
+                            segment.getDate(), backupProperties.getStorageSettingsNameList()), taskId);
+                }
+                changeSegmentsManager.deleteAllByBackupPropertiesId(backupProperties.getId());
+                backupTablesManager.deleteAllByBackupPropertiesId(backupProperties.getId());
                 if (Thread.interrupted()) {
                     throw new InterruptedException();
                 }
@@ -1,5 +1,6 @@
 package com.blog.service.databaseBackup;
 
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.database.DatabaseSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,7 +36,7 @@ public interface DatabaseBackup {
      *
      * @param databaseSettings database settings of database to dump
      * @param id               create backup task ID
-     * @return input stream, from which created plain text backup can be read.
+     * @return input stream, from which created backup can be read.
      * @implSpec This method may return while backup is still creating (e.g. process or thread writes to the returned input stream).
      * <p>
      * if an interrupt occurs before returning result, you can safely return {@literal null}.
@@ -47,16 +48,32 @@ public interface DatabaseBackup {
     @Nullable
     InputStream createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id);
 
+    /**
+     * Returns format of backups created by {@link #createBackup(DatabaseSettings, Integer)} with the specified database settings.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @return backup format
+     */
+    @NotNull
+    BackupFormat getBackupFormat(@NotNull DatabaseSettings databaseSettings);
+
     /**
      * Restores database backup.
      *
-     * @param in               input stream, from which plain text backup can be read.
+     * @param in               input stream, from which backup can be read.
+     * @param format           format of backup
+     * @param jobs             number of parallel restore jobs. Used only if the format supports parallel restoration.
+     * @param filter           tables and schemas to restore
      * @param databaseSettings database settings of database to restore backup to
      * @param id               restore backup task ID
      * @implSpec This method should not return until backup will be fully restored or exception occurred.
      * <p>
      * Consider perform restoring in single transaction to prevent situation when database will be left in inconsistent state if server
      * shutdown or interrupts occurs. If there are any exception transaction should be discarded.
+     * <p>
+     * If the filter is not empty, objects not matching the filter should be skipped and backup should not be read further than required
+     * to restore matching objects, so the rest of backup is not downloaded.
      */
-    void restoreBackup(InputStream in, @NotNull DatabaseSettings databaseSettings, @NotNull Integer id);
+    void restoreBackup(InputStream in, @NotNull BackupFormat format, int jobs, @NotNull RestoreFilter filter,
+                       @NotNull DatabaseSettings databaseSettings, @NotNull Integer id);
 }
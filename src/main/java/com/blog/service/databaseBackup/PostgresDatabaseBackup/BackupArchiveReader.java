@@ -0,0 +1,180 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.blog.service.databaseBackup.PostgresDatabaseBackup.BackupArchiveWriter.*;
+
+/**
+ * Reads multi-entry backup archive written by {@link BackupArchiveWriter}.
+ * <p>
+ * Entries are demultiplexed into the output streams provided by {@link EntryHandler}.
+ *
+ * @see BackupArchiveWriter
+ */
+class BackupArchiveReader {
+    private final DataInputStream in;
+
+    BackupArchiveReader(@NotNull InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(Objects.requireNonNull(in), MAX_FRAME_SIZE));
+    }
+
+    /**
+     * Checks whether the stream starts with archive magic bytes.
+     * <p>
+     * The stream must support marks. The stream position is not changed.
+     *
+     * @param in the stream to check
+     * @return {@literal true} if the stream is a backup archive
+     */
+    static boolean isArchive(@NotNull InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            throw new IllegalArgumentException("Input stream must support marks");
+        }
+
+        in.mark(MAGIC.length);
+        try {
+            byte[] header = in.readNBytes(MAGIC.length);
+            return Arrays.equals(header, MAGIC);
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Reads the whole archive.
+     * <p>
+     * Output stream of each entry is closed on entry end. If reading fails, output streams of not completed entries are passed to
+     * {@link EntryHandler#onEntryAbort(OutputStream)}.
+     * <p>
+     * Reading stops before the archive end if {@link EntryHandler#onEntryEnd(String)} returns {@literal false}. The rest of the stream is
+     * not read in such case.
+     *
+     * @param handler entry handler
+     */
+    void read(@NotNull EntryHandler handler) throws IOException {
+        byte[] header = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(header, MAGIC)) {
+            throw new IOException("Invalid backup archive: missing archive header");
+        }
+
+        Map<Integer, OutputStream> openedEntries = new HashMap<>();
+        Map<Integer, String> openedEntryNames = new HashMap<>();
+        boolean completed = false;
+        // entries that were skipped by handler
+        Map<Integer, String> skippedEntries = new HashMap<>();
+        byte[] buffer = new byte[MAX_FRAME_SIZE];
+        try {
+            while (true) {
+                byte recordType = in.readByte();
+                switch (recordType) {
+                    case ENTRY_START: {
+                        int entryId = in.readInt();
+                        String name = in.readUTF();
+                        OutputStream entryStream = handler.onEntryStart(name);
+                        if (entryStream == null) {
+                            skippedEntries.put(entryId, name);
+                        } else {
+                            openedEntries.put(entryId, entryStream);
+                            openedEntryNames.put(entryId, name);
+                        }
+                        break;
+                    }
+                    case ENTRY_DATA: {
+                        int entryId = in.readInt();
+                        int length = in.readInt();
+                        if (length < 0 || length > MAX_FRAME_SIZE) {
+                            throw new IOException("Invalid backup archive: malformed data frame length: " + length);
+                        }
+                        in.readFully(buffer, 0, length);
+                        OutputStream entryStream = openedEntries.get(entryId);
+                        if (entryStream != null) {
+                            entryStream.write(buffer, 0, length);
+                        } else if (!skippedEntries.containsKey(entryId)) {
+                            throw new IOException("Invalid backup archive: data frame of unknown entry " + entryId);
+                        }
+                        break;
+                    }
+                    case ENTRY_END: {
+                        int entryId = in.readInt();
+                        OutputStream entryStream = openedEntries.remove(entryId);
+                        if (entryStream != null) {
+                            entryStream.close();
+                            if (!handler.onEntryEnd(openedEntryNames.remove(entryId))) {
+                                // not completed entries are aborted
+                                return;
+                            }
+                        } else if (skippedEntries.remove(entryId) == null) {
+                            throw new IOException("Invalid backup archive: end of unknown entry " + entryId);
+                        }
+                        break;
+                    }
+                    case ARCHIVE_END: {
+                        if (!openedEntries.isEmpty()) {
+                            throw new IOException("Invalid backup archive: archive ended while some entries are not completed");
+                        }
+                        completed = true;
+                        return;
+                    }
+                    default: {
+                        throw new IOException("Invalid backup archive: unknown record type " + recordType);
+                    }
+                }
+            }
+        } catch (EOFException ex) {
+            throw new IOException("Invalid backup archive: unexpected end of archive", ex);
+        } finally {
+            if (!completed) {
+                for (OutputStream entryStream : openedEntries.values()) {
+                    try {
+                        handler.onEntryAbort(entryStream);
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Handler of archive entries.
+     */
+    interface EntryHandler {
+        /**
+         * Called when a new entry starts.
+         *
+         * @param name entry name
+         * @return output stream to write entry content to or {@literal null} if entry should be skipped
+         */
+        @Nullable
+        OutputStream onEntryStart(@NotNull String name) throws IOException;
+
+        /**
+         * Called after output stream of the entry is closed on entry end.
+         * <p>
+         * By default reading is continued.
+         *
+         * @param name entry name
+         * @return whether to continue reading the archive
+         */
+        default boolean onEntryEnd(@NotNull String name) throws IOException {
+            return true;
+        }
+
+        /**
+         * Called for each not completed entry if archive reading fails or is stopped.
+         * <p>
+         * By default the entry output stream is closed.
+         *
+         * @param entryStream output stream returned by {@link #onEntryStart(String)}
+         */
+        default void onEntryAbort(@NotNull OutputStream entryStream) throws IOException {
+            entryStream.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.Objects;
+
+/**
+ * Writes multi-entry backup archive into single output stream.
+ * <p>
+ * Backup archive allows to transfer backups consisting of multiple files (e.g. <i>pg_dump</i> directory format) through the single
+ * stream backup pipeline: processors, storages and so on.
+ * <p>
+ * Archive has the following layout:
+ * <pre>
+ * MAGIC
+ * [ENTRY_START entryId name] [ENTRY_DATA entryId length bytes]... [ENTRY_END entryId]
+ * ...
+ * ARCHIVE_END
+ * </pre>
+ * Data frames of different entries may interleave, so entries can be written concurrently from multiple threads. All methods of this
+ * class are thread-safe.
+ *
+ * @see BackupArchiveReader
+ */
+class BackupArchiveWriter implements Closeable {
+    static final byte[] MAGIC = {'P', 'G', 'B', 'T', 'A', 'R', 'C', '1'};
+
+    static final byte ARCHIVE_END = 0;
+    static final byte ENTRY_START = 1;
+    static final byte ENTRY_DATA = 2;
+    static final byte ENTRY_END = 3;
+
+    /**
+     * Maximum size of single data frame.
+     */
+    static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+
+    private int nextEntryId = 0;
+
+    private boolean finished = false;
+
+    BackupArchiveWriter(@NotNull OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Objects.requireNonNull(out), MAX_FRAME_SIZE));
+        this.out.write(MAGIC);
+    }
+
+    /**
+     * Starts a new entry.
+     *
+     * @param name entry name
+     * @return entry ID that should be passed to other methods to write entry data
+     */
+    synchronized int startEntry(@NotNull String name) throws IOException {
+        int entryId = nextEntryId++;
+        out.writeByte(ENTRY_START);
+        out.writeInt(entryId);
+        out.writeUTF(name);
+        return entryId;
+    }
+
+    synchronized void writeEntryData(int entryId, byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int frameSize = Math.min(len, MAX_FRAME_SIZE);
+            out.writeByte(ENTRY_DATA);
+            out.writeInt(entryId);
+            out.writeInt(frameSize);
+            out.write(b, off, frameSize);
+            off += frameSize;
+            len -= frameSize;
+        }
+    }
+
+    synchronized void endEntry(int entryId) throws IOException {
+        out.writeByte(ENTRY_END);
+        out.writeInt(entryId);
+    }
+
+    /**
+     * Writes the whole content of the input stream as a single entry.
+     *
+     * @param name entry name
+     * @param in   entry content
+     */
+    void writeEntry(@NotNull String name, @NotNull InputStream in) throws IOException {
+        int entryId = startEntry(name);
+        byte[] buffer = new byte[MAX_FRAME_SIZE];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            writeEntryData(entryId, buffer, 0, bytesRead);
+        }
+        endEntry(entryId);
+    }
+
+    /**
+     * Returns output stream that writes data to the new entry.
+     * <p>
+     * Entry is ended when returned stream is closed. Closing the returned stream does not close the archive.
+     *
+     * @param name entry name
+     * @return output stream of the entry
+     */
+    OutputStream newEntryStream(@NotNull String name) throws IOException {
+        final int entryId = startEntry(name);
+        return new BufferedOutputStream(new OutputStream() {
+            private boolean closed = false;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(@NotNull byte[] b, int off, int len) throws IOException {
+                writeEntryData(entryId, b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    endEntry(entryId);
+                }
+            }
+        }, MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Writes archive end marker and flushes the underlying stream.
+     * <p>
+     * No entries can be written after calling this method.
+     */
+    synchronized void finish() throws IOException {
+        if (!finished) {
+            finished = true;
+            out.writeByte(ARCHIVE_END);
+            out.flush();
+        }
+    }
+
+    /**
+     * Closes the underlying stream.
+     * <p>
+     * Note that this method does not write archive end marker, so if the archive was not finished by {@link #finish()}, reader will get an
+     * exception.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,249 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Layout of backup archive created by {@link PostgresCopyDatabaseBackup}.
+ * <p>
+ * Archive is written by {@link BackupArchiveWriter} and contains the following entries:
+ * <ul>
+ * <li>{@link #HEADER_ENTRY} - archive properties (e.g. COPY format)</li>
+ * <li>{@link #PRE_DATA_ENTRY} - SQL script creating schema objects required to load data</li>
+ * <li>{@link #SEQUENCES_ENTRY} - SQL script setting sequence values</li>
+ * <li>{@link #POST_DATA_ENTRY} - SQL script creating indexes, constraints, triggers and so on</li>
+ * <li>{@link #DATA_ENTRIES_ENTRY} - names of all data entries following it</li>
+ * <li>Data entries - COPY data of each table. Name of entry consists of {@link #DATA_ENTRY_PREFIX} and the quoted qualified table name.
+ * Large tables might be dumped as several data entries, one per <i>ctid</i> block range, so name of such entry ends with
+ * {@link #RANGE_SEPARATOR} and the range number. Data entries of different tables are interleaved.</li>
+ * </ul>
+ * All entries except data entries precede the table data, so when only some of tables are restored, reading of the archive may stop as
+ * soon as their data entries are read. Archives created by previous versions write sequences and post-data entries last and have no
+ * {@link #DATA_ENTRIES_ENTRY}.
+ */
+final class CopyArchive {
+    static final String HEADER_ENTRY = "header.properties";
+    static final String PRE_DATA_ENTRY = "pre-data.sql";
+    static final String SEQUENCES_ENTRY = "sequences.sql";
+    static final String POST_DATA_ENTRY = "post-data.sql";
+    static final String DATA_ENTRIES_ENTRY = "data-entries";
+    static final String DATA_ENTRY_PREFIX = "data/";
+    static final char RANGE_SEPARATOR = '#';
+
+    private static final String COPY_FORMAT_PROPERTY = "copyFormat";
+    private static final String BINARY_COPY_FORMAT = "binary";
+    private static final String TEXT_COPY_FORMAT = "text";
+
+    private CopyArchive() {
+    }
+
+    /**
+     * Quotes SQL identifier.
+     *
+     * @param identifier identifier to quote
+     * @return quoted identifier
+     */
+    static String quoteIdentifier(@NotNull String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Quotes SQL string literal.
+     *
+     * @param literal string to quote
+     * @return quoted literal
+     */
+    static String quoteLiteral(@NotNull String literal) {
+        return '\'' + literal.replace("'", "''") + '\'';
+    }
+
+    /**
+     * Returns quoted qualified table name.
+     *
+     * @param schema schema name
+     * @param table  table name
+     * @return quoted qualified name
+     */
+    static String qualifiedName(@NotNull String schema, @NotNull String table) {
+        return quoteIdentifier(schema) + "." + quoteIdentifier(table);
+    }
+
+    static String dataEntryName(@NotNull String schema, @NotNull String table) {
+        return DATA_ENTRY_PREFIX + qualifiedName(schema, table);
+    }
+
+    static String dataEntryName(@NotNull String schema, @NotNull String table, int range) {
+        return dataEntryName(schema, table) + RANGE_SEPARATOR + range;
+    }
+
+    static boolean isDataEntry(@NotNull String entryName) {
+        return entryName.startsWith(DATA_ENTRY_PREFIX);
+    }
+
+    /**
+     * Returns quoted qualified table name of data entry.
+     * <p>
+     * Range number is stripped, so all range entries of the same table return the same name.
+     *
+     * @param entryName data entry name
+     * @return quoted qualified table name
+     */
+    static String getQualifiedTableName(@NotNull String entryName) {
+        if (!isDataEntry(entryName)) {
+            throw new IllegalArgumentException("Not a data entry: " + entryName);
+        }
+        // quoted identifiers may contain range separator, so range number is searched after the closing quote
+        int nameEnd = entryName.lastIndexOf('"') + 1;
+        if (nameEnd <= DATA_ENTRY_PREFIX.length()) {
+            throw new IllegalArgumentException("Invalid data entry name: " + entryName);
+        }
+        return entryName.substring(DATA_ENTRY_PREFIX.length(), nameEnd);
+    }
+
+    /**
+     * Splits quoted qualified name into unquoted schema and object names.
+     *
+     * @param qualifiedName name built by {@link #qualifiedName(String, String)}
+     * @return list of schema name and object name
+     */
+    static List<String> splitQualifiedName(@NotNull String qualifiedName) {
+        List<String> names = new ArrayList<>();
+        StringBuilder name = new StringBuilder();
+        int i = 0;
+        while (i < qualifiedName.length()) {
+            if (qualifiedName.charAt(i) != '"') {
+                throw new IllegalArgumentException("Invalid qualified name: " + qualifiedName);
+            }
+            i++;
+            while (true) {
+                if (i >= qualifiedName.length()) {
+                    throw new IllegalArgumentException("Invalid qualified name: " + qualifiedName);
+                }
+                char c = qualifiedName.charAt(i++);
+                if (c == '"') {
+                    if (i < qualifiedName.length() && qualifiedName.charAt(i) == '"') {
+                        name.append('"');
+                        i++;
+                        continue;
+                    }
+                    break;
+                }
+                name.append(c);
+            }
+            names.add(name.toString());
+            name.setLength(0);
+
+            if (i < qualifiedName.length() && qualifiedName.charAt(i++) != '.') {
+                throw new IllegalArgumentException("Invalid qualified name: " + qualifiedName);
+            }
+        }
+
+        if (names.size() != 2) {
+            throw new IllegalArgumentException("Invalid qualified name: " + qualifiedName);
+        }
+        return names;
+    }
+
+    static String buildCopyOutCommand(@NotNull String qualifiedTableName, boolean binary) {
+        return "COPY " + qualifiedTableName + " TO STDOUT" + (binary ? " (FORMAT binary)" : "");
+    }
+
+    /**
+     * Builds command dumping rows of table stored in the given <i>ctid</i> block range.
+     * <p>
+     * The range is scanned efficiently only by PostgreSQL 14 and later (TID range scan).
+     * <p>
+     * Columns must be listed explicitly, so the dumped data matches the one dumped by {@link #buildCopyOutCommand(String, boolean)}
+     * (e.g. generated columns are not dumped).
+     *
+     * @param qualifiedTableName quoted qualified table name
+     * @param columns            quoted column names
+     * @param startBlock         first block of the range
+     * @param endBlock           block following the last block of the range or {@literal null} if the range is not bounded
+     * @param binary             whether to dump in binary format
+     * @return COPY command
+     */
+    static String buildRangeCopyOutCommand(@NotNull String qualifiedTableName, @NotNull List<String> columns, long startBlock,
+                                           @Nullable Long endBlock, boolean binary) {
+        // tuple offsets start from 1, so '(N,0)' precedes all tuples of block N
+        String condition = "ctid >= '(" + startBlock + ",0)'::pg_catalog.tid";
+        if (endBlock != null) {
+            condition += " AND ctid < '(" + endBlock + ",0)'::pg_catalog.tid";
+        }
+        return "COPY (SELECT " + String.join(", ", columns) + " FROM ONLY " + qualifiedTableName + " WHERE " + condition + ") TO STDOUT" +
+                (binary ? " (FORMAT binary)" : "");
+    }
+
+    static String buildCopyInCommand(@NotNull String qualifiedTableName, boolean binary) {
+        return "COPY " + qualifiedTableName + " FROM STDIN" + (binary ? " (FORMAT binary)" : "");
+    }
+
+    static InputStream buildHeader(boolean binary) throws IOException {
+        Properties header = new Properties();
+        header.setProperty(COPY_FORMAT_PROPERTY, binary ? BINARY_COPY_FORMAT : TEXT_COPY_FORMAT);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        header.store(out, null);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    static InputStream buildDataEntries(@NotNull List<String> entryNames) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(entryNames.size());
+        for (String entryName : entryNames) {
+            dataOut.writeUTF(entryName);
+        }
+        dataOut.flush();
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**
+     * Reads {@link #DATA_ENTRIES_ENTRY}.
+     *
+     * @param in entry content
+     * @return names of data entries
+     */
+    static List<String> readDataEntries(@NotNull InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        int count = dataIn.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid backup archive: malformed data entries count: " + count);
+        }
+
+        List<String> entryNames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entryNames.add(dataIn.readUTF());
+        }
+        return entryNames;
+    }
+
+    /**
+     * Reads header entry.
+     *
+     * @param in header entry content
+     * @return {@literal true} if table data is dumped in binary COPY format
+     */
+    static boolean readBinaryCopyFormat(@NotNull InputStream in) throws IOException {
+        Properties header = new Properties();
+        header.load(in);
+
+        String copyFormat = header.getProperty(COPY_FORMAT_PROPERTY, TEXT_COPY_FORMAT);
+        switch (copyFormat) {
+            case BINARY_COPY_FORMAT: {
+                return true;
+            }
+            case TEXT_COPY_FORMAT: {
+                return false;
+            }
+            default: {
+                throw new IOException("Invalid backup archive: unknown COPY format " + copyFormat);
+            }
+        }
+    }
+}
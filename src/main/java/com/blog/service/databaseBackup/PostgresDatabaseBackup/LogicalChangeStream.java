@@ -0,0 +1,272 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+import org.postgresql.PGConnection;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes of PostgreSQL database decoded by <i>test_decoding</i> output plugin from logical replication slot.
+ * <p>
+ * The slot is created together with the stream. Until {@link #start()} is called, the snapshot exported on slot creation is valid, so
+ * the full backup of exactly the data preceding captured changes can be created using {@link #getSnapshot()}.
+ * <p>
+ * Changes are written into segment files as records of WAL position, message length and message text (see
+ * {@link TestDecodingReplayer}). Every segment contains whole transactions. Closing the stream drops the replication slot.
+ */
+public class LogicalChangeStream implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LogicalChangeStream.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final int STATUS_INTERVAL_SECONDS = 10;
+
+    private static final int RECORD_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final Connection connection;
+
+    private final String slotName;
+
+    private final String snapshot;
+
+    private final long consistentPoint;
+
+    private final Runnable slotDropper;
+
+    private PGReplicationStream stream;
+
+    LogicalChangeStream(@NotNull Connection connection, @NotNull String slotName, @NotNull String snapshot, long consistentPoint,
+                        @NotNull Runnable slotDropper) {
+        this.connection = Objects.requireNonNull(connection);
+        this.slotName = Objects.requireNonNull(slotName);
+        this.snapshot = Objects.requireNonNull(snapshot);
+        this.consistentPoint = consistentPoint;
+        this.slotDropper = Objects.requireNonNull(slotDropper);
+    }
+
+    private static boolean startsWith(byte[] message, byte[] prefix) {
+        if (message.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (message[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns identifier of the snapshot exported on slot creation.
+     * <p>
+     * The snapshot is valid only until the stream is started.
+     */
+    @NotNull
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns WAL position, from which changes are captured.
+     */
+    public long getConsistentPoint() {
+        return consistentPoint;
+    }
+
+    /**
+     * Starts streaming changes.
+     */
+    public void start() {
+        try {
+            stream = connection.unwrap(PGConnection.class).getReplicationAPI()
+                    .replicationStream()
+                    .logical()
+                    .withSlotName(slotName)
+                    .withStartPosition(LogSequenceNumber.valueOf(consistentPoint))
+                    .withSlotOption("include-xids", false)
+                    .withSlotOption("skip-empty-xacts", true)
+                    .withStatusInterval(STATUS_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                    .start();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error starting logical replication stream of slot " + slotName, ex);
+        }
+
+        logger.info("Logical replication stream started. Slot: {}. Start position: {}", slotName,
+                PostgresChangeCapture.formatLsn(consistentPoint));
+    }
+
+    /**
+     * Waits for captured transactions and writes them into segment file.
+     * <p>
+     * Segment is completed after a transaction commit, when the segment size exceeds the limit or the segment is collected for longer
+     * than the time limit. Segment never contains partial transactions and is never empty. The caller must delete the segment file.
+     *
+     * @param maxBytes  segment size limit
+     * @param maxMillis time limit of collecting segment
+     * @return captured segment
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    @NotNull
+    public ChangeBatch takeBatch(long maxBytes, long maxMillis) throws InterruptedException {
+        byte[] beginPrefix = "BEGIN".getBytes(StandardCharsets.US_ASCII);
+        byte[] commitPrefix = "COMMIT".getBytes(StandardCharsets.US_ASCII);
+
+        Path segmentFile;
+        try {
+            segmentFile = Files.createTempFile("pg_changes_", ".dat");
+        } catch (IOException ex) {
+            throw new RuntimeException("Error creating temporary file for captured changes", ex);
+        }
+
+        long startNanos = System.nanoTime();
+        long startLsn = -1;
+        long endLsn = -1;
+        long size = 0;
+        boolean inTransaction = false;
+        boolean completed = false;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentFile)))) {
+            while (true) {
+                boolean timeLimitExceeded = System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(maxMillis);
+                if (!inTransaction && endLsn != -1 && (size >= maxBytes || timeLimitExceeded)) {
+                    break;
+                }
+
+                ByteBuffer buffer = stream.readPending();
+                if (buffer == null) {
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                    continue;
+                }
+
+                byte[] message = new byte[buffer.remaining()];
+                buffer.get(message);
+                long lsn = stream.getLastReceiveLSN().asLong();
+
+                out.writeLong(lsn);
+                out.writeInt(message.length);
+                out.write(message);
+                size += RECORD_HEADER_SIZE + message.length;
+
+                if (startsWith(message, beginPrefix)) {
+                    inTransaction = true;
+                    if (startLsn == -1) {
+                        startLsn = lsn;
+                    }
+                } else if (startsWith(message, commitPrefix)) {
+                    inTransaction = false;
+                    endLsn = lsn;
+                }
+            }
+            completed = true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error writing captured changes into file " + segmentFile, ex);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error reading logical replication stream of slot " + slotName, ex);
+        } finally {
+            if (!completed) {
+                try {
+                    Files.deleteIfExists(segmentFile);
+                } catch (IOException ex) {
+                    logger.error("Error deleting temporary file {}", segmentFile, ex);
+                }
+            }
+        }
+
+        return new ChangeBatch(segmentFile, startLsn, endLsn);
+    }
+
+    /**
+     * Reports to the server that changes up to the position are saved, so WAL preceding it is not retained anymore.
+     *
+     * @param lsn WAL position
+     */
+    public void confirm(long lsn) {
+        LogSequenceNumber confirmedLsn = LogSequenceNumber.valueOf(lsn);
+        stream.setAppliedLSN(confirmedLsn);
+        stream.setFlushedLSN(confirmedLsn);
+        try {
+            stream.forceUpdateStatus();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error confirming position of logical replication slot " + slotName, ex);
+        }
+    }
+
+    /**
+     * Stops streaming and drops the replication slot.
+     */
+    @Override
+    public void close() {
+        // the stream is usually closed because of interrupt, but the slot must be dropped anyway
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (stream != null) {
+                stream.close();
+            }
+        } catch (SQLException ex) {
+            logger.error("Error closing logical replication stream of slot {}", slotName, ex);
+        }
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            logger.error("Error closing logical replication connection of slot {}", slotName, ex);
+        }
+        try {
+            slotDropper.run();
+        } catch (RuntimeException ex) {
+            logger.error("Error dropping logical replication slot {}", slotName, ex);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("Logical replication stream stopped. Slot: {}", slotName);
+    }
+
+    /**
+     * Segment file of captured changes.
+     */
+    public static final class ChangeBatch {
+        private final Path file;
+
+        private final long startLsn;
+
+        private final long endLsn;
+
+        ChangeBatch(Path file, long startLsn, long endLsn) {
+            this.file = file;
+            this.startLsn = startLsn;
+            this.endLsn = endLsn;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * Returns WAL position of the first transaction of the segment.
+         */
+        public long getStartLsn() {
+            return startLsn;
+        }
+
+        /**
+         * Returns WAL position of the commit of the last transaction of the segment.
+         */
+        public long getEndLsn() {
+            return endLsn;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.service.databaseBackup.RestoreFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Filters statements of SQL script created by <i>pg_dump</i> using {@link RestoreFilter}.
+ * <p>
+ * <i>pg_dump</i> precedes each dumped object with header comment containing object name, type and schema (e.g.
+ * {@code -- Name: comments; Type: TABLE; Schema: public; Owner: postgres}). Statements following the header up to the next header belong
+ * to the same object, so statements are accepted or rejected together with their object. Statements preceding the first header and
+ * session setting statements are always accepted.
+ * <p>
+ * Tables, views, sequences and their data are matched by their names. Objects belonging to a table (e.g. indexes, constraints, defaults
+ * and triggers) are restored together with the table. If table include patterns are set, other objects (e.g. schemas, functions and
+ * types) are not restored, otherwise they are restored if their schema matches. Note, that a sequence owned by a table is a separate
+ * object, so it should be matched by the filter too.
+ */
+class PgDumpScriptFilter {
+    private static final Pattern HEADER_PATTERN = Pattern.compile(
+            "^--\\s+(?:Data for )?Name: (.+); Type: ([^;\\n]+); Schema: ([^;\\n]+);", Pattern.MULTILINE);
+
+    private static final String IDENTIFIER = "(\"(?:[^\"]|\"\")+\"|[^\\s.\"(]+)";
+
+    private static final Pattern INDEX_TABLE_PATTERN = Pattern.compile(
+            "\\sON\\s+(?:ONLY\\s+)?" + IDENTIFIER + "(?:\\." + IDENTIFIER + ")?", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Types of objects, whose name is a relation name.
+     */
+    private static final Set<String> RELATION_TYPES = new HashSet<>(Arrays.asList("TABLE", "VIEW", "MATERIALIZED VIEW", "SEQUENCE",
+            "FOREIGN TABLE", "TABLE DATA", "MATERIALIZED VIEW DATA", "SEQUENCE SET", "SEQUENCE OWNED BY", "TABLE ATTACH", "ROW SECURITY"));
+
+    /**
+     * Types of objects, whose name consists of table name and object name separated by space.
+     */
+    private static final Set<String> TABLE_OBJECT_TYPES = new HashSet<>(Arrays.asList("CONSTRAINT", "FK CONSTRAINT", "CHECK CONSTRAINT",
+            "DEFAULT", "TRIGGER", "RULE", "POLICY"));
+
+    /**
+     * Types of objects, whose name consists of type and name of the object they are attached to (e.g. {@code TABLE comments}).
+     */
+    private static final Set<String> ATTACHED_OBJECT_TYPES = new HashSet<>(Arrays.asList("COMMENT", "ACL", "SECURITY LABEL"));
+
+    private static final String[] RELATION_PREFIXES = {"TABLE ", "VIEW ", "MATERIALIZED VIEW ", "SEQUENCE ", "FOREIGN TABLE "};
+
+    private static final String NO_SCHEMA = "-";
+
+    private final RestoreFilter filter;
+
+    private boolean currentObjectAccepted = true;
+
+    PgDumpScriptFilter(@NotNull RestoreFilter filter) {
+        this.filter = Objects.requireNonNull(filter);
+    }
+
+    /**
+     * Filters the whole script.
+     *
+     * @param script script reader
+     * @param filter restore filter
+     * @return accepted statements separated by new lines
+     */
+    static String filterScript(@NotNull Reader script, @NotNull RestoreFilter filter) throws IOException {
+        PgDumpScriptFilter scriptFilter = new PgDumpScriptFilter(filter);
+        SqlScriptSplitter splitter = new SqlScriptSplitter(script);
+
+        StringBuilder filteredScript = new StringBuilder();
+        String sql;
+        while ((sql = splitter.nextStatement()) != null) {
+            if (scriptFilter.accept(sql)) {
+                filteredScript.append(sql).append('\n');
+            }
+        }
+        return filteredScript.toString();
+    }
+
+    private static String unquoteIdentifier(String identifier) {
+        if (identifier.startsWith("\"")) {
+            return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+        }
+        return identifier;
+    }
+
+    /**
+     * Returns name of the table the object belongs to or {@literal null} if the object does not belong to any table.
+     */
+    @Nullable
+    private static String getRelationName(String type, String name, String body) {
+        if (RELATION_TYPES.contains(type)) {
+            return name;
+        }
+        if (TABLE_OBJECT_TYPES.contains(type)) {
+            int separator = name.indexOf(' ');
+            return separator == -1 ? null : name.substring(0, separator);
+        }
+        if (type.equals("INDEX")) {
+            Matcher matcher = INDEX_TABLE_PATTERN.matcher(body);
+            if (!matcher.find()) {
+                return null;
+            }
+            return unquoteIdentifier(matcher.group(2) != null ? matcher.group(2) : matcher.group(1));
+        }
+        if (ATTACHED_OBJECT_TYPES.contains(type)) {
+            for (String prefix : RELATION_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    return name.substring(prefix.length());
+                }
+            }
+            if (name.startsWith("COLUMN ") && name.lastIndexOf('.') != -1) {
+                return name.substring("COLUMN ".length(), name.lastIndexOf('.'));
+            }
+            int tableSeparator = name.lastIndexOf(" ON ");
+            if (tableSeparator != -1) {
+                return name.substring(tableSeparator + " ON ".length());
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccepted(String type, String name, String schema, String body) {
+        String relation = getRelationName(type, name, body);
+        if (relation != null) {
+            return !schema.equals(NO_SCHEMA) && filter.matchesTable(schema, relation);
+        }
+        if (filter.hasTableIncludes()) {
+            return false;
+        }
+
+        // schemas and objects attached to them have no schema
+        if (type.equals("SCHEMA")) {
+            return filter.matchesSchema(name);
+        }
+        if (ATTACHED_OBJECT_TYPES.contains(type) && name.startsWith("SCHEMA ")) {
+            return filter.matchesSchema(name.substring("SCHEMA ".length()));
+        }
+        // database-wide objects (e.g. extensions) are restored only with the whole backup
+        return !schema.equals(NO_SCHEMA) && filter.matchesSchema(schema);
+    }
+
+    /**
+     * Checks whether the next statement of the script should be restored.
+     * <p>
+     * Statements must be passed in script order.
+     *
+     * @param statement statement with leading comments
+     * @return {@literal true} if the statement should be restored
+     */
+    boolean accept(@NotNull String statement) {
+        if (filter.isEmpty()) {
+            return true;
+        }
+
+        String body = SqlScriptSplitter.stripLeadingComments(statement);
+        Matcher matcher = HEADER_PATTERN.matcher(statement.substring(0, statement.length() - body.length()));
+        if (matcher.find()) {
+            currentObjectAccepted = isAccepted(matcher.group(2), matcher.group(1), matcher.group(3), body);
+        }
+
+        return currentObjectAccepted || PostgresParallelRestore.isSessionStatement(body);
+    }
+}
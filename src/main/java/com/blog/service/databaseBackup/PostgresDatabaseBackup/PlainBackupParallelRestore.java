@@ -0,0 +1,192 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.service.databaseBackup.RestoreFilter;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Restores plain-format SQL script created by <i>pg_dump</i> in parallel using {@link PostgresParallelRestore}.
+ * <p>
+ * The script is parsed as it is read:
+ * <ul>
+ * <li>Statements preceding the first {@code COPY ... FROM stdin} statement are restored as pre-data</li>
+ * <li>Data of each {@code COPY ... FROM stdin} statement is streamed to the next free restore connection</li>
+ * <li>The rest statements (sequence values, indexes, constraints, triggers and so on) are restored as post-data after all table data
+ * is loaded</li>
+ * </ul>
+ * So the order of <i>pg_dump</i> sections is preserved: tables are created before their data is loaded, and indexes and constraints
+ * are created after that.
+ * <p>
+ * Statements and table data not matching {@link RestoreFilter} are skipped as they are read (see {@link PgDumpScriptFilter}).
+ */
+class PlainBackupParallelRestore {
+    private static final Logger logger = LoggerFactory.getLogger(PlainBackupParallelRestore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of script beginning that is searched for client encoding setting.
+     */
+    private static final int SCRIPT_HEADER_SIZE = 64 * 1024;
+
+    private static final Pattern CLIENT_ENCODING_PATTERN = Pattern.compile("^SET\\s+client_encoding\\s*=\\s*'([^']*)'\\s*;",
+            Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+    private static final Pattern COPY_FROM_STDIN_PATTERN = Pattern.compile("^COPY\\s.*\\sFROM\\s+stdin\\s*;$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * Java charsets of PostgreSQL client encodings.
+     * <p>
+     * Scripts are restored through JDBC, which always uses UTF-8, so scripts of other encodings are transcoded.
+     */
+    private static final Map<String, String> CHARSETS = new HashMap<>();
+
+    static {
+        CHARSETS.put("UTF8", "UTF-8");
+        CHARSETS.put("LATIN1", "ISO-8859-1");
+        CHARSETS.put("LATIN2", "ISO-8859-2");
+        CHARSETS.put("LATIN9", "ISO-8859-15");
+        CHARSETS.put("WIN1250", "windows-1250");
+        CHARSETS.put("WIN1251", "windows-1251");
+        CHARSETS.put("WIN1252", "windows-1252");
+        CHARSETS.put("KOI8R", "KOI8-R");
+        CHARSETS.put("KOI8U", "KOI8-U");
+        CHARSETS.put("EUC_JP", "EUC-JP");
+        CHARSETS.put("EUC_KR", "EUC-KR");
+        CHARSETS.put("SJIS", "Shift_JIS");
+    }
+
+    private final PostgresParallelRestore parallelRestore;
+
+    private final RestoreFilter filter;
+
+    PlainBackupParallelRestore(@NotNull PostgresParallelRestore parallelRestore, @NotNull RestoreFilter filter) {
+        this.parallelRestore = Objects.requireNonNull(parallelRestore);
+        this.filter = Objects.requireNonNull(filter);
+    }
+
+    /**
+     * Detects charset of the script by its {@code SET client_encoding} statement.
+     * <p>
+     * The stream position is not changed.
+     *
+     * @param in the stream of plain-format script
+     * @return charset of the script or empty optional if encoding is not set or is not supported (e.g. {@literal SQL_ASCII})
+     */
+    static Optional<Charset> detectCharset(@NotNull BufferedInputStream in) throws IOException {
+        in.mark(SCRIPT_HEADER_SIZE);
+        String header;
+        try {
+            // encoding setting is ASCII text, which is preserved by single byte charset regardless of actual encoding
+            header = new String(in.readNBytes(SCRIPT_HEADER_SIZE), StandardCharsets.ISO_8859_1);
+        } finally {
+            in.reset();
+        }
+
+        Matcher matcher = CLIENT_ENCODING_PATTERN.matcher(header);
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+
+        String charsetName = CHARSETS.get(matcher.group(1).toUpperCase());
+        if (charsetName == null || !Charset.isSupported(charsetName)) {
+            return Optional.empty();
+        }
+        return Optional.of(Charset.forName(charsetName));
+    }
+
+    /**
+     * Restores the script.
+     * <p>
+     * UTF-8 script is parsed without decoding, so its table data is passed to the server as is. Scripts of other encodings are
+     * transcoded.
+     *
+     * @param script  script stream
+     * @param charset charset of the script
+     * @throws RuntimeException if loading of any table data failed
+     */
+    void restore(@NotNull InputStream script, @NotNull Charset charset) throws SQLException, IOException, InterruptedException {
+        SqlScriptSplitter splitter = charset.equals(StandardCharsets.UTF_8) ? new SqlScriptSplitter(script) :
+                new SqlScriptSplitter(new InputStreamReader(script, charset));
+        PgDumpScriptFilter scriptFilter = new PgDumpScriptFilter(filter);
+
+        StringBuilder preData = new StringBuilder();
+        StringBuilder postData = new StringBuilder();
+        boolean dataStarted = false;
+        int tables = 0;
+        int skippedTables = 0;
+
+        String sql;
+        while ((sql = splitter.nextStatement()) != null) {
+            String body = SqlScriptSplitter.stripLeadingComments(sql);
+            boolean accepted = scriptFilter.accept(sql);
+
+            if (CLIENT_ENCODING_PATTERN.matcher(body).find()) {
+                // script is sent in UTF-8
+                continue;
+            }
+
+            if (!COPY_FROM_STDIN_PATTERN.matcher(body).matches()) {
+                if (!accepted) {
+                    continue;
+                }
+                if (dataStarted) {
+                    postData.append(sql).append('\n');
+                } else {
+                    preData.append(sql).append('\n');
+                }
+                continue;
+            }
+
+            if (!dataStarted) {
+                parallelRestore.restorePreData(new StringReader(preData.toString()));
+                preData = null;
+                dataStarted = true;
+            }
+
+            if (!accepted) {
+                splitter.readCopyData(OutputStream.nullOutputStream());
+                skippedTables++;
+                continue;
+            }
+
+            // waits for a free connection, so the script is read no faster than table data is loaded
+            String copyInCommand = body.substring(0, body.length() - 1);
+            PostgresParallelRestore.TableDataOutputStream tableDataStream = parallelRestore.startTableData(copyInCommand);
+            try {
+                OutputStream out = new BufferedOutputStream(tableDataStream, BUFFER_SIZE);
+                splitter.readCopyData(out);
+                out.close();
+            } catch (IOException ex) {
+                tableDataStream.abort();
+                if (!(ex instanceof InterruptedIOException)) {
+                    // failed table data load closes its stream, so report the original error in such case
+                    parallelRestore.checkTableDataErrors();
+                }
+                throw ex;
+            }
+            tables++;
+        }
+
+        if (!dataStarted) {
+            parallelRestore.restorePreData(new StringReader(preData.toString()));
+        }
+        logger.info("Plain-format script fully read. COPY statements: {}. Skipped COPY statements: {}", tables, skippedTables);
+
+        parallelRestore.awaitTableData();
+        parallelRestore.restorePostData(new StringReader(postData.toString()));
+    }
+}
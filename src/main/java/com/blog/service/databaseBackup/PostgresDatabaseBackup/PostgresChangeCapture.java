@@ -0,0 +1,200 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.entities.database.DatabaseSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures changes of PostgreSQL database between full backups using logical decoding and replays them on restoration.
+ * <p>
+ * Changes are decoded by <i>test_decoding</i> output plugin, which is shipped with PostgreSQL and available on most managed hosts. The
+ * server must be configured with {@code wal_level} set to {@literal logical} and free WAL senders and replication slots.
+ * <p>
+ * Logical decoding does not capture DDL and sequence changes, so the schema must not be changed while changes are captured. Sequences are
+ * advanced on replay.
+ */
+@Service
+public class PostgresChangeCapture {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresChangeCapture.class);
+
+    private static final String SLOT_NAME_PREFIX = "dbbackuptool_changes_";
+
+    private static final long SLOT_RELEASE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Returns name of logical replication slot used to capture changes following the full backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @return replication slot name
+     */
+    public static String getSlotName(@NotNull Integer backupPropertiesId) {
+        return SLOT_NAME_PREFIX + backupPropertiesId;
+    }
+
+    /**
+     * Parses WAL position in textual form (e.g. {@literal 16/B374D848}).
+     *
+     * @param lsn WAL position
+     * @return WAL position as a number
+     * @throws IllegalArgumentException if the position is malformed
+     */
+    public static long parseLsn(@NotNull String lsn) {
+        int separatorIndex = lsn.indexOf('/');
+        if (separatorIndex == -1) {
+            throw new IllegalArgumentException("Malformed WAL position: " + lsn);
+        }
+        try {
+            long high = Long.parseLong(lsn.substring(0, separatorIndex), 16);
+            long low = Long.parseLong(lsn.substring(separatorIndex + 1), 16);
+            if (high < 0 || high > 0xFFFFFFFFL || low < 0 || low > 0xFFFFFFFFL) {
+                throw new IllegalArgumentException("Malformed WAL position: " + lsn);
+            }
+            return high << 32 | low;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed WAL position: " + lsn, ex);
+        }
+    }
+
+    /**
+     * Formats WAL position in textual form used by PostgreSQL.
+     *
+     * @param lsn WAL position
+     * @return WAL position in textual form
+     */
+    public static String formatLsn(long lsn) {
+        return String.format("%X/%X", lsn >>> 32, lsn & 0xFFFFFFFFL);
+    }
+
+    private void dropSlot(DatabaseSettings databaseSettings, String slotName) {
+        try {
+            if (PostgresConnections.dropReplicationSlot(databaseSettings, slotName, SLOT_RELEASE_TIMEOUT_MILLIS)) {
+                logger.info("Logical replication slot dropped. Slot: {}", slotName);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for release of logical replication slot " + slotName);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error dropping logical replication slot " + slotName, ex);
+        }
+    }
+
+    /**
+     * Drops logical replication slot used to capture changes following the full backup if it still exists.
+     * <p>
+     * Usually you don't want to call this method directly, since the slot is dropped on closing of the change stream. Use it to revert
+     * change capture tasks, stream of which could not drop the slot.
+     *
+     * @param databaseSettings   database settings
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     */
+    public void dropSlot(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+
+        dropSlot(databaseSettings, getSlotName(backupPropertiesId));
+    }
+
+    /**
+     * Creates logical replication slot and returns stream of changes captured by it.
+     * <p>
+     * The full backup must be created using snapshot of the stream before starting it (see
+     * {@link PostgresDatabaseBackup#createBackup(DatabaseSettings, String, Integer)}), so the captured changes follow exactly the data of
+     * the full backup.
+     *
+     * @param databaseSettings   database settings
+     * @param backupPropertiesId identifier of backup properties of the full backup
+     * @return not started stream. It must be closed to drop the replication slot
+     */
+    @NotNull
+    public LogicalChangeStream createChangeStream(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+
+        String slotName = getSlotName(backupPropertiesId);
+        logger.info("Creating logical replication slot {}. Database: {}", slotName, databaseSettings.getName());
+
+        Connection connection;
+        try {
+            connection = PostgresConnections.openReplication(databaseSettings);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error opening logical replication connection", ex);
+        }
+
+        String snapshot;
+        long consistentPoint;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("CREATE_REPLICATION_SLOT \"" + slotName + "\" LOGICAL test_decoding")) {
+            resultSet.next();
+            consistentPoint = parseLsn(resultSet.getString("consistent_point"));
+            snapshot = resultSet.getString("snapshot_name");
+        } catch (SQLException ex) {
+            try {
+                connection.close();
+            } catch (SQLException closeEx) {
+                ex.addSuppressed(closeEx);
+            }
+            throw new RuntimeException("Error creating logical replication slot " + slotName, ex);
+        }
+
+        logger.info("Logical replication slot {} created. Consistent point: {}. Snapshot: {}", slotName, formatLsn(consistentPoint),
+                snapshot);
+
+        return new LogicalChangeStream(connection, slotName, snapshot, consistentPoint, () -> dropSlot(databaseSettings, slotName));
+    }
+
+    /**
+     * Replays captured changes into the database.
+     * <p>
+     * Segments are read lazily and closed after replay. Segments following the target position are not read.
+     *
+     * @param databaseSettings database settings of the database the full backup was restored into
+     * @param segments         segments in order of WAL positions
+     * @param targetLsn        WAL position, transactions committed after which are not replayed. If null, all changes are replayed
+     */
+    public void replayChanges(@NotNull DatabaseSettings databaseSettings, @NotNull Iterator<InputStream> segments,
+                              @Nullable Long targetLsn) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(segments);
+
+        logger.info("Replaying captured changes into database {}. Target position: {}", databaseSettings.getName(),
+                targetLsn == null ? "latest" : formatLsn(targetLsn));
+
+        // maximal unsigned position
+        long target = targetLsn == null ? -1 : targetLsn;
+        try (Connection connection = PostgresConnections.open(databaseSettings)) {
+            TestDecodingReplayer replayer = new TestDecodingReplayer(connection, target);
+            boolean targetReached = false;
+            while (!targetReached && segments.hasNext()) {
+                try (InputStream segment = segments.next()) {
+                    // segment is read lazily, so the thread might be interrupted while downloading it
+                    if (Thread.interrupted()) {
+                        throw new InterruptedIOException();
+                    }
+                    targetReached = !replayer.replay(segment);
+                }
+            }
+            replayer.finish();
+        } catch (InterruptedIOException ex) {
+            logger.error("Replay of captured changes was interrupted. Database: {}", databaseSettings.getName());
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading captured changes", ex);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error replaying captured changes into database " + databaseSettings.getName(), ex);
+        }
+
+        logger.info("Captured changes successfully replayed. Database: {}", databaseSettings.getName());
+    }
+}
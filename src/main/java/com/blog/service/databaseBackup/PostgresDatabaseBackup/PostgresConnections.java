@@ -0,0 +1,145 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.entities.database.DatabaseSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.Properties;
+
+/**
+ * Utility methods to open JDBC connections to the database described by {@link DatabaseSettings}.
+ */
+final class PostgresConnections {
+    private static final long SLOT_RELEASE_POLL_INTERVAL_MILLIS = 200;
+
+    private PostgresConnections() {
+    }
+
+    private static String buildUrl(@NotNull DatabaseSettings databaseSettings) {
+        return "jdbc:postgresql://" + databaseSettings.getHost() + ":" + databaseSettings.getPort() + "/" +
+                URLEncoder.encode(databaseSettings.getName(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens a new connection.
+     *
+     * @param databaseSettings database settings
+     * @return opened connection
+     */
+    static Connection open(@NotNull DatabaseSettings databaseSettings) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", databaseSettings.getLogin());
+        properties.setProperty("password", databaseSettings.getPassword());
+        properties.setProperty("ApplicationName", "DatabaseBackupTool");
+
+        return DriverManager.getConnection(buildUrl(databaseSettings), properties);
+    }
+
+    /**
+     * Opens a new logical replication connection.
+     * <p>
+     * Replication connection accepts only simple query protocol and replication commands (e.g. {@code CREATE_REPLICATION_SLOT}).
+     *
+     * @param databaseSettings database settings
+     * @return opened connection
+     */
+    static Connection openReplication(@NotNull DatabaseSettings databaseSettings) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", databaseSettings.getLogin());
+        properties.setProperty("password", databaseSettings.getPassword());
+        properties.setProperty("ApplicationName", "DatabaseBackupTool");
+        properties.setProperty("replication", "database");
+        properties.setProperty("assumeMinServerVersion", "9.4");
+        properties.setProperty("preferQueryMode", "simple");
+
+        return DriverManager.getConnection(buildUrl(databaseSettings), properties);
+    }
+
+    /**
+     * Opens a new connection and starts read-only repeatable read transaction.
+     * <p>
+     * If snapshot is passed, transaction will see the same data as the transaction that exported the snapshot.
+     *
+     * @param databaseSettings database settings
+     * @param snapshot         snapshot identifier returned by {@code pg_export_snapshot()}
+     * @return opened connection
+     */
+    static Connection openSnapshotTransaction(@NotNull DatabaseSettings databaseSettings, @Nullable String snapshot) throws SQLException {
+        Connection connection = open(databaseSettings);
+        try {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+
+            if (snapshot != null) {
+                // must be the first statement of transaction
+                try (PreparedStatement statement = connection.prepareStatement("SET TRANSACTION SNAPSHOT '" +
+                        snapshot.replace("'", "''") + "'")) {
+                    statement.execute();
+                }
+            }
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+        return connection;
+    }
+
+    /**
+     * Exports snapshot of the current transaction.
+     *
+     * @param connection connection with opened repeatable read transaction
+     * @return snapshot identifier
+     */
+    static String exportSnapshot(@NotNull Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_catalog.pg_export_snapshot()")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    /**
+     * Drops replication slot if it exists.
+     * <p>
+     * The server releases the slot shortly after the replication connection is closed, so the slot is dropped once it becomes inactive.
+     * If it is still active after the timeout, dropping is tried anyway.
+     *
+     * @param databaseSettings database settings of any database of the cluster
+     * @param slotName         replication slot name
+     * @param releaseTimeout   max time in milliseconds to wait for release of the slot
+     * @return {@literal true} if the slot existed and was dropped
+     */
+    static boolean dropReplicationSlot(@NotNull DatabaseSettings databaseSettings, @NotNull String slotName, long releaseTimeout)
+            throws SQLException, InterruptedException {
+        long deadline = System.currentTimeMillis() + releaseTimeout;
+        try (Connection connection = open(databaseSettings);
+             PreparedStatement selectStatement = connection.prepareStatement(
+                     "SELECT active FROM pg_catalog.pg_replication_slots WHERE slot_name = ?");
+             PreparedStatement dropStatement = connection.prepareStatement("SELECT pg_catalog.pg_drop_replication_slot(?)")) {
+            selectStatement.setString(1, slotName);
+            dropStatement.setString(1, slotName);
+            while (true) {
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    if (!resultSet.getBoolean(1) || System.currentTimeMillis() > deadline) {
+                        dropStatement.execute();
+                        return true;
+                    }
+                }
+                Thread.sleep(SLOT_RELEASE_POLL_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    static CopyManager getCopyManager(@NotNull Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+}
@@ -0,0 +1,901 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.entities.backup.BackupFormat;
+import com.blog.entities.database.DatabaseSettings;
+import com.blog.entities.database.PostgresSettings;
+import com.blog.service.ErrorCallbackService;
+import com.blog.service.databaseBackup.DatabaseBackup;
+import com.blog.service.databaseBackup.RestoreFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Implementation of {@link DatabaseBackup} interface for PostgreSQL that dumps table data in-process using <i>COPY</i> protocol.
+ * <p>
+ * Backup is created the following way:
+ * <ol>
+ * <li>Coordinator connection starts repeatable read transaction and exports its snapshot using {@code pg_export_snapshot()}</li>
+ * <li>Pre-data and post-data schema sections are dumped by <i>pg_dump</i> using the exported snapshot and written into the archive before
+ * table data</li>
+ * <li>Worker connections import the snapshot and dump table data in parallel using {@code COPY ... TO STDOUT}</li>
+ * </ol>
+ * So the dumped data is consistent as if it was dumped in single transaction. Number of worker connections is set by
+ * {@link PostgresSettings#getBackupJobs()} and COPY format by {@link PostgresSettings#isBinaryCopy()}.
+ * <p>
+ * Tables not smaller than {@link PostgresSettings#getSplitTableThresholdMb()} are split into {@link PostgresSettings#getSplitTableJobs()}
+ * <i>ctid</i> block ranges, each of which is dumped by separate {@code COPY (SELECT ... WHERE ctid ...) TO STDOUT} command, so a single
+ * large table can be dumped by several workers concurrently. Tables are split only on PostgreSQL 14 and later, which scan block ranges
+ * efficiently (TID range scan). Older versions would scan the whole table for each range, so tables are dumped by single command there.
+ * <p>
+ * Created backup is streamed as backup archive of {@link BackupFormat#COPY_ARCHIVE} format (see {@link CopyArchive}). Table data is written
+ * into the archive as soon as it is received from the server.
+ * <p>
+ * Large objects are not dumped.
+ */
+@Service
+public class PostgresCopyDatabaseBackup implements DatabaseBackup {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresCopyDatabaseBackup.class);
+
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private static final String USER_RELATIONS_CONDITION =
+            "n.nspname <> 'information_schema' AND n.nspname !~ '^pg_' AND c.relpersistence <> 't' AND " +
+                    "NOT EXISTS (SELECT 1 FROM pg_catalog.pg_depend d " +
+                    "WHERE d.classid = 'pg_catalog.pg_class'::pg_catalog.regclass AND d.objid = c.oid AND d.deptype = 'e')";
+
+    /**
+     * Selects user tables. The largest tables are dumped first to balance work between workers.
+     */
+    private static final String SELECT_TABLES_QUERY =
+            "SELECT c.oid, n.nspname, c.relname, pg_catalog.pg_relation_size(c.oid) AS size " +
+                    "FROM pg_catalog.pg_class c JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                    "WHERE c.relkind = 'r' AND " + USER_RELATIONS_CONDITION + " ORDER BY size DESC";
+
+    /**
+     * Selects columns dumped by plain {@code COPY table TO STDOUT} command.
+     */
+    private static final String SELECT_COLUMNS_QUERY =
+            "SELECT a.attname FROM pg_catalog.pg_attribute a WHERE a.attrelid = ?::pg_catalog.oid AND a.attnum > 0 AND " +
+                    "NOT a.attisdropped";
+
+    /**
+     * Generated columns are supported since PostgreSQL 12.
+     */
+    private static final String NOT_GENERATED_COLUMN_CONDITION = " AND a.attgenerated = ''";
+
+    /**
+     * Selects change counters of user tables. Columns signature is a digest of names and types of columns.
+     */
+    private static final String SELECT_TABLE_STATISTICS_QUERY =
+            "SELECT n.nspname, c.relname, COALESCE(s.n_tup_ins, 0), COALESCE(s.n_tup_upd, 0), COALESCE(s.n_tup_del, 0), " +
+                    "pg_catalog.pg_relation_size(c.oid), pg_catalog.pg_relation_filenode(c.oid), " +
+                    "COALESCE((SELECT pg_catalog.md5(pg_catalog.string_agg(a.attname || ':' || a.atttypid || ':' || a.atttypmod, ',' " +
+                    "ORDER BY a.attnum)) FROM pg_catalog.pg_attribute a WHERE a.attrelid = c.oid AND a.attnum > 0 AND " +
+                    "NOT a.attisdropped), '') " +
+                    "FROM pg_catalog.pg_class c JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                    "LEFT JOIN pg_catalog.pg_stat_user_tables s ON s.relid = c.oid " +
+                    "WHERE c.relkind = 'r' AND " + USER_RELATIONS_CONDITION;
+
+    private static final String SELECT_SEQUENCES_QUERY =
+            "SELECT n.nspname, c.relname, pg_catalog.pg_get_userbyid(c.relowner) " +
+                    "FROM pg_catalog.pg_class c JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                    "WHERE c.relkind = 'S' AND " + USER_RELATIONS_CONDITION;
+
+    private PostgresDatabaseBackup postgresDatabaseBackup;
+
+    private ErrorCallbackService errorCallbackService;
+
+    private ExecutorService postgresExecutorService;
+
+    /**
+     * Whether tables are split only on servers supporting TID range scan. Splitting on older servers is correct, but slow.
+     */
+    private boolean tidRangeScanRequired = true;
+
+    @Autowired
+    public void setPostgresDatabaseBackup(PostgresDatabaseBackup postgresDatabaseBackup) {
+        this.postgresDatabaseBackup = postgresDatabaseBackup;
+    }
+
+    @Autowired
+    public void setErrorCallbackService(ErrorCallbackService errorCallbackService) {
+        this.errorCallbackService = errorCallbackService;
+    }
+
+    @Autowired
+    public void setPostgresExecutorService(ExecutorService postgresExecutorService) {
+        this.postgresExecutorService = postgresExecutorService;
+    }
+
+    /**
+     * Allows to split tables on servers without TID range scan, so table splitting can be tested on any server.
+     */
+    void setTidRangeScanRequired(boolean tidRangeScanRequired) {
+        this.tidRangeScanRequired = tidRangeScanRequired;
+    }
+
+    private static boolean isPipeClosed(@Nullable Throwable ex) {
+        while (ex != null) {
+            if (ex instanceof IOException && "Pipe closed".equals(ex.getMessage())) {
+                return true;
+            }
+            ex = ex.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@link BackupFormat#COPY_ARCHIVE}, since this is the only format created by this engine.
+     */
+    @NotNull
+    public BackupFormat getBackupFormat(@NotNull DatabaseSettings databaseSettings) {
+        return BackupFormat.COPY_ARCHIVE;
+    }
+
+    /**
+     * Creates PostgreSQL database backup.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param id               create backup task ID
+     * @return input stream, from which backup archive can be read
+     */
+    @NotNull
+    public InputStream createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        return createBackup(databaseSettings, Collections.emptySet(), id);
+    }
+
+    /**
+     * Creates PostgreSQL database backup without data of some tables.
+     * <p>
+     * Schema of skipped tables is dumped, so their data can be restored from another backup (see
+     * {@link #restoreBackupChain(InputStream, Map, Function, int, RestoreFilter, DatabaseSettings, Integer)}).
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param skippedTables    quoted qualified names of tables, data of which is not dumped
+     * @param id               create backup task ID
+     * @return input stream, from which backup archive can be read
+     */
+    @NotNull
+    public InputStream createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Set<String> skippedTables, @NotNull Integer id) {
+        PostgresSettings postgresSettings = databaseSettings.getPostgresSettings().orElseGet(PostgresSettings::new);
+        int jobs = Math.max(1, postgresSettings.getBackupJobs());
+        boolean binary = postgresSettings.isBinaryCopy();
+
+        logger.info("Creating PostgreSQL backup of database {} hosted on address {}:{} using COPY. Jobs: {}. Binary format: {}. " +
+                        "Table split threshold: {} MB. Table split jobs: {}", databaseSettings.getName(), databaseSettings.getHost(),
+                databaseSettings.getPort(), jobs, binary, postgresSettings.getSplitTableThresholdMb(),
+                postgresSettings.getSplitTableJobs());
+        if (!skippedTables.isEmpty()) {
+            logger.info("Data of {} tables is not dumped. Database: {}", skippedTables.size(), databaseSettings.getName());
+        }
+
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        BackupArchiveWriter archiveWriter;
+        try {
+            archiveWriter = new BackupArchiveWriter(new PipedOutputStream(in));
+        } catch (IOException ex) {
+            throw new RuntimeException("Error initializing PostgreSQL backup streaming", ex);
+        }
+
+        postgresExecutorService.submit(new CopyBackupCoordinator(databaseSettings, postgresSettings, jobs, binary, skippedTables,
+                archiveWriter, id));
+
+        logger.info("PostgreSQL backup creation started. Database: {}", databaseSettings.getName());
+
+        return in;
+    }
+
+    /**
+     * Reads change counters of all user tables of the database.
+     * <p>
+     * Statistics are collected by the server asynchronously, so changes committed just before the call might not be counted yet.
+     *
+     * @param databaseSettings database settings
+     * @return statistics by quoted qualified table names
+     */
+    @NotNull
+    public Map<String, TableStatistics> readTableStatistics(@NotNull DatabaseSettings databaseSettings) {
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        try (Connection connection = PostgresConnections.open(databaseSettings);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_TABLE_STATISTICS_QUERY)) {
+            while (resultSet.next()) {
+                statistics.put(CopyArchive.qualifiedName(resultSet.getString(1), resultSet.getString(2)),
+                        new TableStatistics(resultSet.getLong(3), resultSet.getLong(4), resultSet.getLong(5), resultSet.getLong(6),
+                                resultSet.getLong(7), resultSet.getString(8)));
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error reading table statistics of database " + databaseSettings.getName(), ex);
+        }
+
+        logger.info("Table statistics read. Tables: {}. Database: {}", statistics.size(), databaseSettings.getName());
+
+        return statistics;
+    }
+
+    /**
+     * Restores PostgreSQL database backup of {@link BackupFormat#COPY_ARCHIVE} format.
+     * <p>
+     * Backup is restored by {@link PostgresParallelRestore} in three phases: pre-data schema, table data and post-data schema with
+     * sequence values. Table data is restored as the archive is read: each data entry is streamed over its own connection. Data entries
+     * of different tables are interleaved in the archive, so if all connections are busy, data entry is saved into temporary directory
+     * and restored after the archive is read.
+     * <p>
+     * Data entries of tables not matching the filter are skipped, and schema statements are filtered by {@link PgDumpScriptFilter}.
+     * Archive lists its data entries before them, so reading stops as soon as data entries of all matching tables are read.
+     *
+     * @param in               the input stream to read backup from
+     * @param format           backup format. Must be {@link BackupFormat#COPY_ARCHIVE}
+     * @param jobs             number of concurrent connections
+     * @param filter           tables and schemas to restore
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     */
+    public void restoreBackup(@NotNull InputStream in, @NotNull BackupFormat format, int jobs, @NotNull RestoreFilter filter,
+                              @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        if (format != BackupFormat.COPY_ARCHIVE) {
+            throw new RuntimeException("Can't restore PostgreSQL backup: unsupported backup format: " + format);
+        }
+
+        logger.info("Restoring PostgreSQL backup to database {} hosted on address {}:{} using COPY. Jobs: {}. Filter: {}",
+                databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort(), jobs, filter);
+
+        PostgresParallelRestore parallelRestore = new PostgresParallelRestore(databaseSettings, jobs);
+        CopyArchiveRestoreHandler restoreHandler = new CopyArchiveRestoreHandler(parallelRestore, filter, null, id);
+        try {
+            readArchive(in, restoreHandler, parallelRestore);
+            restoreHandler.completeRestoration();
+        } catch (InterruptedException | InterruptedIOException ex) {
+            logger.error("PostgreSQL backup restoration was interrupted. Database: {}", databaseSettings.getName());
+            Thread.currentThread().interrupt();
+            return;
+        } catch (SQLException | IOException ex) {
+            throw new RuntimeException("Error restoring PostgreSQL backup", ex);
+        } finally {
+            parallelRestore.close();
+            restoreHandler.deleteSpoolDirectory();
+        }
+
+        logger.info("PostgreSQL database backup successfully restored. Database: {}", databaseSettings.getName());
+    }
+
+    /**
+     * Restores PostgreSQL database backup, data of some tables of which is restored from earlier backups.
+     * <p>
+     * Schema and data of the latest backup are restored as by {@link #restoreBackup(InputStream, BackupFormat, int, RestoreFilter,
+     * DatabaseSettings, Integer)}. Then only data entries of the given tables are restored from each base backup, and the rest of base
+     * backup archive is skipped. Post-data of the latest backup is restored after data of all backups is loaded.
+     *
+     * @param in               the input stream to read the latest backup from
+     * @param baseBackupTables quoted qualified names of tables to restore from each base backup, by base backup identifiers
+     * @param baseBackupOpener opens input stream of base backup by its identifier
+     * @param jobs             number of concurrent connections
+     * @param filter           tables and schemas to restore
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     */
+    public void restoreBackupChain(@NotNull InputStream in, @NotNull Map<Integer, Set<String>> baseBackupTables,
+                                   @NotNull Function<Integer, InputStream> baseBackupOpener, int jobs, @NotNull RestoreFilter filter,
+                                   @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        logger.info("Restoring PostgreSQL backup chain to database {} hosted on address {}:{} using COPY. Base backups: {}. Jobs: {}. " +
+                        "Filter: {}", databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort(),
+                baseBackupTables.keySet(), jobs, filter);
+
+        PostgresParallelRestore parallelRestore = new PostgresParallelRestore(databaseSettings, jobs);
+        List<CopyArchiveRestoreHandler> restoreHandlers = new ArrayList<>();
+        try {
+            CopyArchiveRestoreHandler latestRestoreHandler = new CopyArchiveRestoreHandler(parallelRestore, filter, null, id);
+            restoreHandlers.add(latestRestoreHandler);
+            readArchive(in, latestRestoreHandler, parallelRestore);
+            latestRestoreHandler.loadSpooledEntries();
+
+            for (Map.Entry<Integer, Set<String>> baseBackup : baseBackupTables.entrySet()) {
+                logger.info("Restoring data of {} tables from base backup {}", baseBackup.getValue().size(), baseBackup.getKey());
+
+                CopyArchiveRestoreHandler baseRestoreHandler = new CopyArchiveRestoreHandler(parallelRestore, filter,
+                        baseBackup.getValue(), id);
+                restoreHandlers.add(baseRestoreHandler);
+                try (InputStream baseIn = baseBackupOpener.apply(baseBackup.getKey())) {
+                    if (baseIn == null) {
+                        throw new InterruptedIOException();
+                    }
+                    readArchive(baseIn, baseRestoreHandler, parallelRestore);
+                }
+                baseRestoreHandler.loadSpooledEntries();
+            }
+
+            parallelRestore.awaitTableData();
+            latestRestoreHandler.restorePostData();
+        } catch (InterruptedException | InterruptedIOException ex) {
+            logger.error("PostgreSQL backup restoration was interrupted. Database: {}", databaseSettings.getName());
+            Thread.currentThread().interrupt();
+            return;
+        } catch (SQLException | IOException ex) {
+            throw new RuntimeException("Error restoring PostgreSQL backup", ex);
+        } finally {
+            parallelRestore.close();
+            for (CopyArchiveRestoreHandler restoreHandler : restoreHandlers) {
+                restoreHandler.deleteSpoolDirectory();
+            }
+        }
+
+        logger.info("PostgreSQL database backup chain successfully restored. Database: {}", databaseSettings.getName());
+    }
+
+    private void readArchive(@NotNull InputStream in, @NotNull CopyArchiveRestoreHandler restoreHandler,
+                             @NotNull PostgresParallelRestore parallelRestore) throws IOException, InterruptedException {
+        try {
+            new BackupArchiveReader(in).read(restoreHandler);
+        } catch (InterruptedIOException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            // failed table data load closes its stream, so archive reading fails too. Report the original error in such case
+            parallelRestore.checkTableDataErrors();
+            throw ex;
+        }
+    }
+
+    /**
+     * Builds script that sets current values of all sequences.
+     * <p>
+     * Each statement is preceded by <i>pg_dump</i> header comment, so the script can be filtered by {@link PgDumpScriptFilter}.
+     */
+    private byte[] dumpSequences(@NotNull Connection connection) throws SQLException {
+        Map<String, String> sequences = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_SEQUENCES_QUERY)) {
+            while (resultSet.next()) {
+                String header = "--\n-- Name: " + resultSet.getString(2) + "; Type: SEQUENCE SET; Schema: " + resultSet.getString(1) +
+                        "; Owner: " + resultSet.getString(3) + "\n--\n\n";
+                sequences.put(CopyArchive.qualifiedName(resultSet.getString(1), resultSet.getString(2)), header);
+            }
+        }
+
+        StringBuilder script = new StringBuilder();
+        for (Map.Entry<String, String> sequenceEntry : sequences.entrySet()) {
+            String sequence = sequenceEntry.getKey();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT last_value, is_called FROM " + sequence)) {
+                resultSet.next();
+                script.append(sequenceEntry.getValue())
+                        .append("SELECT pg_catalog.setval(").append(CopyArchive.quoteLiteral(sequence)).append(", ")
+                        .append(resultSet.getLong(1)).append(", ").append(resultSet.getBoolean(2)).append(");\n");
+            }
+        }
+
+        return script.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns quoted names of columns dumped by {@code COPY table TO STDOUT} command in order of their dumping.
+     */
+    private List<String> selectColumns(@NotNull Connection connection, long tableOid) throws SQLException {
+        String query = SELECT_COLUMNS_QUERY;
+        if (connection.getMetaData().getDatabaseMajorVersion() >= 12) {
+            query += NOT_GENERATED_COLUMN_CONDITION;
+        }
+        query += " ORDER BY a.attnum";
+
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, tableOid);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.add(CopyArchive.quoteIdentifier(resultSet.getString(1)));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private long selectBlockSize(@NotNull Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_catalog.current_setting('block_size')")) {
+            resultSet.next();
+            return Long.parseLong(resultSet.getString(1));
+        }
+    }
+
+    /**
+     * Returns COPY tasks dumping all tables except skipped ones.
+     * <p>
+     * Tables not smaller than the split threshold are split into block ranges if the server supports TID range scans. Tasks of the
+     * largest tables come first.
+     */
+    private List<CopyTask> planCopyTasks(@NotNull Connection connection, @NotNull PostgresSettings postgresSettings, boolean binary,
+                                         @NotNull Set<String> skippedTables) throws SQLException {
+        long splitThreshold = postgresSettings.getSplitTableThresholdMb() * 1024L * 1024L;
+        int splitJobs = postgresSettings.getSplitTableJobs();
+        boolean splitEnabled = splitThreshold > 0 && splitJobs > 1;
+        // TID range scan is supported since PostgreSQL 14, older versions scan the whole table for each range
+        if (splitEnabled && tidRangeScanRequired && connection.getMetaData().getDatabaseMajorVersion() < 14) {
+            logger.info("Tables are not split into block ranges: TID range scan requires PostgreSQL 14 or later");
+            splitEnabled = false;
+        }
+
+        List<CopyTask> tasks = new ArrayList<>();
+        Long blockSize = null;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_TABLES_QUERY)) {
+            while (resultSet.next()) {
+                long oid = resultSet.getLong(1);
+                String schema = resultSet.getString(2);
+                String table = resultSet.getString(3);
+                long size = resultSet.getLong(4);
+                String qualifiedTableName = CopyArchive.qualifiedName(schema, table);
+                if (skippedTables.contains(qualifiedTableName)) {
+                    logger.debug("Data of table {} is not dumped", qualifiedTableName);
+                    continue;
+                }
+
+                List<String> columns = splitEnabled && size >= splitThreshold ? selectColumns(connection, oid) : Collections.emptyList();
+                if (columns.isEmpty()) {
+                    tasks.add(new CopyTask(CopyArchive.dataEntryName(schema, table),
+                            CopyArchive.buildCopyOutCommand(qualifiedTableName, binary)));
+                    continue;
+                }
+
+                if (blockSize == null) {
+                    blockSize = selectBlockSize(connection);
+                }
+                long blocks = Math.max(1, size / blockSize);
+                int ranges = (int) Math.min(splitJobs, blocks);
+                long blocksPerRange = (blocks + ranges - 1) / ranges;
+
+                logger.info("Table {} of size {} MB is split into {} ranges of {} blocks", qualifiedTableName, size / 1024 / 1024, ranges,
+                        blocksPerRange);
+
+                for (int range = 0; range < ranges; range++) {
+                    // the last range is not bounded, so rows in blocks added after size calculation are not lost
+                    Long endBlock = (range == ranges - 1) ? null : (range + 1) * blocksPerRange;
+                    tasks.add(new CopyTask(CopyArchive.dataEntryName(schema, table, range),
+                            CopyArchive.buildRangeCopyOutCommand(qualifiedTableName, columns, range * blocksPerRange, endBlock,
+                                    binary)));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Describes COPY command dumping the whole table or its part into the single data entry.
+     */
+    private static class CopyTask {
+        private final String entryName;
+
+        private final String command;
+
+        CopyTask(String entryName, String command) {
+            this.entryName = entryName;
+            this.command = command;
+        }
+    }
+
+    /**
+     * Buffer of schema entry. Remembers whether the entry is completed.
+     */
+    private static class SchemaEntryBuffer extends ByteArrayOutputStream {
+        private boolean completed = false;
+
+        @Override
+        public void close() {
+            completed = true;
+        }
+
+        InputStream getInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    /**
+     * Restores entries of backup archive as they are read.
+     * <p>
+     * Header and schema entries are buffered in memory. Pre-data is restored when the first data entry starts, since pre-data entry is
+     * completed before any data entry. Post-data is restored after all table data is loaded.
+     * <p>
+     * Data entries of tables not matching the filter are skipped. If the archive lists its data entries, reading is stopped once all
+     * schema entries and data entries of matching tables are read.
+     * <p>
+     * In data-only mode only data entries of the given tables are restored, and schema of the archive is ignored.
+     */
+    private class CopyArchiveRestoreHandler implements BackupArchiveReader.EntryHandler {
+        private final PostgresParallelRestore parallelRestore;
+
+        private final RestoreFilter filter;
+
+        /**
+         * Tables to restore data of in data-only mode or {@literal null} if the whole archive is restored.
+         */
+        private final Set<String> dataOnlyTables;
+
+        private final Integer id;
+
+        private final Set<String> startedEntries = new HashSet<>();
+
+        private final Map<String, SchemaEntryBuffer> schemaEntries = new HashMap<>();
+
+        /**
+         * Files of data entries that could not be loaded while reading the archive, by entry names.
+         */
+        private final Map<String, Path> spooledEntries = new LinkedHashMap<>();
+
+        private Path spoolDirectory;
+
+        private boolean preDataRestored = false;
+
+        private boolean binary;
+
+        /**
+         * Data entries of matching tables that are not read yet or {@literal null} if the archive does not list its data entries.
+         */
+        private Set<String> pendingDataEntries;
+
+        CopyArchiveRestoreHandler(PostgresParallelRestore parallelRestore, RestoreFilter filter, @Nullable Set<String> dataOnlyTables,
+                                  Integer id) {
+            this.parallelRestore = parallelRestore;
+            this.filter = filter;
+            this.dataOnlyTables = dataOnlyTables;
+            this.id = id;
+        }
+
+        @Nullable
+        @Override
+        public OutputStream onEntryStart(@NotNull String name) throws IOException {
+            if (!startedEntries.add(name)) {
+                throw new IOException("Invalid backup archive: duplicate entry " + name);
+            }
+
+            switch (name) {
+                case CopyArchive.PRE_DATA_ENTRY:
+                case CopyArchive.SEQUENCES_ENTRY:
+                case CopyArchive.POST_DATA_ENTRY:
+                    if (dataOnlyTables != null) {
+                        return null;
+                    }
+                    // fall through
+                case CopyArchive.HEADER_ENTRY:
+                case CopyArchive.DATA_ENTRIES_ENTRY: {
+                    SchemaEntryBuffer buffer = new SchemaEntryBuffer();
+                    schemaEntries.put(name, buffer);
+                    return buffer;
+                }
+            }
+
+            if (!CopyArchive.isDataEntry(name)) {
+                logger.warn("Unknown entry of backup archive skipped: {}", name);
+                return null;
+            }
+            if (!isMatchingDataEntry(name)) {
+                logger.debug("Data entry of backup archive skipped by filter: {}", name);
+                return null;
+            }
+
+            try {
+                restorePreData();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException();
+            } catch (SQLException ex) {
+                throw new IOException("Error restoring pre-data", ex);
+            }
+
+            OutputStream tableDataStream = parallelRestore.tryStartTableData(buildCopyInCommand(name));
+            if (tableDataStream != null) {
+                return tableDataStream;
+            }
+
+            // all connections are busy loading other entries, which must be read further to complete, so the entry is saved
+            if (spoolDirectory == null) {
+                spoolDirectory = Files.createTempDirectory("pg_copy_restore_" + id + "_");
+            }
+            Path file = spoolDirectory.resolve("entry_" + spooledEntries.size());
+            spooledEntries.put(name, file);
+            return new BufferedOutputStream(Files.newOutputStream(file), PIPE_BUFFER_SIZE);
+        }
+
+        @Override
+        public boolean onEntryEnd(@NotNull String name) throws IOException {
+            if (filter.isEmpty() && dataOnlyTables == null) {
+                return true;
+            }
+
+            if (name.equals(CopyArchive.DATA_ENTRIES_ENTRY)) {
+                pendingDataEntries = new HashSet<>();
+                for (String dataEntry : CopyArchive.readDataEntries(schemaEntries.get(name).getInputStream())) {
+                    if (isMatchingDataEntry(dataEntry)) {
+                        pendingDataEntries.add(dataEntry);
+                    }
+                }
+                logger.info("Data entries to restore: {}", pendingDataEntries.size());
+            } else if (pendingDataEntries != null) {
+                pendingDataEntries.remove(name);
+            }
+
+            if (pendingDataEntries == null || !pendingDataEntries.isEmpty()) {
+                return true;
+            }
+            List<String> requiredSchemaEntries = dataOnlyTables != null ? Collections.singletonList(CopyArchive.HEADER_ENTRY) :
+                    Arrays.asList(CopyArchive.HEADER_ENTRY, CopyArchive.PRE_DATA_ENTRY, CopyArchive.SEQUENCES_ENTRY,
+                            CopyArchive.POST_DATA_ENTRY);
+            for (String schemaEntry : requiredSchemaEntries) {
+                SchemaEntryBuffer buffer = schemaEntries.get(schemaEntry);
+                if (buffer == null || !buffer.completed) {
+                    return true;
+                }
+            }
+
+            logger.info("All matching entries of backup archive are read. Skipping the rest of the archive");
+            return false;
+        }
+
+        @Override
+        public void onEntryAbort(@NotNull OutputStream entryStream) throws IOException {
+            if (entryStream instanceof PostgresParallelRestore.TableDataOutputStream) {
+                ((PostgresParallelRestore.TableDataOutputStream) entryStream).abort();
+            } else {
+                entryStream.close();
+            }
+        }
+
+        private boolean isMatchingDataEntry(@NotNull String entryName) {
+            String qualifiedTableName = CopyArchive.getQualifiedTableName(entryName);
+            if (dataOnlyTables != null && !dataOnlyTables.contains(qualifiedTableName)) {
+                return false;
+            }
+            if (filter.isEmpty()) {
+                return true;
+            }
+            List<String> names = CopyArchive.splitQualifiedName(qualifiedTableName);
+            return filter.matchesTable(names.get(0), names.get(1));
+        }
+
+        /**
+         * Returns reader of schema script. Statements not matching the filter are excluded.
+         */
+        private Reader openSchemaScript(@NotNull InputStream script) throws IOException {
+            Reader reader = new InputStreamReader(script, StandardCharsets.UTF_8);
+            if (filter.isEmpty()) {
+                return reader;
+            }
+            return new StringReader(PgDumpScriptFilter.filterScript(reader, filter));
+        }
+
+        private String buildCopyInCommand(@NotNull String entryName) {
+            return CopyArchive.buildCopyInCommand(CopyArchive.getQualifiedTableName(entryName), binary);
+        }
+
+        private SchemaEntryBuffer getCompletedSchemaEntry(@NotNull String name) throws IOException {
+            SchemaEntryBuffer buffer = schemaEntries.get(name);
+            if (buffer == null || !buffer.completed) {
+                throw new IOException("Invalid backup archive: missing entry " + name);
+            }
+            return buffer;
+        }
+
+        private void restorePreData() throws SQLException, IOException, InterruptedException {
+            if (preDataRestored) {
+                return;
+            }
+
+            SchemaEntryBuffer header = getCompletedSchemaEntry(CopyArchive.HEADER_ENTRY);
+            binary = CopyArchive.readBinaryCopyFormat(header.getInputStream());
+            if (dataOnlyTables != null) {
+                // schema is restored from another archive
+                preDataRestored = true;
+                return;
+            }
+
+            InputStream preData = getCompletedSchemaEntry(CopyArchive.PRE_DATA_ENTRY).getInputStream();
+            parallelRestore.restorePreData(openSchemaScript(preData));
+            preDataRestored = true;
+        }
+
+        /**
+         * Restores the rest of the backup after the whole archive is read.
+         */
+        void completeRestoration() throws SQLException, IOException, InterruptedException {
+            loadSpooledEntries();
+            parallelRestore.awaitTableData();
+            restorePostData();
+        }
+
+        /**
+         * Starts loading of data entries saved while reading the archive. Must be called after the whole archive is read.
+         */
+        void loadSpooledEntries() throws SQLException, IOException, InterruptedException {
+            restorePreData();
+
+            for (Map.Entry<String, Path> spooledEntry : spooledEntries.entrySet()) {
+                parallelRestore.loadTableData(buildCopyInCommand(spooledEntry.getKey()),
+                        new BufferedInputStream(Files.newInputStream(spooledEntry.getValue()), PIPE_BUFFER_SIZE));
+            }
+        }
+
+        /**
+         * Restores sequence values and post-data. Must be called after all table data is loaded.
+         */
+        void restorePostData() throws SQLException, IOException, InterruptedException {
+            // sequence values are set at the beginning of post-data phase
+            InputStream postData = getCompletedSchemaEntry(CopyArchive.POST_DATA_ENTRY).getInputStream();
+            SchemaEntryBuffer sequences = schemaEntries.get(CopyArchive.SEQUENCES_ENTRY);
+            if (sequences != null) {
+                postData = new SequenceInputStream(sequences.getInputStream(), postData);
+            }
+            parallelRestore.restorePostData(openSchemaScript(postData));
+        }
+
+        void deleteSpoolDirectory() {
+            if (spoolDirectory == null) {
+                return;
+            }
+            try {
+                FileSystemUtils.deleteRecursively(spoolDirectory);
+            } catch (IOException ex) {
+                logger.error("Error deleting temporary directory {}", spoolDirectory, ex);
+            }
+        }
+    }
+
+    /**
+     * Coordinates backup creation: exports snapshot, dumps schema and runs workers dumping table data.
+     */
+    private class CopyBackupCoordinator implements Runnable {
+        private DatabaseSettings databaseSettings;
+
+        private PostgresSettings postgresSettings;
+
+        private int jobs;
+
+        private boolean binary;
+
+        private Set<String> skippedTables;
+
+        private BackupArchiveWriter archiveWriter;
+
+        private Integer id;
+
+        CopyBackupCoordinator(DatabaseSettings databaseSettings, PostgresSettings postgresSettings, int jobs, boolean binary,
+                              Set<String> skippedTables, BackupArchiveWriter archiveWriter, Integer id) {
+            this.databaseSettings = databaseSettings;
+            this.postgresSettings = postgresSettings;
+            this.jobs = jobs;
+            this.binary = binary;
+            this.skippedTables = skippedTables;
+            this.archiveWriter = archiveWriter;
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            ExecutorService workersExecutorService = null;
+
+            try (Connection connection = PostgresConnections.openSnapshotTransaction(databaseSettings, null)) {
+                String snapshot = PostgresConnections.exportSnapshot(connection);
+                logger.debug("PostgreSQL snapshot exported: {}. Database: {}", snapshot, databaseSettings.getName());
+
+                List<CopyTask> tasks = planCopyTasks(connection, postgresSettings, binary, skippedTables);
+                byte[] sequences = dumpSequences(connection);
+                byte[] preData = postgresDatabaseBackup.dumpSchemaSection(databaseSettings, "pre-data", snapshot);
+                byte[] postData = postgresDatabaseBackup.dumpSchemaSection(databaseSettings, "post-data", snapshot);
+
+                archiveWriter.writeEntry(CopyArchive.HEADER_ENTRY, CopyArchive.buildHeader(binary));
+                archiveWriter.writeEntry(CopyArchive.PRE_DATA_ENTRY, new ByteArrayInputStream(preData));
+                archiveWriter.writeEntry(CopyArchive.SEQUENCES_ENTRY, new ByteArrayInputStream(sequences));
+                archiveWriter.writeEntry(CopyArchive.POST_DATA_ENTRY, new ByteArrayInputStream(postData));
+                List<String> dataEntries = new ArrayList<>();
+                for (CopyTask task : tasks) {
+                    dataEntries.add(task.entryName);
+                }
+                archiveWriter.writeEntry(CopyArchive.DATA_ENTRIES_ENTRY, CopyArchive.buildDataEntries(dataEntries));
+
+                Queue<CopyTask> tasksQueue = new ConcurrentLinkedQueue<>(tasks);
+                int workers = Math.max(1, Math.min(jobs, tasks.size()));
+                workersExecutorService = Executors.newFixedThreadPool(workers);
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    futures.add(workersExecutorService.submit(new CopyWorker(databaseSettings, snapshot, tasksQueue,
+                            archiveWriter)));
+                }
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+
+                archiveWriter.finish();
+
+                connection.commit();
+                logger.info("PostgreSQL backup fully streamed. Data entries: {}. Database: {}", tasks.size(), databaseSettings.getName());
+            } catch (ExecutionException ex) {
+                onError(ex.getCause());
+            } catch (SQLException | IOException | RuntimeException ex) {
+                onError(ex);
+            } catch (InterruptedException ex) {
+                // this thread might be interrupted only by the shutdown() method on executor service destroying
+                logger.info("PostgreSQL backup creation was interrupted. Database: {}", databaseSettings.getName());
+            } finally {
+                if (workersExecutorService != null) {
+                    workersExecutorService.shutdownNow();
+                }
+                try {
+                    archiveWriter.close();
+                } catch (IOException ex) {
+                    logger.error("Error closing PostgreSQL backup stream", ex);
+                }
+            }
+        }
+
+        private void onError(Throwable ex) {
+            // if stream is closed, that means work was interrupted, so it is not an error
+            if (isPipeClosed(ex)) {
+                logger.info("PostgreSQL backup stream closed. Stopping backup creation. Database: {}", databaseSettings.getName());
+                return;
+            }
+            errorCallbackService.onError(new RuntimeException("Error occurred while creating PostgreSQL backup", ex), id);
+        }
+    }
+
+    /**
+     * Dumps table data under the exported snapshot.
+     * <p>
+     * Worker takes COPY tasks from the shared queue until the queue is empty.
+     */
+    private class CopyWorker implements Callable<Void> {
+        private DatabaseSettings databaseSettings;
+
+        private String snapshot;
+
+        private Queue<CopyTask> tasksQueue;
+
+        private BackupArchiveWriter archiveWriter;
+
+        CopyWorker(DatabaseSettings databaseSettings, String snapshot, Queue<CopyTask> tasksQueue, BackupArchiveWriter archiveWriter) {
+            this.databaseSettings = databaseSettings;
+            this.snapshot = snapshot;
+            this.tasksQueue = tasksQueue;
+            this.archiveWriter = archiveWriter;
+        }
+
+        @Override
+        public Void call() throws SQLException, IOException, InterruptedException {
+            try (Connection connection = PostgresConnections.openSnapshotTransaction(databaseSettings, snapshot)) {
+                CopyManager copyManager = PostgresConnections.getCopyManager(connection);
+
+                CopyTask task;
+                while ((task = tasksQueue.poll()) != null) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    logger.debug("Dumping data entry {}", task.entryName);
+
+                    OutputStream entryStream = archiveWriter.newEntryStream(task.entryName);
+                    long rows = copyManager.copyOut(task.command, entryStream);
+                    // entry is ended only if the whole table or range is dumped
+                    entryStream.close();
+
+                    logger.debug("Data entry {} dumped. Rows: {}", task.entryName, rows);
+                }
+
+                connection.commit();
+            }
+            return null;
+        }
+    }
+}
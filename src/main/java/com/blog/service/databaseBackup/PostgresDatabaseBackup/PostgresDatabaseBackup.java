@@ -1,20 +1,44 @@
 package com.blog.service.databaseBackup.PostgresDatabaseBackup;
 
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.database.DatabaseSettings;
+import com.blog.entities.database.PostgresSettings;
 import com.blog.service.ErrorCallbackService;
 import com.blog.service.databaseBackup.DatabaseBackup;
 import com.blog.service.databaseBackup.PostgresDatabaseBackup.Errors.InternalPostgresToolError;
+import com.blog.service.databaseBackup.RestoreFilter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Implementation of {@link DatabaseBackup} interface for PostgreSQL.
@@ -22,8 +46,39 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class PostgresDatabaseBackup implements DatabaseBackup {
     private static final Logger logger = LoggerFactory.getLogger(PostgresDatabaseBackup.class);
+    /**
+     * Message printed by <i>pg_dump</i> in verbose mode when parallel worker completes dumping of table data.
+     */
+    private static final Pattern finishedItemPattern = Pattern.compile("finished item (\\d+) TABLE DATA");
+    /**
+     * Table of contents file of directory format dump. It is written by <i>pg_dump</i> last.
+     */
+    private static final String TOC_FILENAME = "toc.dat";
+    private static final String CUSTOM_DUMP_FILENAME = "dump.custom";
+    private static final String RESTORE_LIST_FILENAME = "restore.list";
+    private static final String RESTORE_SCRIPT_FILENAME = "restore.sql";
+    /**
+     * Table data item of archive table of contents listed by <i>pg_restore</i>: {@code ID; tableoid oid TABLE DATA schema table owner}.
+     */
+    private static final Pattern tableDataListItemPattern = Pattern.compile(
+            "^\\d+;\\s+\\d+\\s+\\d+\\s+TABLE DATA\\s+(\\S+)\\s+(.+)\\s+(\\S+)$");
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] PSQL_QUIT_COMMAND = "\n\\q\n".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Tool concatenating backup part files into input of <i>psql</i>.
+     */
+    private static final String CAT_TOOL_PATH = "cat";
+    /**
+     * Formats handled by {@link #restoreBackup(InputStream, BackupFormat, int, RestoreFilter, DatabaseSettings, Integer)}. Backups of other
+     * formats are not created, so a backup is never uploaded that can't be restored.
+     */
+    private static final Set<BackupFormat> RESTORABLE_FORMATS = Collections.unmodifiableSet(
+            EnumSet.of(BackupFormat.PLAIN, BackupFormat.CUSTOM, BackupFormat.DIRECTORY));
+
     private String pgDumpToolPath;
     private String psqlToolPath;
+    private String pgRestoreToolPath;
 
     private ErrorCallbackService errorCallbackService;
 
@@ -39,6 +94,11 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
         this.psqlToolPath = psqlToolPath;
     }
 
+    @Autowired
+    public void setPgRestoreToolPath(String pgRestoreToolPath) {
+        this.pgRestoreToolPath = pgRestoreToolPath;
+    }
+
     @Autowired
     public void setErrorCallbackService(ErrorCallbackService errorCallbackService) {
         this.errorCallbackService = errorCallbackService;
@@ -68,13 +128,110 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
     }
 
     private List<String> buildBackupCommand(DatabaseSettings databaseSettings) {
+        return buildBackupCommand(databaseSettings, null);
+    }
+
+    private List<String> buildBackupCommand(DatabaseSettings databaseSettings, @Nullable String snapshot) {
+        ArrayList<String> command = new ArrayList<>();
+
+        command.add(pgDumpToolPath);
+        command = addCommandParam(command, "-h", databaseSettings.getHost());
+        command = addCommandParam(command, "-p", Integer.toString(databaseSettings.getPort()));
+        command = addCommandParam(command, "-F", "p");
+        if (snapshot != null) {
+            command.add("--snapshot=" + snapshot);
+        }
+        command = addCommandParam(command, "-d", databaseSettings.getName());
+
+        return command;
+    }
+
+    private List<String> buildDirectoryBackupCommand(DatabaseSettings databaseSettings, PostgresSettings postgresSettings,
+                                                     Path dumpDirectory) {
+        ArrayList<String> command = new ArrayList<>();
+
+        command.add(pgDumpToolPath);
+        command = addCommandParam(command, "-h", databaseSettings.getHost());
+        command = addCommandParam(command, "-p", Integer.toString(databaseSettings.getPort()));
+        command = addCommandParam(command, "-F", "d");
+        command = addCommandParam(command, "-j", Integer.toString(Math.max(1, postgresSettings.getBackupJobs())));
+        // compression is the task of processors
+        command = addCommandParam(command, "-Z", "0");
+        // verbose mode is required to know when table data file is completely written
+        command = addCommandParam(command, "-v", null);
+        command = addCommandParam(command, "-f", dumpDirectory.toString());
+        command = addCommandParam(command, "-d", databaseSettings.getName());
+
+        return command;
+    }
+
+    private List<String> buildCustomBackupCommand(DatabaseSettings databaseSettings, Path dumpFile) {
+        ArrayList<String> command = new ArrayList<>();
+
+        command.add(pgDumpToolPath);
+        command = addCommandParam(command, "-h", databaseSettings.getHost());
+        command = addCommandParam(command, "-p", Integer.toString(databaseSettings.getPort()));
+        command = addCommandParam(command, "-F", "c");
+        command = addCommandParam(command, "-Z", "0");
+        // dump is written into file rather than stdout, so pg_dump can save data offsets required by parallel pg_restore
+        command = addCommandParam(command, "-f", dumpFile.toString());
+        command = addCommandParam(command, "-d", databaseSettings.getName());
+
+        return command;
+    }
+
+    private List<String> buildSchemaSectionBackupCommand(DatabaseSettings databaseSettings, String section, @Nullable String snapshot) {
         ArrayList<String> command = new ArrayList<>();
 
         command.add(pgDumpToolPath);
         command = addCommandParam(command, "-h", databaseSettings.getHost());
         command = addCommandParam(command, "-p", Integer.toString(databaseSettings.getPort()));
         command = addCommandParam(command, "-F", "p");
+        command.add("--section=" + section);
+        if (snapshot != null) {
+            command.add("--snapshot=" + snapshot);
+        }
+        command = addCommandParam(command, "-d", databaseSettings.getName());
+
+        return command;
+    }
+
+    private List<String> buildArchiveRestoreCommand(DatabaseSettings databaseSettings, BackupFormat format, int jobs, Path dumpPath) {
+        ArrayList<String> command = new ArrayList<>();
+
+        command.add(pgRestoreToolPath);
+        command = addCommandParam(command, "-h", databaseSettings.getHost());
+        command = addCommandParam(command, "-U", databaseSettings.getLogin());
+        command = addCommandParam(command, "-p", Integer.toString(databaseSettings.getPort()));
         command = addCommandParam(command, "-d", databaseSettings.getName());
+        command = addCommandParam(command, "-F", format == BackupFormat.DIRECTORY ? "d" : "c");
+        command = addCommandParam(command, "-j", Integer.toString(Math.max(1, jobs)));
+        command = addCommandParam(command, "--exit-on-error", null);
+        command.add(dumpPath.toString());
+
+        return command;
+    }
+
+    private List<String> buildArchiveListCommand(BackupFormat format, Path dumpPath, Path listFile) {
+        ArrayList<String> command = new ArrayList<>();
+
+        command.add(pgRestoreToolPath);
+        command = addCommandParam(command, "-F", format == BackupFormat.DIRECTORY ? "d" : "c");
+        command = addCommandParam(command, "-l", null);
+        command = addCommandParam(command, "-f", listFile.toString());
+        command.add(dumpPath.toString());
+
+        return command;
+    }
+
+    private List<String> buildArchiveScriptCommand(BackupFormat format, Path dumpPath, Path listFile, Path scriptFile) {
+        ArrayList<String> command = new ArrayList<>();
+
+        command.add(pgRestoreToolPath);
+        command = addCommandParam(command, "-F", format == BackupFormat.DIRECTORY ? "d" : "c");
+        command = addCommandParam(command, "-L", listFile.toString());
+        command = addCommandParam(command, "-f", scriptFile.toString());
+        command.add(dumpPath.toString());
 
         return command;
     }
@@ -94,9 +251,16 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
     }
 
     /**
-     * Creates PostgreSQL database plan-text backup.
+     * Creates PostgreSQL database backup.
      * <p>
-     * Backup is creating by <i>pg_dump</i> tool.
+     * Backup is creating by <i>pg_dump</i> tool. Backup format is set by {@link PostgresSettings#getBackupFormat()}.
+     * <p>
+     * {@link BackupFormat#DIRECTORY} backups are dumped by parallel <i>pg_dump</i> jobs into temporary directory and streamed as
+     * backup archive (see {@link BackupArchiveWriter}). Every table data file is streamed as soon as the worker finished it, so uploading
+     * overlaps with dumping.
+     * <p>
+     * {@link BackupFormat#CUSTOM} backups are dumped into temporary file and streamed after <i>pg_dump</i> completes. Dumping into file
+     * allows <i>pg_dump</i> to write data offsets, so such backup can be restored by parallel <i>pg_restore</i> jobs.
      * <p>
      * If pg_dump exits with non-zero exit code, {@link InternalPostgresToolError} will be thrown. In such case, you can find process's stderr
      * messages in the log.
@@ -113,7 +277,93 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
     @NotNull
     public InputStream createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id)
             throws InternalPostgresToolError {
-        List<String> backupCommand = buildBackupCommand(databaseSettings);
+        PostgresSettings postgresSettings = databaseSettings.getPostgresSettings().orElseGet(PostgresSettings::new);
+
+        BackupFormat backupFormat = postgresSettings.getBackupFormat();
+        if (!RESTORABLE_FORMATS.contains(backupFormat)) {
+            // e.g. COPY_ARCHIVE that is created only by JDBC engine
+            throw new RuntimeException("Can't create PostgreSQL backup: backups of format " + backupFormat + " can't be restored");
+        }
+        switch (backupFormat) {
+            case PLAIN: {
+                return createPlainBackup(databaseSettings, id);
+            }
+            case CUSTOM: {
+                return createCustomBackup(databaseSettings, id);
+            }
+            case DIRECTORY: {
+                return createDirectoryBackup(databaseSettings, postgresSettings, id);
+            }
+            default: {
+                throw new RuntimeException("Can't create PostgreSQL backup: unsupported backup format: " + backupFormat);
+            }
+        }
+    }
+
+    /**
+     * Returns format of backups created with the specified database settings.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @return {@link PostgresSettings#getBackupFormat()} or {@link BackupFormat#PLAIN} if database settings has no PostgreSQL settings
+     */
+    @NotNull
+    public BackupFormat getBackupFormat(@NotNull DatabaseSettings databaseSettings) {
+        return databaseSettings.getPostgresSettings().map(PostgresSettings::getBackupFormat).orElse(BackupFormat.PLAIN);
+    }
+
+    /**
+     * Returns marker of the database state, which changes once any data or schema of the database is changed.
+     * <p>
+     * Marker is the current WAL insert position of the server. Every change of data or schema is WAL-logged before its transaction
+     * commits, so any change committed before the call has moved the position. WAL position is cluster-wide, so writes to other
+     * databases of the cluster, checkpoints and vacuum change the marker too. Marker read before the backup creation thus may only cause
+     * an extra backup, but never a missed change.
+     *
+     * @param databaseSettings database settings
+     * @return state marker or {@literal null} if the server is in recovery, so its WAL position does not follow changes of the database
+     */
+    @Nullable
+    public String readChangeMarker(@NotNull DatabaseSettings databaseSettings) {
+        try (Connection connection = PostgresConnections.open(databaseSettings);
+             Statement statement = connection.createStatement()) {
+            // functions were renamed in PostgreSQL 10
+            String walPositionFunction = connection.getMetaData().getDatabaseMajorVersion() >= 10 ?
+                    "pg_catalog.pg_current_wal_insert_lsn()" : "pg_catalog.pg_current_xlog_insert_location()";
+            try (ResultSet resultSet = statement.executeQuery("SELECT pg_catalog.pg_is_in_recovery(), CASE WHEN " +
+                    "pg_catalog.pg_is_in_recovery() THEN NULL ELSE " + walPositionFunction + "::text END")) {
+                if (!resultSet.next() || resultSet.getBoolean(1)) {
+                    return null;
+                }
+                return resultSet.getString(2);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error reading WAL position of database " + databaseSettings.getName(), ex);
+        }
+    }
+
+    /**
+     * Creates PostgreSQL database plain-text backup of the exported snapshot.
+     * <p>
+     * Backup contains exactly the data visible to the transaction that exported the snapshot, so it can be combined with changes
+     * captured by a logical replication slot created together with the snapshot (see {@link PostgresChangeCapture}). The snapshot must
+     * stay valid until <i>pg_dump</i> imports it.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param snapshot         exported snapshot identifier
+     * @param id               create backup task ID
+     * @return input stream, connected to the output stream of the pg_dump process
+     */
+    @NotNull
+    public InputStream createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull String snapshot, @NotNull Integer id) {
+        return createPlainBackup(databaseSettings, Objects.requireNonNull(snapshot), id);
+    }
+
+    private InputStream createPlainBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        return createPlainBackup(databaseSettings, null, id);
+    }
+
+    private InputStream createPlainBackup(@NotNull DatabaseSettings databaseSettings, @Nullable String snapshot, @NotNull Integer id) {
+        List<String> backupCommand = buildBackupCommand(databaseSettings, snapshot);
         logger.info("Creating PostgreSQL backup of database {} hosted on address {}:{}", databaseSettings.getName(),
                 databaseSettings.getHost(), databaseSettings.getPort());
 
@@ -177,19 +427,462 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
         return process.getInputStream();
     }
 
+    /**
+     * Creates PostgreSQL database plain-text backup directly in the file.
+     * <p>
+     * Output of <i>pg_dump</i> is redirected to the file, so backup data is not copied through the application. This method does not return
+     * until <i>pg_dump</i> exits.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param backupFile       file to write backup to
+     * @param id               create backup task ID
+     */
+    public void createBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Path backupFile, @NotNull Integer id)
+            throws InternalPostgresToolError {
+        List<String> backupCommand = buildBackupCommand(databaseSettings);
+        logger.info("Creating PostgreSQL backup of database {} hosted on address {}:{} into file {}", databaseSettings.getName(),
+                databaseSettings.getHost(), databaseSettings.getPort(), backupFile);
+
+        Process process;
+        try {
+            process = buildProcess(backupCommand, databaseSettings)
+                    .redirectOutput(ProcessBuilder.Redirect.to(backupFile.toFile()))
+                    .start();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error starting PostgreSQL database backup process", ex);
+        }
+
+        // if process was already destroyed it does nothing
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+        postgresExecutorService.submit(new ProcessStderrStreamReadWorker(process.getErrorStream(), JobType.BACKUP));
+
+        try {
+            int exitVal = process.waitFor();
+            logger.debug("PostgreSQL backup creation process exited with value {}", exitVal);
+            if (exitVal != 0) {
+                throw new InternalPostgresToolError(
+                        String.format("PostgreSQL backup process terminated with error (exit code: %s). See process's stderr log for details",
+                                exitVal));
+            }
+        } catch (InterruptedException ex) {
+            logger.error("PostgreSQL backup creation was interrupted. Database: {}", databaseSettings.getName());
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            process.destroy();
+        }
+
+        logger.info("PostgreSQL backup successfully created. Database: {}", databaseSettings.getName());
+    }
+
+    private InputStream createDirectoryBackup(@NotNull DatabaseSettings databaseSettings, @NotNull PostgresSettings postgresSettings,
+                                              @NotNull Integer id) {
+        Path workingDirectory;
+        try {
+            workingDirectory = Files.createTempDirectory("pg_dump_" + id + "_");
+        } catch (IOException ex) {
+            throw new RuntimeException("Error creating temporary directory for PostgreSQL directory format backup", ex);
+        }
+        // pg_dump requires that the target directory does not exist
+        Path dumpDirectory = workingDirectory.resolve("dump");
+
+        List<String> backupCommand = buildDirectoryBackupCommand(databaseSettings, postgresSettings, dumpDirectory);
+        logger.info("Creating PostgreSQL directory format backup of database {} hosted on address {}:{}. Jobs: {}",
+                databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort(), postgresSettings.getBackupJobs());
+
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        BackupArchiveWriter archiveWriter;
+        try {
+            archiveWriter = new BackupArchiveWriter(new PipedOutputStream(in));
+        } catch (IOException ex) {
+            deleteDirectory(workingDirectory);
+            throw new RuntimeException("Error initializing PostgreSQL directory format backup streaming", ex);
+        }
+
+        Process process;
+        try {
+            process = buildProcess(backupCommand, databaseSettings).start();
+        } catch (IOException ex) {
+            deleteDirectory(workingDirectory);
+            throw new RuntimeException("Error starting PostgreSQL database backup process", ex);
+        }
+
+        // if process was already destroyed it does nothing
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+        BlockingQueue<Integer> finishedItems = new LinkedBlockingQueue<>();
+        postgresExecutorService.submit(new VerboseStderrStreamReadWorker(process.getErrorStream(), finishedItems));
+        postgresExecutorService.submit(
+                new DirectoryBackupStreamer(process, workingDirectory, dumpDirectory, finishedItems, archiveWriter, id));
+
+        logger.info("PostgreSQL directory format backup creation started. Database: {}", databaseSettings.getName());
+
+        return in;
+    }
+
+    private InputStream createCustomBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        Path workingDirectory;
+        try {
+            workingDirectory = Files.createTempDirectory("pg_dump_" + id + "_");
+        } catch (IOException ex) {
+            throw new RuntimeException("Error creating temporary directory for PostgreSQL custom format backup", ex);
+        }
+        Path dumpFile = workingDirectory.resolve(CUSTOM_DUMP_FILENAME);
+
+        List<String> backupCommand = buildCustomBackupCommand(databaseSettings, dumpFile);
+        logger.info("Creating PostgreSQL custom format backup of database {} hosted on address {}:{}",
+                databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort());
+
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException ex) {
+            deleteDirectory(workingDirectory);
+            throw new RuntimeException("Error initializing PostgreSQL custom format backup streaming", ex);
+        }
+
+        Process process;
+        try {
+            process = buildProcess(backupCommand, databaseSettings).start();
+        } catch (IOException ex) {
+            deleteDirectory(workingDirectory);
+            throw new RuntimeException("Error starting PostgreSQL database backup process", ex);
+        }
+
+        // if process was already destroyed it does nothing
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+        postgresExecutorService.submit(new ProcessStderrStreamReadWorker(process.getErrorStream(), JobType.BACKUP));
+        postgresExecutorService.submit(new CustomBackupStreamer(process, workingDirectory, dumpFile, out, id));
+
+        logger.info("PostgreSQL custom format backup creation started. Database: {}", databaseSettings.getName());
+
+        return in;
+    }
+
+    /**
+     * Dumps the specified section of database schema as plain-text SQL script.
+     * <p>
+     * This method is used by {@link PostgresCopyDatabaseBackup} that dumps table data by itself, so only schema sections are dumped by
+     * <i>pg_dump</i>.
+     *
+     * @param databaseSettings database settings of database to dump
+     * @param section          <i>pre-data</i> or <i>post-data</i>
+     * @param snapshot         snapshot to use or {@literal null} to dump the current state of database
+     * @return dumped script
+     */
+    byte[] dumpSchemaSection(@NotNull DatabaseSettings databaseSettings, @NotNull String section, @Nullable String snapshot)
+            throws InternalPostgresToolError, InterruptedException {
+        List<String> backupCommand = buildSchemaSectionBackupCommand(databaseSettings, section, snapshot);
+        logger.info("Dumping {} section of PostgreSQL database {} hosted on address {}:{}", section,
+                databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort());
+
+        Process process;
+        try {
+            ProcessBuilder processBuilder = buildProcess(backupCommand, databaseSettings);
+            // script is executed through JDBC, which always uses UTF8 client encoding
+            processBuilder.environment().put("PGCLIENTENCODING", "UTF8");
+            process = processBuilder.start();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error starting PostgreSQL database backup process", ex);
+        }
+
+        postgresExecutorService.submit(new ProcessStderrStreamReadWorker(process.getErrorStream(), JobType.BACKUP));
+
+        try (InputStream in = process.getInputStream()) {
+            byte[] script = in.readAllBytes();
+
+            int exitVal = process.waitFor();
+            if (exitVal != 0) {
+                throw new InternalPostgresToolError(
+                        String.format("PostgreSQL backup process terminated with error (exit code: %s). See process's stderr log for details",
+                                exitVal));
+            }
+            return script;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading PostgreSQL schema dump", ex);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private void deleteDirectory(Path directory) {
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException ex) {
+            logger.error("Error deleting temporary directory {}", directory, ex);
+        }
+    }
+
+    /**
+     * Restores PostgreSQL database backup.
+     * <p>
+     * {@link BackupFormat#PLAIN} backups are restored by <i>psql</i> tool in single transaction. If more than one job is requested, plain
+     * backups are restored in parallel through JDBC instead (see {@link PlainBackupParallelRestore}), which can't be performed in single
+     * transaction.
+     * <p>
+     * {@link BackupFormat#CUSTOM} and {@link BackupFormat#DIRECTORY} backups are saved into temporary directory first and then restored by
+     * <i>pg_restore</i> tool running the specified number of parallel jobs. Parallel restoration can't be performed in single
+     * transaction, so if restoration fails or is interrupted, the database may be left partially restored.
+     * <p>
+     * If the filter is not empty, plain backups are always restored through JDBC, skipping statements and table data not matching the
+     * filter as the backup is read (see {@link PgDumpScriptFilter}). Archive backups are filtered by converting them into plain-format
+     * script, from which data of not matching tables is excluded by <i>pg_restore</i> table of contents list.
+     * <p>
+     * If restore tool reports about error while executing, InternalPostgresToolError will be thrown. In such case, you can find
+     * process's stderr messages in the log of this class.
+     *
+     * @param backupSource     the input stream to read backup from
+     * @param format           backup format
+     * @param jobs             number of parallel restore jobs
+     * @param filter           tables and schemas to restore
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     */
+    public void restoreBackup(@NotNull InputStream backupSource, @NotNull BackupFormat format, int jobs, @NotNull RestoreFilter filter,
+                              @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) throws InternalPostgresToolError {
+        if (!RESTORABLE_FORMATS.contains(format)) {
+            throw new RuntimeException("Can't restore PostgreSQL backup: unsupported backup format: " + format);
+        }
+        switch (format) {
+            case PLAIN: {
+                if (jobs > 1 || !filter.isEmpty()) {
+                    restorePlainBackupInParallel(backupSource, jobs, filter, databaseSettings);
+                } else {
+                    restorePlainBackup(backupSource, databaseSettings);
+                }
+                break;
+            }
+            case CUSTOM:
+            case DIRECTORY: {
+                restoreArchiveBackup(backupSource, format, jobs, filter, databaseSettings, id);
+                break;
+            }
+            default: {
+                throw new RuntimeException("Can't restore PostgreSQL backup: unsupported backup format: " + format);
+            }
+        }
+    }
+
+    private void restoreArchiveBackup(@NotNull InputStream backupSource, @NotNull BackupFormat format, int jobs,
+                                      @NotNull RestoreFilter filter, @NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        Path workingDirectory;
+        try {
+            workingDirectory = Files.createTempDirectory("pg_restore_" + id + "_");
+        } catch (IOException ex) {
+            throw new RuntimeException("Error creating temporary directory for PostgreSQL backup restoration", ex);
+        }
+
+        try {
+            Path dumpPath;
+            try {
+                if (format == BackupFormat.DIRECTORY) {
+                    dumpPath = Files.createDirectory(workingDirectory.resolve("dump"));
+                    unpackDirectoryBackup(backupSource, dumpPath);
+                } else {
+                    dumpPath = workingDirectory.resolve(CUSTOM_DUMP_FILENAME);
+                    Files.copy(backupSource, dumpPath);
+                }
+            } catch (InterruptedIOException ex) {
+                logger.error("PostgreSQL backup restoration was interrupted while saving backup. Database: {}", databaseSettings);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException ex) {
+                throw new RuntimeException("Error saving PostgreSQL backup into temporary directory", ex);
+            }
+
+            if (!filter.isEmpty()) {
+                restoreArchiveBackupSelectively(format, dumpPath, workingDirectory, jobs, filter, databaseSettings);
+                return;
+            }
+
+            List<String> restoreCommand = buildArchiveRestoreCommand(databaseSettings, format, jobs, dumpPath);
+            logger.info("Restoring PostgreSQL {} format backup to database {} hosted on address {}:{}. Jobs: {}", format,
+                    databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort(), jobs);
+
+            final Process process;
+            try {
+                process = buildProcess(restoreCommand, databaseSettings).start();
+            } catch (IOException ex) {
+                throw new RuntimeException("Error starting PostgreSQL database restore process", ex);
+            }
+
+            // if process was already normally destroyed, then it does nothing
+            Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+            postgresExecutorService.submit(new ProcessStderrStreamReadWorker(process.getErrorStream(), JobType.RESTORE));
+            postgresExecutorService.submit(new ProcessStdoutStreamReadWorker(process.getInputStream(), JobType.RESTORE));
+
+            try {
+                int exitVal = process.waitFor();
+                logger.debug("PostgreSQL backup restore process terminated with exit code: {}", exitVal);
+                if (exitVal != 0) {
+                    throw new InternalPostgresToolError(
+                            "PostgreSQL restore process terminated with error. See process's stderr log for details");
+                }
+            } catch (InterruptedException ex) {
+                logger.error("PostgreSQL backup restoration was interrupted. Database: {}", databaseSettings);
+                Thread.currentThread().interrupt();
+            } finally {
+                process.destroy();
+            }
+        } finally {
+            deleteDirectory(workingDirectory);
+        }
+
+        if (!Thread.currentThread().isInterrupted()) {
+            logger.info("PostgreSQL database backup successfully restored. Database: {}", databaseSettings.getName());
+        }
+    }
+
+    /**
+     * Restores tables and schemas matching the filter from saved archive backup.
+     * <p>
+     * Data items of not matching tables are commented out in the archive table of contents listed by <i>pg_restore</i>, and the rest of
+     * the archive is converted by <i>pg_restore</i> into plain-format script, which is restored using {@link PlainBackupParallelRestore}.
+     */
+    private void restoreArchiveBackupSelectively(@NotNull BackupFormat format, @NotNull Path dumpPath, @NotNull Path workingDirectory,
+                                                 int jobs, @NotNull RestoreFilter filter, @NotNull DatabaseSettings databaseSettings)
+            throws InternalPostgresToolError {
+        Path listFile = workingDirectory.resolve(RESTORE_LIST_FILENAME);
+        Path scriptFile = workingDirectory.resolve(RESTORE_SCRIPT_FILENAME);
+
+        logger.info("Converting PostgreSQL {} format backup into script. Filter: {}", format, filter);
+        try {
+            runArchiveTool(buildArchiveListCommand(format, dumpPath, listFile), databaseSettings);
+
+            List<String> filteredList = new ArrayList<>();
+            int skippedItems = 0;
+            for (String item : Files.readAllLines(listFile, StandardCharsets.UTF_8)) {
+                Matcher matcher = tableDataListItemPattern.matcher(item);
+                if (matcher.matches() && !filter.matchesTable(matcher.group(1), matcher.group(2))) {
+                    // semicolon comments item out
+                    item = ";" + item;
+                    skippedItems++;
+                }
+                filteredList.add(item);
+            }
+            Files.write(listFile, filteredList, StandardCharsets.UTF_8);
+            logger.debug("Data of {} tables excluded from PostgreSQL backup restoration", skippedItems);
+
+            runArchiveTool(buildArchiveScriptCommand(format, dumpPath, listFile, scriptFile), databaseSettings);
+        } catch (InterruptedException ex) {
+            logger.error("PostgreSQL backup restoration was interrupted while converting backup. Database: {}", databaseSettings);
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error converting PostgreSQL backup into script", ex);
+        }
+
+        try (InputStream script = Files.newInputStream(scriptFile)) {
+            restorePlainBackupInParallel(script, jobs, filter, databaseSettings);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading PostgreSQL backup script", ex);
+        }
+    }
+
+    /**
+     * Runs <i>pg_restore</i> not connecting to database and waits for its completion.
+     */
+    private void runArchiveTool(@NotNull List<String> command, @NotNull DatabaseSettings databaseSettings)
+            throws InterruptedException, InternalPostgresToolError {
+        final Process process;
+        try {
+            process = buildProcess(command, databaseSettings).start();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error starting PostgreSQL restore process", ex);
+        }
+
+        postgresExecutorService.submit(new ProcessStderrStreamReadWorker(process.getErrorStream(), JobType.RESTORE));
+        postgresExecutorService.submit(new ProcessStdoutStreamReadWorker(process.getInputStream(), JobType.RESTORE));
+
+        try {
+            int exitVal = process.waitFor();
+            logger.debug("PostgreSQL restore process terminated with exit code: {}", exitVal);
+            if (exitVal != 0) {
+                throw new InternalPostgresToolError(
+                        "PostgreSQL restore process terminated with error. See process's stderr log for details");
+            }
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Unpacks backup archive of directory format backup into the directory.
+     */
+    private void unpackDirectoryBackup(@NotNull InputStream backupSource, @NotNull Path dumpDirectory) throws IOException {
+        new BackupArchiveReader(backupSource).read(name -> {
+            Path file = dumpDirectory.resolve(name).normalize();
+            if (!dumpDirectory.equals(file.getParent())) {
+                throw new IOException("Invalid backup archive: illegal entry name: " + name);
+            }
+            return new BufferedOutputStream(Files.newOutputStream(file), PIPE_BUFFER_SIZE);
+        });
+    }
+
+    /**
+     * Restores PostgreSQL database plain-text backup in parallel using {@link PlainBackupParallelRestore}.
+     * <p>
+     * If encoding of the backup can't be transcoded, backup is restored by <i>psql</i> tool serially. Backup can't be filtered in such
+     * case.
+     *
+     * @param backupSource the input stream to read backup from
+     * @param jobs         number of concurrent connections
+     * @param filter       tables and schemas to restore
+     */
+    private void restorePlainBackupInParallel(@NotNull InputStream backupSource, int jobs, @NotNull RestoreFilter filter,
+                                              @NotNull DatabaseSettings databaseSettings) throws InternalPostgresToolError {
+        BufferedInputStream bufferedBackupSource = new BufferedInputStream(backupSource, PIPE_BUFFER_SIZE);
+
+        Optional<Charset> charset;
+        try {
+            charset = PlainBackupParallelRestore.detectCharset(bufferedBackupSource);
+        } catch (InterruptedIOException ex) {
+            logger.error("PostgreSQL backup restoration was interrupted. Database: {}", databaseSettings.getName());
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading PostgreSQL backup", ex);
+        }
+        if (!charset.isPresent()) {
+            if (!filter.isEmpty()) {
+                throw new RuntimeException("Can't restore PostgreSQL backup selectively: encoding of backup is not supported");
+            }
+            logger.info("Encoding of PostgreSQL backup is not supported by parallel restoration. Restoring by psql serially...");
+            restorePlainBackup(bufferedBackupSource, databaseSettings);
+            return;
+        }
+
+        logger.info("Restoring PostgreSQL backup to database {} hosted on address {}:{} in parallel. Jobs: {}. Backup encoding: {}. " +
+                        "Filter: {}", databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort(), jobs,
+                charset.get(), filter);
+
+        try (PostgresParallelRestore parallelRestore = new PostgresParallelRestore(databaseSettings, jobs)) {
+            new PlainBackupParallelRestore(parallelRestore, filter).restore(bufferedBackupSource, charset.get());
+        } catch (InterruptedException | InterruptedIOException ex) {
+            logger.error("PostgreSQL backup restoration was interrupted. Database: {}", databaseSettings.getName());
+            Thread.currentThread().interrupt();
+            return;
+        } catch (SQLException | IOException ex) {
+            throw new RuntimeException("Error restoring PostgreSQL backup", ex);
+        }
+
+        logger.info("PostgreSQL database backup successfully restored. Database: {}", databaseSettings.getName());
+    }
+
     /**
      * Restores PostgreSQL database plain-text backup.
      * <p>
      * Backup is restored by <i>psql</i> tool.
      * Restoration is performing in single transaction. If connection times out, then transaction will be canceled and no data will be
      * restored.
-     * <p>
-     * If psql reports about error while executing, InternalPostgresToolError will be thrown. In such case, you can find process's stderr
-     * messages in the log of this class.
      *
      * @param backupSource the input stream to read backup from
      */
-    public void restoreBackup(@NotNull InputStream backupSource, @NotNull DatabaseSettings databaseSettings, @NotNull Integer id)
+    private void restorePlainBackup(@NotNull InputStream backupSource, @NotNull DatabaseSettings databaseSettings)
             throws InternalPostgresToolError {
         List<String> restoreCommand = buildRestoreCommand(databaseSettings);
         logger.info("Restoring PostgreSQL backup to database {} hosted on address {}:{}", databaseSettings.getName(),
@@ -209,23 +902,23 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
         // if process was already normally destroyed, then it does nothing
         Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
 
-        try (
-                BufferedReader backupReader = new BufferedReader(new InputStreamReader(backupSource));
-                BufferedWriter processOutputWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()))
-        ) {
-            String currentLine;
+        // backup is passed to psql as is, so no decoding and line splitting is needed
+        try (OutputStream processInput = process.getOutputStream()) {
+            byte[] buffer = new byte[PIPE_BUFFER_SIZE];
+            int bytesRead;
             try {
-                while ((currentLine = backupReader.readLine()) != null) {
-                    processOutputWriter.write(currentLine + System.lineSeparator());
+                while ((bytesRead = backupSource.read(buffer)) != -1) {
+                    processInput.write(buffer, 0, bytesRead);
                 }
             } catch (InterruptedIOException ex) {
                 logger.error("PostgreSQL backup restoration was interrupted. Rolling back... Database: {}", databaseSettings);
 
                 try {
-                    processOutputWriter.write("ROLLBACK;");
+                    // last written statement may be incomplete, so rollback is started from a new line
+                    processInput.write("\nROLLBACK;\n".getBytes(StandardCharsets.US_ASCII));
                     // quit from psql
-                    processOutputWriter.write("\\q" + System.lineSeparator());
-                    processOutputWriter.flush();
+                    processInput.write(PSQL_QUIT_COMMAND);
+                    processInput.flush();
 
                     process.destroy();
                 } catch (IOException ex1) {
@@ -238,9 +931,9 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
                 return;
             }
 
-//            quit from psql
-            processOutputWriter.write("\\q" + System.lineSeparator());
-            processOutputWriter.flush();
+            // quit from psql
+            processInput.write(PSQL_QUIT_COMMAND);
+            processInput.flush();
         } catch (IOException ex) {
             // check if exception occurred because of error in psql, i.e. process exited and its input stream was closed
             try {
@@ -273,6 +966,84 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
         logger.info("PostgreSQL database backup successfully restored. Database: {}", databaseSettings.getName());
     }
 
+    /**
+     * Restores PostgreSQL database plain-text backup directly from the files.
+     * <p>
+     * Input of <i>psql</i> is redirected from the file, so backup data is not copied through the application. If backup consists of
+     * several part files, they are concatenated into input of <i>psql</i> by <i>cat</i>, so the parts are not joined on disk either.
+     * Restoration is performing in single transaction, so if restoration is interrupted, <i>psql</i> is destroyed and the transaction is
+     * rolled back by the server on disconnection.
+     *
+     * @param backupFiles      backup part files in order
+     * @param databaseSettings database settings of database to restore backup to
+     * @param id               restore backup task ID
+     */
+    public void restoreBackup(@NotNull List<Path> backupFiles, @NotNull DatabaseSettings databaseSettings, @NotNull Integer id)
+            throws InternalPostgresToolError {
+        if (backupFiles.isEmpty()) {
+            throw new RuntimeException("Can't restore PostgreSQL backup from files: no backup files");
+        }
+
+        List<String> restoreCommand = buildRestoreCommand(databaseSettings);
+        logger.info("Restoring PostgreSQL backup from files {} to database {} hosted on address {}:{}", backupFiles,
+                databaseSettings.getName(), databaseSettings.getHost(), databaseSettings.getPort());
+
+        ProcessBuilder restoreProcessBuilder = buildProcess(restoreCommand, databaseSettings);
+        final Process process;
+        final Process catProcess;
+        try {
+            if (backupFiles.size() == 1) {
+                catProcess = null;
+                process = restoreProcessBuilder.redirectInput(ProcessBuilder.Redirect.from(backupFiles.get(0).toFile())).start();
+            } else {
+                List<String> catCommand = new ArrayList<>();
+                catCommand.add(CAT_TOOL_PATH);
+                for (Path backupFile : backupFiles) {
+                    catCommand.add(backupFile.toString());
+                }
+                List<Process> processes = ProcessBuilder.startPipeline(Arrays.asList(
+                        new ProcessBuilder(catCommand).redirectError(ProcessBuilder.Redirect.INHERIT), restoreProcessBuilder));
+                catProcess = processes.get(0);
+                process = processes.get(1);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error starting PostgreSQL database restore process", ex);
+        }
+
+        postgresExecutorService.submit(new ProcessStderrStreamReadWorker(process.getErrorStream(), JobType.RESTORE));
+        postgresExecutorService.submit(new ProcessStdoutStreamReadWorker(process.getInputStream(), JobType.RESTORE));
+
+        // in case server will be shutdown while restoring backup, than we need to discard transaction
+        // if process was already normally destroyed, then it does nothing
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+        if (catProcess != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(catProcess::destroyForcibly));
+        }
+
+        try {
+            int exitVal = process.waitFor();
+            logger.debug("PostgreSQL backup restore process terminated with exit code: {}", exitVal);
+            if (exitVal != 0) {
+                throw new InternalPostgresToolError(
+                        "PostgreSQL restore process terminated with error. See process's stderr log for details");
+            }
+            if (catProcess != null && catProcess.waitFor() != 0) {
+                throw new InternalPostgresToolError("Error reading backup files: cat terminated with error. Backup files: " + backupFiles);
+            }
+        } catch (InterruptedException ex) {
+            logger.error("PostgreSQL backup restoration was interrupted. Rolling back... Database: {}", databaseSettings);
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            process.destroy();
+            if (catProcess != null) {
+                catProcess.destroy();
+            }
+        }
+
+        logger.info("PostgreSQL database backup successfully restored. Database: {}", databaseSettings.getName());
+    }
+
     private enum JobType {
         BACKUP,
         RESTORE;
@@ -316,6 +1087,198 @@ public class PostgresDatabaseBackup implements DatabaseBackup {
         }
     }
 
+    /**
+     * Reads stderr of <i>pg_dump</i> running in verbose mode and reports dump IDs of completely written table data files.
+     */
+    private class VerboseStderrStreamReadWorker implements Runnable {
+        private InputStream in;
+
+        private BlockingQueue<Integer> finishedItems;
+
+        private String STDERR_PRINT_FORMAT;
+
+        VerboseStderrStreamReadWorker(InputStream in, BlockingQueue<Integer> finishedItems) {
+            this.in = in;
+            this.finishedItems = finishedItems;
+            this.STDERR_PRINT_FORMAT = JobType.BACKUP.getJobPrefix() + " stderr: {}";
+        }
+
+        @Override
+        public void run() {
+            try (
+                    BufferedReader errorStreamReader = new BufferedReader(new InputStreamReader(in))
+            ) {
+                String line;
+                while ((line = errorStreamReader.readLine()) != null) {
+                    // verbose messages are not errors, so they are logged with lower level
+                    logger.debug(STDERR_PRINT_FORMAT, line);
+
+                    Matcher matcher = finishedItemPattern.matcher(line);
+                    if (matcher.find()) {
+                        finishedItems.add(Integer.valueOf(matcher.group(1)));
+                    }
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("Error occurred while reading process standard error stream", ex);
+            }
+        }
+    }
+
+    /**
+     * Streams files of directory format dump into backup archive while <i>pg_dump</i> is still running.
+     * <p>
+     * Table data file is streamed as soon as <i>pg_dump</i> reports that it is finished. All the rest files, including table of
+     * contents, are streamed after process exit. Every streamed file is deleted to free disk space.
+     */
+    private class DirectoryBackupStreamer implements Runnable {
+        private Process process;
+
+        private Path workingDirectory;
+
+        private Path dumpDirectory;
+
+        private BlockingQueue<Integer> finishedItems;
+
+        private BackupArchiveWriter archiveWriter;
+
+        private Integer id;
+
+        DirectoryBackupStreamer(Process process, Path workingDirectory, Path dumpDirectory, BlockingQueue<Integer> finishedItems,
+                                BackupArchiveWriter archiveWriter, Integer id) {
+            this.process = process;
+            this.workingDirectory = workingDirectory;
+            this.dumpDirectory = dumpDirectory;
+            this.finishedItems = finishedItems;
+            this.archiveWriter = archiveWriter;
+            this.id = id;
+        }
+
+        private void streamFile(Path file) throws IOException {
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+
+            logger.debug("Streaming file of PostgreSQL directory format backup: {}", file.getFileName());
+            try (InputStream fileStream = new BufferedInputStream(Files.newInputStream(file), PIPE_BUFFER_SIZE)) {
+                archiveWriter.writeEntry(file.getFileName().toString(), fileStream);
+            }
+            Files.delete(file);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Integer dumpId = finishedItems.poll(1, TimeUnit.SECONDS);
+                    if (dumpId != null) {
+                        streamFile(dumpDirectory.resolve(dumpId + ".dat"));
+                    } else if (!process.isAlive()) {
+                        break;
+                    }
+                }
+
+                int exitVal = process.waitFor();
+                logger.debug("PostgreSQL backup creation process exited with value {}", exitVal);
+                if (exitVal != 0) {
+                    errorCallbackService.onError(new InternalPostgresToolError(
+                            String.format("PostgreSQL backup process terminated with error (exit code: %s). See process's stderr log for details",
+                                    exitVal)), id);
+                    return;
+                }
+
+                // stream all the rest files. Table of contents is streamed last, so restoration can be started only on fully streamed dump
+                List<Path> restFiles = new ArrayList<>();
+                try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dumpDirectory)) {
+                    for (Path file : directoryStream) {
+                        if (!file.getFileName().toString().equals(TOC_FILENAME)) {
+                            restFiles.add(file);
+                        }
+                    }
+                }
+                for (Path file : restFiles) {
+                    streamFile(file);
+                }
+                streamFile(dumpDirectory.resolve(TOC_FILENAME));
+
+                archiveWriter.finish();
+                logger.info("PostgreSQL directory format backup fully streamed");
+            } catch (IOException ex) {
+                process.destroy();
+                // if stream is closed, that means work was interrupted, so it is not an error
+                if (!"Pipe closed".equals(ex.getMessage())) {
+                    errorCallbackService.onError(new RuntimeException("Error occurred while streaming PostgreSQL directory format backup",
+                            ex), id);
+                }
+            } catch (InterruptedException ex) {
+                // this thread might be interrupted only by the shutdown() method on executor service destroying
+                process.destroy();
+            } finally {
+                try {
+                    archiveWriter.close();
+                } catch (IOException ex) {
+                    logger.error("Error closing PostgreSQL directory format backup stream", ex);
+                }
+                deleteDirectory(workingDirectory);
+            }
+        }
+    }
+
+    /**
+     * Streams custom format dump file after <i>pg_dump</i> completes.
+     */
+    private class CustomBackupStreamer implements Runnable {
+        private Process process;
+
+        private Path workingDirectory;
+
+        private Path dumpFile;
+
+        private OutputStream out;
+
+        private Integer id;
+
+        CustomBackupStreamer(Process process, Path workingDirectory, Path dumpFile, OutputStream out, Integer id) {
+            this.process = process;
+            this.workingDirectory = workingDirectory;
+            this.dumpFile = dumpFile;
+            this.out = out;
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int exitVal = process.waitFor();
+                logger.debug("PostgreSQL backup creation process exited with value {}", exitVal);
+                if (exitVal != 0) {
+                    errorCallbackService.onError(new InternalPostgresToolError(
+                            String.format("PostgreSQL backup process terminated with error (exit code: %s). See process's stderr log for details",
+                                    exitVal)), id);
+                    return;
+                }
+
+                Files.copy(dumpFile, out);
+                logger.info("PostgreSQL custom format backup fully streamed");
+            } catch (IOException ex) {
+                // if stream is closed, that means work was interrupted, so it is not an error
+                if (!"Pipe closed".equals(ex.getMessage())) {
+                    errorCallbackService.onError(new RuntimeException("Error occurred while streaming PostgreSQL custom format backup",
+                            ex), id);
+                }
+            } catch (InterruptedException ex) {
+                // this thread might be interrupted only by the shutdown() method on executor service destroying
+                process.destroy();
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    logger.error("Error closing PostgreSQL custom format backup stream", ex);
+                }
+                deleteDirectory(workingDirectory);
+            }
+        }
+    }
+
     private class ProcessStdoutStreamReadWorker implements Runnable {
         private InputStream out;
 
@@ -22,6 +22,21 @@ public class PostgresDatabaseBackupConfiguration {
      */
     private String psqlToolPath;
 
+    /**
+     * Pg_restore binary file path
+     */
+    private String pgRestoreToolPath;
+
+    /**
+     * Pg_basebackup binary file path
+     */
+    private String pgBasebackupToolPath;
+
+    /**
+     * Pg_receivewal binary file path. Named pg_receivexlog before PostgreSQL 10
+     */
+    private String pgReceivewalToolPath;
+
     public String getPgDumpToolPath() {
         return pgDumpToolPath;
     }
@@ -38,6 +53,30 @@ public class PostgresDatabaseBackupConfiguration {
         this.psqlToolPath = psqlToolPath;
     }
 
+    public String getPgRestoreToolPath() {
+        return pgRestoreToolPath;
+    }
+
+    public void setPgRestoreToolPath(String pgRestoreToolPath) {
+        this.pgRestoreToolPath = pgRestoreToolPath;
+    }
+
+    public String getPgBasebackupToolPath() {
+        return pgBasebackupToolPath;
+    }
+
+    public void setPgBasebackupToolPath(String pgBasebackupToolPath) {
+        this.pgBasebackupToolPath = pgBasebackupToolPath;
+    }
+
+    public String getPgReceivewalToolPath() {
+        return pgReceivewalToolPath;
+    }
+
+    public void setPgReceivewalToolPath(String pgReceivewalToolPath) {
+        this.pgReceivewalToolPath = pgReceivewalToolPath;
+    }
+
     @Bean(destroyMethod = "shutdown")
     public ExecutorService postgresExecutorService() {
         return Executors.newFixedThreadPool(20);
@@ -60,4 +99,31 @@ public class PostgresDatabaseBackupConfiguration {
 
         return "psql";
     }
+
+    @Bean
+    public String pgRestoreToolPath() {
+        if (!pgRestoreToolPath.isEmpty()) {
+            return pgRestoreToolPath;
+        }
+
+        return "pg_restore";
+    }
+
+    @Bean
+    public String pgBasebackupToolPath() {
+        if (pgBasebackupToolPath != null && !pgBasebackupToolPath.isEmpty()) {
+            return pgBasebackupToolPath;
+        }
+
+        return "pg_basebackup";
+    }
+
+    @Bean
+    public String pgReceivewalToolPath() {
+        if (pgReceivewalToolPath != null && !pgReceivewalToolPath.isEmpty()) {
+            return pgReceivewalToolPath;
+        }
+
+        return "pg_receivewal";
+    }
 }
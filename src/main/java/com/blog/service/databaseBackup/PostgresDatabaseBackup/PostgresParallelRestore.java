@@ -0,0 +1,463 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.entities.database.DatabaseSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Restores PostgreSQL database in three phases using multiple JDBC connections:
+ * <ol>
+ * <li>Pre-data: schema objects required to load data are created in single transaction</li>
+ * <li>Data: data of each table is streamed over its own connection using {@code COPY ... FROM STDIN}. Up to {@code jobs} tables are
+ * loaded concurrently</li>
+ * <li>Post-data: indexes, primary keys and unique constraints are built concurrently, then foreign keys are created concurrently, then
+ * the rest statements (triggers, rules, comments and so on) are executed in their original order</li>
+ * </ol>
+ * Wall-clock time of each phase is logged.
+ * <p>
+ * Unlike restoration in single transaction, changes made by completed phases are not rolled back if restoration fails.
+ * <p>
+ * Instances of this class must be used by single thread.
+ */
+class PostgresParallelRestore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresParallelRestore.class);
+
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private static final String DEADLOCK_DETECTED_SQL_STATE = "40P01";
+
+    private static final int MAX_DEADLOCK_RETRIES = 3;
+
+    /**
+     * Statements changing session settings of the following statements (e.g. {@code SET default_tablespace = ''}).
+     */
+    private static final Pattern SESSION_STATEMENT_PATTERN = Pattern.compile(
+            "^(SET\\s|SELECT\\s+pg_catalog\\.set_config\\s*\\()", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FOREIGN_KEY_STATEMENT_PATTERN = Pattern.compile(
+            "^ALTER\\s+TABLE\\s.*\\sADD\\s+CONSTRAINT\\s.*\\sFOREIGN\\s+KEY[\\s(]", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern INDEX_STATEMENT_PATTERN = Pattern.compile(
+            "^(CREATE\\s+(UNIQUE\\s+)?INDEX\\s|ALTER\\s+TABLE\\s.*\\sADD\\s+CONSTRAINT\\s.*\\s(PRIMARY\\s+KEY|UNIQUE|EXCLUDE)[\\s(])",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern INDEX_ATTACH_STATEMENT_PATTERN = Pattern.compile(
+            "^ALTER\\s+INDEX\\s.*\\sATTACH\\s+PARTITION\\s", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final DatabaseSettings databaseSettings;
+
+    private final int jobs;
+
+    private final ExecutorService workersExecutorService;
+
+    /**
+     * Limits number of tables loaded concurrently.
+     */
+    private final Semaphore tableDataPermits;
+
+    private final List<Future<Void>> tableDataFutures = new ArrayList<>();
+
+    /**
+     * The first error of table data loading.
+     */
+    private final AtomicReference<Throwable> tableDataError = new AtomicReference<>();
+
+    /**
+     * Session statements of pre-data script, which are executed on each table data connection.
+     */
+    private List<String> dataSessionStatements = Collections.emptyList();
+
+    private long dataPhaseStartTime;
+
+    PostgresParallelRestore(@NotNull DatabaseSettings databaseSettings, int jobs) {
+        this.databaseSettings = Objects.requireNonNull(databaseSettings);
+        this.jobs = Math.max(1, jobs);
+        this.workersExecutorService = Executors.newFixedThreadPool(this.jobs);
+        this.tableDataPermits = new Semaphore(this.jobs);
+    }
+
+    /**
+     * Checks whether the statement changes session settings of the following statements.
+     *
+     * @param body statement without leading comments
+     * @return {@literal true} if the statement is session setting statement
+     */
+    static boolean isSessionStatement(@NotNull String body) {
+        return SESSION_STATEMENT_PATTERN.matcher(body).find();
+    }
+
+    private static void executeStatement(@NotNull Statement statement, @NotNull String sql) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                statement.execute(sql);
+                return;
+            } catch (SQLException ex) {
+                // concurrently created foreign keys lock both tables, so they might deadlock
+                if (!DEADLOCK_DETECTED_SQL_STATE.equals(ex.getSQLState()) || attempt >= MAX_DEADLOCK_RETRIES) {
+                    throw ex;
+                }
+                logger.warn("Deadlock detected while executing statement. Retrying... Statement: {}", sql);
+            }
+        }
+    }
+
+    private void logPhaseCompleted(@NotNull String phase, long startTime) {
+        logger.info("PostgreSQL restoration phase '{}' completed in {} ms. Database: {}", phase,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), databaseSettings.getName());
+    }
+
+    /**
+     * Executes pre-data script in single transaction.
+     * <p>
+     * Must be called before any table data is loaded.
+     *
+     * @param script SQL script
+     */
+    void restorePreData(@NotNull Reader script) throws SQLException, IOException, InterruptedException {
+        long startTime = System.nanoTime();
+
+        List<String> sessionStatements = new ArrayList<>();
+        try (Connection connection = PostgresConnections.open(databaseSettings)) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                // scripts may contain function bodies with JDBC escape-like syntax
+                statement.setEscapeProcessing(false);
+
+                SqlScriptSplitter splitter = new SqlScriptSplitter(script);
+                String sql;
+                while ((sql = splitter.nextStatement()) != null) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (isSessionStatement(SqlScriptSplitter.stripLeadingComments(sql))) {
+                        sessionStatements.add(sql);
+                    }
+                    statement.execute(sql);
+                }
+                connection.commit();
+            } catch (SQLException | IOException | InterruptedException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+
+        dataSessionStatements = Collections.unmodifiableList(sessionStatements);
+        logPhaseCompleted("pre-data", startTime);
+        dataPhaseStartTime = System.nanoTime();
+    }
+
+    /**
+     * Starts loading table data if there is a free connection slot.
+     * <p>
+     * Data must be written into the returned stream. Closing the stream completes the loading, while
+     * {@link TableDataOutputStream#abort()} cancels it.
+     *
+     * @param copyInCommand {@code COPY ... FROM STDIN} command
+     * @return stream to write table data to or {@literal null} if {@code jobs} tables are already being loaded
+     */
+    @Nullable
+    TableDataOutputStream tryStartTableData(@NotNull String copyInCommand) throws IOException {
+        if (!tableDataPermits.tryAcquire()) {
+            return null;
+        }
+        return startTableDataWithPermit(copyInCommand);
+    }
+
+    /**
+     * Starts loading table data waiting for a free connection slot.
+     *
+     * @param copyInCommand {@code COPY ... FROM STDIN} command
+     * @return stream to write table data to
+     * @see #tryStartTableData(String)
+     */
+    TableDataOutputStream startTableData(@NotNull String copyInCommand) throws IOException, InterruptedException {
+        tableDataPermits.acquire();
+        return startTableDataWithPermit(copyInCommand);
+    }
+
+    /**
+     * Loads table data from the given stream waiting for a free connection slot.
+     * <p>
+     * The stream is closed when loading completes.
+     *
+     * @param copyInCommand {@code COPY ... FROM STDIN} command
+     * @param in            table data
+     */
+    void loadTableData(@NotNull String copyInCommand, @NotNull InputStream in) throws InterruptedException {
+        tableDataPermits.acquire();
+        submitTableData(copyInCommand, in);
+    }
+
+    private TableDataOutputStream startTableDataWithPermit(@NotNull String copyInCommand) throws IOException {
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException ex) {
+            tableDataPermits.release();
+            throw ex;
+        }
+        return new TableDataOutputStream(out, submitTableData(copyInCommand, in));
+    }
+
+    private Future<Void> submitTableData(@NotNull String copyInCommand, @NotNull InputStream in) {
+        Future<Void> future;
+        try {
+            future = workersExecutorService.submit(new TableDataLoader(copyInCommand, in));
+        } catch (RejectedExecutionException ex) {
+            tableDataPermits.release();
+            throw ex;
+        }
+        tableDataFutures.add(future);
+        return future;
+    }
+
+    /**
+     * Waits for all started table data loads to complete.
+     * <p>
+     * Must be called after all table data is started to load, so the data phase is completed.
+     *
+     * @throws RuntimeException if any table data load failed
+     */
+    void awaitTableData() throws InterruptedException {
+        checkTableDataErrors();
+        logPhaseCompleted("data", dataPhaseStartTime);
+        logger.info("Tables data loaded: {}. Database: {}", tableDataFutures.size(), databaseSettings.getName());
+    }
+
+    /**
+     * Waits for all started table data loads to complete and rethrows the first failure.
+     * <p>
+     * Intended to find the original error when writing into {@link TableDataOutputStream} fails, since failed load closes its stream. All
+     * not completed streams must be closed or aborted before calling this method.
+     *
+     * @throws RuntimeException if any table data load failed
+     */
+    void checkTableDataErrors() throws InterruptedException {
+        Throwable error = tableDataError.get();
+        if (error != null) {
+            throw new RuntimeException("Error loading table data", error);
+        }
+
+        for (Future<Void> future : tableDataFutures) {
+            try {
+                future.get();
+            } catch (CancellationException ignore) {
+                // load was aborted by the caller
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Error loading table data", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Executes post-data script.
+     * <p>
+     * Statements are executed in the following stages, each of which starts after completion of the previous one: indexes, primary keys,
+     * unique and exclusion constraints concurrently; partition index attachments sequentially; foreign keys concurrently; the rest
+     * statements sequentially in order of the script. Session settings (e.g. {@code SET default_tablespace}) in effect at statement
+     * position in the script are applied before executing the statement.
+     *
+     * @param script SQL script
+     */
+    void restorePostData(@NotNull Reader script) throws SQLException, IOException, InterruptedException {
+        long startTime = System.nanoTime();
+
+        List<PostDataStatement> indexes = new ArrayList<>();
+        List<PostDataStatement> indexAttachments = new ArrayList<>();
+        List<PostDataStatement> foreignKeys = new ArrayList<>();
+        List<PostDataStatement> others = new ArrayList<>();
+
+        List<String> sessionStatements = Collections.emptyList();
+        SqlScriptSplitter splitter = new SqlScriptSplitter(script);
+        String sql;
+        while ((sql = splitter.nextStatement()) != null) {
+            String body = SqlScriptSplitter.stripLeadingComments(sql);
+            if (isSessionStatement(body)) {
+                List<String> newSessionStatements = new ArrayList<>(sessionStatements);
+                newSessionStatements.add(sql);
+                sessionStatements = Collections.unmodifiableList(newSessionStatements);
+            } else if (FOREIGN_KEY_STATEMENT_PATTERN.matcher(body).find()) {
+                foreignKeys.add(new PostDataStatement(sql, sessionStatements));
+            } else if (INDEX_STATEMENT_PATTERN.matcher(body).find()) {
+                indexes.add(new PostDataStatement(sql, sessionStatements));
+            } else if (INDEX_ATTACH_STATEMENT_PATTERN.matcher(body).find()) {
+                indexAttachments.add(new PostDataStatement(sql, sessionStatements));
+            } else {
+                others.add(new PostDataStatement(sql, sessionStatements));
+            }
+        }
+
+        logger.info("Restoring post-data. Indexes and unique constraints: {}. Foreign keys: {}. Other statements: {}. Database: {}",
+                indexes.size(), foreignKeys.size(), others.size() + indexAttachments.size(), databaseSettings.getName());
+
+        executePostDataStatements(indexes, jobs);
+        executePostDataStatements(indexAttachments, 1);
+        executePostDataStatements(foreignKeys, jobs);
+        executePostDataStatements(others, 1);
+
+        logPhaseCompleted("post-data", startTime);
+    }
+
+    private void executePostDataStatements(@NotNull List<PostDataStatement> statements, int maxWorkers) throws SQLException,
+            InterruptedException {
+        if (statements.isEmpty()) {
+            return;
+        }
+
+        Queue<PostDataStatement> statementsQueue = new ConcurrentLinkedQueue<>(statements);
+        int workers = Math.min(maxWorkers, statements.size());
+        if (workers == 1) {
+            new PostDataWorker(statementsQueue).call();
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(workersExecutorService.submit(new PostDataWorker(statementsQueue)));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            // stop other workers taking new statements
+            statementsQueue.clear();
+            throw new RuntimeException("Error restoring post-data", ex.getCause());
+        }
+    }
+
+    /**
+     * Cancels all running work.
+     */
+    @Override
+    public void close() {
+        workersExecutorService.shutdownNow();
+    }
+
+    /**
+     * Output stream of table data loaded by separate connection.
+     */
+    static class TableDataOutputStream extends FilterOutputStream {
+        private final Future<Void> future;
+
+        TableDataOutputStream(@NotNull OutputStream out, @NotNull Future<Void> future) {
+            super(out);
+            this.future = future;
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        /**
+         * Cancels table data loading, so partially written data is not committed.
+         */
+        void abort() {
+            future.cancel(true);
+        }
+    }
+
+    private static class PostDataStatement {
+        private final String sql;
+
+        private final List<String> sessionStatements;
+
+        PostDataStatement(String sql, List<String> sessionStatements) {
+            this.sql = sql;
+            this.sessionStatements = sessionStatements;
+        }
+    }
+
+    /**
+     * Loads data of single table over its own connection.
+     */
+    private class TableDataLoader implements Callable<Void> {
+        private String copyInCommand;
+
+        private InputStream in;
+
+        TableDataLoader(String copyInCommand, InputStream in) {
+            this.copyInCommand = copyInCommand;
+            this.in = in;
+        }
+
+        @Override
+        public Void call() throws SQLException, IOException {
+            try (Connection connection = PostgresConnections.open(databaseSettings)) {
+                try (Statement statement = connection.createStatement()) {
+                    for (String sessionStatement : dataSessionStatements) {
+                        statement.execute(sessionStatement);
+                    }
+                }
+
+                long rows = PostgresConnections.getCopyManager(connection).copyIn(copyInCommand, in, PIPE_BUFFER_SIZE);
+                logger.debug("Table data loaded. Rows: {}. Command: {}", rows, copyInCommand);
+            } catch (InterruptedIOException ex) {
+                // load was aborted
+                throw ex;
+            } catch (SQLException | IOException | RuntimeException ex) {
+                // error must be saved before closing the stream, which makes the writer fail
+                tableDataError.compareAndSet(null, ex);
+                throw ex;
+            } finally {
+                try {
+                    in.close();
+                } finally {
+                    tableDataPermits.release();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Executes post-data statements taken from the shared queue until the queue is empty.
+     */
+    private class PostDataWorker implements Callable<Void> {
+        private Queue<PostDataStatement> statementsQueue;
+
+        PostDataWorker(Queue<PostDataStatement> statementsQueue) {
+            this.statementsQueue = statementsQueue;
+        }
+
+        @Override
+        public Void call() throws SQLException, InterruptedException {
+            try (Connection connection = PostgresConnections.open(databaseSettings);
+                 Statement statement = connection.createStatement()) {
+                statement.setEscapeProcessing(false);
+
+                List<String> appliedSessionStatements = null;
+                PostDataStatement postDataStatement;
+                while ((postDataStatement = statementsQueue.poll()) != null) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    // session statements lists are immutable and shared between statements, so identity comparison is enough
+                    if (postDataStatement.sessionStatements != appliedSessionStatements) {
+                        for (String sessionStatement : postDataStatement.sessionStatements) {
+                            statement.execute(sessionStatement);
+                        }
+                        appliedSessionStatements = postDataStatement.sessionStatements;
+                    }
+
+                    executeStatement(statement, postDataStatement.sql);
+                }
+            }
+            return null;
+        }
+    }
+}
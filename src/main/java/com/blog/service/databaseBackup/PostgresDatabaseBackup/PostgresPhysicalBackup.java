@@ -0,0 +1,472 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.entities.database.DatabaseSettings;
+import com.blog.service.ErrorCallbackService;
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.Errors.InternalPostgresToolError;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Creates and restores physical backups of PostgreSQL cluster used for point-in-time recovery.
+ * <p>
+ * Base backup is created by <i>pg_basebackup</i> tool as tar archive. WAL written after the base backup is streamed by
+ * <i>pg_receivewal</i> tool (<i>pg_receivexlog</i> in PostgreSQL 9.6 and older) through replication slot, so no WAL is lost between
+ * archived segments. Both tools connect to the server using replication protocol, so the server must be configured with
+ * {@code wal_level} set to {@literal replica}, free WAL senders and replication slots and {@code pg_hba.conf} entry allowing replication
+ * connections of the user.
+ * <p>
+ * Physical backups can't be restored into running server. Instead, base backup and archived WAL segments are written into empty data
+ * directory and recovery is configured, so the cluster replays WAL up to the target time when it is started on that directory.
+ */
+@Service
+public class PostgresPhysicalBackup {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresPhysicalBackup.class);
+
+    /**
+     * Directory inside of data directory, into which archived WAL segments are restored.
+     */
+    private static final String WAL_ARCHIVE_DIRECTORY = "wal_archive";
+
+    private static final String SLOT_NAME_PREFIX = "dbbackuptool_";
+
+    private static final long SLOT_ACTIVATION_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final long SLOT_ACTIVATION_POLL_INTERVAL_MILLIS = 200;
+
+    private static final long SLOT_RELEASE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final DateTimeFormatter RECOVERY_TARGET_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private String pgBasebackupToolPath;
+
+    private String pgReceivewalToolPath;
+
+    private ErrorCallbackService errorCallbackService;
+
+    private ExecutorService postgresExecutorService;
+
+    @Autowired
+    public void setPgBasebackupToolPath(String pgBasebackupToolPath) {
+        this.pgBasebackupToolPath = pgBasebackupToolPath;
+    }
+
+    @Autowired
+    public void setPgReceivewalToolPath(String pgReceivewalToolPath) {
+        this.pgReceivewalToolPath = pgReceivewalToolPath;
+    }
+
+    @Autowired
+    public void setErrorCallbackService(ErrorCallbackService errorCallbackService) {
+        this.errorCallbackService = errorCallbackService;
+    }
+
+    @Autowired
+    public void setPostgresExecutorService(ExecutorService postgresExecutorService) {
+        this.postgresExecutorService = postgresExecutorService;
+    }
+
+    /**
+     * Returns name of replication slot used to stream WAL of the base backup.
+     *
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     * @return replication slot name
+     */
+    public static String getSlotName(@NotNull Integer backupPropertiesId) {
+        return SLOT_NAME_PREFIX + backupPropertiesId;
+    }
+
+    /**
+     * Drops replication slot used to stream WAL of the base backup if it still exists.
+     * <p>
+     * Usually you don't want to call this method directly, since the slot is dropped on closing of the WAL receiver. Use it to revert
+     * WAL archiving tasks, receiver of which could not drop the slot.
+     *
+     * @param databaseSettings   database settings of any database of the cluster
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     */
+    public void dropSlot(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+
+        String slotName = getSlotName(backupPropertiesId);
+        try {
+            if (PostgresConnections.dropReplicationSlot(databaseSettings, slotName, SLOT_RELEASE_TIMEOUT_MILLIS)) {
+                logger.info("Physical replication slot dropped. Slot: {}", slotName);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for release of physical replication slot " + slotName);
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error dropping physical replication slot " + slotName, ex);
+        }
+    }
+
+    private ProcessBuilder buildProcess(List<String> command, DatabaseSettings databaseSettings) {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.environment().put("PGUSER", databaseSettings.getLogin());
+        pb.environment().put("PGPASSWORD", databaseSettings.getPassword());
+
+        return pb;
+    }
+
+    private List<String> buildConnectionCommand(String toolPath, DatabaseSettings databaseSettings) {
+        List<String> command = new ArrayList<>();
+
+        command.add(toolPath);
+        command.add("-h");
+        command.add(databaseSettings.getHost());
+        command.add("-p");
+        command.add(Integer.toString(databaseSettings.getPort()));
+        command.add("-U");
+        command.add(databaseSettings.getLogin());
+        // password is passed through environment, so the tool must never wait for password prompt
+        command.add("-w");
+
+        return command;
+    }
+
+    private List<String> buildBaseBackupCommand(DatabaseSettings databaseSettings) {
+        List<String> command = buildConnectionCommand(pgBasebackupToolPath, databaseSettings);
+
+        command.add("-D");
+        command.add("-");
+        command.add("-F");
+        command.add("t");
+        // WAL required to make base backup consistent is included into the archive
+        command.add("-X");
+        command.add("fetch");
+        command.add("-c");
+        command.add("fast");
+
+        return command;
+    }
+
+    private List<String> buildReceiveWalCommand(DatabaseSettings databaseSettings, String slotName, @Nullable Path walDirectory,
+                                                String... options) {
+        List<String> command = buildConnectionCommand(pgReceivewalToolPath, databaseSettings);
+
+        if (walDirectory != null) {
+            command.add("-D");
+            command.add(walDirectory.toString());
+        }
+        command.add("--slot=" + slotName);
+        command.addAll(Arrays.asList(options));
+
+        return command;
+    }
+
+    private void logStderr(InputStream in) {
+        try (BufferedReader errorStreamReader = new BufferedReader(new InputStreamReader(in))) {
+            String error;
+            while ((error = errorStreamReader.readLine()) != null) {
+                logger.error("[PHYSICAL BACKUP] stderr: {}", error);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error occurred while reading process standard error stream", ex);
+        }
+    }
+
+    private void runTool(List<String> command, DatabaseSettings databaseSettings) throws InterruptedException {
+        Process process;
+        try {
+            process = buildProcess(command, databaseSettings).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error starting PostgreSQL tool process " + command.get(0), ex);
+        }
+
+        postgresExecutorService.submit(() -> logStderr(process.getErrorStream()));
+
+        try {
+            int exitVal = process.waitFor();
+            if (exitVal != 0) {
+                throw new InternalPostgresToolError(String.format(
+                        "PostgreSQL tool process %s terminated with error (exit code: %s). See process's stderr log for details",
+                        command.get(0), exitVal));
+            }
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Creates base backup of PostgreSQL cluster.
+     * <p>
+     * Base backup is tar archive of the whole cluster data directory created by <i>pg_basebackup</i> tool. WAL required to make the
+     * backup consistent is included into archive.
+     * <p>
+     * As with {@link PostgresDatabaseBackup#createBackup(DatabaseSettings, Integer)}, the returned stream is connected directly to the
+     * process's output stream and errors of the process are reported to {@link ErrorCallbackService}.
+     *
+     * @param databaseSettings database settings of the cluster to back up
+     * @param id               task ID
+     * @return input stream, connected to the output stream of the pg_basebackup process
+     */
+    @NotNull
+    public InputStream createBaseBackup(@NotNull DatabaseSettings databaseSettings, @NotNull Integer id) {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(id);
+
+        logger.info("Creating PostgreSQL base backup of cluster hosted on address {}:{}", databaseSettings.getHost(),
+                databaseSettings.getPort());
+
+        Process process;
+        try {
+            process = buildProcess(buildBaseBackupCommand(databaseSettings), databaseSettings).start();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error starting PostgreSQL base backup process", ex);
+        }
+
+        // if process was already destroyed it does nothing
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+        postgresExecutorService.submit(() -> logStderr(process.getErrorStream()));
+        postgresExecutorService.submit(() -> {
+            try {
+                int exitVal = process.waitFor();
+                logger.debug("PostgreSQL base backup process exited with value {}", exitVal);
+                // 141 is write error when the stream was closed because of another error
+                if (exitVal != 0 && exitVal != 141) {
+                    errorCallbackService.onError(new InternalPostgresToolError(String.format(
+                            "PostgreSQL base backup process terminated with error (exit code: %s). See process's stderr log for details",
+                            exitVal)), id);
+                }
+            } catch (InterruptedException ex) {
+                // this thread might be interrupted only by the shutdown() method on executor service destroying
+                // process will be destroyed by the shutdown hook, so do nothing
+            }
+        });
+
+        return process.getInputStream();
+    }
+
+    /**
+     * Starts streaming WAL of PostgreSQL cluster.
+     * <p>
+     * Replication slot is created if it does not exist yet. This method returns only when the receiver is connected to the slot, so
+     * WAL written after the method returns is never lost. Hence, the receiver should be started before creating base backup.
+     *
+     * @param databaseSettings   database settings of the cluster
+     * @param backupPropertiesId identifier of backup properties of the base backup
+     * @param id                 task ID
+     * @return started receiver. It must be closed to drop the replication slot
+     */
+    @NotNull
+    public WalReceiver startWalReceiver(@NotNull DatabaseSettings databaseSettings, @NotNull Integer backupPropertiesId,
+                                        @NotNull Integer id) throws InterruptedException {
+        Objects.requireNonNull(databaseSettings);
+        Objects.requireNonNull(backupPropertiesId);
+        Objects.requireNonNull(id);
+
+        String slotName = getSlotName(backupPropertiesId);
+        logger.info("Starting PostgreSQL WAL receiver. Slot: {}. Cluster address: {}:{}", slotName, databaseSettings.getHost(),
+                databaseSettings.getPort());
+
+        runTool(buildReceiveWalCommand(databaseSettings, slotName, null, "--create-slot", "--if-not-exists"), databaseSettings);
+
+        Runnable slotDropper = () -> {
+            try {
+                runTool(buildReceiveWalCommand(databaseSettings, slotName, null, "--drop-slot"), databaseSettings);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        Path walDirectory;
+        Process process;
+        try {
+            walDirectory = Files.createTempDirectory("pg_receivewal_" + id + "_");
+        } catch (IOException ex) {
+            slotDropper.run();
+            throw new RuntimeException("Error creating temporary directory for received WAL", ex);
+        }
+        try {
+            // -n: do not reconnect, so connection errors are reported
+            process = buildProcess(buildReceiveWalCommand(databaseSettings, slotName, walDirectory, "-n"), databaseSettings)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException ex) {
+            slotDropper.run();
+            FileSystemUtils.deleteRecursively(walDirectory.toFile());
+            throw new RuntimeException("Error starting PostgreSQL WAL receiver process", ex);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+        postgresExecutorService.submit(() -> logStderr(process.getErrorStream()));
+
+        WalReceiver walReceiver = new WalReceiver(process, walDirectory, slotDropper);
+        try {
+            waitForActiveSlot(databaseSettings, slotName, process);
+        } catch (InterruptedException | RuntimeException ex) {
+            walReceiver.close();
+            throw ex;
+        }
+
+        logger.info("PostgreSQL WAL receiver started. Slot: {}", slotName);
+
+        return walReceiver;
+    }
+
+    private void waitForActiveSlot(DatabaseSettings databaseSettings, String slotName, Process process) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SLOT_ACTIVATION_TIMEOUT_MILLIS;
+        try (Connection connection = PostgresConnections.open(databaseSettings);
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT active FROM pg_catalog.pg_replication_slots WHERE slot_name = ?")) {
+            statement.setString(1, slotName);
+            while (true) {
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next() && resultSet.getBoolean(1)) {
+                        return;
+                    }
+                }
+                if (!process.isAlive()) {
+                    throw new InternalPostgresToolError(String.format(
+                            "PostgreSQL WAL receiver process terminated (exit code: %s). See process's stderr log for details",
+                            process.exitValue()));
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new InternalPostgresToolError("PostgreSQL WAL receiver did not connect to replication slot " + slotName);
+                }
+                Thread.sleep(SLOT_ACTIVATION_POLL_INTERVAL_MILLIS);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error checking state of replication slot " + slotName, ex);
+        }
+    }
+
+    /**
+     * Extracts base backup into the data directory.
+     *
+     * @param in            base backup
+     * @param dataDirectory data directory to restore the cluster into. It must not exist or be empty
+     */
+    public void restoreBaseBackup(@NotNull InputStream in, @NotNull Path dataDirectory) {
+        Objects.requireNonNull(in);
+        Objects.requireNonNull(dataDirectory);
+
+        logger.info("Restoring PostgreSQL base backup into data directory {}", dataDirectory);
+
+        try {
+            if (Files.isDirectory(dataDirectory)) {
+                try (Stream<Path> files = Files.list(dataDirectory)) {
+                    if (files.findAny().isPresent()) {
+                        throw new RuntimeException("Can't restore base backup: data directory is not empty: " + dataDirectory);
+                    }
+                }
+            }
+            Files.createDirectories(dataDirectory);
+            // PostgreSQL refuses to start on data directory accessible by other users
+            if (Files.getFileStore(dataDirectory).supportsFileAttributeView("posix")) {
+                Files.setPosixFilePermissions(dataDirectory, PosixFilePermissions.fromString("rwx------"));
+            }
+
+            TarArchiveExtractor.extract(in, dataDirectory);
+        } catch (InterruptedIOException ex) {
+            logger.error("PostgreSQL base backup restoration was interrupted. Data directory: {}", dataDirectory);
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error restoring PostgreSQL base backup into data directory " + dataDirectory, ex);
+        }
+
+        logger.info("PostgreSQL base backup successfully restored. Data directory: {}", dataDirectory);
+    }
+
+    /**
+     * Saves archived WAL segment into the data directory, so it can be replayed on recovery.
+     *
+     * @param in            WAL segment
+     * @param dataDirectory data directory base backup was restored into
+     * @param segmentName   WAL file name
+     */
+    public void restoreWalSegment(@NotNull InputStream in, @NotNull Path dataDirectory, @NotNull String segmentName) {
+        Objects.requireNonNull(in);
+        Objects.requireNonNull(dataDirectory);
+        Objects.requireNonNull(segmentName);
+
+        Path archiveDirectory = dataDirectory.resolve(WAL_ARCHIVE_DIRECTORY);
+        Path segmentFile = archiveDirectory.resolve(segmentName).normalize();
+        if (!archiveDirectory.equals(segmentFile.getParent())) {
+            throw new RuntimeException("Can't restore WAL segment: invalid segment name: " + segmentName);
+        }
+
+        try {
+            Files.createDirectories(archiveDirectory);
+            Files.copy(in, segmentFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (InterruptedIOException ex) {
+            logger.error("PostgreSQL WAL segment restoration was interrupted. Segment: {}", segmentName);
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error restoring PostgreSQL WAL segment " + segmentName, ex);
+        }
+    }
+
+    /**
+     * Configures recovery of the restored cluster.
+     * <p>
+     * Restored WAL segments are replayed up to the target time and then the cluster is promoted. If target time is not set, all restored
+     * WAL is replayed. PostgreSQL 12 and newer read recovery settings from {@literal postgresql.auto.conf} and start recovery if
+     * {@literal recovery.signal} file exists, older versions read {@literal recovery.conf} file.
+     *
+     * @param dataDirectory data directory base backup was restored into
+     * @param targetTime    UTC time to recover the cluster to or {@literal null} to recover to the end of archived WAL
+     */
+    public void configureRecovery(@NotNull Path dataDirectory, @Nullable LocalDateTime targetTime) {
+        Objects.requireNonNull(dataDirectory);
+
+        Path archiveDirectory = dataDirectory.resolve(WAL_ARCHIVE_DIRECTORY).toAbsolutePath();
+        String copyCommand = File.separatorChar == '\\' ? "copy \"%s\\%%f\" \"%%p\"" : "cp \"%s/%%f\" \"%%p\"";
+
+        StringBuilder settings = new StringBuilder("\n");
+        settings.append(String.format("restore_command = '%s'\n",
+                String.format(copyCommand, archiveDirectory).replace("'", "''")));
+        if (targetTime != null) {
+            settings.append(String.format("recovery_target_time = '%s+00'\n", targetTime.format(RECOVERY_TARGET_TIME_FORMATTER)));
+        }
+        settings.append("recovery_target_action = 'promote'\n");
+
+        try {
+            Files.createDirectories(archiveDirectory);
+
+            String version = new String(Files.readAllBytes(dataDirectory.resolve("PG_VERSION")), StandardCharsets.US_ASCII).trim();
+            int majorVersion = Integer.parseInt(version.split("\\.")[0]);
+            if (majorVersion >= 12) {
+                Files.write(dataDirectory.resolve("postgresql.auto.conf"), settings.toString().getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                Files.createFile(dataDirectory.resolve("recovery.signal"));
+            } else {
+                Files.write(dataDirectory.resolve("recovery.conf"), settings.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException | NumberFormatException ex) {
+            throw new RuntimeException("Error configuring recovery of PostgreSQL cluster in data directory " + dataDirectory, ex);
+        }
+
+        logger.info("PostgreSQL recovery configured. Data directory: {}. Target time: {}", dataDirectory,
+                targetTime == null ? "end of archived WAL" : targetTime);
+    }
+}
@@ -0,0 +1,443 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Splits SQL script produced by <i>pg_dump</i> into separate statements, so the statements can be executed through JDBC.
+ * <p>
+ * Splitter correctly handles string literals (including escape string literals), quoted identifiers, dollar-quoted strings, line and
+ * block comments. Comments preceding the statement are returned as part of the statement, so <i>pg_dump</i> object headers (e.g.
+ * {@code -- Name: comments; Type: TABLE; Schema: public; Owner: postgres}) are preserved.
+ * <p>
+ * <i>psql</i> meta-commands (lines starting with backslash) are skipped, since they can't be executed by the server.
+ * <p>
+ * Data of <i>COPY ... FROM stdin</i> statements is not parsed as SQL, so it must be consumed by {@link #readCopyData(OutputStream)} right
+ * after such statement is returned.
+ * <p>
+ * UTF-8 scripts should be read from the {@link InputStream}: the script is parsed byte by byte then (SQL syntax characters are ASCII and
+ * never occur inside UTF-8 multi-byte sequences), and COPY data is passed as is, without decoding. Scripts of other encodings are read
+ * from the {@link Reader} and their COPY data is transcoded to UTF-8.
+ */
+class SqlScriptSplitter {
+    private static final int NO_LOOKAHEAD = -2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Length of the end-of-data marker line ({@code \.}) including the line terminator.
+     */
+    private static final int END_OF_DATA_LINE_LENGTH = 3;
+
+    @Nullable
+    private final BufferedReader reader;
+
+    @Nullable
+    private final InputStream input;
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private boolean inputEnded;
+
+    private int lookahead = NO_LOOKAHEAD;
+
+    private boolean atLineStart = true;
+
+    SqlScriptSplitter(@NotNull Reader reader) {
+        Objects.requireNonNull(reader);
+        if (reader instanceof BufferedReader) {
+            this.reader = (BufferedReader) reader;
+        } else {
+            this.reader = new BufferedReader(reader);
+        }
+        this.input = null;
+        this.buffer = null;
+    }
+
+    /**
+     * Creates splitter of UTF-8 script.
+     *
+     * @param input script stream
+     */
+    SqlScriptSplitter(@NotNull InputStream input) {
+        this.reader = null;
+        this.input = Objects.requireNonNull(input);
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Removes comments and whitespaces preceding the statement text.
+     *
+     * @param statement statement returned by {@link #nextStatement()}
+     * @return statement without leading comments
+     */
+    static String stripLeadingComments(@NotNull String statement) {
+        int position = 0;
+        while (position < statement.length()) {
+            if (Character.isWhitespace(statement.charAt(position))) {
+                position++;
+            } else if (statement.startsWith("--", position)) {
+                int lineEnd = statement.indexOf('\n', position);
+                position = (lineEnd == -1) ? statement.length() : lineEnd + 1;
+            } else if (statement.startsWith("/*", position)) {
+                int depth = 0;
+                do {
+                    if (statement.startsWith("/*", position)) {
+                        depth++;
+                        position += 2;
+                    } else if (statement.startsWith("*/", position)) {
+                        depth--;
+                        position += 2;
+                    } else {
+                        position++;
+                    }
+                } while (depth > 0 && position < statement.length());
+            } else {
+                break;
+            }
+        }
+        return statement.substring(position);
+    }
+
+    /**
+     * Checks whether the character can be part of identifier.
+     * <p>
+     * Like PostgreSQL lexer, any non-ASCII character (or byte of UTF-8 multi-byte sequence) is considered an identifier character.
+     */
+    private static boolean isIdentifierChar(int c) {
+        return c >= 0x80 || Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * Reads more bytes of the script into the buffer, moving unread bytes to its beginning.
+     *
+     * @return {@literal false} if the end of script is reached
+     */
+    private boolean fillBuffer() throws IOException {
+        if (inputEnded) {
+            return false;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+
+        int bytesRead = input.read(buffer, limit, buffer.length - limit);
+        if (bytesRead == -1) {
+            inputEnded = true;
+            return false;
+        }
+        limit += bytesRead;
+        return true;
+    }
+
+    private int readNext() throws IOException {
+        if (reader != null) {
+            return reader.read();
+        }
+        if (position == limit && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if (lookahead != NO_LOOKAHEAD) {
+            int c = lookahead;
+            lookahead = NO_LOOKAHEAD;
+            return c;
+        }
+        return readNext();
+    }
+
+    private int peek() throws IOException {
+        if (lookahead == NO_LOOKAHEAD) {
+            lookahead = readNext();
+        }
+        return lookahead;
+    }
+
+    /**
+     * Converts parsed statement to string.
+     * <p>
+     * Bytes of UTF-8 script are collected as ISO-8859-1 characters, so they are decoded here.
+     */
+    private String toStatementString(StringBuilder statement) {
+        String text = statement.toString().trim();
+        if (input != null) {
+            return new String(text.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    private int lastChar(StringBuilder statement, int offset) {
+        int index = statement.length() - 1 - offset;
+        return index >= 0 ? statement.charAt(index) : -1;
+    }
+
+    /**
+     * Returns the next statement of the script.
+     *
+     * @return the next statement including terminating semicolon or {@literal null} if there are no more statements
+     */
+    @Nullable
+    String nextStatement() throws IOException {
+        StringBuilder statement = new StringBuilder();
+        // whether statement contains anything except whitespaces and comments
+        boolean hasCode = false;
+
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '\\' && atLineStart && !hasCode) {
+                skipLine();
+                continue;
+            }
+            atLineStart = (c == '\n');
+
+            if (c == '-' && peek() == '-') {
+                statement.append((char) c);
+                readLineComment(statement);
+            } else if (c == '/' && peek() == '*') {
+                statement.append((char) c);
+                readBlockComment(statement);
+            } else if (c == '\'') {
+                boolean escapeString = (lastChar(statement, 0) == 'E' || lastChar(statement, 0) == 'e') &&
+                        !isIdentifierChar(lastChar(statement, 1));
+                statement.append((char) c);
+                readStringLiteral(statement, escapeString);
+                hasCode = true;
+            } else if (c == '"') {
+                statement.append((char) c);
+                readQuotedIdentifier(statement);
+                hasCode = true;
+            } else if (c == '$' && !isIdentifierChar(lastChar(statement, 0))) {
+                statement.append((char) c);
+                readPossibleDollarQuote(statement);
+                hasCode = true;
+            } else if (c == ';') {
+                if (hasCode) {
+                    statement.append((char) c);
+                    return toStatementString(statement);
+                }
+                // skip empty statement
+                statement.setLength(0);
+            } else {
+                statement.append((char) c);
+                if (!Character.isWhitespace(c)) {
+                    hasCode = true;
+                }
+            }
+        }
+
+        if (hasCode) {
+            return toStatementString(statement);
+        }
+        return null;
+    }
+
+    /**
+     * Reads data of {@code COPY ... FROM stdin} statement returned by the last {@link #nextStatement()} call.
+     * <p>
+     * Data lines are written into the stream in UTF-8 encoding until the end-of-data marker ({@code \.} line) is read. The marker itself
+     * is not written. Data of UTF-8 script is written as is, in ranges of the read buffer.
+     *
+     * @param out the stream to write data to
+     */
+    void readCopyData(@NotNull OutputStream out) throws IOException {
+        // skip the rest of statement line
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && c != '\n');
+        if (c == -1) {
+            throw new EOFException("Unexpected end of script: COPY data is missing");
+        }
+
+        // lookahead is empty after read(), so data can be read directly
+        if (input != null) {
+            copyData(out);
+            return;
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.equals("\\.")) {
+                atLineStart = true;
+                return;
+            }
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+        throw new EOFException("Unexpected end of script: COPY data is not terminated");
+    }
+
+    private boolean isEndOfDataLine() {
+        int available = limit - position;
+        if (available < 2 || buffer[position] != '\\' || buffer[position + 1] != '.') {
+            return false;
+        }
+        return available == 2 || buffer[position + 2] == '\n' || buffer[position + 2] == '\r';
+    }
+
+    private int indexOfLineEnd() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void copyData(OutputStream out) throws IOException {
+        // start of data not written yet
+        int dataStart = position;
+        while (true) {
+            // position is at the start of data line here
+            if (limit - position < END_OF_DATA_LINE_LENGTH && !inputEnded) {
+                // the whole marker line must be in the buffer to be recognized
+                out.write(buffer, dataStart, position - dataStart);
+                boolean filled;
+                do {
+                    filled = fillBuffer();
+                } while (filled && limit - position < END_OF_DATA_LINE_LENGTH);
+                dataStart = position;
+            }
+            if (isEndOfDataLine()) {
+                out.write(buffer, dataStart, position - dataStart);
+                position += 2;
+                skipLine();
+                return;
+            }
+
+            int lineEnd;
+            while ((lineEnd = indexOfLineEnd()) == -1) {
+                out.write(buffer, dataStart, limit - dataStart);
+                position = limit;
+                if (!fillBuffer()) {
+                    throw new EOFException("Unexpected end of script: COPY data is not terminated");
+                }
+                dataStart = position;
+            }
+            position = lineEnd + 1;
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '\n') {
+                break;
+            }
+        }
+        atLineStart = true;
+    }
+
+    private void readLineComment(StringBuilder statement) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '\n') {
+                atLineStart = true;
+                return;
+            }
+        }
+    }
+
+    private void readBlockComment(StringBuilder statement) throws IOException {
+        // opening '*'
+        statement.append((char) read());
+
+        int depth = 1;
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '*' && peek() == '/') {
+                statement.append((char) read());
+                if (--depth == 0) {
+                    return;
+                }
+            } else if (c == '/' && peek() == '*') {
+                statement.append((char) read());
+                depth++;
+            }
+        }
+    }
+
+    private void readStringLiteral(StringBuilder statement, boolean escapeString) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '\\' && escapeString) {
+                int escaped = read();
+                if (escaped == -1) {
+                    return;
+                }
+                statement.append((char) escaped);
+            } else if (c == '\'') {
+                if (peek() == '\'') {
+                    statement.append((char) read());
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readQuotedIdentifier(StringBuilder statement) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '"') {
+                if (peek() == '"') {
+                    statement.append((char) read());
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readPossibleDollarQuote(StringBuilder statement) throws IOException {
+        // dollar quote tag can't start with digit, otherwise it is a positional parameter
+        int c = peek();
+        if (Character.isDigit(c)) {
+            return;
+        }
+
+        StringBuilder tag = new StringBuilder("$");
+        while ((c = read()) != -1) {
+            if (c == '$') {
+                tag.append('$');
+                statement.append('$');
+                break;
+            }
+            if (!isIdentifierChar(c)) {
+                // not a dollar quote
+                lookahead = c;
+                return;
+            }
+            tag.append((char) c);
+            statement.append((char) c);
+        }
+        if (c == -1) {
+            return;
+        }
+
+        String delimiter = tag.toString();
+        int bodyStart = statement.length();
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '$' && statement.length() - bodyStart >= delimiter.length() &&
+                    statement.indexOf(delimiter, statement.length() - delimiter.length()) >= 0) {
+                break;
+            }
+        }
+        atLineStart = false;
+    }
+}
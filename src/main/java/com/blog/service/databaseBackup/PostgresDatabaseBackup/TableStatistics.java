@@ -0,0 +1,94 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Change counters and physical state of PostgreSQL table used to detect whether the table changed since the previous backup.
+ * <p>
+ * Counters are taken from {@code pg_stat_user_tables}. They only grow, unless statistics are reset, so the table is considered changed
+ * if any value differs. Relation size and file node catch changes not counted as tuple changes (e.g. {@code TRUNCATE} and
+ * {@code VACUUM FULL}), and columns signature catches schema changes that don't rewrite the table.
+ */
+public final class TableStatistics {
+    private final long insertedTuples;
+
+    private final long updatedTuples;
+
+    private final long deletedTuples;
+
+    private final long size;
+
+    private final long fileNode;
+
+    private final String columnsSignature;
+
+    public TableStatistics(long insertedTuples, long updatedTuples, long deletedTuples, long size, long fileNode,
+                           @NotNull String columnsSignature) {
+        this.insertedTuples = insertedTuples;
+        this.updatedTuples = updatedTuples;
+        this.deletedTuples = deletedTuples;
+        this.size = size;
+        this.fileNode = fileNode;
+        this.columnsSignature = Objects.requireNonNull(columnsSignature);
+    }
+
+    public long getInsertedTuples() {
+        return insertedTuples;
+    }
+
+    public long getUpdatedTuples() {
+        return updatedTuples;
+    }
+
+    public long getDeletedTuples() {
+        return deletedTuples;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getFileNode() {
+        return fileNode;
+    }
+
+    public String getColumnsSignature() {
+        return columnsSignature;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TableStatistics that = (TableStatistics) o;
+        return insertedTuples == that.insertedTuples &&
+                updatedTuples == that.updatedTuples &&
+                deletedTuples == that.deletedTuples &&
+                size == that.size &&
+                fileNode == that.fileNode &&
+                columnsSignature.equals(that.columnsSignature);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(insertedTuples, updatedTuples, deletedTuples, size, fileNode, columnsSignature);
+    }
+
+    @Override
+    public String toString() {
+        return "TableStatistics{" +
+                "insertedTuples=" + insertedTuples +
+                ", updatedTuples=" + updatedTuples +
+                ", deletedTuples=" + deletedTuples +
+                ", size=" + size +
+                ", fileNode=" + fileNode +
+                ", columnsSignature='" + columnsSignature + '\'' +
+                '}';
+    }
+}
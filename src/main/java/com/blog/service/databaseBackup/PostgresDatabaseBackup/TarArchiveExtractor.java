@@ -0,0 +1,161 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Extracts tar archives written by <i>pg_basebackup</i>.
+ * <p>
+ * <i>pg_basebackup</i> writes POSIX ustar archives containing regular files, directories and symbolic links (tablespace links). Sizes of
+ * large files may be written in base-256 encoding. Other entry types are not written by <i>pg_basebackup</i>, so they are skipped.
+ */
+class TarArchiveExtractor {
+    private static final int BLOCK_SIZE = 512;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private TarArchiveExtractor() {
+    }
+
+    /**
+     * Extracts archive into the directory.
+     * <p>
+     * Archive is read up to the end-of-archive marker.
+     *
+     * @param in        archive stream
+     * @param directory directory to extract archive into
+     */
+    static void extract(@NotNull InputStream in, @NotNull Path directory) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        byte[] header = new byte[BLOCK_SIZE];
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        while (true) {
+            if (!readBlock(in, header)) {
+                // archive is not terminated by empty blocks
+                return;
+            }
+            if (isEmptyBlock(header)) {
+                return;
+            }
+
+            String name = readString(header, 0, 100);
+            String prefix = readString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+            long size = readNumber(header, 124, 12);
+            char type = (char) header[156];
+
+            Path target = root.resolve(name).normalize();
+            if (!target.startsWith(root)) {
+                throw new IOException("Invalid tar entry: path is outside of target directory: " + name);
+            }
+
+            switch (type) {
+                case '0':
+                case '\0': {
+                    Files.createDirectories(target.getParent());
+                    try (OutputStream out = Files.newOutputStream(target)) {
+                        copy(in, out, size, buffer);
+                    }
+                    skip(in, padding(size), buffer);
+                    break;
+                }
+                case '5': {
+                    Files.createDirectories(target);
+                    break;
+                }
+                case '2': {
+                    Files.createDirectories(target.getParent());
+                    Files.createSymbolicLink(target, Path.of(readString(header, 157, 100)));
+                    break;
+                }
+                default: {
+                    skip(in, size + padding(size), buffer);
+                }
+            }
+        }
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int offset = 0;
+        while (offset < block.length) {
+            int bytesRead = in.read(block, offset, block.length - offset);
+            if (bytesRead == -1) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new EOFException("Unexpected end of tar archive");
+            }
+            offset += bytesRead;
+        }
+        return true;
+    }
+
+    private static boolean isEmptyBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long readNumber(byte[] header, int offset, int length) throws IOException {
+        // base-256 encoding is used for numbers not fitting into octal field
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xFF);
+            }
+            return value;
+        }
+
+        String octal = readString(header, offset, length).trim();
+        if (octal.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(octal, 8);
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid tar entry header: malformed number " + octal, ex);
+        }
+    }
+
+    private static long padding(long size) {
+        long remainder = size % BLOCK_SIZE;
+        return remainder == 0 ? 0 : BLOCK_SIZE - remainder;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long size, byte[] buffer) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            int bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (bytesRead == -1) {
+                throw new EOFException("Unexpected end of tar archive");
+            }
+            out.write(buffer, 0, bytesRead);
+            remaining -= bytesRead;
+        }
+    }
+
+    private static void skip(InputStream in, long size, byte[] buffer) throws IOException {
+        copy(in, OutputStream.nullOutputStream(), size, buffer);
+    }
+}
@@ -0,0 +1,440 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Replays changes decoded by <i>test_decoding</i> output plugin as SQL statements.
+ * <p>
+ * <i>test_decoding</i> describes every change as text (e.g. {@code table public.comments: INSERT: id[integer]:1 author[text]:'Bob'}).
+ * Inserted rows contain all columns. Updated and deleted rows are identified by replica identity of the table, which is the primary key by
+ * default: it is printed as {@literal old-key} of updates if it was changed and as the whole description of deletes. Unchanged TOAST
+ * values of updated rows are not printed, so they are not updated.
+ * <p>
+ * Changes are replayed with {@code session_replication_role} set to {@literal replica}, so ordinary triggers and foreign key checks don't
+ * fire: side effects of triggers are captured as changes on their own.
+ * <p>
+ * Every transaction is replayed in a separate database transaction. Replay stops at the first transaction committed after the target
+ * position. Sequences are not decoded, so sequences owned by changed tables are advanced past the maximal column values on
+ * {@link #finish()}.
+ */
+class TestDecodingReplayer {
+    private static final String TABLE_PREFIX = "table ";
+
+    private static final String NO_TUPLE_DATA = "(no-tuple-data)";
+
+    private static final String OLD_KEY = " old-key:";
+
+    private static final String NEW_TUPLE = " new-tuple:";
+
+    private static final Pattern unquotedLiteralPattern = Pattern.compile("-?[0-9.]+(?:[eE][-+]?[0-9]+)?|true|false");
+
+    private final Connection connection;
+
+    private final long targetLsn;
+
+    private final Map<String, List<String>> keyColumnsCache = new HashMap<>();
+
+    private final Set<String> changedTables = new LinkedHashSet<>();
+
+    private final List<String> transaction = new ArrayList<>();
+
+    private final Set<String> transactionTables = new HashSet<>();
+
+    /**
+     * @param connection connection to the database to replay changes into. Auto-commit mode is disabled and session replication role is
+     *                   set to {@literal replica}
+     * @param targetLsn  WAL position, transactions committed after which are not replayed
+     */
+    TestDecodingReplayer(@NotNull Connection connection, long targetLsn) throws SQLException {
+        this.connection = Objects.requireNonNull(connection);
+        this.targetLsn = targetLsn;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET session_replication_role = replica");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Converts the change into SQL statement.
+     *
+     * @param change     change description
+     * @param keyColumns returns names of primary key columns of the table
+     * @return SQL statement or {@literal null} if the change does not change any value
+     */
+    @Nullable
+    static String toSql(@NotNull String change, @NotNull Function<String, List<String>> keyColumns) {
+        Parser parser = new Parser(change);
+        parser.expect(TABLE_PREFIX);
+
+        List<String> tables = new ArrayList<>();
+        do {
+            tables.add(parser.readQualifiedName());
+        } while (parser.skip(", "));
+        parser.expect(": ");
+        String action = parser.readUntil(':');
+        parser.expect(":");
+
+        switch (action) {
+            case "INSERT": {
+                List<Column> row = parser.readTuple(change);
+                StringJoiner names = new StringJoiner(", ");
+                StringJoiner values = new StringJoiner(", ");
+                for (Column column : row) {
+                    names.add(quoteIdentifier(column.name));
+                    values.add(column.value);
+                }
+                return "INSERT INTO " + tables.get(0) + " (" + names + ") VALUES (" + values + ")";
+            }
+            case "UPDATE": {
+                List<Column> oldKey = null;
+                if (parser.skip(OLD_KEY)) {
+                    oldKey = parser.readTuple(change);
+                    parser.expect(NEW_TUPLE);
+                }
+                List<Column> row = parser.readTuple(change);
+                if (oldKey == null) {
+                    List<String> keyColumnNames = keyColumns.apply(tables.get(0));
+                    if (keyColumnNames.isEmpty()) {
+                        throw new RuntimeException("Can't replay update: table has no primary key: " + tables.get(0));
+                    }
+                    oldKey = new ArrayList<>();
+                    for (Column column : row) {
+                        if (keyColumnNames.contains(column.name)) {
+                            oldKey.add(column);
+                        }
+                    }
+                }
+
+                StringJoiner assignments = new StringJoiner(", ");
+                for (Column column : row) {
+                    if (!column.unchangedToast) {
+                        assignments.add(quoteIdentifier(column.name) + " = " + column.value);
+                    }
+                }
+                if (assignments.length() == 0) {
+                    // all values are unchanged TOAST values
+                    return null;
+                }
+                return "UPDATE " + tables.get(0) + " SET " + assignments + " WHERE " + buildCondition(oldKey);
+            }
+            case "DELETE": {
+                return "DELETE FROM " + tables.get(0) + " WHERE " + buildCondition(parser.readTuple(change));
+            }
+            case "TRUNCATE": {
+                String flags = parser.rest();
+                return "TRUNCATE TABLE " + String.join(", ", tables) + (flags.contains("restart_seqs") ? " RESTART IDENTITY" : "") +
+                        (flags.contains("cascade") ? " CASCADE" : "");
+            }
+            default: {
+                throw new RuntimeException("Can't replay change: unknown change type: " + change);
+            }
+        }
+    }
+
+    private static String getTable(String change) {
+        Parser parser = new Parser(change);
+        parser.expect(TABLE_PREFIX);
+        return parser.readQualifiedName();
+    }
+
+    private static String buildCondition(List<Column> key) {
+        StringJoiner condition = new StringJoiner(" AND ");
+        for (Column column : key) {
+            condition.add(quoteIdentifier(column.name) + (column.value.equals("NULL") ? " IS NULL" : " = " + column.value));
+        }
+        return condition.toString();
+    }
+
+    private List<String> getKeyColumns(String table) {
+        return keyColumnsCache.computeIfAbsent(table, name -> {
+            List<String> columns = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT a.attname FROM pg_catalog.pg_index i " +
+                            "JOIN pg_catalog.pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey) " +
+                            "WHERE i.indrelid = CAST(? AS regclass) AND i.indisprimary")) {
+                statement.setString(1, name);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        columns.add(resultSet.getString(1));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new RuntimeException("Error retrieving primary key of table " + name, ex);
+            }
+            return columns;
+        });
+    }
+
+    /**
+     * Replays changes of the segment.
+     *
+     * @param segment segment written by {@link LogicalChangeStream}
+     * @return {@literal false} if the target position is reached, so following segments should not be replayed
+     */
+    boolean replay(@NotNull InputStream segment) throws IOException, SQLException {
+        DataInputStream in = new DataInputStream(segment);
+        while (true) {
+            long lsn;
+            try {
+                lsn = in.readLong();
+            } catch (EOFException ex) {
+                return true;
+            }
+            byte[] message = new byte[in.readInt()];
+            in.readFully(message);
+            String change = new String(message, StandardCharsets.UTF_8);
+
+            if (change.startsWith("BEGIN")) {
+                transaction.clear();
+                transactionTables.clear();
+            } else if (change.startsWith("COMMIT")) {
+                if (Long.compareUnsigned(lsn, targetLsn) > 0) {
+                    transaction.clear();
+                    transactionTables.clear();
+                    return false;
+                }
+                commitTransaction();
+            } else if (change.startsWith(TABLE_PREFIX)) {
+                String sql = toSql(change, this::getKeyColumns);
+                if (sql != null) {
+                    transaction.add(sql);
+                    transactionTables.add(getTable(change));
+                }
+            }
+            // other messages (e.g. logical decoding messages) don't change data
+        }
+    }
+
+    private void commitTransaction() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : transaction) {
+                statement.addBatch(sql);
+            }
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+
+        changedTables.addAll(transactionTables);
+        transaction.clear();
+        transactionTables.clear();
+    }
+
+    /**
+     * Advances sequences owned by changed tables past the maximal values of their columns.
+     */
+    void finish() throws SQLException {
+        for (String table : changedTables) {
+            Map<String, String> ownedSequences = new LinkedHashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT s.oid::regclass::text, a.attname FROM pg_catalog.pg_depend d " +
+                            "JOIN pg_catalog.pg_class s ON s.oid = d.objid AND s.relkind = 'S' " +
+                            "JOIN pg_catalog.pg_attribute a ON a.attrelid = d.refobjid AND a.attnum = d.refobjsubid " +
+                            "WHERE d.classid = 'pg_catalog.pg_class'::regclass AND d.refobjid = CAST(? AS regclass) " +
+                            "AND d.deptype IN ('a', 'i')")) {
+                statement.setString(1, table);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ownedSequences.put(resultSet.getString(1), resultSet.getString(2));
+                    }
+                }
+            }
+
+            for (Map.Entry<String, String> ownedSequence : ownedSequences.entrySet()) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery(
+                             "SELECT pg_catalog.setval('" + ownedSequence.getKey().replace("'", "''") + "', m) FROM " +
+                                     "(SELECT max(" + quoteIdentifier(ownedSequence.getValue()) + ") AS m FROM " + table + ") t, " +
+                                     ownedSequence.getKey() + " s WHERE m IS NOT NULL AND (m > s.last_value OR NOT s.is_called)")) {
+                    resultSet.next();
+                }
+            }
+        }
+        connection.commit();
+    }
+
+    private static final class Column {
+        private final String name;
+
+        /**
+         * SQL literal of the value.
+         */
+        private final String value;
+
+        private final boolean unchangedToast;
+
+        Column(String name, String value, boolean unchangedToast) {
+            this.name = name;
+            this.value = value;
+            this.unchangedToast = unchangedToast;
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+
+        private int pos = 0;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        private RuntimeException malformed() {
+            return new RuntimeException("Can't replay change: malformed change description at position " + pos + ": " + text);
+        }
+
+        boolean skip(String token) {
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String token) {
+            if (!skip(token)) {
+                throw malformed();
+            }
+        }
+
+        String rest() {
+            String rest = text.substring(pos);
+            pos = text.length();
+            return rest;
+        }
+
+        String readUntil(char c) {
+            int end = text.indexOf(c, pos);
+            if (end == -1) {
+                throw malformed();
+            }
+            String token = text.substring(pos, end);
+            pos = end;
+            return token;
+        }
+
+        /**
+         * Reads quoted token (identifier or literal) including quotes.
+         */
+        private String readQuoted(char quote) {
+            int start = pos;
+            pos++;
+            while (true) {
+                int end = text.indexOf(quote, pos);
+                if (end == -1) {
+                    throw malformed();
+                }
+                pos = end + 1;
+                if (pos < text.length() && text.charAt(pos) == quote) {
+                    // doubled quote
+                    pos++;
+                } else {
+                    return text.substring(start, pos);
+                }
+            }
+        }
+
+        private String readIdentifier() {
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return readQuoted('"');
+            }
+            int start = pos;
+            while (pos < text.length() && ".:,[ ".indexOf(text.charAt(pos)) == -1) {
+                pos++;
+            }
+            if (start == pos) {
+                throw malformed();
+            }
+            return text.substring(start, pos);
+        }
+
+        /**
+         * Reads table name as printed by <i>test_decoding</i>, which is valid SQL.
+         */
+        String readQualifiedName() {
+            String name = readIdentifier();
+            if (skip(".")) {
+                name += "." + readIdentifier();
+            }
+            return name;
+        }
+
+        List<Column> readTuple(String change) {
+            List<Column> columns = new ArrayList<>();
+            if (skip(" " + NO_TUPLE_DATA)) {
+                throw new RuntimeException("Can't replay change: no row data, table may have no replica identity: " + change);
+            }
+            while (pos < text.length() && !text.startsWith(NEW_TUPLE, pos)) {
+                expect(" ");
+                String identifier = readIdentifier();
+                String name = identifier.startsWith("\"") ?
+                        identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"") : identifier;
+
+                expect("[");
+                int typeEnd = text.indexOf("]:", pos);
+                if (typeEnd == -1) {
+                    throw malformed();
+                }
+                String type = text.substring(pos, typeEnd);
+                pos = typeEnd + 2;
+
+                columns.add(readValue(name, type));
+            }
+            return columns;
+        }
+
+        private boolean skipWord(String word) {
+            int end = pos + word.length();
+            if (text.startsWith(word, pos) && (end == text.length() || text.charAt(end) == ' ')) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private Column readValue(String name, String type) {
+            if (skipWord("null")) {
+                return new Column(name, "NULL", false);
+            }
+            if (skipWord("unchanged-toast-datum")) {
+                return new Column(name, null, true);
+            }
+            if (pos < text.length() && text.charAt(pos) == '\'') {
+                return new Column(name, readQuoted('\'') + "::" + type, false);
+            }
+            if (text.startsWith("B'", pos)) {
+                pos++;
+                return new Column(name, "B" + readQuoted('\''), false);
+            }
+
+            int end = text.indexOf(' ', pos);
+            if (end == -1) {
+                end = text.length();
+            }
+            String value = text.substring(pos, end);
+            pos = end;
+            // numeric types are printed unquoted, including special values like NaN
+            if (unquotedLiteralPattern.matcher(value).matches()) {
+                return new Column(name, value, false);
+            }
+            return new Column(name, "'" + value + "'::" + type, false);
+        }
+    }
+}
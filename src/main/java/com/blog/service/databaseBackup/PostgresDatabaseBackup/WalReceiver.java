@@ -0,0 +1,118 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.service.databaseBackup.PostgresDatabaseBackup.Errors.InternalPostgresToolError;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Running <i>pg_receivewal</i> process streaming WAL of the database into temporary directory.
+ * <p>
+ * <i>pg_receivewal</i> writes the current segment into {@literal .partial} file and renames it when the segment is complete, so only
+ * complete segments are returned by {@link #takeSegment()}. WAL is streamed through replication slot, so the server keeps segments that
+ * are not received yet, even if the receiver is disconnected.
+ * <p>
+ * Closing the receiver stops the process and drops the replication slot.
+ */
+public class WalReceiver implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WalReceiver.class);
+
+    private static final Pattern completedSegmentPattern = Pattern.compile("[0-9A-F]{24}|[0-9A-F]{8}\\.history");
+
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final Process process;
+
+    private final Path walDirectory;
+
+    private final Runnable slotDropper;
+
+    WalReceiver(@NotNull Process process, @NotNull Path walDirectory, @NotNull Runnable slotDropper) {
+        this.process = Objects.requireNonNull(process);
+        this.walDirectory = Objects.requireNonNull(walDirectory);
+        this.slotDropper = Objects.requireNonNull(slotDropper);
+    }
+
+    private Optional<Path> findCompletedSegment() throws IOException {
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            return files.filter(file -> completedSegmentPattern.matcher(file.getFileName().toString()).matches())
+                    .min(Path::compareTo);
+        }
+    }
+
+    /**
+     * Waits for the next complete WAL file.
+     * <p>
+     * Files are returned in order of WAL positions. The caller must delete the returned file after archiving it, otherwise the same
+     * file is returned again.
+     *
+     * @return complete WAL segment or timeline history file
+     * @throws InterruptedException if the thread was interrupted while waiting
+     * @throws InternalPostgresToolError if <i>pg_receivewal</i> exited
+     */
+    @NotNull
+    public Path takeSegment() throws InterruptedException {
+        while (true) {
+            Optional<Path> segment;
+            try {
+                segment = findCompletedSegment();
+            } catch (IOException ex) {
+                throw new RuntimeException("Error listing received WAL files", ex);
+            }
+            if (segment.isPresent()) {
+                return segment.get();
+            }
+
+            if (!process.isAlive()) {
+                throw new InternalPostgresToolError(String.format(
+                        "PostgreSQL WAL receiver process terminated (exit code: %s). See process's stderr log for details",
+                        process.exitValue()));
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Stops <i>pg_receivewal</i>, drops the replication slot and deletes not archived WAL files.
+     */
+    @Override
+    public void close() {
+        // the receiver is usually closed because of interrupt, but the slot must be dropped anyway
+        boolean interrupted = Thread.interrupted();
+        try {
+            process.destroy();
+            if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            slotDropper.run();
+        } catch (InterruptedException ex) {
+            process.destroyForcibly();
+            interrupted = true;
+        } catch (RuntimeException ex) {
+            logger.error("Error dropping replication slot of PostgreSQL WAL receiver", ex);
+        } finally {
+            try {
+                FileSystemUtils.deleteRecursively(walDirectory);
+            } catch (IOException ex) {
+                logger.error("Error deleting temporary WAL directory {}", walDirectory, ex);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        logger.info("PostgreSQL WAL receiver stopped");
+    }
+}
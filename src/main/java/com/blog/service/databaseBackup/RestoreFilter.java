@@ -0,0 +1,192 @@
+package com.blog.service.databaseBackup;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Selects tables and schemas to restore from backup.
+ * <p>
+ * Patterns are globs: {@code *} matches any sequence of characters and {@code ?} matches any single character. Names are matched
+ * case-sensitively as they are stored in the database, i.e. without quotes. Table pattern containing a dot is matched against qualified
+ * table name ({@code schema.table}), otherwise against table name in any schema.
+ * <p>
+ * If include patterns are set, only matching objects are restored. Objects matching exclude patterns are never restored. Filter without
+ * patterns restores the whole backup.
+ */
+public final class RestoreFilter {
+    private static final RestoreFilter ALL = new RestoreFilter(Collections.emptyList(), Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList());
+
+    private final List<Pattern> includeSchemas;
+
+    private final List<Pattern> excludeSchemas;
+
+    private final List<TablePattern> includeTables;
+
+    private final List<TablePattern> excludeTables;
+
+    private final List<String> patterns;
+
+    private RestoreFilter(List<String> includeSchemas, List<String> excludeSchemas, List<String> includeTables,
+                          List<String> excludeTables) {
+        this.includeSchemas = compile(includeSchemas);
+        this.excludeSchemas = compile(excludeSchemas);
+        this.includeTables = compileTablePatterns(includeTables);
+        this.excludeTables = compileTablePatterns(excludeTables);
+
+        List<String> patterns = new ArrayList<>();
+        includeSchemas.forEach(pattern -> patterns.add("+schema:" + pattern));
+        excludeSchemas.forEach(pattern -> patterns.add("-schema:" + pattern));
+        includeTables.forEach(pattern -> patterns.add("+table:" + pattern));
+        excludeTables.forEach(pattern -> patterns.add("-table:" + pattern));
+        this.patterns = patterns;
+    }
+
+    /**
+     * Returns filter restoring the whole backup.
+     */
+    @NotNull
+    public static RestoreFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Creates filter.
+     *
+     * @param includeSchemas patterns of schemas to restore
+     * @param excludeSchemas patterns of schemas not to restore
+     * @param includeTables  patterns of tables to restore
+     * @param excludeTables  patterns of tables not to restore
+     * @return restore filter
+     */
+    @NotNull
+    public static RestoreFilter of(@NotNull List<String> includeSchemas, @NotNull List<String> excludeSchemas,
+                                   @NotNull List<String> includeTables, @NotNull List<String> excludeTables) {
+        Objects.requireNonNull(includeSchemas);
+        Objects.requireNonNull(excludeSchemas);
+        Objects.requireNonNull(includeTables);
+        Objects.requireNonNull(excludeTables);
+
+        if (includeSchemas.isEmpty() && excludeSchemas.isEmpty() && includeTables.isEmpty() && excludeTables.isEmpty()) {
+            return ALL;
+        }
+        return new RestoreFilter(includeSchemas, excludeSchemas, includeTables, excludeTables);
+    }
+
+    private static Pattern compileGlob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static List<Pattern> compile(List<String> globs) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String glob : globs) {
+            patterns.add(compileGlob(glob));
+        }
+        return patterns;
+    }
+
+    private static List<TablePattern> compileTablePatterns(List<String> globs) {
+        List<TablePattern> patterns = new ArrayList<>();
+        for (String glob : globs) {
+            patterns.add(new TablePattern(compileGlob(glob), glob.indexOf('.') != -1));
+        }
+        return patterns;
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String name) {
+        return patterns.stream().anyMatch(pattern -> pattern.matcher(name).matches());
+    }
+
+    private static boolean matchesAnyTable(List<TablePattern> patterns, String schema, String table) {
+        String qualifiedName = schema + "." + table;
+        return patterns.stream().anyMatch(tablePattern ->
+                tablePattern.pattern.matcher(tablePattern.qualified ? qualifiedName : table).matches());
+    }
+
+    /**
+     * Returns whether the filter restores the whole backup.
+     */
+    public boolean isEmpty() {
+        return this == ALL;
+    }
+
+    /**
+     * Returns whether only tables matching include patterns are restored.
+     * <p>
+     * In such case objects not belonging to any table (e.g. functions and types) are not restored.
+     */
+    public boolean hasTableIncludes() {
+        return !includeTables.isEmpty();
+    }
+
+    /**
+     * Checks whether objects of the schema should be restored.
+     *
+     * @param schema schema name
+     * @return {@literal true} if the schema matches the filter
+     */
+    public boolean matchesSchema(@NotNull String schema) {
+        Objects.requireNonNull(schema);
+
+        if (!includeSchemas.isEmpty() && !matchesAny(includeSchemas, schema)) {
+            return false;
+        }
+        return !matchesAny(excludeSchemas, schema);
+    }
+
+    /**
+     * Checks whether the table should be restored.
+     *
+     * @param schema schema name of the table
+     * @param table  table name
+     * @return {@literal true} if the table and its schema match the filter
+     */
+    public boolean matchesTable(@NotNull String schema, @NotNull String table) {
+        Objects.requireNonNull(schema);
+        Objects.requireNonNull(table);
+
+        if (!matchesSchema(schema)) {
+            return false;
+        }
+        if (!includeTables.isEmpty() && !matchesAnyTable(includeTables, schema, table)) {
+            return false;
+        }
+        return !matchesAnyTable(excludeTables, schema, table);
+    }
+
+    @Override
+    public String toString() {
+        return "RestoreFilter{" +
+                "patterns=" + patterns +
+                '}';
+    }
+
+    private static class TablePattern {
+        private final Pattern pattern;
+
+        /**
+         * Whether the pattern is matched against qualified table name.
+         */
+        private final boolean qualified;
+
+        TablePattern(Pattern pattern, boolean qualified) {
+            this.pattern = pattern;
+            this.qualified = qualified;
+        }
+    }
+}
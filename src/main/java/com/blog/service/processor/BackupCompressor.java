@@ -3,13 +3,17 @@ package com.blog.service.processor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Objects;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterInputStream;
 import java.util.zip.InflaterInputStream;
 
 /**
  * Backup compressor processor.
+ * <p>
+ * Uses Deflate algorithm. Supports compression level.
  */
 @Service
 public class BackupCompressor implements Processor {
@@ -24,6 +28,36 @@ public class BackupCompressor implements Processor {
         return new DeflaterInputStream(uncompressedBackup);
     }
 
+    /**
+     * Compresses backup using the compression level.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @param options            compression options
+     * @return input stream, from which compressed data can be read
+     */
+    @Override
+    public InputStream process(@NotNull InputStream uncompressedBackup, @NotNull ProcessorOptions options) {
+        Objects.requireNonNull(options);
+        if (options.getCompressionLevel() == null) {
+            return process(uncompressedBackup);
+        }
+        Objects.requireNonNull(uncompressedBackup, "Uncompressed backup stream must not be null");
+        checkOptions(options);
+
+        Deflater deflater = new Deflater(options.getCompressionLevel());
+        return new DeflaterInputStream(uncompressedBackup, deflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // stream releases only deflater created by itself
+                    deflater.end();
+                }
+            }
+        };
+    }
+
     /**
      * Decompresses backup.
      *
@@ -35,6 +69,25 @@ public class BackupCompressor implements Processor {
         return new InflaterInputStream(compressedBackup);
     }
 
+    @Override
+    public void checkOptions(@NotNull ProcessorOptions options) {
+        checkDeflateCompressionLevel(options);
+    }
+
+    /**
+     * Checks whether compression level is supported by Deflate algorithm.
+     *
+     * @param options compression options
+     * @throws IllegalArgumentException if the compression level is not supported
+     */
+    static void checkDeflateCompressionLevel(@NotNull ProcessorOptions options) {
+        Integer compressionLevel = options.getCompressionLevel();
+        if (compressionLevel != null && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException(String.format("Invalid Deflate compression level %d. Level must be in range [%d, %d]",
+                    compressionLevel, Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION));
+        }
+    }
+
     @Override
     public ProcessorType getType() {
         return ProcessorType.COMPRESSOR;
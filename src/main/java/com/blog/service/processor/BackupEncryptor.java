@@ -0,0 +1,287 @@
+package com.blog.service.processor;
+
+import com.blog.settings.UserSettings;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Backup encryptor processor, which encrypts and decrypts chunks of backup in parallel.
+ * <p>
+ * The backup is split into chunks of fixed size, each of which is encrypted by AES-GCM independently, so each chunk is authenticated
+ * on its own and chunks are decrypted and verified in parallel. Encrypted backup starts with a header, containing format version,
+ * fingerprint of the key and random salt of the backup, followed by a sequence of frames in order of chunks and the final frame. Each
+ * frame consists of a type, length of encrypted data and the chunk encrypted with the nonce built of the salt and the chunk number. The
+ * frame type is authenticated with the chunk, and the final frame is an authenticated empty chunk, so reordered, truncated or
+ * modified backup is detected.
+ * <p>
+ * The key is set by {@link UserSettings#getBackupEncryptionKey()}. Backups can be decrypted only with the key they were encrypted with.
+ * <p>
+ * Encryptor should be applied after compression, because encrypted data can't be compressed, so it has the highest precedence.
+ */
+@Service
+public class BackupEncryptor implements Processor {
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int KEY_FINGERPRINT_SIZE = 4;
+
+    private static final int SALT_SIZE = 8;
+
+    private static final int TAG_SIZE = 16;
+
+    private static final byte DATA_FRAME = 0;
+
+    private static final byte FINAL_FRAME = 1;
+
+    private static final int FRAME_HEADER_SIZE = 1 + Integer.BYTES;
+
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    private ForkJoinPool parallelEncryptorForkJoinPool;
+
+    private UserSettings userSettings;
+
+    @Autowired
+    public void setParallelEncryptorForkJoinPool(ForkJoinPool parallelEncryptorForkJoinPool) {
+        this.parallelEncryptorForkJoinPool = parallelEncryptorForkJoinPool;
+    }
+
+    @Autowired
+    public void setUserSettings(UserSettings userSettings) {
+        this.userSettings = userSettings;
+    }
+
+    private static byte[] getKeyFingerprint(SecretKeySpec key) {
+        try {
+            return Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(key.getEncoded()), KEY_FINGERPRINT_SIZE);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Error computing fingerprint of backup encryption key", ex);
+        }
+    }
+
+    private static Cipher initCipher(int mode, SecretKeySpec key, byte[] salt, int chunkNumber, byte frameType)
+            throws GeneralSecurityException {
+        byte[] nonce = ByteBuffer.allocate(SALT_SIZE + Integer.BYTES).put(salt).putInt(chunkNumber).array();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, key, new GCMParameterSpec(TAG_SIZE * Byte.SIZE, nonce));
+        cipher.updateAAD(new byte[]{frameType});
+        return cipher;
+    }
+
+    private static byte[] encryptChunk(SecretKeySpec key, byte[] salt, int chunkNumber, byte frameType, byte[] chunk, int length) {
+        try {
+            Cipher cipher = initCipher(Cipher.ENCRYPT_MODE, key, salt, chunkNumber, frameType);
+            byte[] frame = new byte[FRAME_HEADER_SIZE + cipher.getOutputSize(length)];
+            int encryptedLength = cipher.doFinal(chunk, 0, length, frame, FRAME_HEADER_SIZE);
+            ByteBuffer.wrap(frame).put(frameType).putInt(encryptedLength);
+            return frame;
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException("Error encrypting backup chunk", ex);
+        }
+    }
+
+    private static byte[] decryptChunk(SecretKeySpec key, byte[] salt, int chunkNumber, byte frameType, byte[] encryptedChunk)
+            throws IOException {
+        try {
+            return initCipher(Cipher.DECRYPT_MODE, key, salt, chunkNumber, frameType).doFinal(encryptedChunk);
+        } catch (AEADBadTagException ex) {
+            throw new IOException("Corrupted encrypted backup: authentication of chunk " + chunkNumber + " failed", ex);
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException("Error decrypting backup chunk", ex);
+        }
+    }
+
+    private SecretKeySpec getKey() {
+        String encodedKey = userSettings.getBackupEncryptionKey();
+        if (encodedKey == null || encodedKey.trim().isEmpty()) {
+            throw new IllegalArgumentException("Backup encryption key is not configured");
+        }
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(encodedKey.trim());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Backup encryption key must be encoded in Base64", ex);
+        }
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("Backup encryption key must be 128, 192 or 256 bits long");
+        }
+        return new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * Encrypts backup.
+     *
+     * @param backup the stream contains data to encrypt
+     * @return input stream, from which encrypted data can be read
+     */
+    @Override
+    public InputStream process(@NotNull InputStream backup) {
+        Objects.requireNonNull(backup, "Backup stream must not be null");
+
+        SecretKeySpec key = getKey();
+        byte[] salt = new byte[SALT_SIZE];
+        secureRandom.nextBytes(salt);
+        byte[] header = ByteBuffer.allocate(1 + KEY_FINGERPRINT_SIZE + SALT_SIZE)
+                .put(FORMAT_VERSION).put(getKeyFingerprint(key)).put(salt).array();
+        return new SequenceInputStream(new ByteArrayInputStream(header),
+                new EncryptingInputStream(backup, parallelEncryptorForkJoinPool, key, salt));
+    }
+
+    /**
+     * Decrypts backup and verifies its integrity.
+     *
+     * @param encryptedBackup the stream contains encrypted data
+     * @return input stream, from which decrypted data can be read. Reading throws {@link IOException} if backup is corrupted
+     */
+    @Override
+    public InputStream deprocess(@NotNull InputStream encryptedBackup) {
+        Objects.requireNonNull(encryptedBackup, "Encrypted backup stream must not be null");
+        return new DecryptingInputStream(encryptedBackup, parallelEncryptorForkJoinPool, getKey());
+    }
+
+    /**
+     * Checks whether the encryption key is configured.
+     * <p>
+     * Encryptor doesn't support any options.
+     */
+    @Override
+    public void checkOptions(@NotNull ProcessorOptions options) {
+        getKey();
+    }
+
+    @Override
+    public ProcessorType getType() {
+        return ProcessorType.ENCRYPTOR;
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 2;
+    }
+
+    private static final class EncryptingInputStream extends OrderedBlockInputStream {
+        private final SecretKeySpec key;
+
+        private final byte[] salt;
+
+        private int chunkNumber = 0;
+
+        EncryptingInputStream(InputStream in, ForkJoinPool pool, SecretKeySpec key, byte[] salt) {
+            super(in, pool);
+            this.key = key;
+            this.salt = salt;
+        }
+
+        @Override
+        Callable<byte[]> readNextBlock() throws IOException {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int length = in.readNBytes(chunk, 0, chunk.length);
+            if (length == 0) {
+                return null;
+            }
+            int currentChunkNumber = chunkNumber++;
+            return () -> encryptChunk(key, salt, currentChunkNumber, DATA_FRAME, chunk, length);
+        }
+
+        @Override
+        byte[] getTrailer() {
+            return encryptChunk(key, salt, chunkNumber, FINAL_FRAME, new byte[0], 0);
+        }
+    }
+
+    private static final class DecryptingInputStream extends OrderedBlockInputStream {
+        private final DataInputStream dataIn;
+
+        private final SecretKeySpec key;
+
+        private byte[] salt;
+
+        private int chunkNumber = 0;
+
+        DecryptingInputStream(InputStream in, ForkJoinPool pool, SecretKeySpec key) {
+            super(in, pool);
+            this.dataIn = new DataInputStream(in);
+            this.key = key;
+        }
+
+        private void readHeader() throws IOException {
+            byte[] keyFingerprint = new byte[KEY_FINGERPRINT_SIZE];
+            salt = new byte[SALT_SIZE];
+            try {
+                byte formatVersion = dataIn.readByte();
+                if (formatVersion != FORMAT_VERSION) {
+                    throw new IOException("Unsupported encrypted backup format version: " + formatVersion);
+                }
+                dataIn.readFully(keyFingerprint);
+                dataIn.readFully(salt);
+            } catch (EOFException ex) {
+                throw new EOFException("Unexpected end of encrypted backup: header is missing");
+            }
+            if (!Arrays.equals(keyFingerprint, getKeyFingerprint(key))) {
+                throw new IOException("Backup was encrypted with another key");
+            }
+        }
+
+        @Override
+        Callable<byte[]> readNextBlock() throws IOException {
+            if (salt == null) {
+                readHeader();
+            }
+
+            byte frameType;
+            int encryptedLength;
+            try {
+                frameType = dataIn.readByte();
+                encryptedLength = dataIn.readInt();
+            } catch (EOFException ex) {
+                throw new EOFException("Unexpected end of encrypted backup: final frame is missing");
+            }
+            if (frameType != DATA_FRAME && frameType != FINAL_FRAME || encryptedLength < TAG_SIZE ||
+                    encryptedLength > CHUNK_SIZE + TAG_SIZE) {
+                throw new IOException("Corrupted encrypted backup: invalid frame header");
+            }
+            byte[] encryptedChunk = new byte[encryptedLength];
+            try {
+                dataIn.readFully(encryptedChunk);
+            } catch (EOFException ex) {
+                throw new EOFException("Unexpected end of encrypted backup: frame is truncated");
+            }
+
+            int currentChunkNumber = chunkNumber++;
+            if (frameType == FINAL_FRAME) {
+                // the final frame must be verified before the end of backup is reported
+                decryptChunk(key, salt, currentChunkNumber, FINAL_FRAME, encryptedChunk);
+                return null;
+            }
+            return () -> decryptChunk(key, salt, currentChunkNumber, DATA_FRAME, encryptedChunk);
+        }
+
+        @Override
+        byte[] getTrailer() {
+            return new byte[0];
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.blog.service.processor;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class BackupEncryptorConfiguration {
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool parallelEncryptorForkJoinPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,118 @@
+package com.blog.service.processor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Collects samples of backup for training of compression dictionary.
+ * <p>
+ * Backup read through the stream returned by {@link #wrap(InputStream)} is split into samples of {@link #SAMPLE_SIZE} bytes. Uniformly
+ * random subset of samples of limited total size is kept (reservoir sampling), so samples represent the whole backup regardless of its
+ * size.
+ */
+public final class DictionarySampler {
+    /**
+     * Size of each sample.
+     */
+    static final int SAMPLE_SIZE = 4 * 1024;
+
+    private final int maxSamples;
+
+    private final List<byte[]> samples = new ArrayList<>();
+
+    private final Random random = new Random();
+
+    private final byte[] currentSample = new byte[SAMPLE_SIZE];
+
+    private int currentSampleLength;
+
+    private long seenSamples;
+
+    /**
+     * @param maxSamplesSize maximum total size of kept samples
+     */
+    public DictionarySampler(int maxSamplesSize) {
+        if (maxSamplesSize < SAMPLE_SIZE) {
+            throw new IllegalArgumentException("Maximum samples size must be at least " + SAMPLE_SIZE);
+        }
+        this.maxSamples = maxSamplesSize / SAMPLE_SIZE;
+    }
+
+    /**
+     * Returns stream sampling all data read from the backup stream.
+     *
+     * @param in backup stream
+     * @return input stream, from which backup can be read
+     */
+    public InputStream wrap(@NotNull InputStream in) {
+        Objects.requireNonNull(in);
+
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b != -1) {
+                    accept(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(@NotNull byte[] b, int off, int len) throws IOException {
+                int read = in.read(b, off, len);
+                if (read > 0) {
+                    accept(b, off, read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private synchronized void accept(byte[] b, int off, int len) {
+        while (len > 0) {
+            int n = Math.min(len, SAMPLE_SIZE - currentSampleLength);
+            System.arraycopy(b, off, currentSample, currentSampleLength, n);
+            currentSampleLength += n;
+            off += n;
+            len -= n;
+            if (currentSampleLength == SAMPLE_SIZE) {
+                completeSample();
+            }
+        }
+    }
+
+    private void completeSample() {
+        seenSamples++;
+        if (samples.size() < maxSamples) {
+            samples.add(Arrays.copyOf(currentSample, currentSampleLength));
+        } else {
+            long index = (long) (random.nextDouble() * seenSamples);
+            if (index < maxSamples) {
+                samples.set((int) index, Arrays.copyOf(currentSample, currentSampleLength));
+            }
+        }
+        currentSampleLength = 0;
+    }
+
+    /**
+     * Returns collected samples.
+     * <p>
+     * Should be called after the whole backup is read.
+     *
+     * @return samples in no particular order
+     */
+    public synchronized List<byte[]> getSamples() {
+        if (currentSampleLength > 0) {
+            completeSample();
+        }
+        return new ArrayList<>(samples);
+    }
+}
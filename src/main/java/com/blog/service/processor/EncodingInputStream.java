@@ -0,0 +1,122 @@
+package com.blog.service.processor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Input stream, from which source data encoded by an output stream encoder can be read.
+ * <p>
+ * Used to apply encoders, which are available only as output streams, on backup stream.
+ */
+class EncodingInputStream extends InputStream {
+    private static final int SOURCE_CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+
+    private final EncodedBuffer encodedBuffer = new EncodedBuffer();
+
+    private final OutputStream encoder;
+
+    private final byte[] sourceChunk = new byte[SOURCE_CHUNK_SIZE];
+
+    private int position = 0;
+
+    private boolean finished = false;
+
+    private boolean closed = false;
+
+    /**
+     * @param source         stream contains data to encode
+     * @param encoderFactory creates encoder writing into the passed stream
+     */
+    EncodingInputStream(@NotNull InputStream source, @NotNull EncoderFactory encoderFactory) throws IOException {
+        this.source = Objects.requireNonNull(source);
+        this.encoder = encoderFactory.create(encodedBuffer);
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == encodedBuffer.size()) {
+            if (finished) {
+                return false;
+            }
+            encodedBuffer.reset();
+            position = 0;
+            int bytesRead = source.read(sourceChunk);
+            if (bytesRead == -1) {
+                // writes trailer of encoded stream
+                encoder.close();
+                finished = true;
+            } else {
+                encoder.write(sourceChunk, 0, bytesRead);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillBuffer()) {
+            return -1;
+        }
+        return encodedBuffer.getBuffer()[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        int bytesRead = Math.min(len, encodedBuffer.size() - position);
+        System.arraycopy(encodedBuffer.getBuffer(), position, b, off, bytesRead);
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public int available() {
+        return encodedBuffer.size() - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!finished) {
+                // releases encoder resources
+                encoder.close();
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    @FunctionalInterface
+    interface EncoderFactory {
+        OutputStream create(OutputStream out) throws IOException;
+    }
+
+    private static final class EncodedBuffer extends ByteArrayOutputStream {
+        EncodedBuffer() {
+            super(SOURCE_CHUNK_SIZE);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+}
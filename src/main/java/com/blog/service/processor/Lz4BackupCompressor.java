@@ -0,0 +1,94 @@
+package com.blog.service.processor;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Backup compressor processor using LZ4 algorithm.
+ * <p>
+ * Compresses and decompresses fast at cost of compression ratio. If compression level is set, slower high compression mode is used.
+ */
+@Service
+public class Lz4BackupCompressor implements Processor {
+    private static final int MIN_COMPRESSION_LEVEL = 1;
+
+    private static final int MAX_COMPRESSION_LEVEL = 17;
+
+    /**
+     * Compresses backup using default options.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @return input stream, from which compressed data can be read
+     */
+    public InputStream process(@NotNull InputStream uncompressedBackup) {
+        return process(uncompressedBackup, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Compresses backup.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @param options            compression options
+     * @return input stream, from which compressed data can be read
+     */
+    @Override
+    public InputStream process(@NotNull InputStream uncompressedBackup, @NotNull ProcessorOptions options) {
+        Objects.requireNonNull(uncompressedBackup, "Uncompressed backup stream must not be null");
+        Objects.requireNonNull(options);
+        checkOptions(options);
+
+        LZ4Factory lz4Factory = LZ4Factory.fastestInstance();
+        LZ4Compressor compressor = options.getCompressionLevel() == null ?
+                lz4Factory.fastCompressor() : lz4Factory.highCompressor(options.getCompressionLevel());
+        try {
+            return new EncodingInputStream(uncompressedBackup, out -> new LZ4FrameOutputStream(out,
+                    LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB, -1L, compressor, XXHashFactory.fastestInstance().hash32(),
+                    LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE));
+        } catch (IOException ex) {
+            throw new RuntimeException("Error initializing LZ4 compressor", ex);
+        }
+    }
+
+    /**
+     * Decompresses backup.
+     *
+     * @param compressedBackup the stream contains compressed data
+     * @return input stream, from which decompressed data can be read
+     */
+    public InputStream deprocess(@NotNull InputStream compressedBackup) {
+        Objects.requireNonNull(compressedBackup, "Compressed backup stream must not be null");
+        try {
+            return new LZ4FrameInputStream(compressedBackup);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error initializing LZ4 decompressor", ex);
+        }
+    }
+
+    @Override
+    public void checkOptions(@NotNull ProcessorOptions options) {
+        Integer compressionLevel = options.getCompressionLevel();
+        if (compressionLevel != null && (compressionLevel < MIN_COMPRESSION_LEVEL || compressionLevel > MAX_COMPRESSION_LEVEL)) {
+            throw new IllegalArgumentException(String.format("Invalid LZ4 compression level %d. Level must be in range [%d, %d]",
+                    compressionLevel, MIN_COMPRESSION_LEVEL, MAX_COMPRESSION_LEVEL));
+        }
+    }
+
+    @Override
+    public ProcessorType getType() {
+        return ProcessorType.LZ4_COMPRESSOR;
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.blog.service.processor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Stream, which reads source in blocks, transforms the blocks on the pool and returns the results in order of blocks.
+ */
+abstract class OrderedBlockInputStream extends InputStream {
+    final InputStream in;
+
+    final ForkJoinPool pool;
+
+    private final ArrayDeque<Future<byte[]>> blocksInFlight = new ArrayDeque<>();
+
+    private boolean sourceFinished = false;
+
+    private byte[] current = new byte[0];
+
+    private int position = 0;
+
+    private boolean closed = false;
+
+    OrderedBlockInputStream(InputStream in, ForkJoinPool pool) {
+        this.in = in;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns maximum number of blocks read from the source, but not returned yet.
+     */
+    int getMaxBlocksInFlight() {
+        return pool.getParallelism() * 2;
+    }
+
+    /**
+     * Reads the next block of source and returns the task transforming it.
+     *
+     * @return task transforming the block, or null if the source is finished
+     */
+    abstract Callable<byte[]> readNextBlock() throws IOException;
+
+    /**
+     * Returns data to output after all blocks are transformed.
+     */
+    abstract byte[] getTrailer();
+
+    private boolean nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == current.length) {
+            while (!sourceFinished && blocksInFlight.size() < getMaxBlocksInFlight()) {
+                Callable<byte[]> task = readNextBlock();
+                if (task == null) {
+                    sourceFinished = true;
+                    blocksInFlight.add(CompletableFuture.completedFuture(getTrailer()));
+                } else {
+                    blocksInFlight.add(pool.submit(task));
+                }
+            }
+            Future<byte[]> block = blocksInFlight.poll();
+            if (block == null) {
+                return false;
+            }
+            try {
+                current = block.get();
+                position = 0;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException ex) {
+                // fork/join pool wraps checked exceptions of tasks
+                for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                }
+                throw new IOException("Error transforming block", ex.getCause());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int bytesRead = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, bytesRead);
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<byte[]> block : blocksInFlight) {
+            block.cancel(false);
+        }
+        blocksInFlight.clear();
+        in.close();
+    }
+}
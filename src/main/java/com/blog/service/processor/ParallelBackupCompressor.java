@@ -0,0 +1,230 @@
+package com.blog.service.processor;
+
+import com.blog.service.PipelineTuning;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Backup compressor processor, which compresses and decompresses blocks of backup in parallel.
+ * <p>
+ * The backup is split into blocks of fixed size, each of which is compressed independently. Compressed backup is a sequence of frames in
+ * order of blocks, followed by the end frame. Each frame consists of a header, containing length of compressed data and length of the
+ * block, and the block compressed by deflate algorithm without zlib wrapper. The end frame has both lengths equal to zero.
+ * <p>
+ * Blocks are compressed and decompressed on the fork/join pool, while the caller thread reads the source stream. Number of blocks in flight
+ * is limited to twice the pool parallelism.
+ * <p>
+ * Compression supports {@link PipelineTuning}: compression level and number of compression threads, limited by the pool parallelism, are
+ * read before reading each block, so they can be changed while compressing. Blocks are independent, so decompression doesn't depend on
+ * them.
+ */
+@Service
+public class ParallelBackupCompressor implements Processor {
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private ForkJoinPool parallelCompressorForkJoinPool;
+
+    @Autowired
+    public void setParallelCompressorForkJoinPool(ForkJoinPool parallelCompressorForkJoinPool) {
+        this.parallelCompressorForkJoinPool = parallelCompressorForkJoinPool;
+    }
+
+    private static byte[] compressBlock(byte[] block, int length, int compressionLevel) {
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            byte[] frame = new byte[FRAME_HEADER_SIZE + length + length / 1000 + 64];
+            int frameLength = FRAME_HEADER_SIZE;
+            while (!deflater.finished()) {
+                if (frameLength == frame.length) {
+                    frame = Arrays.copyOf(frame, frame.length * 2);
+                }
+                frameLength += deflater.deflate(frame, frameLength, frame.length - frameLength);
+            }
+            ByteBuffer.wrap(frame).putInt(frameLength - FRAME_HEADER_SIZE).putInt(length);
+            return Arrays.copyOf(frame, frameLength);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompressBlock(byte[] compressedBlock, int blockLength) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressedBlock);
+            byte[] block = new byte[blockLength];
+            int length = 0;
+            while (!inflater.finished()) {
+                int bytesInflated = inflater.inflate(block, length, block.length - length);
+                if (bytesInflated == 0 && (inflater.needsInput() || inflater.needsDictionary() || length == block.length)) {
+                    throw new IOException("Corrupted compressed block: block is truncated or longer than declared");
+                }
+                length += bytesInflated;
+            }
+            if (length != blockLength) {
+                throw new IOException("Corrupted compressed block: expected " + blockLength + " bytes, but got " + length);
+            }
+            return block;
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupted compressed block", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Compresses backup.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @return input stream, from which compressed data can be read
+     */
+    public InputStream process(@NotNull InputStream uncompressedBackup) {
+        return process(uncompressedBackup, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Compresses backup using the compression level.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @param options            compression options
+     * @return input stream, from which compressed data can be read
+     */
+    @Override
+    public InputStream process(@NotNull InputStream uncompressedBackup, @NotNull ProcessorOptions options) {
+        return process(uncompressedBackup, options, PipelineTuning.defaults());
+    }
+
+    /**
+     * Compresses backup using the compression level and settings, which can be changed while compressing.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @param options            compression options
+     * @param tuning             compression settings. Compression level of settings, if set, overrides compression level of options
+     * @return input stream, from which compressed data can be read
+     */
+    @Override
+    public InputStream process(@NotNull InputStream uncompressedBackup, @NotNull ProcessorOptions options,
+                               @NotNull PipelineTuning tuning) {
+        Objects.requireNonNull(uncompressedBackup, "Uncompressed backup stream must not be null");
+        Objects.requireNonNull(options);
+        Objects.requireNonNull(tuning);
+        checkOptions(options);
+
+        int compressionLevel = options.getCompressionLevel() != null ? options.getCompressionLevel() : Deflater.DEFAULT_COMPRESSION;
+        return new CompressingInputStream(uncompressedBackup, parallelCompressorForkJoinPool, compressionLevel, tuning);
+    }
+
+    /**
+     * Decompresses backup.
+     *
+     * @param compressedBackup the stream contains compressed data
+     * @return input stream, from which decompressed data can be read
+     */
+    public InputStream deprocess(@NotNull InputStream compressedBackup) {
+        Objects.requireNonNull(compressedBackup, "Compressed backup stream must not be null");
+        return new DecompressingInputStream(compressedBackup, parallelCompressorForkJoinPool);
+    }
+
+    @Override
+    public void checkOptions(@NotNull ProcessorOptions options) {
+        BackupCompressor.checkDeflateCompressionLevel(options);
+    }
+
+    @Override
+    public ProcessorType getType() {
+        return ProcessorType.PARALLEL_COMPRESSOR;
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 1;
+    }
+
+    private static final class CompressingInputStream extends OrderedBlockInputStream {
+        private final int compressionLevel;
+
+        private final PipelineTuning tuning;
+
+        CompressingInputStream(InputStream in, ForkJoinPool pool, int compressionLevel, PipelineTuning tuning) {
+            super(in, pool);
+            this.compressionLevel = compressionLevel;
+            this.tuning = tuning;
+        }
+
+        @Override
+        int getMaxBlocksInFlight() {
+            return Math.min(tuning.getCompressionThreads(), pool.getParallelism()) * 2;
+        }
+
+        @Override
+        Callable<byte[]> readNextBlock() throws IOException {
+            byte[] block = new byte[BLOCK_SIZE];
+            int length = in.readNBytes(block, 0, block.length);
+            if (length == 0) {
+                return null;
+            }
+            Integer tunedCompressionLevel = tuning.getCompressionLevel();
+            int blockCompressionLevel = tunedCompressionLevel != null ? tunedCompressionLevel : compressionLevel;
+            return () -> compressBlock(block, length, blockCompressionLevel);
+        }
+
+        @Override
+        byte[] getTrailer() {
+            return new byte[FRAME_HEADER_SIZE];
+        }
+    }
+
+    private static final class DecompressingInputStream extends OrderedBlockInputStream {
+        private final DataInputStream dataIn;
+
+        DecompressingInputStream(InputStream in, ForkJoinPool pool) {
+            super(in, pool);
+            this.dataIn = new DataInputStream(in);
+        }
+
+        @Override
+        Callable<byte[]> readNextBlock() throws IOException {
+            int compressedLength;
+            int blockLength;
+            try {
+                compressedLength = dataIn.readInt();
+                blockLength = dataIn.readInt();
+            } catch (EOFException ex) {
+                throw new EOFException("Unexpected end of compressed backup: end frame is missing");
+            }
+            if (compressedLength == 0 && blockLength == 0) {
+                return null;
+            }
+            if (compressedLength <= 0 || compressedLength > MAX_FRAME_LENGTH || blockLength <= 0 || blockLength > MAX_FRAME_LENGTH) {
+                throw new IOException("Corrupted compressed backup: invalid frame header");
+            }
+            byte[] compressedBlock = new byte[compressedLength];
+            dataIn.readFully(compressedBlock);
+            return () -> decompressBlock(compressedBlock, blockLength);
+        }
+
+        @Override
+        byte[] getTrailer() {
+            return new byte[0];
+        }
+    }
+}
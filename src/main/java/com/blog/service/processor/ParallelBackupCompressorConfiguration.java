@@ -0,0 +1,14 @@
+package com.blog.service.processor;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class ParallelBackupCompressorConfiguration {
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool parallelCompressorForkJoinPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+}
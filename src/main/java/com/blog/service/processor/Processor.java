@@ -1,5 +1,7 @@
 package com.blog.service.processor;
 
+import com.blog.service.PipelineTuning;
+
 import java.io.InputStream;
 
 /**
@@ -9,6 +11,8 @@ import java.io.InputStream;
  * <li>Add corresponding enum identifying this processor to {@link ProcessorType}</li>
  * <li>Set precedence of processor. If there are multiple processors, they will be applied in descending order by precedence.
  * The most lower priority - {@code 0}.</li>
+ * <li>Override methods accepting {@link ProcessorOptions} if processor supports options</li>
+ * <li>Override method accepting {@link PipelineTuning} if processor supports settings changed while processing</li>
  * </ul>
  * @see com.blog.manager.BackupProcessorManager
  */
@@ -17,6 +21,36 @@ public interface Processor {
 
     InputStream deprocess(InputStream in);
 
+    /**
+     * Processes backup using the options.
+     */
+    default InputStream process(InputStream in, ProcessorOptions options) {
+        return process(in);
+    }
+
+    /**
+     * Processes backup using the options and settings, which can be changed while processing.
+     */
+    default InputStream process(InputStream in, ProcessorOptions options, PipelineTuning tuning) {
+        return process(in, options);
+    }
+
+    /**
+     * Deprocesses backup, which was processed using the options.
+     */
+    default InputStream deprocess(InputStream in, ProcessorOptions options) {
+        return deprocess(in);
+    }
+
+    /**
+     * Checks whether processor can be applied with the options.
+     *
+     * @throws IllegalArgumentException if options are not supported
+     */
+    default void checkOptions(ProcessorOptions options) {
+
+    }
+
     ProcessorType getType();
 
     int getPrecedence();
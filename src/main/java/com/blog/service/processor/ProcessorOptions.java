@@ -0,0 +1,100 @@
+package com.blog.service.processor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Options of processors applied on backup.
+ * <p>
+ * Options are saved along with the backup, so the backup can be deprocessed with the same options it was processed with. Processor
+ * ignores options it doesn't support.
+ */
+public final class ProcessorOptions {
+    /**
+     * Options, with which each processor uses its default settings.
+     */
+    public static final ProcessorOptions DEFAULT = new ProcessorOptions(null, false, null);
+
+    /**
+     * Compression level. If null, compressor uses its default level.
+     */
+    @Nullable
+    private final Integer compressionLevel;
+
+    /**
+     * Whether compressor should search for matches in a large window. Improves ratio of large backups with distant repetitions at cost
+     * of memory.
+     */
+    private final boolean longRange;
+
+    /**
+     * Identifier of compression dictionary the backup is compressed with. If null, compressor doesn't use dictionary.
+     *
+     * @see com.blog.entities.backup.CompressionDictionary
+     */
+    @Nullable
+    private final Integer dictionaryId;
+
+    public ProcessorOptions(@Nullable Integer compressionLevel, boolean longRange) {
+        this(compressionLevel, longRange, null);
+    }
+
+    public ProcessorOptions(@Nullable Integer compressionLevel, boolean longRange, @Nullable Integer dictionaryId) {
+        this.compressionLevel = compressionLevel;
+        this.longRange = longRange;
+        this.dictionaryId = dictionaryId;
+    }
+
+    @Nullable
+    public Integer getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public boolean isLongRange() {
+        return longRange;
+    }
+
+    @Nullable
+    public Integer getDictionaryId() {
+        return dictionaryId;
+    }
+
+    /**
+     * Returns the same options with the compression dictionary.
+     *
+     * @param dictionaryId identifier of compression dictionary
+     * @return new options
+     */
+    public ProcessorOptions withDictionaryId(@Nullable Integer dictionaryId) {
+        return new ProcessorOptions(compressionLevel, longRange, dictionaryId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProcessorOptions that = (ProcessorOptions) o;
+        return longRange == that.longRange &&
+                Objects.equals(compressionLevel, that.compressionLevel) &&
+                Objects.equals(dictionaryId, that.dictionaryId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(compressionLevel, longRange, dictionaryId);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessorOptions{" +
+                "compressionLevel=" + compressionLevel +
+                ", longRange=" + longRange +
+                ", dictionaryId=" + dictionaryId +
+                '}';
+    }
+}
@@ -0,0 +1,497 @@
+package com.blog.service.processor;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Chain of stream transformations, each of which runs on its own thread.
+ * <p>
+ * The source stream is read by the source stage, and each transformation reads output of the previous stage. Stages are connected by
+ * bounded queues of byte chunks, so a stage blocks once the next stage falls behind. Chunks are reused through the pool shared by the
+ * pipeline. So reading of the source, every transformation and consuming of the pipeline output overlap across cores.
+ * <p>
+ * Failure of any stage is reported to the consumer by the next read of the pipeline output. Closing the pipeline output closes all queues,
+ * so every stage stops on its next queue operation, whether it waits for input or for free space in the output queue, and the source
+ * stream is closed.
+ */
+public final class ProcessorPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessorPipeline.class);
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    static final int QUEUE_CAPACITY = 16;
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final String SOURCE_STAGE_NAME = "source";
+
+    private static final Chunk END_OF_STREAM = new Chunk(new byte[0], 0);
+
+    private final String name;
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Free chunks. Chunks are allocated on demand, so the pool size is limited by the number of chunks in flight.
+     */
+    private final BlockingQueue<byte[]> freeChunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY * 4);
+
+    private final StageStatistics consumerStatistics = new StageStatistics("consumer");
+
+    private final long startNanos = System.nanoTime();
+
+    private ChunkInputStream output;
+
+    private ProcessorPipeline(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts pipeline.
+     *
+     * @param name            pipeline name used in logs
+     * @param source          stream to read data from
+     * @param transformations stream transformations in order of application by stage names
+     * @param executorService executor to run stages on. Must be able to run all stages concurrently
+     * @param onClose         called once the pipeline output is closed
+     * @return started pipeline
+     */
+    @NotNull
+    public static ProcessorPipeline start(@NotNull String name, @NotNull InputStream source,
+                                         @NotNull LinkedHashMap<String, UnaryOperator<InputStream>> transformations,
+                                         @NotNull ExecutorService executorService, @NotNull Consumer<ProcessorPipeline> onClose) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(transformations);
+        Objects.requireNonNull(executorService);
+        Objects.requireNonNull(onClose);
+
+        ProcessorPipeline pipeline = new ProcessorPipeline(name);
+
+        ChunkQueue queue = new ChunkQueue();
+        pipeline.stages.add(pipeline.new Stage(new StageStatistics(SOURCE_STAGE_NAME), in -> in, source, queue));
+        for (Map.Entry<String, UnaryOperator<InputStream>> transformation : transformations.entrySet()) {
+            Stage previousStage = pipeline.stages.get(pipeline.stages.size() - 1);
+            StageStatistics statistics = new StageStatistics(transformation.getKey());
+            ChunkQueue nextQueue = new ChunkQueue();
+            pipeline.stages.add(pipeline.new Stage(statistics, transformation.getValue(),
+                    pipeline.new ChunkInputStream(previousStage.outputQueue, statistics, null), nextQueue));
+        }
+        pipeline.output = pipeline.new ChunkInputStream(pipeline.stages.get(pipeline.stages.size() - 1).outputQueue,
+                pipeline.consumerStatistics, onClose);
+
+        for (Stage stage : pipeline.stages) {
+            executorService.submit(stage);
+        }
+
+        logger.info("Processor pipeline {} started. Stages: {}", name, pipeline.stages.size());
+
+        return pipeline;
+    }
+
+    /**
+     * Returns the stream, from which output of the last stage can be read.
+     */
+    @NotNull
+    public InputStream getOutput() {
+        return output;
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns current statistics of the stages in order of data flow. The last element describes the pipeline consumer.
+     */
+    @NotNull
+    public List<StageStatistics> getStatistics() {
+        List<StageStatistics> statistics = new ArrayList<>();
+        for (Stage stage : stages) {
+            stage.statistics.queueDepth = stage.outputQueue.queue.size();
+            statistics.add(stage.statistics);
+        }
+        statistics.add(consumerStatistics);
+        return Collections.unmodifiableList(statistics);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessorPipeline{" +
+                "name='" + name + '\'' +
+                ", elapsedMillis=" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) +
+                ", stages=" + getStatistics() +
+                '}';
+    }
+
+    private byte[] takeFreeChunk() {
+        byte[] chunk = freeChunks.poll();
+        return chunk != null ? chunk : new byte[CHUNK_SIZE];
+    }
+
+    private void releaseChunk(byte[] chunk) {
+        if (chunk.length == CHUNK_SIZE) {
+            freeChunks.offer(chunk);
+        }
+    }
+
+    /**
+     * Statistics of a pipeline stage.
+     * <p>
+     * Idle time is the time the stage waited for the previous stage to produce data or for the next stage to take data. The rest of
+     * the stage time it was busy reading the source or transforming data.
+     */
+    public static final class StageStatistics {
+        private final String stageName;
+
+        private final AtomicLong processedBytes = new AtomicLong();
+
+        private final AtomicLong idleNanos = new AtomicLong();
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile long endNanos = 0;
+
+        private volatile int queueDepth = 0;
+
+        StageStatistics(String stageName) {
+            this.stageName = stageName;
+        }
+
+        public String getStageName() {
+            return stageName;
+        }
+
+        /**
+         * Returns number of bytes the stage has produced.
+         */
+        public long getProcessedBytes() {
+            return processedBytes.get();
+        }
+
+        public long getIdleNanos() {
+            return idleNanos.get();
+        }
+
+        public long getBusyNanos() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return Math.max(0, end - startNanos - idleNanos.get());
+        }
+
+        /**
+         * Returns number of chunks produced by the stage and not yet taken by the next stage.
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        @Override
+        public String toString() {
+            return "StageStatistics{" +
+                    "stageName='" + stageName + '\'' +
+                    ", processedBytes=" + processedBytes +
+                    ", busyMillis=" + TimeUnit.NANOSECONDS.toMillis(getBusyNanos()) +
+                    ", idleMillis=" + TimeUnit.NANOSECONDS.toMillis(getIdleNanos()) +
+                    ", queueDepth=" + queueDepth +
+                    '}';
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] data;
+
+        private final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Bounded queue connecting two stages.
+     */
+    private static final class ChunkQueue {
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        /**
+         * Set once the consumer or the pipeline output is closed, so both the producer and the consumer stop.
+         */
+        private volatile boolean closed = false;
+
+        /**
+         * Set if the producer failed.
+         */
+        private volatile Throwable error;
+
+        void put(Chunk chunk, StageStatistics producerStatistics) throws IOException {
+            long waitStartNanos = System.nanoTime();
+            try {
+                do {
+                    if (closed) {
+                        throw new PipelineClosedException();
+                    }
+                } while (!queue.offer(chunk, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                producerStatistics.idleNanos.addAndGet(System.nanoTime() - waitStartNanos);
+            }
+        }
+
+        Chunk take(StageStatistics consumerStatistics) throws IOException {
+            long waitStartNanos = System.nanoTime();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new PipelineClosedException();
+                    }
+                    Chunk chunk = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (chunk != null) {
+                        return chunk;
+                    }
+                    if (error != null) {
+                        throw new IOException("Error occurred in processor pipeline stage", error);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                consumerStatistics.idleNanos.addAndGet(System.nanoTime() - waitStartNanos);
+            }
+        }
+    }
+
+    private static final class PipelineClosedException extends IOException {
+        PipelineClosedException() {
+            super("Processor pipeline output closed");
+        }
+    }
+
+    /**
+     * Reads chunks of the queue.
+     */
+    private final class ChunkInputStream extends InputStream {
+        private final ChunkQueue queue;
+
+        private final StageStatistics statistics;
+
+        private final Consumer<ProcessorPipeline> onClose;
+
+        private Chunk current;
+
+        private int position;
+
+        private boolean finished = false;
+
+        private boolean closed = false;
+
+        ChunkInputStream(ChunkQueue queue, StageStatistics statistics, Consumer<ProcessorPipeline> onClose) {
+            this.queue = queue;
+            this.statistics = statistics;
+            this.onClose = onClose;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (finished) {
+                return false;
+            }
+            if (current != null && position < current.length) {
+                return true;
+            }
+            if (current != null) {
+                releaseChunk(current.data);
+                current = null;
+            }
+            Chunk chunk = queue.take(statistics);
+            if (chunk == END_OF_STREAM) {
+                finished = true;
+                return false;
+            }
+            current = chunk;
+            position = 0;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            return current.data[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int bytesRead = Math.min(len, current.length - position);
+            System.arraycopy(current.data, position, b, off, bytesRead);
+            position += bytesRead;
+            return bytesRead;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.length - position;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.closed = true;
+            // free producer blocked on full queue
+            queue.queue.clear();
+            if (onClose != null) {
+                // stop stages waiting for input as well
+                for (Stage stage : stages) {
+                    stage.outputQueue.closed = true;
+                }
+                statistics.endNanos = System.nanoTime();
+                logger.info("Processor pipeline {} closed. Statistics: {}", name, getStatistics());
+                onClose.accept(ProcessorPipeline.this);
+            }
+        }
+    }
+
+    /**
+     * Writes data into chunks of the queue.
+     */
+    private final class ChunkOutputStream extends OutputStream {
+        private final ChunkQueue queue;
+
+        private final StageStatistics statistics;
+
+        private byte[] chunk = takeFreeChunk();
+
+        private int length = 0;
+
+        ChunkOutputStream(ChunkQueue queue, StageStatistics statistics) {
+            this.queue = queue;
+            this.statistics = statistics;
+        }
+
+        private void putChunk() throws IOException {
+            if (length == 0) {
+                return;
+            }
+            queue.put(new Chunk(chunk, length), statistics);
+            statistics.processedBytes.addAndGet(length);
+            chunk = takeFreeChunk();
+            length = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == chunk.length) {
+                putChunk();
+            }
+            chunk[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            while (len > 0) {
+                if (length == chunk.length) {
+                    putChunk();
+                }
+                int bytesToCopy = Math.min(len, chunk.length - length);
+                System.arraycopy(b, off, chunk, length, bytesToCopy);
+                length += bytesToCopy;
+                off += bytesToCopy;
+                len -= bytesToCopy;
+            }
+        }
+
+        /**
+         * Sends the last chunk and marks the end of the stream.
+         */
+        void finish() throws IOException {
+            putChunk();
+            queue.put(END_OF_STREAM, statistics);
+        }
+    }
+
+    /**
+     * Reads the stage input transformed by the stage transformation and writes it into the output queue.
+     */
+    private final class Stage implements Runnable {
+        private final StageStatistics statistics;
+
+        private final UnaryOperator<InputStream> transformation;
+
+        private final InputStream input;
+
+        private final ChunkQueue outputQueue;
+
+        Stage(StageStatistics statistics, UnaryOperator<InputStream> transformation, InputStream input, ChunkQueue outputQueue) {
+            this.statistics = statistics;
+            this.transformation = transformation;
+            this.input = input;
+            this.outputQueue = outputQueue;
+        }
+
+        @Override
+        public void run() {
+            ChunkOutputStream out = new ChunkOutputStream(outputQueue, statistics);
+            // closing the stage input stops the previous stages too
+            try (InputStream stageInput = input;
+                 InputStream in = transformation.apply(stageInput)) {
+                while (true) {
+                    int bytesRead = in.read(out.chunk, out.length, out.chunk.length - out.length);
+                    if (bytesRead == -1) {
+                        break;
+                    }
+                    out.length += bytesRead;
+                    if (out.length == out.chunk.length) {
+                        out.putChunk();
+                    }
+                }
+                out.finish();
+            } catch (PipelineClosedException ex) {
+                logger.debug("Processor pipeline {} closed. Stopping stage {}", name, statistics.stageName);
+            } catch (IOException | RuntimeException ex) {
+                if (!outputQueue.closed) {
+                    logger.error("Error occurred in stage {} of processor pipeline {}", statistics.stageName, name, ex);
+                }
+                outputQueue.error = ex;
+            } finally {
+                statistics.endNanos = System.nanoTime();
+            }
+        }
+    }
+}
@@ -6,17 +6,44 @@ import java.util.Optional;
  * Processor type.
  */
 public enum ProcessorType {
-    COMPRESSOR("compressor") {
+    COMPRESSOR("compressor", true) {
         @Override
         public String toString() {
             return "Compressor";
         }
+    },
+    PARALLEL_COMPRESSOR("parallelCompressor", true) {
+        @Override
+        public String toString() {
+            return "Parallel Compressor";
+        }
+    },
+    ZSTD_COMPRESSOR("zstdCompressor", true) {
+        @Override
+        public String toString() {
+            return "Zstandard Compressor";
+        }
+    },
+    LZ4_COMPRESSOR("lz4Compressor", true) {
+        @Override
+        public String toString() {
+            return "LZ4 Compressor";
+        }
+    },
+    ENCRYPTOR("encryptor", false) {
+        @Override
+        public String toString() {
+            return "Encryptor";
+        }
     };
 
     private String processorAsString;
 
-    ProcessorType(String processorAsString) {
+    private boolean compressor;
+
+    ProcessorType(String processorAsString, boolean compressor) {
         this.processorAsString = processorAsString;
+        this.compressor = compressor;
     }
 
     public static Optional<ProcessorType> of(String processor) {
@@ -31,4 +58,11 @@ public enum ProcessorType {
     public String getProcessorAsString() {
         return processorAsString;
     }
+
+    /**
+     * Returns whether the processor compresses backup.
+     */
+    public boolean isCompressor() {
+        return compressor;
+    }
 }
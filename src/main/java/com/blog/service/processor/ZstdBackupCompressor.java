@@ -0,0 +1,157 @@
+package com.blog.service.processor;
+
+import com.blog.manager.CompressionDictionariesManager;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Backup compressor processor using Zstandard algorithm.
+ * <p>
+ * Supports compression level, long range mode and compression dictionaries. Long range mode uses window of 128 MB, which the decompressor
+ * accepts without additional settings. Dictionary is resolved by its identifier both on compression and decompression.
+ *
+ * @see CompressionDictionariesManager
+ */
+@Service
+public class ZstdBackupCompressor implements Processor {
+    private static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    private static final int LONG_RANGE_WINDOW_LOG = 27;
+
+    private CompressionDictionariesManager compressionDictionariesManager;
+
+    @Autowired
+    public void setCompressionDictionariesManager(CompressionDictionariesManager compressionDictionariesManager) {
+        this.compressionDictionariesManager = compressionDictionariesManager;
+    }
+
+    private static int getCompressionLevel(ProcessorOptions options) {
+        return options.getCompressionLevel() != null ? options.getCompressionLevel() : DEFAULT_COMPRESSION_LEVEL;
+    }
+
+    /**
+     * Compresses backup using default options.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @return input stream, from which compressed data can be read
+     */
+    public InputStream process(@NotNull InputStream uncompressedBackup) {
+        return process(uncompressedBackup, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Compresses backup.
+     *
+     * @param uncompressedBackup the stream contains data to compress
+     * @param options            compression options
+     * @return input stream, from which compressed data can be read
+     */
+    @Override
+    public InputStream process(@NotNull InputStream uncompressedBackup, @NotNull ProcessorOptions options) {
+        Objects.requireNonNull(uncompressedBackup, "Uncompressed backup stream must not be null");
+        Objects.requireNonNull(options);
+        checkOptions(options);
+
+        int compressionLevel = getCompressionLevel(options);
+        try {
+            return new EncodingInputStream(uncompressedBackup, out -> {
+                ZstdOutputStream zstdOutputStream = new ZstdOutputStream(out, compressionLevel);
+                if (options.isLongRange()) {
+                    zstdOutputStream.setLong(LONG_RANGE_WINDOW_LOG);
+                }
+                if (options.getDictionaryId() != null) {
+                    zstdOutputStream.setDict(compressionDictionariesManager.getDictionary(options.getDictionaryId()));
+                }
+                return zstdOutputStream;
+            });
+        } catch (IOException ex) {
+            throw new RuntimeException("Error initializing Zstandard compressor", ex);
+        }
+    }
+
+    /**
+     * Decompresses backup.
+     *
+     * @param compressedBackup the stream contains compressed data
+     * @return input stream, from which decompressed data can be read
+     */
+    public InputStream deprocess(@NotNull InputStream compressedBackup) {
+        return deprocess(compressedBackup, ProcessorOptions.DEFAULT);
+    }
+
+    /**
+     * Decompresses backup.
+     *
+     * @param compressedBackup the stream contains compressed data
+     * @param options          options the backup was compressed with
+     * @return input stream, from which decompressed data can be read
+     */
+    @Override
+    public InputStream deprocess(@NotNull InputStream compressedBackup, @NotNull ProcessorOptions options) {
+        Objects.requireNonNull(compressedBackup, "Compressed backup stream must not be null");
+        Objects.requireNonNull(options);
+        try {
+            ZstdInputStream zstdInputStream = new ZstdInputStream(compressedBackup);
+            if (options.getDictionaryId() != null) {
+                zstdInputStream.setDict(compressionDictionariesManager.getDictionary(options.getDictionaryId()));
+            }
+            return zstdInputStream;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error initializing Zstandard decompressor", ex);
+        }
+    }
+
+    /**
+     * Trains compression dictionary on backup samples.
+     *
+     * @param samples        backup samples
+     * @param dictionarySize maximum size of the dictionary
+     * @return dictionary content
+     * @throws RuntimeException if dictionary can't be trained on the samples, e.g. there are too few samples
+     * @see DictionarySampler
+     */
+    public static byte[] trainDictionary(@NotNull List<byte[]> samples, int dictionarySize) {
+        Objects.requireNonNull(samples);
+
+        int samplesSize = samples.stream().mapToInt(sample -> sample.length).sum();
+        ZstdDictTrainer trainer = new ZstdDictTrainer(samplesSize, dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        try {
+            return trainer.trainSamples();
+        } catch (ZstdException ex) {
+            throw new RuntimeException("Error training Zstandard dictionary", ex);
+        }
+    }
+
+    @Override
+    public void checkOptions(@NotNull ProcessorOptions options) {
+        int compressionLevel = getCompressionLevel(options);
+        if (compressionLevel < Zstd.minCompressionLevel() || compressionLevel > Zstd.maxCompressionLevel()) {
+            throw new IllegalArgumentException(String.format("Invalid Zstandard compression level %d. Level must be in range [%d, %d]",
+                    compressionLevel, Zstd.minCompressionLevel(), Zstd.maxCompressionLevel()));
+        }
+    }
+
+    @Override
+    public ProcessorType getType() {
+        return ProcessorType.ZSTD_COMPRESSOR;
+    }
+
+    @Override
+    public int getPrecedence() {
+        return 0;
+    }
+}
@@ -0,0 +1,101 @@
+package com.blog.service.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Splits stream into chunks of variable size, which boundaries depend on the content only.
+ * <p>
+ * Boundaries are found using Gear rolling hash over the last 64 bytes, so inserting or removing data shifts only the boundaries around the
+ * change, and the rest chunks of similar backups are equal. Chunk size is between {@link #MIN_CHUNK_SIZE} and {@link #MAX_CHUNK_SIZE}
+ * and is about {@link #AVERAGE_CHUNK_SIZE} on average.
+ */
+class ContentDefinedChunker {
+    static final int MIN_CHUNK_SIZE = 1024 * 1024;
+
+    static final int AVERAGE_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Hash of the window depends on the last 64 bytes only, because older bytes are shifted out of the hash.
+     */
+    private static final int WINDOW_SIZE = Long.SIZE;
+
+    /**
+     * Boundary is found when the upper bits of the hash are zero, so the probability is {@literal 1 / AVERAGE_CHUNK_SIZE}.
+     * <p>
+     * The upper bits are used, because they depend on the whole window.
+     */
+    private static final long BOUNDARY_MASK = -1L << (Long.SIZE - Integer.numberOfTrailingZeros(AVERAGE_CHUNK_SIZE));
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // fixed seed, because boundaries must be the same for all backups
+        Random random = new Random(0x5EED_C0DEL);
+        Arrays.setAll(GEAR, index -> random.nextLong());
+    }
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[MAX_CHUNK_SIZE];
+
+    private int bufferedBytes = 0;
+
+    private boolean eof = false;
+
+    ContentDefinedChunker(InputStream in) {
+        this.in = in;
+    }
+
+    private void fillBuffer() throws IOException {
+        while (!eof && bufferedBytes < buffer.length) {
+            int bytesRead = in.read(buffer, bufferedBytes, buffer.length - bufferedBytes);
+            if (bytesRead == -1) {
+                eof = true;
+            } else {
+                bufferedBytes += bytesRead;
+            }
+        }
+    }
+
+    private int findBoundary() {
+        if (bufferedBytes <= MIN_CHUNK_SIZE) {
+            return bufferedBytes;
+        }
+
+        long hash = 0;
+        for (int position = MIN_CHUNK_SIZE - WINDOW_SIZE; position < bufferedBytes; position++) {
+            hash = (hash << 1) + GEAR[buffer[position] & 0xff];
+            if (position >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0) {
+                return position + 1;
+            }
+        }
+        return bufferedBytes;
+    }
+
+    /**
+     * Reads the next chunk.
+     *
+     * @return the next chunk or {@literal null} if the end of stream is reached
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable
+    byte[] nextChunk() throws IOException {
+        fillBuffer();
+        if (bufferedBytes == 0) {
+            return null;
+        }
+
+        int chunkSize = findBoundary();
+        byte[] chunk = Arrays.copyOf(buffer, chunkSize);
+        System.arraycopy(buffer, chunkSize, buffer, 0, bufferedBytes - chunkSize);
+        bufferedBytes -= chunkSize;
+        return chunk;
+    }
+}
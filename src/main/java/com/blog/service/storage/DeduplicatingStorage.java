@@ -0,0 +1,441 @@
+package com.blog.service.storage;
+
+import com.blog.entities.storage.StorageSettings;
+import com.blog.manager.BackupChunksManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Implementation of the {@link Storage} interface, which stores backups on another storage with deduplication.
+ * <p>
+ * Backup is split into chunks by {@link ContentDefinedChunker}, and each chunk is stored on the underlying storage only once, as a backup
+ * named by hash of the chunk content. The backup itself is stored as a manifest, listing hashes of its chunks in order, so downloading
+ * reassembles backup from the chunks. References to chunks are counted by {@link BackupChunksManager}, and the chunk is deleted from the
+ * storage when the last backup referencing it is deleted.
+ * <p>
+ * Changes of references to the same chunk are synchronized, so backups can be uploaded and deleted concurrently. The lock of the chunk is
+ * held only while its references are changed. While the chunk is uploaded to or deleted from the storage, it is marked as pending, and
+ * other uploads and deletions of the same chunk wait for the pending operation to complete without holding the lock.
+ */
+public class DeduplicatingStorage implements Storage {
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingStorage.class);
+
+    private static final String MANIFEST_HEADER = "dedup-manifest 1";
+
+    private static final Object[] chunkLocks = new Object[64];
+
+    static {
+        Arrays.setAll(chunkLocks, index -> new Object());
+    }
+
+    /**
+     * Chunks being uploaded to or deleted from the storage, by {@link #getChunkKey(String, String)}. Changed under the chunk lock.
+     */
+    private static final Map<String, CountDownLatch> pendingChunks = new ConcurrentHashMap<>();
+
+    private final Storage storage;
+
+    private final BackupChunksManager backupChunksManager;
+
+    /**
+     * @param storage             the storage to save chunks and manifests on
+     * @param backupChunksManager manager of chunk references
+     */
+    public DeduplicatingStorage(@NotNull Storage storage, @NotNull BackupChunksManager backupChunksManager) {
+        this.storage = Objects.requireNonNull(storage);
+        this.backupChunksManager = Objects.requireNonNull(backupChunksManager);
+    }
+
+    private static Object getChunkLock(String storageSettingsName, String hash) {
+        return chunkLocks[Math.floorMod(Objects.hash(storageSettingsName, hash), chunkLocks.length)];
+    }
+
+    private static String getChunkKey(String storageSettingsName, String hash) {
+        return storageSettingsName + "/" + hash;
+    }
+
+    /**
+     * Completes pending operation on the chunk, so waiting uploads and deletions of the chunk can proceed.
+     */
+    private static void completePendingChunk(Object chunkLock, String chunkKey, CountDownLatch pendingChunk) {
+        synchronized (chunkLock) {
+            pendingChunks.remove(chunkKey);
+        }
+        pendingChunk.countDown();
+    }
+
+    private static String getChunkName(String hash) {
+        return String.format(StorageConstants.CHUNK_NAME_TEMPLATE, hash);
+    }
+
+    private static MessageDigest getMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Error computing hash of backup chunk", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Saves chunk on the storage if it is not saved yet and adds reference to it.
+     *
+     * @return {@literal true} if the chunk is uploaded, {@literal false} if the stored chunk is reused or {@literal null} if uploading
+     * was interrupted and reference is not added
+     */
+    @Nullable
+    private Boolean saveChunk(StorageSettings storageSettings, ManifestEntry chunk, Integer id) {
+        String storageSettingsName = storageSettings.getSettingsName();
+        Object chunkLock = getChunkLock(storageSettingsName, chunk.hash);
+        String chunkKey = getChunkKey(storageSettingsName, chunk.hash);
+
+        CountDownLatch uploadingChunk = new CountDownLatch(1);
+        while (true) {
+            CountDownLatch pendingChunk;
+            synchronized (chunkLock) {
+                if (backupChunksManager.addReference(storageSettingsName, chunk.hash)) {
+                    return false;
+                }
+                pendingChunk = pendingChunks.putIfAbsent(chunkKey, uploadingChunk);
+            }
+            if (pendingChunk == null) {
+                break;
+            }
+            // the chunk is uploaded or deleted by another task, so it is checked again after that
+            try {
+                pendingChunk.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        try {
+            String chunkName = getChunkName(chunk.hash);
+            // chunk might be left partially uploaded by the failed upload
+            storage.deleteBackup(storageSettings, chunkName, id);
+            storage.uploadBackup(new ByteArrayInputStream(chunk.content), storageSettings, chunkName, id);
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            synchronized (chunkLock) {
+                backupChunksManager.addChunk(storageSettingsName, chunk.hash, chunk.size);
+            }
+            return true;
+        } finally {
+            completePendingChunk(chunkLock, chunkKey, uploadingChunk);
+        }
+    }
+
+    /**
+     * Removes reference to the chunk and deletes it from the storage if it is not referenced anymore.
+     */
+    private void releaseChunk(StorageSettings storageSettings, String hash, Integer id) {
+        String storageSettingsName = storageSettings.getSettingsName();
+        Object chunkLock = getChunkLock(storageSettingsName, hash);
+        String chunkKey = getChunkKey(storageSettingsName, hash);
+
+        CountDownLatch deletingChunk = new CountDownLatch(1);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                CountDownLatch pendingChunk;
+                synchronized (chunkLock) {
+                    pendingChunk = pendingChunks.get(chunkKey);
+                    if (pendingChunk == null) {
+                        if (!backupChunksManager.removeReference(storageSettingsName, hash)) {
+                            return;
+                        }
+                        pendingChunks.put(chunkKey, deletingChunk);
+                        break;
+                    }
+                }
+                // reference must be released anyway, so waiting is not interrupted
+                try {
+                    pendingChunk.await();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        try {
+            storage.deleteBackup(storageSettings, getChunkName(hash), id);
+        } finally {
+            completePendingChunk(chunkLock, chunkKey, deletingChunk);
+        }
+    }
+
+    private void releaseChunks(StorageSettings storageSettings, List<ManifestEntry> chunks, String backupName, Integer id) {
+        for (ManifestEntry chunk : chunks) {
+            try {
+                releaseChunk(storageSettings, chunk.hash, id);
+            } catch (RuntimeException ex) {
+                logger.error("Error releasing chunk of backup. Backup name: {}. Chunk hash: {}", backupName, chunk.hash, ex);
+            }
+        }
+    }
+
+    @Override
+    public void uploadBackup(InputStream in, StorageSettings storageSettings, String backupName, Integer id) {
+        List<ManifestEntry> savedChunks = new ArrayList<>();
+        int uploadedChunks = 0;
+        boolean uploaded = false;
+
+        try {
+            ContentDefinedChunker chunker = new ContentDefinedChunker(in);
+            MessageDigest messageDigest = getMessageDigest();
+            byte[] content;
+            while ((content = chunker.nextChunk()) != null) {
+                ManifestEntry chunk = new ManifestEntry(toHex(messageDigest.digest(content)), content.length, content);
+                Boolean chunkUploaded = Thread.currentThread().isInterrupted() ? null : saveChunk(storageSettings, chunk, id);
+                if (chunkUploaded == null) {
+                    logger.error("Uploading of backup with deduplication was interrupted. Backup name: {}", backupName);
+                    return;
+                }
+                savedChunks.add(chunk.withoutContent());
+                if (chunkUploaded) {
+                    uploadedChunks++;
+                }
+            }
+
+            StringBuilder manifest = new StringBuilder(MANIFEST_HEADER).append('\n');
+            for (ManifestEntry chunk : savedChunks) {
+                manifest.append(chunk.hash).append(' ').append(chunk.size).append('\n');
+            }
+            storage.uploadBackup(new ByteArrayInputStream(manifest.toString().getBytes(StandardCharsets.UTF_8)), storageSettings,
+                    backupName, id);
+            if (Thread.currentThread().isInterrupted()) {
+                logger.error("Uploading of backup with deduplication was interrupted. Backup name: {}", backupName);
+                return;
+            }
+            uploaded = true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error occurred while uploading backup with deduplication. Backup name: " + backupName, ex);
+        } finally {
+            if (!uploaded) {
+                // manifest might be uploaded already, so it must be deleted to not release chunks twice on backup deletion
+                try {
+                    storage.deleteBackup(storageSettings, backupName, id);
+                    releaseChunks(storageSettings, savedChunks, backupName, id);
+                } catch (RuntimeException ex) {
+                    logger.error("Error deleting manifest of not uploaded backup. Chunks are not released. Backup name: {}",
+                            backupName, ex);
+                }
+            }
+        }
+
+        logger.info("Backup uploaded with deduplication. Backup name: {}. Chunks uploaded: {}. Chunks reused: {}",
+                backupName, uploadedChunks, savedChunks.size() - uploadedChunks);
+    }
+
+    @Nullable
+    private List<ManifestEntry> readManifest(StorageSettings storageSettings, String backupName, Integer id) throws IOException {
+        InputStream manifestInputStream = storage.downloadBackup(storageSettings, backupName, id);
+        if (manifestInputStream == null) {
+            return null;
+        }
+
+        List<ManifestEntry> chunks = new ArrayList<>();
+        try (
+                BufferedReader manifestReader = new BufferedReader(new InputStreamReader(manifestInputStream, StandardCharsets.UTF_8))
+        ) {
+            if (!MANIFEST_HEADER.equals(manifestReader.readLine())) {
+                throw new IOException("Invalid manifest of backup with deduplication. Backup name: " + backupName);
+            }
+            String line;
+            while ((line = manifestReader.readLine()) != null) {
+                String[] fields = line.split(" ");
+                if (fields.length != 2) {
+                    throw new IOException("Invalid manifest of backup with deduplication. Backup name: " + backupName);
+                }
+                try {
+                    chunks.add(new ManifestEntry(fields[0], Integer.parseInt(fields[1]), null));
+                } catch (NumberFormatException ex) {
+                    throw new IOException("Invalid manifest of backup with deduplication. Backup name: " + backupName, ex);
+                }
+            }
+        }
+        return chunks;
+    }
+
+    @Nullable
+    @Override
+    public InputStream downloadBackup(StorageSettings storageSettings, String backupName, Integer id) {
+        List<ManifestEntry> chunks;
+        try {
+            chunks = readManifest(storageSettings, backupName, id);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error occurred while downloading backup with deduplication. Backup name: " + backupName, ex);
+        }
+        if (chunks == null) {
+            return null;
+        }
+
+        logger.info("Total chunks of backup with deduplication: {}. Backup name: {}", chunks.size(), backupName);
+
+        // chunks are downloaded one by one when the previous chunk is read
+        Iterator<ManifestEntry> chunkIterator = chunks.iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return chunkIterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!chunkIterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ManifestEntry chunk = chunkIterator.next();
+                InputStream chunkInputStream = storage.downloadBackup(storageSettings, getChunkName(chunk.hash), id);
+                if (chunkInputStream == null) {
+                    Thread.currentThread().interrupt();
+                    return new ByteArrayInputStream(new byte[0]);
+                }
+                return new VerifyingInputStream(chunkInputStream, chunk);
+            }
+        });
+    }
+
+    /**
+     * Deletes backup and chunks not referenced by other backups anymore.
+     * <p>
+     * If manifest can't be read (e.g. backup was not fully uploaded), backup is deleted as is.
+     */
+    @Override
+    public void deleteBackup(StorageSettings storageSettings, String backupName, Integer id) {
+        List<ManifestEntry> chunks;
+        try {
+            chunks = readManifest(storageSettings, backupName, id);
+        } catch (RuntimeException | IOException ex) {
+            logger.error("Error reading manifest of backup with deduplication. Only the manifest will be deleted. Backup name: {}",
+                    backupName, ex);
+            storage.deleteBackup(storageSettings, backupName, id);
+            return;
+        }
+
+        // manifest is deleted first, so the backup is never left referencing deleted chunks
+        storage.deleteBackup(storageSettings, backupName, id);
+        if (chunks != null) {
+            releaseChunks(storageSettings, chunks, backupName, id);
+        }
+    }
+
+    private static final class ManifestEntry {
+        private final String hash;
+
+        private final int size;
+
+        private final byte[] content;
+
+        ManifestEntry(String hash, int size, byte[] content) {
+            this.hash = hash;
+            this.size = size;
+            this.content = content;
+        }
+
+        ManifestEntry withoutContent() {
+            return new ManifestEntry(hash, size, null);
+        }
+    }
+
+    /**
+     * Verifies hash and size of the chunk at the end of the chunk.
+     */
+    private static final class VerifyingInputStream extends FilterInputStream {
+        private final MessageDigest messageDigest = getMessageDigest();
+
+        private final ManifestEntry chunk;
+
+        private long bytesRead = 0;
+
+        private boolean verified = false;
+
+        VerifyingInputStream(InputStream in, ManifestEntry chunk) {
+            super(in);
+            this.chunk = chunk;
+        }
+
+        private void verify() throws IOException {
+            if (verified) {
+                return;
+            }
+            if (bytesRead != chunk.size || !chunk.hash.equals(toHex(messageDigest.digest()))) {
+                throw new IOException("Corrupted backup with deduplication: chunk content doesn't match its hash. Chunk hash: " +
+                        chunk.hash);
+            }
+            verified = true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                verify();
+            } else {
+                messageDigest.update((byte) b);
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read == -1) {
+                verify();
+            } else {
+                messageDigest.update(b, off, read);
+                bytesRead += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 64 * 1024)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
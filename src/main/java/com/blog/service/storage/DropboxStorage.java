@@ -3,12 +3,17 @@ package com.blog.service.storage;
 import com.blog.entities.storage.DropboxSettings;
 import com.blog.entities.storage.StorageSettings;
 import com.blog.service.ErrorCallbackService;
+import com.blog.service.PipelineTuning;
+import com.blog.settings.UserSettings;
 import com.dropbox.core.DbxException;
 import com.dropbox.core.DbxRequestConfig;
 import com.dropbox.core.v2.DbxClientV2;
+import com.dropbox.core.v2.files.CommitInfo;
 import com.dropbox.core.v2.files.DeleteErrorException;
+import com.dropbox.core.v2.files.FileMetadata;
 import com.dropbox.core.v2.files.ListFolderResult;
 import com.dropbox.core.v2.files.Metadata;
+import com.dropbox.core.v2.files.UploadSessionCursor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -17,9 +22,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Implementation of the {@link Storage} interface for Dropbox.
@@ -28,20 +42,50 @@ import java.util.concurrent.ExecutorService;
 public class DropboxStorage implements Storage {
     private static final Logger logger = LoggerFactory.getLogger(DropboxStorage.class);
 
+    /**
+     * Size of backup data sent by one request of upload session. Buffers of uploads are of this size.
+     */
+    static final int UPLOAD_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Max size of backup part file.
+     */
+    static final int MAX_PART_SIZE = 16 * 1024 * 1024;
+
+    private static final long DEFAULT_UPLOAD_MEMORY = 64;
+
+    private static final int DEFAULT_DOWNLOAD_CONCURRENCY = 4;
+
+    private static final long DEFAULT_DOWNLOAD_MEMORY = 128;
+
     private ExecutorService dropboxExecutorService;
 
+    private ExecutorService dropboxUploadExecutorService;
+
     private ErrorCallbackService errorCallbackService;
 
+    private UserSettings userSettings;
+
     @Autowired
     public void setDropboxExecutorService(ExecutorService dropboxExecutorService) {
         this.dropboxExecutorService = dropboxExecutorService;
     }
 
+    @Autowired
+    public void setDropboxUploadExecutorService(ExecutorService dropboxUploadExecutorService) {
+        this.dropboxUploadExecutorService = dropboxUploadExecutorService;
+    }
+
     @Autowired
     public void setErrorCallbackService(ErrorCallbackService errorCallbackService) {
         this.errorCallbackService = errorCallbackService;
     }
 
+    @Autowired
+    public void setUserSettings(UserSettings userSettings) {
+        this.userSettings = userSettings;
+    }
+
     private String getCurrentFilePartAsAbsolutePath(String backupFolderPath, String backupName, int backupPart) {
         String filename = String.format(StorageConstants.DEFAULT_FILENAME_TEMPLATE, backupName, backupPart);
         return backupFolderPath + "/" + filename + StorageConstants.DEFAULT_FILE_EXTENSION;
@@ -53,7 +97,12 @@ public class DropboxStorage implements Storage {
 
     private List<Metadata> listDropboxFolder(DbxClientV2 dbxClient, String backupFolderPath) throws DbxException {
         ListFolderResult listFolderResult = dbxClient.files().listFolder(backupFolderPath);
-        return listFolderResult.getEntries();
+        List<Metadata> entries = new ArrayList<>(listFolderResult.getEntries());
+        while (listFolderResult.getHasMore()) {
+            listFolderResult = dbxClient.files().listFolderContinue(listFolderResult.getCursor());
+            entries.addAll(listFolderResult.getEntries());
+        }
+        return entries;
     }
 
     /**
@@ -64,10 +113,30 @@ public class DropboxStorage implements Storage {
     @Override
     public void uploadBackup(@NotNull InputStream in, @NotNull StorageSettings storageSettings, @NotNull String backupName,
                              @NotNull Integer id) {
+        uploadBackup(in, storageSettings, backupName, id, PipelineTuning.defaults());
+    }
+
+    /**
+     * Uploads backup to Dropbox uploading multiple backup parts concurrently.
+     * <p>
+     * Backup is saved into root folder, which is usually an app folder depending on token type. Each part is uploaded using upload
+     * session, so it is sent by chunks as soon as they are read. Upload concurrency of the settings is read before starting each part.
+     * <p>
+     * Chunks are read into buffers reused for the whole upload, so memory usage is bounded by
+     * {@link UserSettings#getDropboxUploadMemory()}. Reading stops only when all buffers are waiting to be sent. Upload concurrency is
+     * limited to the number of parts fitting into the buffers, so each uploaded part has buffers to be read into.
+     *
+     * @param tuning upload settings
+     * @implNote Chunks of one upload session must be sent in order, so every part is sent by its own task and parts are uploaded
+     * concurrently as long as there are free buffers to read the next part.
+     */
+    public void uploadBackup(@NotNull InputStream in, @NotNull StorageSettings storageSettings, @NotNull String backupName,
+                             @NotNull Integer id, @NotNull PipelineTuning tuning) {
         Objects.requireNonNull(in);
         Objects.requireNonNull(storageSettings);
         Objects.requireNonNull(backupName);
         Objects.requireNonNull(id);
+        Objects.requireNonNull(tuning);
 
         String backupFolderPath = getBackupFolderPathByBackupName(backupName);
         DbxRequestConfig config = DbxRequestConfig.newBuilder("dbBackupUploader").build();
@@ -75,49 +144,91 @@ public class DropboxStorage implements Storage {
                 "Can't upload backup to Dropbox storage: Missing Dropbox Settings"));
         DbxClientV2 dbxClient = new DbxClientV2(config, dropboxSettings.getAccessToken());
 
-        try (BufferedInputStream bufferedInputStream = new BufferedInputStream(in);
-
-             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(byteArrayOutputStream)
-        ) {
+        int uploadBuffersCount = getUploadBuffersCount();
+        int maxUploadConcurrency = Math.max(1, uploadBuffersCount / (MAX_PART_SIZE / UPLOAD_CHUNK_SIZE));
+        UploadBuffers uploadBuffers = new UploadBuffers(uploadBuffersCount);
+        ArrayDeque<Future<?>> partUploads = new ArrayDeque<>();
+        try (in) {
             int currentBackupPart = 0;
-            long maxChunkSize = 64L * 1024 * 1024;
-            int bytesRead;
-            long currentChunkSize = 0;
-
-            byte[] buffer = new byte[64 * 1024];
-            while ((bytesRead = bufferedInputStream.read(buffer)) != -1) {
-                currentChunkSize += bytesRead;
-                bufferedOutputStream.write(buffer, 0, bytesRead);
+            BlockingQueue<UploadChunk> currentPartChunks = null;
+            long currentPartSize = 0;
+            while (true) {
+                // failures of finished parts are reported as soon as possible
+                while (!partUploads.isEmpty() && partUploads.peek().isDone()) {
+                    partUploads.remove().get();
+                }
 
-                if (currentChunkSize >= maxChunkSize) {
-                    bufferedOutputStream.flush();
-                    String currentFilePath = getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, currentBackupPart);
+                byte[] buffer = uploadBuffers.take();
+                int length = in.readNBytes(buffer, 0, UPLOAD_CHUNK_SIZE);
+                boolean endOfStream = length < UPLOAD_CHUNK_SIZE;
+                if (length == 0) {
+                    if (currentPartChunks != null) {
+                        // backup size is multiple of chunk size, so the current part should be finished with empty chunk
+                        currentPartChunks.add(new UploadChunk(buffer, 0, true));
+                    } else {
+                        uploadBuffers.release(buffer);
+                    }
+                    break;
+                }
 
-                    dbxClient.files().uploadBuilder(currentFilePath).uploadAndFinish(
-                            new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+                if (currentPartChunks == null) {
+                    while (partUploads.size() >= Math.min(tuning.getUploadConcurrency(), maxUploadConcurrency)) {
+                        partUploads.remove().get();
+                    }
 
+                    currentPartChunks = new LinkedBlockingQueue<>();
+                    String currentFilePath = getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, currentBackupPart);
+                    partUploads.add(dropboxUploadExecutorService.submit(
+                            new PartUploader(dbxClient, currentFilePath, currentPartChunks, uploadBuffers)));
+                    currentPartSize = 0;
                     currentBackupPart++;
-                    byteArrayOutputStream.reset();
-                    currentChunkSize = 0;
                 }
-            }
-            if (currentChunkSize != 0) {
-                bufferedOutputStream.flush();
-                String currentFilePath = getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, currentBackupPart);
-
-                dbxClient.files().uploadBuilder(currentFilePath).uploadAndFinish(
-                        new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
 
-                byteArrayOutputStream.reset();
+                currentPartSize += length;
+                boolean lastChunkOfPart = endOfStream || currentPartSize >= MAX_PART_SIZE;
+                currentPartChunks.add(new UploadChunk(buffer, length, lastChunkOfPart));
+                if (lastChunkOfPart) {
+                    currentPartChunks = null;
+                }
+                if (endOfStream) {
+                    break;
+                }
+            }
+            while (!partUploads.isEmpty()) {
+                partUploads.remove().get();
             }
         } catch (InterruptedIOException ex) {
             logger.error("Uploading to Dropbox was interrupted. Backup folder: {}", backupFolderPath);
-        } catch (DbxException | IOException ex) {
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.error("Uploading to Dropbox was interrupted. Backup folder: {}", backupFolderPath);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error occurred while uploading backup to Dropbox", ex.getCause());
+        } catch (IOException ex) {
             throw new RuntimeException("Error occurred while uploading backup to Dropbox", ex);
+        } finally {
+            for (Future<?> partUpload : partUploads) {
+                partUpload.cancel(true);
+            }
         }
     }
 
+    private int getUploadBuffersCount() {
+        Long dropboxUploadMemory = userSettings.getDropboxUploadMemory();
+        long uploadMemory = (dropboxUploadMemory == null ? DEFAULT_UPLOAD_MEMORY : dropboxUploadMemory) * 1024 * 1024;
+        // one buffer is being sent while the other one is being read
+        return (int) Math.max(2, Math.min(Integer.MAX_VALUE, uploadMemory / UPLOAD_CHUNK_SIZE));
+    }
+
+    /**
+     * Downloads backup from Dropbox downloading multiple backup parts concurrently.
+     * <p>
+     * Parts are downloaded into memory and read in order. The part being read is available as soon as its first bytes are downloaded,
+     * so reading starts without waiting for the whole part. The following parts are prefetched, while number of parts being downloaded
+     * is less than {@link UserSettings#getDropboxDownloadConcurrency()} and size of parts not read yet fits
+     * {@link UserSettings#getDropboxDownloadMemory()}. The next part is always downloaded if no other part is kept in memory, so parts
+     * larger than the memory limit are still downloaded.
+     */
     @Nullable
     @Override
     public InputStream downloadBackup(@NotNull StorageSettings storageSettings, @NotNull String backupName, @NotNull Integer id) {
@@ -131,24 +242,60 @@ public class DropboxStorage implements Storage {
                 new RuntimeException("Can't download backup from Dropbox storage: Missing Dropbox Settings"));
         DbxClientV2 dbxClient = new DbxClientV2(config, dropboxSettings.getAccessToken());
 
-        int filesCount;
+        Map<String, Long> fileSizes = new HashMap<>();
         try {
-            filesCount = listDropboxFolder(dbxClient, backupFolderPath).size();
+            for (Metadata metadata : listDropboxFolder(dbxClient, backupFolderPath)) {
+                if (metadata instanceof FileMetadata) {
+                    fileSizes.put(metadata.getName(), ((FileMetadata) metadata).getSize());
+                }
+            }
         } catch (DbxException ex) {
             throw new RuntimeException("Error downloading backup from Dropbox: error listing backup folder. Backup folder: " + backupFolderPath, ex);
         }
 
-        try {
-            PipedOutputStream out = new PipedOutputStream();
-            PipedInputStream in = new PipedInputStream();
-            out.connect(in);
+        List<String> partPaths = new ArrayList<>();
+        long[] partSizes = new long[fileSizes.size()];
+        for (int currentBackupPart = 0; currentBackupPart < fileSizes.size(); currentBackupPart++) {
+            String currentFilePath = getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, currentBackupPart);
+            Long size = fileSizes.get(currentFilePath.substring(currentFilePath.lastIndexOf('/') + 1));
+            if (size == null) {
+                throw new RuntimeException("Error downloading backup from Dropbox: missing backup part. Backup part: " + currentFilePath);
+            }
+            // part is kept in a single array
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new RuntimeException("Error downloading backup from Dropbox: backup part is too large. Backup part: " +
+                        currentFilePath);
+            }
+            partPaths.add(currentFilePath);
+            partSizes[currentBackupPart] = size;
+        }
+        logger.info("Total files in backup folder on Dropbox: {}. Backup folder: {}", partPaths.size(), backupFolderPath);
 
-            dropboxExecutorService.submit(new BackupDownloader(out, dbxClient, backupFolderPath, backupName, filesCount, id));
+        Integer dropboxDownloadConcurrency = userSettings.getDropboxDownloadConcurrency();
+        int downloadConcurrency = dropboxDownloadConcurrency == null ? DEFAULT_DOWNLOAD_CONCURRENCY :
+                Math.max(1, dropboxDownloadConcurrency);
+        Long dropboxDownloadMemory = userSettings.getDropboxDownloadMemory();
+        long downloadMemory = (dropboxDownloadMemory == null ? DEFAULT_DOWNLOAD_MEMORY : dropboxDownloadMemory) * 1024 * 1024;
 
-            return in;
-        } catch (IOException ex) {
-            throw new RuntimeException("Error initializing backup downloading from Dropbox", ex);
-        }
+        return downloadParts((partPath, out) -> dbxClient.files().downloadBuilder(partPath).download(out), backupFolderPath, partPaths,
+                partSizes, downloadConcurrency, downloadMemory, id);
+    }
+
+    /**
+     * Returns stream of backup, parts of which are downloaded concurrently and read in order.
+     *
+     * @param partDownloader      downloader of backup parts
+     * @param backupFolderPath    path of backup folder
+     * @param partPaths           paths of backup parts in order
+     * @param partSizes           sizes of backup parts
+     * @param downloadConcurrency max number of parts being downloaded concurrently
+     * @param downloadMemory      max total size of parts kept in memory
+     * @param id                  backup task ID
+     * @return input stream, from which backup can be read
+     */
+    InputStream downloadParts(@NotNull PartDownloader partDownloader, @NotNull String backupFolderPath, @NotNull List<String> partPaths,
+                              @NotNull long[] partSizes, int downloadConcurrency, long downloadMemory, @NotNull Integer id) {
+        return new BackupDownloader(partDownloader, backupFolderPath, partPaths, partSizes, downloadConcurrency, downloadMemory, id);
     }
 
     @Override
@@ -176,50 +323,392 @@ public class DropboxStorage implements Storage {
         }
     }
 
-    private class BackupDownloader implements Runnable {
-        private OutputStream out;
+    /**
+     * Buffers of one upload.
+     * <p>
+     * Buffers are allocated on demand, so small backups don't allocate all buffers.
+     */
+    private static final class UploadBuffers {
+        private final int maxBuffers;
 
-        private DbxClientV2 dbxClient;
+        private final ArrayDeque<byte[]> freeBuffers = new ArrayDeque<>();
 
-        private int filesCount;
+        private int allocatedBuffers = 0;
 
-        private String backupFolderPath;
+        @Nullable
+        private Throwable failure;
 
-        private String backupName;
+        UploadBuffers(int maxBuffers) {
+            this.maxBuffers = maxBuffers;
+        }
 
-        private Integer id;
+        /**
+         * Returns free buffer waiting for it if all buffers are in use.
+         *
+         * @throws ExecutionException if uploading of any part failed, since buffers held by the part might be never released
+         */
+        synchronized byte[] take() throws InterruptedException, ExecutionException {
+            while (true) {
+                if (failure != null) {
+                    throw new ExecutionException(failure);
+                }
+                if (!freeBuffers.isEmpty()) {
+                    return freeBuffers.remove();
+                }
+                if (allocatedBuffers < maxBuffers) {
+                    allocatedBuffers++;
+                    return new byte[UPLOAD_CHUNK_SIZE];
+                }
+                wait();
+            }
+        }
 
-        BackupDownloader(PipedOutputStream out, DbxClientV2 dbxClient, String backupFolderPath,
-                         String backupName, int filesCount, Integer id) {
-            this.out = out;
+        synchronized void release(byte[] buffer) {
+            freeBuffers.add(buffer);
+            notifyAll();
+        }
+
+        synchronized void fail(Throwable ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+            notifyAll();
+        }
+    }
+
+    private static final class UploadChunk {
+        private final byte[] buffer;
+
+        private final int length;
+
+        private final boolean last;
+
+        UploadChunk(byte[] buffer, int length, boolean last) {
+            this.buffer = buffer;
+            this.length = length;
+            this.last = last;
+        }
+    }
+
+    /**
+     * Uploads chunks of one backup part file.
+     * <p>
+     * Part of a single chunk is uploaded by one request. Otherwise upload session is started with the first chunk and finished with the
+     * last one. Buffers of sent chunks are released.
+     */
+    private static final class PartUploader implements Callable<Void> {
+        private final DbxClientV2 dbxClient;
+
+        private final String filePath;
+
+        private final BlockingQueue<UploadChunk> chunks;
+
+        private final UploadBuffers uploadBuffers;
+
+        PartUploader(DbxClientV2 dbxClient, String filePath, BlockingQueue<UploadChunk> chunks, UploadBuffers uploadBuffers) {
             this.dbxClient = dbxClient;
+            this.filePath = filePath;
+            this.chunks = chunks;
+            this.uploadBuffers = uploadBuffers;
+        }
+
+        @Override
+        public Void call() throws DbxException, IOException, InterruptedException {
+            try {
+                String sessionId = null;
+                long offset = 0;
+                while (true) {
+                    UploadChunk chunk = chunks.take();
+                    try (InputStream data = new ByteArrayInputStream(chunk.buffer, 0, chunk.length)) {
+                        if (sessionId == null && chunk.last) {
+                            dbxClient.files().uploadBuilder(filePath).uploadAndFinish(data);
+                            return null;
+                        }
+                        if (sessionId == null) {
+                            sessionId = dbxClient.files().uploadSessionStart().uploadAndFinish(data).getSessionId();
+                        } else {
+                            UploadSessionCursor cursor = new UploadSessionCursor(sessionId, offset);
+                            if (chunk.last) {
+                                dbxClient.files().uploadSessionFinish(cursor, new CommitInfo(filePath)).uploadAndFinish(data);
+                                return null;
+                            }
+                            dbxClient.files().uploadSessionAppendV2(cursor).uploadAndFinish(data);
+                        }
+                    } finally {
+                        uploadBuffers.release(chunk.buffer);
+                    }
+                    offset += chunk.length;
+                }
+            } catch (DbxException | IOException | InterruptedException | RuntimeException ex) {
+                uploadBuffers.fail(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Downloads backup part from storage.
+     */
+    @FunctionalInterface
+    interface PartDownloader {
+        /**
+         * Downloads the part writing its content into the stream.
+         *
+         * @param partPath path of backup part
+         * @param out      the stream to write part content to
+         */
+        void download(@NotNull String partPath, @NotNull OutputStream out) throws DbxException, IOException;
+    }
+
+    /**
+     * Input stream of backup, parts of which are downloaded concurrently and read in order.
+     * <p>
+     * If download of any part fails, reading of this part throws an exception and the task is reported as erroneous.
+     */
+    private final class BackupDownloader extends InputStream {
+        private final PartDownloader partDownloader;
+
+        private final String backupFolderPath;
+
+        private final List<String> partPaths;
+
+        private final long[] partSizes;
+
+        private final int downloadConcurrency;
+
+        private final long downloadMemory;
+
+        private final Integer id;
+
+        /**
+         * Parts being downloaded or not read yet. The part being read is at {@link #currentPart} index.
+         */
+        private final DownloadedPart[] parts;
+
+        private int currentPart = 0;
+
+        private int position = 0;
+
+        private int nextPartToDownload = 0;
+
+        private int runningDownloads = 0;
+
+        private long keptInMemory = 0;
+
+        private boolean closed = false;
+
+        BackupDownloader(PartDownloader partDownloader, String backupFolderPath, List<String> partPaths, long[] partSizes,
+                         int downloadConcurrency, long downloadMemory, Integer id) {
+            this.partDownloader = partDownloader;
             this.backupFolderPath = backupFolderPath;
-            this.backupName = backupName;
-            this.filesCount = filesCount;
+            this.partPaths = partPaths;
+            this.partSizes = partSizes;
+            this.downloadConcurrency = downloadConcurrency;
+            this.downloadMemory = downloadMemory;
             this.id = id;
+            this.parts = new DownloadedPart[partPaths.size()];
+
+            synchronized (this) {
+                startDownloads();
+            }
         }
 
-        public void run() {
+        /**
+         * Starts downloads of the next parts while concurrency and memory limits allow.
+         */
+        private void startDownloads() {
+            while (!closed && nextPartToDownload < parts.length && runningDownloads < downloadConcurrency &&
+                    (keptInMemory == 0 || keptInMemory + partSizes[nextPartToDownload] <= downloadMemory)) {
+                long partSize = partSizes[nextPartToDownload];
+                DownloadedPart part = new DownloadedPart(partPaths.get(nextPartToDownload), new byte[(int) partSize]);
+                parts[nextPartToDownload] = part;
+                keptInMemory += partSize;
+                runningDownloads++;
+                nextPartToDownload++;
+                part.download = dropboxExecutorService.submit(() -> download(part));
+            }
+        }
+
+        private void download(DownloadedPart part) {
+            IOException failure = null;
             try {
-                logger.info("Total files in backup folder on Dropbox: {}. Backup folder: {}", filesCount, backupFolderPath);
-                String currentFile;
-                for (int currentBackupPart = 0; currentBackupPart < filesCount; currentBackupPart++) {
-                    currentFile = getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, currentBackupPart);
-                    dbxClient.files().downloadBuilder(currentFile).download(out);
-                }
-            } catch (DbxException | IOException ex) {
-                // if stream is closed, that means work was interrupted, so it is not an error
-                if (!ex.getMessage().equals("Pipe closed")) {
-                    errorCallbackService.onError(new RuntimeException("Error occurred while downloading backup from Dropbox. Backup folder: " +
-                            backupFolderPath, ex), id);
-                }
-            } finally {
+                partDownloader.download(part.path, new DownloadedPartOutputStream(part));
+            } catch (IOException ex) {
+                failure = ex;
+            } catch (DbxException ex) {
+                failure = new IOException(ex);
+            }
+
+            boolean reportError;
+            synchronized (this) {
+                if (failure == null && part.length != part.data.length) {
+                    failure = new IOException("Backup part is smaller than expected. Backup part: " + part.path);
+                }
+                part.failure = failure;
+                part.finished = true;
+                runningDownloads--;
+                reportError = failure != null && !closed;
+                startDownloads();
+                notifyAll();
+            }
+
+            // if stream is closed, that means work was interrupted, so it is not an error
+            if (reportError) {
+                errorCallbackService.onError(new RuntimeException("Error occurred while downloading backup from Dropbox. Backup folder: " +
+                        backupFolderPath, failure), id);
+            }
+        }
+
+        /**
+         * Waits until the next byte of backup is downloaded.
+         *
+         * @return the part being read, which has bytes at {@link #position}, or {@literal null} if the whole backup is read
+         */
+        @Nullable
+        private DownloadedPart awaitNextBytes() throws IOException {
+            while (true) {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                if (currentPart >= parts.length) {
+                    return null;
+                }
+
+                DownloadedPart part = parts[currentPart];
+                if (part != null) {
+                    if (position < part.length) {
+                        return part;
+                    }
+                    if (part.failure != null) {
+                        throw new IOException("Error downloading backup part from Dropbox. Backup part: " + part.path, part.failure);
+                    }
+                    if (part.finished) {
+                        // part is read entirely, so the memory is released for the next parts
+                        parts[currentPart] = null;
+                        keptInMemory -= part.data.length;
+                        currentPart++;
+                        position = 0;
+                        startDownloads();
+                        continue;
+                    }
+                }
+
                 try {
-                    out.close();
-                } catch (IOException ex) {
-                    logger.error("Dropbox backup downloader: error closing output stream. Backup folder: {}", backupFolderPath, ex);
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Downloading from Dropbox was interrupted. Backup folder: " + backupFolderPath);
+                }
+            }
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            DownloadedPart part = awaitNextBytes();
+            if (part == null) {
+                return -1;
+            }
+            return part.data[position++] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(@NotNull byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+
+            DownloadedPart part = awaitNextBytes();
+            if (part == null) {
+                return -1;
+            }
+            int bytesRead = Math.min(len, part.length - position);
+            System.arraycopy(part.data, position, b, off, bytesRead);
+            position += bytesRead;
+            return bytesRead;
+        }
+
+        @Override
+        public synchronized int available() {
+            DownloadedPart part = currentPart < parts.length ? parts[currentPart] : null;
+            return part == null || closed ? 0 : part.length - position;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            for (int partIndex = currentPart; partIndex < parts.length; partIndex++) {
+                if (parts[partIndex] != null) {
+                    parts[partIndex].download.cancel(true);
+                    parts[partIndex] = null;
+                }
+            }
+            notifyAll();
+        }
+
+        /**
+         * Writes downloaded bytes of the part making them available for reading.
+         */
+        private final class DownloadedPartOutputStream extends OutputStream {
+            private final DownloadedPart part;
+
+            DownloadedPartOutputStream(DownloadedPart part) {
+                this.part = part;
+            }
+
+            private void checkWritable(int len) throws IOException {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                if (len > part.data.length - part.length) {
+                    throw new IOException("Backup part is larger than expected. Backup part: " + part.path);
                 }
             }
+
+            @Override
+            public void write(int b) throws IOException {
+                synchronized (BackupDownloader.this) {
+                    checkWritable(1);
+                    part.data[part.length++] = (byte) b;
+                    BackupDownloader.this.notifyAll();
+                }
+            }
+
+            @Override
+            public void write(@NotNull byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+
+                synchronized (BackupDownloader.this) {
+                    checkWritable(len);
+                    System.arraycopy(b, off, part.data, part.length, len);
+                    part.length += len;
+                    BackupDownloader.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static final class DownloadedPart {
+        private final String path;
+
+        private final byte[] data;
+
+        private int length = 0;
+
+        private boolean finished = false;
+
+        @Nullable
+        private IOException failure;
+
+        private Future<?> download;
+
+        DownloadedPart(String path, byte[] data) {
+            this.path = path;
+            this.data = data;
         }
     }
 }
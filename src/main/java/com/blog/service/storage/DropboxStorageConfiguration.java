@@ -12,4 +12,9 @@ public class DropboxStorageConfiguration {
     public ExecutorService dropboxExecutorService() {
         return Executors.newFixedThreadPool(20);
     }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService dropboxUploadExecutorService() {
+        return Executors.newFixedThreadPool(20);
+    }
 }
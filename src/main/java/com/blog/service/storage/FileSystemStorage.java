@@ -9,11 +9,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.FileSystemUtils;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Implementation of the {@link Storage} interface for Local File System.
@@ -22,6 +24,17 @@ import java.util.Objects;
 public class FileSystemStorage implements Storage {
     private static final Logger logger = LoggerFactory.getLogger(FileSystemStorage.class);
 
+    static final long MAX_CHUNK_SIZE = 1024L * 1024 * 192;
+
+    private long maxChunkSize = MAX_CHUNK_SIZE;
+
+    /**
+     * Sets maximum size of backup parts created by {@link #uploadBackup(InputStream, StorageSettings, String, Integer)}.
+     */
+    void setMaxChunkSize(long maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
     private String getCurrentFilePartAsAbsolutePath(String backupFolderPath, String backupName, long currentBackupPart) {
         String filename = String.format(StorageConstants.DEFAULT_FILENAME_TEMPLATE, backupName, currentBackupPart);
         return backupFolderPath + File.separator + filename + StorageConstants.DEFAULT_FILE_EXTENSION;
@@ -44,7 +57,6 @@ public class FileSystemStorage implements Storage {
         try (
                 BufferedInputStream bufferedInputStream = new BufferedInputStream(in)
         ) {
-            long maxChunkSize = 1024L * 1024 * 192;
             long currentBackupPart = 0;
             long currentChunkSize;
             int bytesRead = 0;
@@ -112,6 +124,96 @@ public class FileSystemStorage implements Storage {
         }
     }
 
+    private String getBackupFolderPath(StorageSettings storageSettings, String backupName) {
+        LocalFileSystemSettings localFileSystemSettings = storageSettings.getLocalFileSystemSettings().orElseThrow(() ->
+                new RuntimeException("Can't access backup on Local File System storage: Missing Storage Settings"));
+        return getBackupFolderPathFromCurrentFolder(getSystemDependentPath(localFileSystemSettings.getBackupPath()), backupName);
+    }
+
+    /**
+     * Creates backup folder and returns the file the whole backup should be written to.
+     * <p>
+     * This method allows external process to write backup directly to the storage, without copying backup through the application. The
+     * backup is kept as a single backup part of any size, so it is not copied again after it is written.
+     *
+     * @param storageSettings storage settings
+     * @param backupName      backup name
+     * @return file to write backup to
+     */
+    public Path createBackupFile(StorageSettings storageSettings, String backupName) {
+        String backupFolderPath = getBackupFolderPath(storageSettings, backupName);
+
+        File backupFolder = new File(backupFolderPath);
+        if (!backupFolder.mkdir()) {
+            throw new RuntimeException(
+                    "Can't upload backup to Local File System storage: error creating backup folder to save backup to. Backup folder: "
+                            + backupFolderPath);
+        }
+
+        return Path.of(getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, 0));
+    }
+
+    /**
+     * Copies backup to another Local File System storage.
+     *
+     * @param sourceStorageSettings storage settings of the storage backup is saved on
+     * @param targetStorageSettings storage settings of the storage to copy backup to
+     * @param backupName            backup name
+     */
+    public void copyBackup(StorageSettings sourceStorageSettings, StorageSettings targetStorageSettings, String backupName) {
+        String sourceBackupFolderPath = getBackupFolderPath(sourceStorageSettings, backupName);
+        String targetBackupFolderPath = getBackupFolderPath(targetStorageSettings, backupName);
+
+        try {
+            long filesCount = Objects.requireNonNull(new File(sourceBackupFolderPath).list(),
+                    String.format("Can't copy backup: invalid backup folder path: %s", sourceBackupFolderPath)).length;
+
+            Files.createDirectory(Path.of(targetBackupFolderPath));
+            for (long currentBackupPart = 0; currentBackupPart < filesCount; currentBackupPart++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    logger.error("Backup copying on Local File System was interrupted. Backup folder: {}", targetBackupFolderPath);
+                    return;
+                }
+                Files.copy(Path.of(getCurrentFilePartAsAbsolutePath(sourceBackupFolderPath, backupName, currentBackupPart)),
+                        Path.of(getCurrentFilePartAsAbsolutePath(targetBackupFolderPath, backupName, currentBackupPart)));
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error copying backup on Local File System. Backup folder: " + targetBackupFolderPath, ex);
+        }
+    }
+
+    /**
+     * Passes backup part files in order to the backup files reader.
+     * <p>
+     * This method allows external process to read backup directly from the storage. The reader must read the files one after another, as
+     * they form the backup only together.
+     *
+     * @param storageSettings   storage settings
+     * @param backupName        backup name
+     * @param id                backup restoration task ID
+     * @param backupFilesReader reader of the backup part files
+     */
+    public void readBackupFiles(StorageSettings storageSettings, String backupName, Integer id, Consumer<List<Path>> backupFilesReader) {
+        String backupFolderPath = getBackupFolderPath(storageSettings, backupName);
+
+        long filesCount = Objects.requireNonNull(new File(backupFolderPath).list(),
+                String.format("Can't download backup: invalid backup folder path: %s", backupFolderPath)).length;
+
+        logger.info("Total files in backup folder on Local File System: {}. Backup folder: {}", filesCount, backupFolderPath);
+
+        List<Path> backupFiles = new ArrayList<>();
+        for (long currentBackupPart = 0; currentBackupPart < filesCount; currentBackupPart++) {
+            Path partFile = Path.of(getCurrentFilePartAsAbsolutePath(backupFolderPath, backupName, currentBackupPart));
+            // reader can't tell a missing part from the end of the backup, so parts are checked before reading
+            if (!Files.isReadable(partFile)) {
+                throw new RuntimeException("Can't download backup: missing backup part file " + partFile);
+            }
+            backupFiles.add(partFile);
+        }
+
+        backupFilesReader.accept(backupFiles);
+    }
+
     @Override
     public void deleteBackup(StorageSettings storageSettings, String backupName, Integer id) {
         LocalFileSystemSettings localFileSystemSettings = storageSettings.getLocalFileSystemSettings().orElseThrow(() ->
@@ -45,6 +45,13 @@ public class StorageConstants {
      * Default backup files extension.
      */
     static final String DEFAULT_FILE_EXTENSION = ".dat";
+    /**
+     * Chunk name template.
+     * <p>
+     * Chunks of backups on storages with deduplication are stored as backups named by hash of the chunk content:
+     * {@code chunk_<SHA-256 in hex>}
+     */
+    static final String CHUNK_NAME_TEMPLATE = "chunk_%s";
 
     private StorageConstants() {
     }
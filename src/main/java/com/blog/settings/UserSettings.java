@@ -19,6 +19,52 @@ public class UserSettings {
      */
     private String web_ui_Password;
 
+    /**
+     * Base64-encoded AES key backups are encrypted with. Backups can be decrypted only with the same key
+     */
+    private String backupEncryptionKey;
+
+    /**
+     * Directory for spool files of storages lagging behind others while uploading backup. System temporary directory is used if not set
+     */
+    private String uploadSpoolDirectory;
+
+    /**
+     * Max size of spool file of each storage in megabytes. Spooling is disabled if not set or set to zero
+     */
+    private Long uploadSpoolMaxSize;
+
+    /**
+     * Directory for spool files of created backups. If set, backup is written to the spool file first and uploaded to storages after
+     * the backup is created. Otherwise backup is uploaded to storages while it is being created
+     */
+    private String backupSpoolDirectory;
+
+    /**
+     * Max number of attempts to upload backup from the spool file. Default is 3
+     */
+    private Integer backupUploadAttempts;
+
+    /**
+     * Delay between attempts to upload backup from the spool file in seconds. Default is 60
+     */
+    private Long backupUploadRetryDelay;
+
+    /**
+     * Max size of memory used for buffers of each upload to Dropbox in megabytes. Default is 64
+     */
+    private Long dropboxUploadMemory;
+
+    /**
+     * Max number of backup parts downloaded from Dropbox concurrently by each download. Default is 4
+     */
+    private Integer dropboxDownloadConcurrency;
+
+    /**
+     * Max size of memory used for backup parts prefetched by each download from Dropbox in megabytes. Default is 128
+     */
+    private Long dropboxDownloadMemory;
+
     public String getWebUILogin() {
         return web_ui_Login;
     }
@@ -34,4 +80,76 @@ public class UserSettings {
     public void setWebUIPassword(String web_ui_Password) {
         this.web_ui_Password = web_ui_Password;
     }
+
+    public String getBackupEncryptionKey() {
+        return backupEncryptionKey;
+    }
+
+    public void setBackupEncryptionKey(String backupEncryptionKey) {
+        this.backupEncryptionKey = backupEncryptionKey;
+    }
+
+    public String getUploadSpoolDirectory() {
+        return uploadSpoolDirectory;
+    }
+
+    public void setUploadSpoolDirectory(String uploadSpoolDirectory) {
+        this.uploadSpoolDirectory = uploadSpoolDirectory;
+    }
+
+    public Long getUploadSpoolMaxSize() {
+        return uploadSpoolMaxSize;
+    }
+
+    public void setUploadSpoolMaxSize(Long uploadSpoolMaxSize) {
+        this.uploadSpoolMaxSize = uploadSpoolMaxSize;
+    }
+
+    public String getBackupSpoolDirectory() {
+        return backupSpoolDirectory;
+    }
+
+    public void setBackupSpoolDirectory(String backupSpoolDirectory) {
+        this.backupSpoolDirectory = backupSpoolDirectory;
+    }
+
+    public Integer getBackupUploadAttempts() {
+        return backupUploadAttempts;
+    }
+
+    public void setBackupUploadAttempts(Integer backupUploadAttempts) {
+        this.backupUploadAttempts = backupUploadAttempts;
+    }
+
+    public Long getBackupUploadRetryDelay() {
+        return backupUploadRetryDelay;
+    }
+
+    public void setBackupUploadRetryDelay(Long backupUploadRetryDelay) {
+        this.backupUploadRetryDelay = backupUploadRetryDelay;
+    }
+
+    public Long getDropboxUploadMemory() {
+        return dropboxUploadMemory;
+    }
+
+    public void setDropboxUploadMemory(Long dropboxUploadMemory) {
+        this.dropboxUploadMemory = dropboxUploadMemory;
+    }
+
+    public Integer getDropboxDownloadConcurrency() {
+        return dropboxDownloadConcurrency;
+    }
+
+    public void setDropboxDownloadConcurrency(Integer dropboxDownloadConcurrency) {
+        this.dropboxDownloadConcurrency = dropboxDownloadConcurrency;
+    }
+
+    public Long getDropboxDownloadMemory() {
+        return dropboxDownloadMemory;
+    }
+
+    public void setDropboxDownloadMemory(Long dropboxDownloadMemory) {
+        this.dropboxDownloadMemory = dropboxDownloadMemory;
+    }
 }
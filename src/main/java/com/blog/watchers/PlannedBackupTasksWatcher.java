@@ -1,8 +1,11 @@
 package com.blog.watchers;
 
+import com.blog.entities.backup.BackupProperties;
 import com.blog.entities.database.DatabaseSettings;
 import com.blog.entities.task.PlannedTask;
 import com.blog.entities.task.Task;
+import com.blog.manager.BackupPropertiesManager;
+import com.blog.manager.DatabaseBackupManager;
 import com.blog.manager.DatabaseSettingsManager;
 import com.blog.manager.ErrorTasksManager;
 import com.blog.manager.PlannedTasksManager;
@@ -35,6 +38,8 @@ class PlannedBackupTasksWatcher {
     private PlannedTasksManager plannedTasksManager;
     private DatabaseSettingsManager databaseSettingsManager;
     private TasksStarterService tasksStarterService;
+    private BackupPropertiesManager backupPropertiesManager;
+    private DatabaseBackupManager databaseBackupManager;
 
     @Autowired
     public void setTasksManager(TasksManager tasksManager) {
@@ -61,6 +66,30 @@ class PlannedBackupTasksWatcher {
         this.tasksStarterService = tasksStarterService;
     }
 
+    @Autowired
+    public void setBackupPropertiesManager(BackupPropertiesManager backupPropertiesManager) {
+        this.backupPropertiesManager = backupPropertiesManager;
+    }
+
+    @Autowired
+    public void setDatabaseBackupManager(DatabaseBackupManager databaseBackupManager) {
+        this.databaseBackupManager = databaseBackupManager;
+    }
+
+    /**
+     * Reads marker of the database state before starting backup.
+     *
+     * @return state marker or {@literal null} if it can't be read, so the backup should be created anyway
+     */
+    private String readChangeMarker(DatabaseSettings databaseSettings) {
+        try {
+            return databaseBackupManager.readChangeMarker(databaseSettings);
+        } catch (RuntimeException ex) {
+            logger.error("Error reading state of database {}. Creating backup without change check", databaseSettings.getName(), ex);
+            return null;
+        }
+    }
+
     /**
      * This watcher wakes up every time 30 seconds passed from the last completion, checks currently executing planned tasks and watches their
      * progress.
@@ -117,6 +146,8 @@ class PlannedBackupTasksWatcher {
             // reset timer if task completed
             if (optionalHandlerTask.get().getState() == Task.State.COMPLETED) {
                 logger.debug("Resetting timer of planned task with ID {}", plannedTaskId);
+                // the next incremental backup is compared with this one
+                plannedTask.setLastBackupPropertiesId(optionalHandlerTask.get().getBackupPropertiesId());
                 plannedTask.setHandlerTaskId(null);
                 plannedTask.setLastStartedTime(LocalDateTime.now(ZoneOffset.UTC));
                 plannedTask.setState(PlannedTask.State.WAITING);
@@ -140,6 +171,9 @@ class PlannedBackupTasksWatcher {
      * When handling planned task, handler tasks started and list of IDs of these tasks is saved into the same {@link PlannedTask} entity.
      * Considering this, we are able to watch progress of every executing planned task: if any error occurred or all tasks
      * completed successfully.
+     * <p>
+     * Before starting the task, marker of the database state is compared with one saved with the last backup of the planned task. If
+     * the database has not changed, no-change backup referring to the last backup is recorded instead and the timer is reset at once.
      *
      * @implNote Only tasks in state {@link PlannedTask.State#WAITING} are handled. Once task is started it turns in state
      * {@link PlannedTask.State#EXECUTING} to prevent being handled again.
@@ -168,8 +202,32 @@ class PlannedBackupTasksWatcher {
 
             DatabaseSettings databaseSettings = optionalDatabaseSettings.get();
 
-            Integer handlerTaskId = tasksStarterService.startBackupTask(
-                    Task.RunType.INTERNAL, plannedTask.getStorageSettingsNameList(), plannedTask.getProcessors(), databaseSettings).getId();
+            String changeMarker = readChangeMarker(databaseSettings);
+            Integer lastBackupPropertiesId = plannedTask.getLastBackupPropertiesId();
+            Optional<BackupProperties> lastBackupProperties = lastBackupPropertiesId == null ? Optional.empty() :
+                    backupPropertiesManager.findById(lastBackupPropertiesId);
+            if (changeMarker != null && lastBackupProperties.isPresent() &&
+                    changeMarker.equals(lastBackupProperties.get().getChangeMarker())) {
+                BackupProperties noChangeBackupProperties =
+                        backupPropertiesManager.initNoChangeBackupProperties(lastBackupProperties.get(), changeMarker);
+                plannedTask.setLastStartedTime(now);
+
+                logger.info("Database has not changed since the last backup. No-change backup recorded: {}. Planned task info: {}",
+                        noChangeBackupProperties, plannedTask);
+                continue;
+            }
+
+            Task handlerTask;
+            if (plannedTask.isIncremental()) {
+                handlerTask = tasksStarterService.startIncrementalBackupTask(Task.RunType.INTERNAL,
+                        plannedTask.getStorageSettingsNameList(), plannedTask.getProcessors(), plannedTask.getProcessorOptions(),
+                        databaseSettings, plannedTask.getLastBackupPropertiesId());
+            } else {
+                handlerTask = tasksStarterService.startBackupTask(Task.RunType.INTERNAL, plannedTask.getStorageSettingsNameList(),
+                        plannedTask.getProcessors(), plannedTask.getProcessorOptions(), databaseSettings);
+            }
+            Integer handlerTaskId = handlerTask.getId();
+            backupPropertiesManager.setChangeMarker(handlerTask.getBackupPropertiesId(), changeMarker);
 
             plannedTask.setHandlerTaskId(handlerTaskId);
             plannedTask.setState(PlannedTask.State.EXECUTING);
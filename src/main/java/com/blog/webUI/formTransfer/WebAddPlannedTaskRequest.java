@@ -14,8 +14,24 @@ public class WebAddPlannedTaskRequest {
 
     private List<String> processors;
 
+    /**
+     * Compression level.
+     * <p>
+     * Optional. If empty, default level of the compressor is used.
+     */
+    private String compressionLevel;
+
+    /**
+     * Whether compressor should search for matches in a large window.
+     * <p>
+     * Optional. Supported only by Zstandard compressor.
+     */
+    private boolean longRange;
+
     private String interval;
 
+    private boolean incremental;
+
     public String getDatabaseSettingsName() {
         return databaseSettingsName;
     }
@@ -40,6 +56,22 @@ public class WebAddPlannedTaskRequest {
         this.processors = processors;
     }
 
+    public String getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(String compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean isLongRange() {
+        return longRange;
+    }
+
+    public void setLongRange(boolean longRange) {
+        this.longRange = longRange;
+    }
+
     public String getInterval() {
         return interval;
     }
@@ -48,13 +80,24 @@ public class WebAddPlannedTaskRequest {
         this.interval = interval;
     }
 
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     @Override
     public String toString() {
         return "WebAddPlannedTaskRequest{" +
                 "databaseSettingsName='" + databaseSettingsName + '\'' +
                 ", storageSettingsNameList=" + storageSettingsNameList +
                 ", processors=" + processors +
+                ", compressionLevel='" + compressionLevel + '\'' +
+                ", longRange=" + longRange +
                 ", interval='" + interval + '\'' +
+                ", incremental=" + incremental +
                 '}';
     }
 }
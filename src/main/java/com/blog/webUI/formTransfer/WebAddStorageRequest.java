@@ -17,6 +17,8 @@ public class WebAddStorageRequest {
 
     private WebDropboxSettings dropboxSettings;
 
+    private boolean deduplication;
+
     public String getStorageType() {
         return storageType;
     }
@@ -49,6 +51,14 @@ public class WebAddStorageRequest {
         this.dropboxSettings = dropboxSettings;
     }
 
+    public boolean isDeduplication() {
+        return deduplication;
+    }
+
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
     @Override
     public String toString() {
         return "WebAddStorageRequest{" +
@@ -56,6 +66,7 @@ public class WebAddStorageRequest {
                 ", settingsName='" + settingsName + '\'' +
                 ", localFileSystemSettings=" + localFileSystemSettings +
                 ", dropboxSettings=" + dropboxSettings +
+                ", deduplication=" + deduplication +
                 '}';
     }
 }
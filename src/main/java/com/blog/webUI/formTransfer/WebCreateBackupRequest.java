@@ -12,8 +12,36 @@ public class WebCreateBackupRequest {
 
     private List<String> processors;
 
+    /**
+     * Compression level.
+     * <p>
+     * Optional. If empty, default level of the compressor is used.
+     */
+    private String compressionLevel;
+
+    /**
+     * Whether compressor should search for matches in a large window.
+     * <p>
+     * Optional. Supported only by Zstandard compressor.
+     */
+    private boolean longRange;
+
     private List<String> storageSettingsNameList;
 
+    /**
+     * Whether base backup of the whole cluster should be created and WAL should be archived continuously after it.
+     * <p>
+     * Optional. Such backup can be restored to any point in time.
+     */
+    private boolean walArchiving;
+
+    /**
+     * Whether changes of the database should be captured continuously after the backup.
+     * <p>
+     * Optional. Such backup can be restored to any captured WAL position.
+     */
+    private boolean changeCapture;
+
     public String getDatabaseSettingsName() {
         return databaseSettingsName;
     }
@@ -30,6 +58,22 @@ public class WebCreateBackupRequest {
         this.processors = processors;
     }
 
+    public String getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(String compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean isLongRange() {
+        return longRange;
+    }
+
+    public void setLongRange(boolean longRange) {
+        this.longRange = longRange;
+    }
+
     public List<String> getStorageSettingsNameList() {
         return storageSettingsNameList;
     }
@@ -37,4 +81,20 @@ public class WebCreateBackupRequest {
     public void setStorageSettingsNameList(List<String> storageSettingsNameList) {
         this.storageSettingsNameList = storageSettingsNameList;
     }
+
+    public boolean isWalArchiving() {
+        return walArchiving;
+    }
+
+    public void setWalArchiving(boolean walArchiving) {
+        this.walArchiving = walArchiving;
+    }
+
+    public boolean isChangeCapture() {
+        return changeCapture;
+    }
+
+    public void setChangeCapture(boolean changeCapture) {
+        this.changeCapture = changeCapture;
+    }
 }
@@ -12,6 +12,44 @@ public class WebRestoreBackupRequest {
 
     private String storageSettingsName;
 
+    private String restoreJobs;
+
+    /**
+     * Comma-separated patterns of schemas and tables to restore or not to restore.
+     * <p>
+     * Optional. If all patterns are empty, the whole backup is restored.
+     *
+     * @see com.blog.service.databaseBackup.RestoreFilter
+     */
+    private String includeSchemas;
+
+    private String excludeSchemas;
+
+    private String includeTables;
+
+    private String excludeTables;
+
+    /**
+     * Data directory to restore base backup into.
+     * <p>
+     * Required only for base backups, which are restored into data directory rather than into database.
+     */
+    private String dataDirectory;
+
+    /**
+     * UTC time to recover base backup to in format {@literal yyyy-MM-dd HH:mm:ss}.
+     * <p>
+     * Optional. If not set, base backup is recovered to the end of archived WAL.
+     */
+    private String targetTime;
+
+    /**
+     * WAL position to replay captured changes up to in format {@literal X/X} (e.g. {@literal 16/B374D848}).
+     * <p>
+     * Optional. If not set, all captured changes are replayed.
+     */
+    private String targetLsn;
+
     public String getBackupId() {
         return backupId;
     }
@@ -36,12 +74,84 @@ public class WebRestoreBackupRequest {
         this.storageSettingsName = storageSettingsName;
     }
 
+    public String getRestoreJobs() {
+        return restoreJobs;
+    }
+
+    public void setRestoreJobs(String restoreJobs) {
+        this.restoreJobs = restoreJobs;
+    }
+
+    public String getIncludeSchemas() {
+        return includeSchemas;
+    }
+
+    public void setIncludeSchemas(String includeSchemas) {
+        this.includeSchemas = includeSchemas;
+    }
+
+    public String getExcludeSchemas() {
+        return excludeSchemas;
+    }
+
+    public void setExcludeSchemas(String excludeSchemas) {
+        this.excludeSchemas = excludeSchemas;
+    }
+
+    public String getIncludeTables() {
+        return includeTables;
+    }
+
+    public void setIncludeTables(String includeTables) {
+        this.includeTables = includeTables;
+    }
+
+    public String getExcludeTables() {
+        return excludeTables;
+    }
+
+    public void setExcludeTables(String excludeTables) {
+        this.excludeTables = excludeTables;
+    }
+
+    public String getDataDirectory() {
+        return dataDirectory;
+    }
+
+    public void setDataDirectory(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    public String getTargetTime() {
+        return targetTime;
+    }
+
+    public void setTargetTime(String targetTime) {
+        this.targetTime = targetTime;
+    }
+
+    public String getTargetLsn() {
+        return targetLsn;
+    }
+
+    public void setTargetLsn(String targetLsn) {
+        this.targetLsn = targetLsn;
+    }
+
     @Override
     public String toString() {
         return "WebRestoreBackupRequest{" +
                 "backupId='" + backupId + '\'' +
                 ", databaseSettingsName='" + databaseSettingsName + '\'' +
                 ", storageSettingsName='" + storageSettingsName + '\'' +
+                ", restoreJobs='" + restoreJobs + '\'' +
+                ", includeSchemas='" + includeSchemas + '\'' +
+                ", excludeSchemas='" + excludeSchemas + '\'' +
+                ", includeTables='" + includeTables + '\'' +
+                ", excludeTables='" + excludeTables + '\'' +
+                ", dataDirectory='" + dataDirectory + '\'' +
+                ", targetTime='" + targetTime + '\'' +
+                ", targetLsn='" + targetLsn + '\'' +
                 '}';
     }
 }
@@ -4,8 +4,75 @@ package com.blog.webUI.formTransfer.database;
  * This class stores PostgreSQL database specific fields
  */
 public class WebPostgresSettings {
+    private String engine;
+
+    private String backupFormat;
+
+    private String backupJobs;
+
+    private String binaryCopy;
+
+    private String splitTableThresholdMb;
+
+    private String splitTableJobs;
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public String getBackupFormat() {
+        return backupFormat;
+    }
+
+    public void setBackupFormat(String backupFormat) {
+        this.backupFormat = backupFormat;
+    }
+
+    public String getBackupJobs() {
+        return backupJobs;
+    }
+
+    public void setBackupJobs(String backupJobs) {
+        this.backupJobs = backupJobs;
+    }
+
+    public String getBinaryCopy() {
+        return binaryCopy;
+    }
+
+    public void setBinaryCopy(String binaryCopy) {
+        this.binaryCopy = binaryCopy;
+    }
+
+    public String getSplitTableThresholdMb() {
+        return splitTableThresholdMb;
+    }
+
+    public void setSplitTableThresholdMb(String splitTableThresholdMb) {
+        this.splitTableThresholdMb = splitTableThresholdMb;
+    }
+
+    public String getSplitTableJobs() {
+        return splitTableJobs;
+    }
+
+    public void setSplitTableJobs(String splitTableJobs) {
+        this.splitTableJobs = splitTableJobs;
+    }
+
     @Override
     public String toString() {
-        return "WebPostgresSettings{}";
+        return "WebPostgresSettings{" +
+                "engine='" + engine + '\'' +
+                ", backupFormat='" + backupFormat + '\'' +
+                ", backupJobs='" + backupJobs + '\'' +
+                ", binaryCopy='" + binaryCopy + '\'' +
+                ", splitTableThresholdMb='" + splitTableThresholdMb + '\'' +
+                ", splitTableJobs='" + splitTableJobs + '\'' +
+                '}';
     }
 }
@@ -24,14 +24,20 @@ public class WebBackupTask {
 
     private final String time;
 
+    /**
+     * Current throughput of the task or empty string if the task does not transfer data at the moment.
+     */
+    private final String throughput;
+
     private WebBackupTask(@NotNull Integer id, @NotNull String type, @NotNull String state, @NotNull Boolean isError,
-                          @NotNull Boolean isInterrupted, @NotNull String time) {
+                          @NotNull Boolean isInterrupted, @NotNull String time, @NotNull String throughput) {
         this.id = id;
         this.type = type;
         this.state = state;
         this.isError = isError;
         this.isInterrupted = isInterrupted;
         this.time = time;
+        this.throughput = throughput;
     }
 
     public Integer getId() {
@@ -58,6 +64,10 @@ public class WebBackupTask {
         return time;
     }
 
+    public String getThroughput() {
+        return throughput;
+    }
+
     @Override
     public String toString() {
         return "WebBackupTask{" +
@@ -67,6 +77,7 @@ public class WebBackupTask {
                 ", error=" + isError +
                 ", isInterrupted=" + isInterrupted +
                 ", time='" + time + '\'' +
+                ", throughput='" + throughput + '\'' +
                 '}';
     }
 
@@ -78,6 +89,7 @@ public class WebBackupTask {
         private String state;
         private Boolean isInterrupted;
         private String time;
+        private String throughput = "";
 
         public Builder() {
         }
@@ -107,13 +119,18 @@ public class WebBackupTask {
             return this;
         }
 
+        public Builder withThroughput(String throughput) {
+            this.throughput = throughput;
+            return this;
+        }
+
         public Builder withIsError(boolean isError) {
             this.isError = isError;
             return this;
         }
 
         public WebBackupTask build() {
-            return new WebBackupTask(id, type, state, isError, isInterrupted, time);
+            return new WebBackupTask(id, type, state, isError, isInterrupted, time, throughput);
         }
     }
 }
@@ -0,0 +1,12 @@
+alter table storage_settings
+    add column if not exists DEDUPLICATION BOOLEAN not null default false;
+
+create table if not exists backup_chunks
+(
+    ID                    SERIAL PRIMARY KEY,
+    STORAGE_SETTINGS_NAME varchar(256) not null,
+    HASH                  varchar(64)  not null,
+    SIZE                  INTEGER      not null,
+    REFERENCE_COUNT       INTEGER      not null,
+    unique (STORAGE_SETTINGS_NAME, HASH)
+);
@@ -0,0 +1,2 @@
+alter table backup_tasks
+    add column if not exists DATABASE_SETTINGS_NAME varchar(256);
@@ -0,0 +1,2 @@
+alter table backup_properties
+    add column if not exists FORMAT varchar(64) not null default 'PLAIN';
@@ -0,0 +1,10 @@
+create table if not exists wal_segments
+(
+    ID                   SERIAL PRIMARY KEY,
+    BACKUP_PROPERTIES_ID INTEGER       not null,
+    SEGMENT_NAME         varchar(64)   not null,
+    BACKUP_NAME          varchar(1024) not null,
+    DATE                 TIMESTAMP     not null
+);
+
+create index if not exists wal_segments_backup_properties_id_idx on wal_segments (BACKUP_PROPERTIES_ID);
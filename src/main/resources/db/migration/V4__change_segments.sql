@@ -0,0 +1,11 @@
+create table if not exists change_segments
+(
+    ID                   SERIAL PRIMARY KEY,
+    BACKUP_PROPERTIES_ID INTEGER       not null,
+    START_LSN            BIGINT        not null,
+    END_LSN              BIGINT        not null,
+    BACKUP_NAME          varchar(1024) not null,
+    DATE                 TIMESTAMP     not null
+);
+
+create index if not exists change_segments_backup_properties_id_idx on change_segments (BACKUP_PROPERTIES_ID);
@@ -0,0 +1,23 @@
+create table if not exists backup_tables
+(
+    ID                        SERIAL PRIMARY KEY,
+    BACKUP_PROPERTIES_ID      INTEGER       not null,
+    TABLE_NAME                varchar(1024) not null,
+    DATA_BACKUP_PROPERTIES_ID INTEGER       not null,
+    INSERTED_TUPLES           BIGINT        not null,
+    UPDATED_TUPLES            BIGINT        not null,
+    DELETED_TUPLES            BIGINT        not null,
+    SIZE                      BIGINT        not null,
+    FILE_NODE                 BIGINT        not null,
+    COLUMNS_SIGNATURE         varchar(64)   not null
+);
+
+create index if not exists backup_tables_backup_properties_id_idx on backup_tables (BACKUP_PROPERTIES_ID);
+
+create index if not exists backup_tables_data_backup_properties_id_idx on backup_tables (DATA_BACKUP_PROPERTIES_ID);
+
+alter table planned_backup_tasks
+    add column if not exists INCREMENTAL BOOLEAN not null default false;
+
+alter table planned_backup_tasks
+    add column if not exists LAST_BACKUP_PROPERTIES_ID INTEGER;
@@ -0,0 +1,7 @@
+alter table backup_properties
+    add column if not exists CHANGE_MARKER varchar(256);
+
+alter table backup_properties
+    add column if not exists SOURCE_BACKUP_PROPERTIES_ID INTEGER;
+
+create index if not exists backup_properties_source_backup_properties_id_idx on backup_properties (SOURCE_BACKUP_PROPERTIES_ID);
@@ -0,0 +1,5 @@
+alter table backup_properties
+    add column if not exists PROCESSOR_OPTIONS varchar(256) not null default '';
+
+alter table planned_backup_tasks
+    add column if not exists PROCESSOR_OPTIONS varchar(256) not null default '';
@@ -0,0 +1,9 @@
+create table if not exists compression_dictionaries
+(
+    ID                     SERIAL PRIMARY KEY,
+    DATABASE_SETTINGS_NAME varchar(256) not null,
+    VERSION                INTEGER      not null,
+    DATE                   TIMESTAMP    not null,
+    DICTIONARY             BYTEA        not null,
+    unique (DATABASE_SETTINGS_NAME, VERSION)
+);
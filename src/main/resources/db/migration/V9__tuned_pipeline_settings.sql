@@ -0,0 +1,9 @@
+create table if not exists tuned_pipeline_settings
+(
+    DATABASE_SETTINGS_NAME varchar(256) PRIMARY KEY,
+    COMPRESSION_LEVEL      INTEGER,
+    COMPRESSION_THREADS    INTEGER,
+    UPLOAD_CONCURRENCY     INTEGER,
+    BYTES_PER_SECOND       BIGINT    not null,
+    DATE                   TIMESTAMP not null
+);
@@ -14,7 +14,10 @@ window.setInterval(function () {
                     bodyHtml +=
                         '<tr>\n' +
                         '<th scope="row">' + backupTask.type + '</th>\n' +
-                        '<td>' + backupTask.state + '</td>\n' +
+                        '<td>\n' +
+                        '    <div>' + backupTask.state + '</div>\n' +
+                        (backupTask.throughput ? '    <div>' + backupTask.throughput + '</div>\n' : '') +
+                        '</td>\n' +
                         '<td>' + backupTask.error + '</td>\n' +
                         '<td>' + backupTask.interrupted + '</td>\n' +
                         '<td class="tableColumn-time">\n' +
@@ -63,6 +63,19 @@ class WebRestoreBackupRequestValidatorTests extends ApplicationTests {
         assertEquals("error.restoreBackupRequest.storageSettingsName.empty", errors.getFieldError("storageSettingsName").getCode());
     }
 
+    @Test
+    void validate_shouldRejectRestoreJobs_whenRestoreJobsMalformed() {
+        WebRestoreBackupRequest webRestoreBackupRequest = new WebRestoreBackupRequest();
+        webRestoreBackupRequest.setRestoreJobs("0");
+
+        Errors errors = new BeanPropertyBindingResult(webRestoreBackupRequest, "");
+
+        webRestoreBackupRequestValidator.validate(webRestoreBackupRequest, errors);
+
+        assertTrue(errors.hasFieldErrors("restoreJobs"));
+        assertEquals("error.restoreBackupRequest.restoreJobs.malformed", errors.getFieldError("restoreJobs").getCode());
+    }
+
     @Test
     void validate_shouldPass_whenPassProperDto(TestInfo testInfo) {
         WebRestoreBackupRequest webRestoreBackupRequest = new WebRestoreBackupRequest();
@@ -11,6 +11,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -40,11 +41,22 @@ class BackupProcessorManagerTests extends ApplicationTests {
         assertEquals(sortedProcessors, managerProcessorsSorted);
     }
 
+    @Test
+    void getProcessorsToApplySorted_shouldApplyEncryptorAfterCompressors() {
+        List<Processor> managerProcessorsSorted = backupProcessorManager.getProcessorsToApplySorted(
+                Arrays.asList(ProcessorType.ENCRYPTOR, ProcessorType.PARALLEL_COMPRESSOR, ProcessorType.ZSTD_COMPRESSOR));
+
+        assertEquals(ProcessorType.ENCRYPTOR, managerProcessorsSorted.get(managerProcessorsSorted.size() - 1).getType());
+    }
+
     @Test
     void givenInputStream_process_shouldApplyPassedProcessorsInRightOrder() throws IOException {
         byte[] bytes = TestUtils.getRandomBytes(4096);
 
-        List<ProcessorType> processorTypes = Arrays.asList(ProcessorType.values());
+        // encryptor output is randomized, so it can't be compared with output of another processing
+        List<ProcessorType> processorTypes = Arrays.stream(ProcessorType.values())
+                .filter(processorType -> processorType != ProcessorType.ENCRYPTOR)
+                .collect(Collectors.toList());
 
         InputStream sourceIn = new ByteArrayInputStream(bytes);
 
@@ -61,7 +73,7 @@ class BackupProcessorManagerTests extends ApplicationTests {
     }
 
     @Test
-    void givenProcessedInputStream_deprocess_shouldApplyPassedDeprocessorsInRightOrder() throws IOException {
+    void givenProcessedInputStream_deprocess_shouldApplyPassedDeprocessorsInReverseOrder() throws IOException {
         byte[] bytes = TestUtils.getRandomBytes(4096);
 
         List<ProcessorType> processorTypes = Arrays.asList(ProcessorType.values());
@@ -71,6 +83,7 @@ class BackupProcessorManagerTests extends ApplicationTests {
         try (InputStream processedIn = backupProcessorManager.process(new ByteArrayInputStream(bytes), processorTypes);
              InputStream deprocessedIn = backupProcessorManager.deprocess(processedIn, processorTypes)) {
             List<Processor> deprocessors = backupProcessorManager.getProcessorsToApplySorted(processorTypes);
+            Collections.reverse(deprocessors);
             for (Processor deprocessor : deprocessors) {
                 sourceIn = deprocessor.deprocess(sourceIn);
             }
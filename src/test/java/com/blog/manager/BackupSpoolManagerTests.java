@@ -0,0 +1,97 @@
+package com.blog.manager;
+
+import com.blog.ApplicationTests;
+import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.storage.StorageType;
+import com.blog.service.PipelineTuning;
+import com.blog.settings.UserSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackupSpoolManagerTests extends ApplicationTests {
+    private static final Integer testTaskID = 0;
+
+    @Autowired
+    private BackupSpoolManager backupSpoolManager;
+
+    @Autowired
+    private BackupLoadManager backupLoadManager;
+
+    @Autowired
+    private BackupPropertiesManager backupPropertiesManager;
+
+    @Autowired
+    private UserSettings userSettings;
+
+    @Autowired
+    private Map<StorageType, String> storageSettingsNameMap;
+
+    private Path spoolDirectory;
+
+    @BeforeEach
+    void enableSpooling() throws IOException {
+        spoolDirectory = Files.createTempDirectory("backupSpoolManagerTests");
+        userSettings.setBackupSpoolDirectory(spoolDirectory.toString());
+        userSettings.setBackupUploadAttempts(1);
+    }
+
+    @AfterEach
+    void disableSpooling() {
+        userSettings.setBackupSpoolDirectory(null);
+        userSettings.setBackupUploadAttempts(null);
+    }
+
+    private long countSpoolFiles() throws IOException {
+        try (Stream<Path> spoolFiles = Files.list(spoolDirectory)) {
+            return spoolFiles.count();
+        }
+    }
+
+    @Test
+    void whenUploadSpooledBackup_contentIsEqualAndSpoolFileIsDeleted() throws IOException, InterruptedException {
+        byte[] source = getRandomBytes(1024 * 1024);
+        String storageSettingsName = storageSettingsNameMap.get(StorageType.LOCAL_FILE_SYSTEM);
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(storageSettingsName,
+                Collections.emptyList(), "spoolTestDatabase");
+
+        backupSpoolManager.spoolBackup(new ByteArrayInputStream(source), testTaskID);
+        assertEquals(1, countSpoolFiles());
+
+        backupSpoolManager.uploadSpooledBackup(backupProperties, testTaskID, PipelineTuning.defaults());
+        assertEquals(0, countSpoolFiles());
+
+        try (InputStream downloadedBackup = backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName,
+                testTaskID)) {
+            assertThat(downloadedBackup, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Test
+    void whenUploadSpooledBackupFails_spoolFileIsDeleted() throws IOException, InterruptedException {
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties("notExistingStorageSettings",
+                Collections.emptyList(), "spoolTestDatabase");
+
+        backupSpoolManager.spoolBackup(new ByteArrayInputStream(getRandomBytes(1024)), testTaskID);
+
+        assertThrows(RuntimeException.class, () ->
+                backupSpoolManager.uploadSpooledBackup(backupProperties, testTaskID, PipelineTuning.defaults()));
+        assertEquals(0, countSpoolFiles());
+    }
+}
@@ -0,0 +1,186 @@
+package com.blog.manager;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BroadcastBufferTests extends ApplicationTests {
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final int CHUNKS_COUNT = 4;
+
+    @Test
+    void whenBroadcastToManyConsumers_contentIsEqualToSource() throws IOException, ExecutionException, InterruptedException {
+        byte[] source = getRandomBytes(CHUNK_SIZE * CHUNKS_COUNT * 10 + 100);
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, null, 0);
+        List<InputStream> consumers = List.of(broadcastBuffer.newConsumer(), broadcastBuffer.newConsumer(), broadcastBuffer.newConsumer());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(consumers.size());
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            // consumers read by single bytes, by small buffers and by whole chunks
+            futures.add(executorService.submit(() -> {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                int b;
+                while ((b = consumers.get(0).read()) != -1) {
+                    content.write(b);
+                }
+                return content.toByteArray();
+            }));
+            futures.add(executorService.submit(() -> {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[100];
+                int bytesRead;
+                while ((bytesRead = consumers.get(1).read(buffer)) != -1) {
+                    content.write(buffer, 0, bytesRead);
+                }
+                return content.toByteArray();
+            }));
+            futures.add(executorService.submit(() -> {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                consumers.get(2).transferTo(content);
+                return content.toByteArray();
+            }));
+
+            broadcastBuffer.broadcast(new ByteArrayInputStream(source));
+
+            for (Future<byte[]> future : futures) {
+                assertArrayEquals(source, future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenConsumerIsLagging_streamIsSpilledToSpoolAndProducerIsNotBlocked() throws IOException, ExecutionException,
+            InterruptedException {
+        byte[] source = getRandomBytes(CHUNK_SIZE * CHUNKS_COUNT * 50 + 100);
+        Path spoolDirectory = Files.createTempDirectory("broadcastBufferTests");
+        // spool is smaller than the stream, so it is reused while the lagging consumer reads it
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, spoolDirectory, source.length / 3);
+        InputStream fastConsumer = broadcastBuffer.newConsumer();
+        InputStream laggingConsumer = broadcastBuffer.newConsumer();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<byte[]> fastConsumerContent = executorService.submit(fastConsumer::readAllBytes);
+            Future<?> producer = executorService.submit(() -> {
+                broadcastBuffer.broadcast(new ByteArrayInputStream(source));
+                return null;
+            });
+
+            byte[] firstPart = laggingConsumer.readNBytes(CHUNK_SIZE);
+            // let the producer and the fast consumer run ahead, so the stream is spilled to the spool
+            Thread.sleep(100);
+            byte[] rest = laggingConsumer.readAllBytes();
+
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> producer.get());
+            assertArrayEquals(source, fastConsumerContent.get());
+            ByteArrayOutputStream laggingConsumerContent = new ByteArrayOutputStream();
+            laggingConsumerContent.write(firstPart);
+            laggingConsumerContent.write(rest);
+            assertArrayEquals(source, laggingConsumerContent.toByteArray());
+        } finally {
+            executorService.shutdownNow();
+            broadcastBuffer.close();
+        }
+
+        try (var spoolFiles = Files.list(spoolDirectory)) {
+            assertEquals(0, spoolFiles.count());
+        }
+    }
+
+    @Test
+    void whenConsumerIsLaggingAndSpoolIsLargeEnough_producerFinishesBeforeConsumerReads() throws IOException, ExecutionException,
+            InterruptedException {
+        byte[] source = getRandomBytes(CHUNK_SIZE * CHUNKS_COUNT * 10 + 100);
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, Files.createTempDirectory("broadcastBufferTests"),
+                source.length);
+        InputStream fastConsumer = broadcastBuffer.newConsumer();
+        InputStream laggingConsumer = broadcastBuffer.newConsumer();
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> fastConsumerContent = executorService.submit(fastConsumer::readAllBytes);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> broadcastBuffer.broadcast(new ByteArrayInputStream(source)));
+
+            assertArrayEquals(source, fastConsumerContent.get());
+            assertArrayEquals(source, laggingConsumer.readAllBytes());
+        } finally {
+            executorService.shutdownNow();
+            broadcastBuffer.close();
+        }
+    }
+
+    @Test
+    void whenBroadcastEmptyStream_consumerGetsEndOfStream() throws IOException {
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, null, 0);
+        InputStream consumer = broadcastBuffer.newConsumer();
+
+        broadcastBuffer.broadcast(new ByteArrayInputStream(new byte[0]));
+
+        assertThat(consumer, equalToSourceInputStream(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    void whenBroadcastingIsAborted_consumerGetsExceptionInsteadOfEndOfStream() throws IOException {
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, null, 0);
+        InputStream consumer = broadcastBuffer.newConsumer();
+
+        broadcastBuffer.abort();
+
+        assertThrows(InterruptedIOException.class, consumer::readAllBytes);
+        assertThrows(InterruptedIOException.class, () -> broadcastBuffer.broadcast(new ByteArrayInputStream(getRandomBytes(100))));
+    }
+
+    @Test
+    void whenSourceFails_consumerGetsException() {
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, null, 0);
+        InputStream consumer = broadcastBuffer.newConsumer();
+        InputStream failingSource = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Source failure");
+            }
+        };
+
+        assertThrows(IOException.class, () -> broadcastBuffer.broadcast(failingSource));
+        IOException ex = assertThrows(IOException.class, consumer::readAllBytes);
+        assertTrue(ex.getCause() instanceof IOException);
+    }
+
+    @Test
+    void whenConsumerIsClosedBeforeEndOfStream_producerGetsException() throws IOException {
+        BroadcastBuffer broadcastBuffer = new BroadcastBuffer(CHUNK_SIZE, CHUNKS_COUNT, null, 0);
+        InputStream consumer = broadcastBuffer.newConsumer();
+        broadcastBuffer.newConsumer().close();
+
+        assertThrows(IOException.class, () -> broadcastBuffer.broadcast(new ByteArrayInputStream(getRandomBytes(CHUNK_SIZE * 2))));
+        assertThrows(IOException.class, consumer::readAllBytes);
+    }
+}
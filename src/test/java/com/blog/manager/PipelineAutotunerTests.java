@@ -0,0 +1,118 @@
+package com.blog.manager;
+
+import com.blog.ApplicationTests;
+import com.blog.entities.backup.BackupProperties;
+import com.blog.entities.database.TunedPipelineSettings;
+import com.blog.entities.storage.StorageSettings;
+import com.blog.entities.storage.StorageType;
+import com.blog.service.PipelineTuning;
+import com.blog.service.processor.ProcessorType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PipelineAutotunerTests extends ApplicationTests {
+    private static final double CPU_BOUND = 0.9;
+
+    @Autowired
+    private PipelineAutotuner pipelineAutotuner;
+
+    @Autowired
+    private BackupPropertiesManager backupPropertiesManager;
+
+    @Autowired
+    private StorageSettingsManager storageSettingsManager;
+
+    @Autowired
+    private Map<StorageType, String> storageSettingsNameMap;
+
+    @Autowired
+    private List<StorageSettings> allStorageSettings;
+
+    private BackupProperties initBackupProperties(ProcessorType processorType) {
+        return backupPropertiesManager.initNewBackupProperties("notExistingStorageSettings",
+                Collections.singletonList(processorType), "testDatabase");
+    }
+
+    @Test
+    void whenChangeDoesNotImproveThroughput_settingsAreReverted() {
+        try (PipelineAutotuner.Session session = pipelineAutotuner.start("revertedSettingsDatabase",
+                initBackupProperties(ProcessorType.PARALLEL_COMPRESSOR))) {
+            String initial = session.getTuning().toString();
+
+            session.onMeasurement(100_000, CPU_BOUND);
+            assertNotEquals(initial, session.getTuning().toString());
+
+            session.onMeasurement(100_000, CPU_BOUND);
+            assertNotEquals(initial, session.getTuning().toString(), "Autotuner should try another change");
+
+            session.onMeasurement(50_000, CPU_BOUND);
+            session.onMeasurement(50_000, CPU_BOUND);
+            session.onMeasurement(50_000, CPU_BOUND);
+            session.onMeasurement(50_000, CPU_BOUND);
+            session.onMeasurement(50_000, CPU_BOUND);
+            assertEquals(initial, session.getTuning().toString());
+        }
+    }
+
+    @Test
+    void whenChangeImprovesThroughput_settingsAreSavedAndUsedByNextBackup() {
+        String databaseSettingsName = "improvedSettingsDatabase";
+        BackupProperties backupProperties = initBackupProperties(ProcessorType.PARALLEL_COMPRESSOR);
+
+        String improved;
+        try (PipelineAutotuner.Session session = pipelineAutotuner.start(databaseSettingsName, backupProperties)) {
+            session.onMeasurement(100_000, CPU_BOUND);
+            improved = session.getTuning().toString();
+
+            session.onMeasurement(200_000, CPU_BOUND);
+            session.onMeasurement(150_000, CPU_BOUND);
+            assertEquals(improved, session.getTuning().toString());
+        }
+
+        TunedPipelineSettings tunedSettings = pipelineAutotuner.getTunedSettings(databaseSettingsName);
+        assertEquals(200_000, tunedSettings.getBytesPerSecond().longValue());
+        assertNull(tunedSettings.getUploadConcurrency());
+
+        try (PipelineAutotuner.Session session = pipelineAutotuner.start(databaseSettingsName, backupProperties)) {
+            assertEquals(improved, session.getTuning().toString());
+        }
+    }
+
+    @Test
+    void whenNothingIsTunable_settingsAreNotSaved() {
+        String databaseSettingsName = "notTunableDatabase";
+
+        try (PipelineAutotuner.Session session = pipelineAutotuner.start(databaseSettingsName,
+                initBackupProperties(ProcessorType.COMPRESSOR))) {
+            assertNull(session.getTuning().getCompressionLevel());
+        }
+
+        assertNull(pipelineAutotuner.getTunedSettings(databaseSettingsName).getDate());
+    }
+
+    @Test
+    void whenNoSettingsAreSaved_uploadConcurrencyIsNotLimited() {
+        String databaseSettingsName = "defaultUploadConcurrencyDatabase";
+        storageSettingsManager.saveAll(allStorageSettings);
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(
+                storageSettingsNameMap.get(StorageType.DROPBOX), Collections.singletonList(ProcessorType.PARALLEL_COMPRESSOR),
+                databaseSettingsName);
+
+        try (PipelineAutotuner.Session session = pipelineAutotuner.start(databaseSettingsName, backupProperties)) {
+            assertEquals(PipelineTuning.defaults().getUploadConcurrency(), session.getTuning().getUploadConcurrency());
+
+            session.onMeasurement(100_000, CPU_BOUND);
+            session.onMeasurement(200_000, CPU_BOUND);
+        }
+
+        assertNull(pipelineAutotuner.getTunedSettings(databaseSettingsName).getUploadConcurrency());
+    }
+}
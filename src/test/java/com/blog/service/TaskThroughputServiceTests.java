@@ -0,0 +1,39 @@
+package com.blog.service;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.blog.TestUtils.getRandomBytes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskThroughputServiceTests extends ApplicationTests {
+    private static final Integer TASK_ID = 0;
+
+    private TaskThroughputService taskThroughputService;
+
+    @Autowired
+    void setTaskThroughputService(TaskThroughputService taskThroughputService) {
+        this.taskThroughputService = taskThroughputService;
+    }
+
+    @Test
+    void whenStreamIsMonitored_throughputIsMeasuredUntilStreamIsClosed() throws IOException {
+        byte[] source = getRandomBytes(1000);
+
+        try (InputStream in = taskThroughputService.monitor(new ByteArrayInputStream(source), TASK_ID)) {
+            assertEquals(source.length, in.readAllBytes().length);
+            assertTrue(taskThroughputService.getBytesPerSecond(TASK_ID).isPresent());
+            assertFalse(taskThroughputService.getThroughputAsString(TASK_ID).isEmpty());
+        }
+
+        assertFalse(taskThroughputService.getBytesPerSecond(TASK_ID).isPresent());
+        assertEquals("", taskThroughputService.getThroughputAsString(TASK_ID));
+    }
+}
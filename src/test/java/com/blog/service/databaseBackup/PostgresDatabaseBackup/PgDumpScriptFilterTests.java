@@ -0,0 +1,55 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.ApplicationTests;
+import com.blog.service.databaseBackup.RestoreFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PgDumpScriptFilterTests extends ApplicationTests {
+    private static final String SCRIPT = "SET statement_timeout = 0;\n" +
+            "--\n-- Name: f(); Type: FUNCTION; Schema: public; Owner: postgres\n--\n\n" +
+            "CREATE FUNCTION public.f() RETURNS integer LANGUAGE sql AS 'SELECT 1';\n" +
+            "--\n-- Name: comments; Type: TABLE; Schema: public; Owner: postgres\n--\n\n" +
+            "CREATE TABLE public.comments (id integer NOT NULL);\n" +
+            "ALTER TABLE public.comments OWNER TO postgres;\n" +
+            "SET default_tablespace = '';\n" +
+            "--\n-- Name: posts; Type: TABLE; Schema: public; Owner: postgres\n--\n\n" +
+            "CREATE TABLE public.posts (id integer NOT NULL);\n" +
+            "--\n-- Name: comments comments_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres\n--\n\n" +
+            "ALTER TABLE ONLY public.comments ADD CONSTRAINT comments_pkey PRIMARY KEY (id);\n" +
+            "--\n-- Name: posts_idx; Type: INDEX; Schema: public; Owner: postgres\n--\n\n" +
+            "CREATE INDEX posts_idx ON public.posts USING btree (id);\n" +
+            "--\n-- Name: comments_idx; Type: INDEX; Schema: public; Owner: postgres\n--\n\n" +
+            "CREATE INDEX comments_idx ON ONLY public.\"comments\" USING btree (id);\n";
+
+    @Test
+    void filterScript_shouldKeepOnlyStatementsOfMatchingTables() throws IOException {
+        RestoreFilter filter = RestoreFilter.of(Collections.emptyList(), Collections.emptyList(), Collections.singletonList("comments"),
+                Collections.emptyList());
+
+        assertEquals("SET statement_timeout = 0;\n" +
+                        "--\n-- Name: comments; Type: TABLE; Schema: public; Owner: postgres\n--\n\n" +
+                        "CREATE TABLE public.comments (id integer NOT NULL);\n" +
+                        "ALTER TABLE public.comments OWNER TO postgres;\n" +
+                        "SET default_tablespace = '';\n" +
+                        "--\n-- Name: comments comments_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres\n--\n\n" +
+                        "ALTER TABLE ONLY public.comments ADD CONSTRAINT comments_pkey PRIMARY KEY (id);\n" +
+                        "--\n-- Name: comments_idx; Type: INDEX; Schema: public; Owner: postgres\n--\n\n" +
+                        "CREATE INDEX comments_idx ON ONLY public.\"comments\" USING btree (id);\n",
+                PgDumpScriptFilter.filterScript(new StringReader(SCRIPT), filter));
+    }
+
+    @Test
+    void filterScript_shouldSkipExcludedSchemas() throws IOException {
+        RestoreFilter filter = RestoreFilter.of(Collections.emptyList(), Collections.singletonList("pub*"), Collections.emptyList(),
+                Collections.emptyList());
+
+        assertEquals("SET statement_timeout = 0;\nSET default_tablespace = '';\n",
+                PgDumpScriptFilter.filterScript(new StringReader(SCRIPT), filter));
+    }
+}
@@ -1,24 +1,37 @@
 package com.blog.service.databaseBackup.PostgresDatabaseBackup;
 
 import com.blog.ApplicationTests;
+import com.blog.entities.backup.BackupFormat;
 import com.blog.entities.backup.BackupProperties;
 import com.blog.entities.database.DatabaseSettings;
+import com.blog.entities.database.PostgresBackupEngine;
+import com.blog.entities.database.PostgresSettings;
 import com.blog.entities.storage.StorageSettings;
 import com.blog.entities.storage.StorageType;
 import com.blog.manager.*;
+import com.blog.service.databaseBackup.RestoreFilter;
 import com.blog.service.processor.ProcessorType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.*;
 
 import static com.blog.TestUtils.clearDatabase;
 import static com.blog.TestUtils.equalToMasterDatabase;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PostgresDatabaseBackupTests extends ApplicationTests {
     private static final List<String> tableNames = new ArrayList<>(Arrays.asList("comments"));
@@ -47,6 +60,10 @@ class PostgresDatabaseBackupTests extends ApplicationTests {
     @Autowired
     private DatabaseSettingsManager databaseSettingsManager;
     @Autowired
+    private BackupTablesManager backupTablesManager;
+    @Autowired
+    private PostgresCopyDatabaseBackup postgresCopyDatabaseBackup;
+    @Autowired
     private List<StorageSettings> allStorageSettings;
     @Autowired
     private List<DatabaseSettings> allDatabaseSettings;
@@ -169,4 +186,238 @@ class PostgresDatabaseBackupTests extends ApplicationTests {
 
         assertThat(jdbcPostgresMasterTemplate, equalToMasterDatabase(jdbcPostgresSlaveTemplate, tableNames));
     }
+
+    private DatabaseSettings buildMasterDatabaseSettings(PostgresSettings postgresSettings) {
+        return DatabaseSettings.postgresSettings(postgresSettings)
+                .withHost(masterPostgresDatabaseSettings.getHost())
+                .withPort(masterPostgresDatabaseSettings.getPort())
+                .withDatabaseName(masterPostgresDatabaseSettings.getName())
+                .withLogin(masterPostgresDatabaseSettings.getLogin())
+                .withPassword(masterPostgresDatabaseSettings.getPassword())
+                .withSettingsName(masterPostgresDatabaseSettings.getSettingsName())
+                .withDate(masterPostgresDatabaseSettings.getDate())
+                .build();
+    }
+
+    private void createAndRestoreBackup(PostgresSettings postgresSettings) throws IOException {
+        createAndRestoreBackup(postgresSettings, RestoreFilter.all());
+    }
+
+    private void createAndRestoreBackup(PostgresSettings postgresSettings, RestoreFilter restoreFilter) throws IOException {
+        DatabaseSettings databaseSettings = buildMasterDatabaseSettings(postgresSettings);
+        String storageSettingsName = storageSettingsNameMap.get(StorageType.LOCAL_FILE_SYSTEM);
+
+        try (
+                InputStream backupStream = databaseBackupManager.createBackup(databaseSettings, testTaskID)
+        ) {
+            BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(
+                    storageSettingsName, null, databaseSettings.getName(), databaseBackupManager.getBackupFormat(databaseSettings));
+            backupLoadManager.uploadBackup(backupStream, backupProperties, testTaskID);
+            try (
+                    InputStream downloadedBackup = backupLoadManager.downloadBackup(backupProperties.getBackupName(),
+                            storageSettingsName, testTaskID)
+            ) {
+                databaseBackupManager.restoreBackup(Objects.requireNonNull(downloadedBackup), backupProperties.getFormat(), 2,
+                        restoreFilter, slavePostgresDatabaseSettings, testTaskID);
+            }
+        }
+
+        assertThat(jdbcPostgresMasterTemplate, equalToMasterDatabase(jdbcPostgresSlaveTemplate, tableNames));
+    }
+
+    private void createAndRestoreBackupOfFormat(BackupFormat backupFormat) throws IOException {
+        PostgresSettings postgresSettings = new PostgresSettings();
+        postgresSettings.setBackupFormat(backupFormat);
+        postgresSettings.setBackupJobs(2);
+
+        createAndRestoreBackup(postgresSettings);
+    }
+
+    private void createAndRestoreBackupUsingCopyEngine(boolean binaryCopy) throws IOException {
+        PostgresSettings postgresSettings = new PostgresSettings();
+        postgresSettings.setEngine(PostgresBackupEngine.JDBC_COPY);
+        postgresSettings.setBackupJobs(2);
+        postgresSettings.setBinaryCopy(binaryCopy);
+
+        createAndRestoreBackup(postgresSettings);
+    }
+
+    private void createAndRestoreSingleTable(PostgresSettings postgresSettings) throws IOException {
+        jdbcPostgresMasterTemplate.execute("CREATE TABLE posts (ID SERIAL PRIMARY KEY, CONTENT CHARACTER VARYING(2048) not null)");
+        jdbcPostgresMasterTemplate.update("insert into posts (content) select md5(i::text) from generate_series(0, 1000) s(i)");
+
+        // owned sequence is a separate object, so it is matched by the pattern too
+        createAndRestoreBackup(postgresSettings, RestoreFilter.of(Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList("public.comments*"), Collections.emptyList()));
+
+        assertNull(jdbcPostgresSlaveTemplate.queryForObject("SELECT pg_catalog.to_regclass('public.posts')::text", String.class));
+    }
+
+    @Test
+    void whenCreatePlainFormatPostgresBackupAndRestoreSingleTable_onlyThisTableIsRestored() throws IOException {
+        PostgresSettings postgresSettings = new PostgresSettings();
+        postgresSettings.setBackupFormat(BackupFormat.PLAIN);
+
+        createAndRestoreSingleTable(postgresSettings);
+    }
+
+    @Test
+    void whenCreateCustomFormatPostgresBackupAndRestoreSingleTable_onlyThisTableIsRestored() throws IOException {
+        PostgresSettings postgresSettings = new PostgresSettings();
+        postgresSettings.setBackupFormat(BackupFormat.CUSTOM);
+
+        createAndRestoreSingleTable(postgresSettings);
+    }
+
+    @Test
+    void whenCreatePostgresBackupUsingCopyAndRestoreSingleTable_onlyThisTableIsRestored() throws IOException {
+        PostgresSettings postgresSettings = new PostgresSettings();
+        postgresSettings.setEngine(PostgresBackupEngine.JDBC_COPY);
+        postgresSettings.setBackupJobs(2);
+
+        createAndRestoreSingleTable(postgresSettings);
+    }
+
+    @Test
+    void whenCreatePlainFormatPostgresBackupAndRestoreInParallelIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        createAndRestoreBackupOfFormat(BackupFormat.PLAIN);
+    }
+
+    @Test
+    void whenCreateCustomFormatPostgresBackupAndRestoreInParallelIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        createAndRestoreBackupOfFormat(BackupFormat.CUSTOM);
+    }
+
+    @Test
+    void whenCreateDirectoryFormatPostgresBackupAndRestoreInParallelIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        createAndRestoreBackupOfFormat(BackupFormat.DIRECTORY);
+    }
+
+    @Test
+    void whenCreatePostgresBackupUsingTextCopyAndRestoreIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        createAndRestoreBackupUsingCopyEngine(false);
+    }
+
+    @Test
+    void whenCreatePostgresBackupUsingBinaryCopyAndRestoreIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        createAndRestoreBackupUsingCopyEngine(true);
+    }
+
+    @Test
+    void whenCreatePostgresBackupUsingCopyWithTableSplitAndRestoreIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        PostgresSettings postgresSettings = new PostgresSettings();
+        postgresSettings.setEngine(PostgresBackupEngine.JDBC_COPY);
+        postgresSettings.setBackupJobs(3);
+        postgresSettings.setSplitTableThresholdMb(1);
+        postgresSettings.setSplitTableJobs(3);
+        DatabaseSettings databaseSettings = buildMasterDatabaseSettings(postgresSettings);
+        String storageSettingsName = storageSettingsNameMap.get(StorageType.LOCAL_FILE_SYSTEM);
+
+        // make the table several times larger than the split threshold
+        jdbcPostgresMasterTemplate.update("insert into comments (author, content) select md5(i::text), repeat(md5(i::text), 8) " +
+                "from generate_series(0, ?) s(i)", 10000L);
+
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(
+                storageSettingsName, null, databaseSettings.getName(), databaseBackupManager.getBackupFormat(databaseSettings));
+        // embedded server doesn't support TID range scan, so splitting is forced
+        postgresCopyDatabaseBackup.setTidRangeScanRequired(false);
+        try (
+                InputStream backupStream = databaseBackupManager.createBackup(databaseSettings, testTaskID)
+        ) {
+            backupLoadManager.uploadBackup(backupStream, backupProperties, testTaskID);
+        } finally {
+            postgresCopyDatabaseBackup.setTidRangeScanRequired(true);
+        }
+
+        List<String> dataEntries = readDataEntries(backupProperties, storageSettingsName);
+        assertTrue(dataEntries.containsAll(Arrays.asList(CopyArchive.dataEntryName("public", "comments", 0),
+                CopyArchive.dataEntryName("public", "comments", 1), CopyArchive.dataEntryName("public", "comments", 2))));
+        assertFalse(dataEntries.contains(CopyArchive.dataEntryName("public", "comments")));
+
+        try (
+                InputStream downloadedBackup = backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName,
+                        testTaskID)
+        ) {
+            databaseBackupManager.restoreBackup(Objects.requireNonNull(downloadedBackup), backupProperties.getFormat(), 2,
+                    RestoreFilter.all(), slavePostgresDatabaseSettings, testTaskID);
+        }
+
+        assertThat(jdbcPostgresMasterTemplate, equalToMasterDatabase(jdbcPostgresSlaveTemplate, tableNames));
+    }
+
+    private List<String> readDataEntries(BackupProperties backupProperties, String storageSettingsName) throws IOException {
+        ByteArrayOutputStream dataEntries = new ByteArrayOutputStream();
+        try (
+                InputStream downloadedBackup = backupLoadManager.downloadBackup(backupProperties.getBackupName(), storageSettingsName,
+                        testTaskID)
+        ) {
+            new BackupArchiveReader(Objects.requireNonNull(downloadedBackup)).read(new BackupArchiveReader.EntryHandler() {
+                @Override
+                public OutputStream onEntryStart(String name) {
+                    return name.equals(CopyArchive.DATA_ENTRIES_ENTRY) ? dataEntries : null;
+                }
+
+                @Override
+                public boolean onEntryEnd(String name) {
+                    return !name.equals(CopyArchive.DATA_ENTRIES_ENTRY);
+                }
+            });
+        }
+        return CopyArchive.readDataEntries(new ByteArrayInputStream(dataEntries.toByteArray()));
+    }
+
+    private BackupProperties createIncrementalBackup(Map<String, Integer> unchangedTables, String storageSettingsName) throws IOException {
+        Map<String, TableStatistics> statistics = databaseBackupManager.readTableStatistics(masterPostgresDatabaseSettings);
+        BackupProperties backupProperties = backupPropertiesManager.initNewBackupProperties(
+                storageSettingsName, null, masterPostgresDatabaseSettings.getName(), BackupFormat.COPY_ARCHIVE);
+        try (
+                InputStream backupStream = databaseBackupManager.createIncrementalBackup(masterPostgresDatabaseSettings,
+                        unchangedTables.keySet(), testTaskID)
+        ) {
+            backupLoadManager.uploadBackup(backupStream, backupProperties, testTaskID);
+        }
+        backupTablesManager.addManifest(backupProperties.getId(), statistics, unchangedTables);
+        return backupProperties;
+    }
+
+    @Test
+    void whenCreateIncrementalPostgresBackupAndRestoreChainIntoSeparateDatabase_databasesAreEqual() throws IOException {
+        String storageSettingsName = storageSettingsNameMap.get(StorageType.LOCAL_FILE_SYSTEM);
+        BackupProperties fullBackupProperties = createIncrementalBackup(Collections.emptyMap(), storageSettingsName);
+
+        jdbcPostgresMasterTemplate.execute("CREATE TABLE posts (ID SERIAL PRIMARY KEY, CONTENT CHARACTER VARYING(2048) not null)");
+        jdbcPostgresMasterTemplate.update("insert into posts (content) select md5(i::text) from generate_series(0, 1000) s(i)");
+
+        // statistics are collected asynchronously, so the unchanged table is set explicitly
+        String commentsTable = CopyArchive.qualifiedName("public", "comments");
+        BackupProperties incrementalBackupProperties = createIncrementalBackup(
+                Collections.singletonMap(commentsTable, fullBackupProperties.getId()), storageSettingsName);
+
+        Map<Integer, Set<String>> baseBackupTables = backupTablesManager.getBaseBackupTables(incrementalBackupProperties.getId());
+        assertEquals(Collections.singletonMap(fullBackupProperties.getId(), Collections.singleton(commentsTable)), baseBackupTables);
+
+        try (
+                InputStream downloadedBackup = backupLoadManager.downloadBackup(incrementalBackupProperties.getBackupName(),
+                        storageSettingsName, testTaskID)
+        ) {
+            databaseBackupManager.restoreBackupChain(Objects.requireNonNull(downloadedBackup), baseBackupTables,
+                    baseBackupPropertiesId -> backupLoadManager.downloadBackup(
+                            backupPropertiesManager.findById(baseBackupPropertiesId).orElseThrow().getBackupName(),
+                            storageSettingsName, testTaskID),
+                    2, RestoreFilter.all(), slavePostgresDatabaseSettings, testTaskID);
+        }
+
+        assertThat(jdbcPostgresMasterTemplate, equalToMasterDatabase(jdbcPostgresSlaveTemplate, Arrays.asList("comments", "posts")));
+        assertTrue(backupTablesManager.isReferencedByOtherBackups(fullBackupProperties.getId()));
+    }
+
+    @Test
+    void whenDatabaseIsChanged_changeMarkerIsChanged() {
+        String changeMarker = databaseBackupManager.readChangeMarker(masterPostgresDatabaseSettings);
+        assertNotNull(changeMarker);
+
+        jdbcPostgresMasterTemplate.update("DELETE FROM comments WHERE id = 1");
+
+        assertNotEquals(changeMarker, databaseBackupManager.readChangeMarker(masterPostgresDatabaseSettings));
+    }
 }
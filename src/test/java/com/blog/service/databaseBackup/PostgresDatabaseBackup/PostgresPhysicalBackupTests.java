@@ -0,0 +1,116 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresPhysicalBackupTests extends ApplicationTests {
+    private Path workingDirectory;
+
+    @Autowired
+    private PostgresPhysicalBackup postgresPhysicalBackup;
+
+    @BeforeEach
+    void init() throws IOException {
+        workingDirectory = Files.createTempDirectory("physicalBackupTests");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        FileSystemUtils.deleteRecursively(workingDirectory);
+    }
+
+    private static void writeEntry(ByteArrayOutputStream tar, String name, char type, byte[] content) {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        byte[] size = String.format("%011o", content.length).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = (byte) type;
+        byte[] magic = "ustar".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(magic, 0, header, 257, magic.length);
+
+        tar.writeBytes(header);
+        tar.writeBytes(content);
+        tar.writeBytes(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static byte[] buildArchive(String fileName, byte[] content) {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeEntry(tar, "base/", '5', new byte[0]);
+        writeEntry(tar, fileName, '0', content);
+        tar.writeBytes(new byte[1024]);
+        return tar.toByteArray();
+    }
+
+    @Test
+    void whenRestoreBaseBackup_filesAreExtracted() throws IOException {
+        byte[] content = new byte[1500];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path dataDirectory = workingDirectory.resolve("data");
+
+        postgresPhysicalBackup.restoreBaseBackup(new ByteArrayInputStream(buildArchive("base/1/2613", content)), dataDirectory);
+
+        assertArrayEquals(content, Files.readAllBytes(dataDirectory.resolve("base/1/2613")));
+    }
+
+    @Test
+    void whenRestoreBaseBackupWithEntryOutsideOfDataDirectory_exceptionIsThrown() {
+        Path dataDirectory = workingDirectory.resolve("data");
+
+        assertThrows(RuntimeException.class, () -> postgresPhysicalBackup.restoreBaseBackup(
+                new ByteArrayInputStream(buildArchive("../outside", new byte[1])), dataDirectory));
+        assertFalse(Files.exists(workingDirectory.resolve("outside")));
+    }
+
+    @Test
+    void whenRestoreBaseBackupIntoNotEmptyDirectory_exceptionIsThrown() throws IOException {
+        Files.createFile(workingDirectory.resolve("PG_VERSION"));
+
+        assertThrows(RuntimeException.class, () -> postgresPhysicalBackup.restoreBaseBackup(
+                new ByteArrayInputStream(buildArchive("base/1/2613", new byte[1])), workingDirectory));
+    }
+
+    @Test
+    void whenConfigureRecoveryOfOldVersion_recoveryConfIsWritten() throws IOException {
+        Files.write(workingDirectory.resolve("PG_VERSION"), "9.6\n".getBytes(StandardCharsets.US_ASCII));
+
+        postgresPhysicalBackup.configureRecovery(workingDirectory, LocalDateTime.of(2019, 6, 1, 12, 30, 15));
+
+        String recoveryConf = new String(Files.readAllBytes(workingDirectory.resolve("recovery.conf")), StandardCharsets.UTF_8);
+        assertTrue(recoveryConf.contains("recovery_target_time = '2019-06-01 12:30:15+00'"));
+        assertTrue(recoveryConf.contains("restore_command = "));
+        assertFalse(Files.exists(workingDirectory.resolve("recovery.signal")));
+    }
+
+    @Test
+    void whenConfigureRecoveryOfNewVersion_recoverySignalIsCreated() throws IOException {
+        Files.write(workingDirectory.resolve("PG_VERSION"), "12\n".getBytes(StandardCharsets.US_ASCII));
+        Files.write(workingDirectory.resolve("postgresql.auto.conf"),
+                "# Do not edit this file manually!\n".getBytes(StandardCharsets.UTF_8));
+
+        postgresPhysicalBackup.configureRecovery(workingDirectory, null);
+
+        String autoConf = new String(Files.readAllBytes(workingDirectory.resolve("postgresql.auto.conf")), StandardCharsets.UTF_8);
+        assertTrue(autoConf.startsWith("# Do not edit this file manually!\n"));
+        assertTrue(autoConf.contains("restore_command = "));
+        assertFalse(autoConf.contains("recovery_target_time"));
+        assertTrue(Files.exists(workingDirectory.resolve("recovery.signal")));
+        assertFalse(Files.exists(workingDirectory.resolve("recovery.conf")));
+    }
+}
@@ -0,0 +1,84 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlScriptSplitterTests extends ApplicationTests {
+    private List<String> split(String script) throws IOException {
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(script));
+        List<String> statements = new ArrayList<>();
+        String statement;
+        while ((statement = splitter.nextStatement()) != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    @Test
+    void nextStatement_shouldNotSplitOnSemicolonsInsideLiteralsAndComments() throws IOException {
+        String script = "\\restrict abc\n" +
+                "SET client_encoding = 'UTF8';\n" +
+                "-- Name: f; Type: FUNCTION; Schema: public\n" +
+                "CREATE FUNCTION public.f() RETURNS text AS $body$ SELECT 'a;b'; $body$ LANGUAGE sql;\n" +
+                "/* comment; /* nested; */ */ COMMENT ON TABLE \"t;1\" IS E'it\\'s;';\n" +
+                ";\n" +
+                "\\unrestrict abc\n";
+
+        assertEquals(Arrays.asList(
+                "SET client_encoding = 'UTF8';",
+                "-- Name: f; Type: FUNCTION; Schema: public\n" +
+                        "CREATE FUNCTION public.f() RETURNS text AS $body$ SELECT 'a;b'; $body$ LANGUAGE sql;",
+                "/* comment; /* nested; */ */ COMMENT ON TABLE \"t;1\" IS E'it\\'s;';"
+        ), split(script));
+    }
+
+    @Test
+    void stripLeadingComments_shouldRemoveCommentsPrecedingStatement() {
+        String statement = "--\n-- Name: comments_pkey; Type: CONSTRAINT; Schema: public\n--\n\n/* a /* nested */ */ " +
+                "ALTER TABLE ONLY public.comments ADD CONSTRAINT comments_pkey PRIMARY KEY (id); -- trailing";
+
+        assertEquals("ALTER TABLE ONLY public.comments ADD CONSTRAINT comments_pkey PRIMARY KEY (id); -- trailing",
+                SqlScriptSplitter.stripLeadingComments(statement));
+    }
+
+    @Test
+    void readCopyData_shouldReadDataUntilEndOfDataMarker() throws IOException {
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(
+                "COPY public.t (id, name) FROM stdin;\n1\t\\N\n2\tb;\n\\.\n\nSELECT 1;\n"));
+
+        assertEquals("COPY public.t (id, name) FROM stdin;", splitter.nextStatement());
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        splitter.readCopyData(data);
+        assertEquals("1\t\\N\n2\tb;\n", data.toString(StandardCharsets.UTF_8));
+        assertEquals("SELECT 1;", splitter.nextStatement());
+    }
+
+    @Test
+    void readCopyData_shouldPassDataOfUtf8ScriptAsIs() throws IOException {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; data.length() < 200000; i++) {
+            data.append(i).append("\tпривет, \\. ").append("\\.".repeat(i % 3)).append('\n');
+        }
+        byte[] script = ("COPY public.\"тест\" (id, name) FROM stdin;\n" + data + "\\.\n" +
+                "COMMENT ON TABLE public.\"тест\" IS 'ю';\n").getBytes(StandardCharsets.UTF_8);
+
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new ByteArrayInputStream(script));
+
+        assertEquals("COPY public.\"тест\" (id, name) FROM stdin;", splitter.nextStatement());
+        ByteArrayOutputStream copyData = new ByteArrayOutputStream();
+        splitter.readCopyData(copyData);
+        assertEquals(data.toString(), copyData.toString(StandardCharsets.UTF_8));
+        assertEquals("COMMENT ON TABLE public.\"тест\" IS 'ю';", splitter.nextStatement());
+    }
+}
@@ -0,0 +1,147 @@
+package com.blog.service.databaseBackup.PostgresDatabaseBackup;
+
+import com.blog.ApplicationTests;
+import com.blog.entities.database.DatabaseSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.blog.TestUtils.clearDatabase;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestDecodingReplayerTests extends ApplicationTests {
+    private static final Function<String, List<String>> idKey = table -> Collections.singletonList("id");
+
+    @Autowired
+    private JdbcTemplate jdbcPostgresSlaveTemplate;
+    @Autowired
+    private DatabaseSettings slavePostgresDatabaseSettings;
+    @Autowired
+    private PostgresChangeCapture postgresChangeCapture;
+
+    @BeforeEach
+    void init() {
+        clearDatabase(jdbcPostgresSlaveTemplate);
+        jdbcPostgresSlaveTemplate.execute("CREATE TABLE comments (id SERIAL PRIMARY KEY, author TEXT, content TEXT)");
+    }
+
+    private static InputStream buildSegment(Object... records) throws IOException {
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(segment);
+        for (int i = 0; i < records.length; i += 2) {
+            byte[] message = ((String) records[i + 1]).getBytes(StandardCharsets.UTF_8);
+            out.writeLong((Long) records[i]);
+            out.writeInt(message.length);
+            out.write(message);
+        }
+        return new ByteArrayInputStream(segment.toByteArray());
+    }
+
+    @Test
+    void toSql_shouldConvertInsert() {
+        assertEquals("INSERT INTO public.comments (\"id\", \"author\", \"content\") " +
+                        "VALUES (1, 'O''Brien'::text, NULL)",
+                TestDecodingReplayer.toSql("table public.comments: INSERT: id[integer]:1 author[text]:'O''Brien' content[text]:null",
+                        idKey));
+    }
+
+    @Test
+    void toSql_shouldQuoteSpecialValuesAndIdentifiers() {
+        assertEquals("INSERT INTO public.\"Tag Table\" (\"Weird \"\"Name\"\"\", \"score\", \"flags\") " +
+                        "VALUES ('a b'::character varying, 'NaN'::double precision, B'101')",
+                TestDecodingReplayer.toSql("table public.\"Tag Table\": INSERT: \"Weird \"\"Name\"\"\"[character varying]:'a b' " +
+                        "score[double precision]:NaN flags[bit varying]:B'101'", idKey));
+    }
+
+    @Test
+    void toSql_shouldConvertUpdateUsingPrimaryKey() {
+        assertEquals("UPDATE public.comments SET \"id\" = 1, \"author\" = 'Bob'::text WHERE \"id\" = 1",
+                TestDecodingReplayer.toSql("table public.comments: UPDATE: id[integer]:1 author[text]:'Bob' " +
+                        "content[text]:unchanged-toast-datum", idKey));
+    }
+
+    @Test
+    void toSql_shouldSkipUpdateOfUnchangedToastValuesOnly() {
+        assertNull(TestDecodingReplayer.toSql("table public.comments: UPDATE: id[text]:unchanged-toast-datum " +
+                "content[text]:unchanged-toast-datum", idKey));
+    }
+
+    @Test
+    void toSql_shouldConvertUpdateOfKey() {
+        assertEquals("UPDATE public.comments SET \"id\" = 2, \"author\" = 'Bob'::text WHERE \"id\" = 1",
+                TestDecodingReplayer.toSql("table public.comments: UPDATE: old-key: id[integer]:1 new-tuple: id[integer]:2 " +
+                        "author[text]:'Bob'", idKey));
+    }
+
+    @Test
+    void toSql_shouldConvertDeleteAndTruncate() {
+        assertEquals("DELETE FROM public.comments WHERE \"id\" = 1 AND \"author\" IS NULL",
+                TestDecodingReplayer.toSql("table public.comments: DELETE: id[integer]:1 author[text]:null", idKey));
+        assertEquals("TRUNCATE TABLE public.comments, public.posts RESTART IDENTITY CASCADE",
+                TestDecodingReplayer.toSql("table public.comments, public.posts: TRUNCATE: restart_seqs cascade", idKey));
+    }
+
+    @Test
+    void toSql_shouldFailOnMissingReplicaIdentity() {
+        assertThrows(RuntimeException.class,
+                () -> TestDecodingReplayer.toSql("table public.comments: DELETE: (no-tuple-data)", idKey));
+    }
+
+    @Test
+    void replayChanges_shouldStopAtTargetPositionAndAdvanceSequences() throws IOException {
+        InputStream firstSegment = buildSegment(
+                0x10L, "BEGIN",
+                0x11L, "table public.comments: INSERT: id[integer]:1 author[text]:'Alice' content[text]:'first'",
+                0x12L, "table public.comments: INSERT: id[integer]:2 author[text]:'Bob' content[text]:'second'",
+                0x13L, "COMMIT");
+        InputStream secondSegment = buildSegment(
+                0x20L, "BEGIN",
+                0x21L, "table public.comments: UPDATE: id[integer]:1 author[text]:'Alice' content[text]:'edited'",
+                0x22L, "table public.comments: DELETE: id[integer]:2",
+                0x23L, "COMMIT",
+                0x30L, "BEGIN",
+                0x31L, "table public.comments: TRUNCATE: (no-flags)",
+                0x32L, "COMMIT");
+
+        postgresChangeCapture.replayChanges(slavePostgresDatabaseSettings, Arrays.asList(firstSegment, secondSegment).iterator(),
+                0x23L);
+
+        assertEquals(Collections.singletonList("edited"), jdbcPostgresSlaveTemplate.queryForList(
+                "SELECT content FROM comments ORDER BY id", String.class));
+        assertEquals(Integer.valueOf(2), jdbcPostgresSlaveTemplate.queryForObject(
+                "INSERT INTO comments (author) VALUES ('Carol') RETURNING id", Integer.class));
+    }
+
+    @Test
+    void replayChanges_shouldNotFireTriggers() throws IOException {
+        jdbcPostgresSlaveTemplate.execute("CREATE TABLE comments_log (comment_id INTEGER)");
+        jdbcPostgresSlaveTemplate.execute("CREATE FUNCTION log_comment() RETURNS trigger LANGUAGE plpgsql AS " +
+                "$$BEGIN INSERT INTO comments_log VALUES (NEW.id); RETURN NEW; END$$");
+        jdbcPostgresSlaveTemplate.execute("CREATE TRIGGER log_comment AFTER INSERT ON comments FOR EACH ROW " +
+                "EXECUTE PROCEDURE log_comment()");
+
+        InputStream segment = buildSegment(
+                0x10L, "BEGIN",
+                0x11L, "table public.comments: INSERT: id[integer]:1 author[text]:'Alice' content[text]:'first'",
+                0x12L, "table public.comments_log: INSERT: comment_id[integer]:1",
+                0x13L, "COMMIT");
+
+        postgresChangeCapture.replayChanges(slavePostgresDatabaseSettings, Collections.singletonList(segment).iterator(), null);
+
+        assertEquals(Integer.valueOf(1), jdbcPostgresSlaveTemplate.queryForObject("SELECT count(*) FROM comments_log", Integer.class));
+    }
+}
@@ -0,0 +1,82 @@
+package com.blog.service.processor;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static com.blog.TestUtils.getStreamCopyAsByteArray;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackupEncryptorTests extends ApplicationTests {
+    private BackupEncryptor backupEncryptor;
+
+    @Autowired
+    void setBackupEncryptor(BackupEncryptor backupEncryptor) {
+        this.backupEncryptor = backupEncryptor;
+    }
+
+    private byte[] encrypt(byte[] source) throws IOException {
+        try (InputStream encryptedSourceInputStream = backupEncryptor.process(new ByteArrayInputStream(source))) {
+            return getStreamCopyAsByteArray(encryptedSourceInputStream);
+        }
+    }
+
+    private void assertCorrupted(byte[] encrypted) throws IOException {
+        try (InputStream decryptedSourceInputStream = backupEncryptor.deprocess(new ByteArrayInputStream(encrypted))) {
+            assertThrows(IOException.class, decryptedSourceInputStream::readAllBytes);
+        }
+    }
+
+    @Test
+    void whenEncryptAndDecryptBackupOfManyChunks_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(BackupEncryptor.CHUNK_SIZE * 3 + 1000);
+
+        try (
+                InputStream sourceInputStream = new ByteArrayInputStream(source);
+                InputStream encryptedSourceInputStream = backupEncryptor.process(sourceInputStream);
+                InputStream decryptedSourceInputStream = backupEncryptor.deprocess(encryptedSourceInputStream)
+        ) {
+            assertThat(decryptedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Test
+    void whenEncryptAndDecryptEmptyBackup_contentIsEmpty() throws IOException {
+        try (InputStream decryptedSourceInputStream = backupEncryptor.deprocess(new ByteArrayInputStream(encrypt(new byte[0])))) {
+            assertThat(decryptedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(new byte[0])));
+        }
+    }
+
+    @Test
+    void whenEncryptSameBackupTwice_encryptedContentIsDifferent() throws IOException {
+        byte[] source = getRandomBytes(1000);
+
+        assertFalse(Arrays.equals(encrypt(source), encrypt(source)));
+    }
+
+    @Test
+    void whenDecryptModifiedBackup_exceptionIsThrown() throws IOException {
+        byte[] encrypted = encrypt(getRandomBytes(BackupEncryptor.CHUNK_SIZE * 2));
+        encrypted[BackupEncryptor.CHUNK_SIZE + 100] ^= 1;
+
+        assertCorrupted(encrypted);
+    }
+
+    @Test
+    void whenDecryptBackupWithoutFinalFrame_exceptionIsThrown() throws IOException {
+        byte[] encrypted = encrypt(getRandomBytes(BackupEncryptor.CHUNK_SIZE));
+        // frame type, length of encrypted data and authentication tag of empty chunk
+        int finalFrameSize = 1 + Integer.BYTES + 16;
+
+        assertCorrupted(Arrays.copyOf(encrypted, encrypted.length - finalFrameSize));
+    }
+}
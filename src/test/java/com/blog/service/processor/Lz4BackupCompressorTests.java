@@ -0,0 +1,61 @@
+package com.blog.service.processor;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Lz4BackupCompressorTests extends ApplicationTests {
+    private Lz4BackupCompressor lz4BackupCompressor;
+
+    @Autowired
+    void setLz4BackupCompressor(Lz4BackupCompressor lz4BackupCompressor) {
+        this.lz4BackupCompressor = lz4BackupCompressor;
+    }
+
+    private void assertRoundTrip(byte[] source, ProcessorOptions options) throws IOException {
+        try (
+                InputStream sourceInputStream = new ByteArrayInputStream(source);
+                InputStream compressedSourceInputStream = lz4BackupCompressor.process(sourceInputStream, options);
+                InputStream decompressedSourceInputStream = lz4BackupCompressor.deprocess(compressedSourceInputStream, options)
+        ) {
+            assertThat(decompressedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Test
+    void whenCompressAndDecompressBackup_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(100000);
+        Arrays.fill(source, 0, 50000, (byte) 'a');
+
+        assertRoundTrip(source, ProcessorOptions.DEFAULT);
+    }
+
+    @Test
+    void whenCompressAndDecompressBackupWithLevel_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(100000);
+        Arrays.fill(source, 0, 50000, (byte) 'a');
+
+        assertRoundTrip(source, new ProcessorOptions(1, false));
+        assertRoundTrip(source, new ProcessorOptions(17, false));
+    }
+
+    @Test
+    void whenCompressAndDecompressEmptyBackup_contentIsEmpty() throws IOException {
+        assertRoundTrip(new byte[0], ProcessorOptions.DEFAULT);
+    }
+
+    @Test
+    void checkOptions_shouldRejectOutOfRangeLevel() {
+        assertThrows(IllegalArgumentException.class, () -> lz4BackupCompressor.checkOptions(new ProcessorOptions(18, false)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.blog.service.processor;
+
+import com.blog.ApplicationTests;
+import com.blog.service.PipelineTuning;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static com.blog.TestUtils.getStreamCopyAsByteArray;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelBackupCompressorTests extends ApplicationTests {
+    private ParallelBackupCompressor parallelBackupCompressor;
+
+    @Autowired
+    void setParallelBackupCompressor(ParallelBackupCompressor parallelBackupCompressor) {
+        this.parallelBackupCompressor = parallelBackupCompressor;
+    }
+
+    @Test
+    void whenCompressAndDecompressBackupOfManyBlocks_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(ParallelBackupCompressor.BLOCK_SIZE * 5 + 1000);
+        // compressible part
+        Arrays.fill(source, 0, ParallelBackupCompressor.BLOCK_SIZE * 2, (byte) 'a');
+
+        try (
+                InputStream sourceInputStream = new ByteArrayInputStream(source);
+                InputStream compressedSourceInputStream = parallelBackupCompressor.process(sourceInputStream);
+                InputStream decompressedSourceInputStream = parallelBackupCompressor.deprocess(compressedSourceInputStream)
+        ) {
+            assertThat(decompressedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Test
+    void whenTuningIsChangedWhileCompressing_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(ParallelBackupCompressor.BLOCK_SIZE * 5 + 1000);
+        Arrays.fill(source, 0, ParallelBackupCompressor.BLOCK_SIZE * 3, (byte) 'a');
+        PipelineTuning tuning = new PipelineTuning(1, 1, 1);
+
+        try (
+                InputStream sourceInputStream = new ByteArrayInputStream(source);
+                InputStream compressedSourceInputStream = parallelBackupCompressor.process(sourceInputStream, ProcessorOptions.DEFAULT,
+                        tuning)
+        ) {
+            byte[] firstBlocks = compressedSourceInputStream.readNBytes(16);
+            tuning.setCompressionLevel(9);
+            tuning.setCompressionThreads(Integer.MAX_VALUE);
+            byte[] compressed = getStreamCopyAsByteArray(compressedSourceInputStream);
+
+            try (InputStream decompressedSourceInputStream = parallelBackupCompressor.deprocess(new SequenceInputStream(
+                    new ByteArrayInputStream(firstBlocks), new ByteArrayInputStream(compressed)))) {
+                assertThat(decompressedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(source)));
+            }
+        }
+    }
+
+    @Test
+    void whenCompressAndDecompressEmptyBackup_contentIsEmpty() throws IOException {
+        try (
+                InputStream compressedSourceInputStream = parallelBackupCompressor.process(new ByteArrayInputStream(new byte[0]));
+                InputStream decompressedSourceInputStream = parallelBackupCompressor.deprocess(compressedSourceInputStream)
+        ) {
+            assertThat(decompressedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(new byte[0])));
+        }
+    }
+
+    @Test
+    void whenDecompressTruncatedBackup_exceptionIsThrown() throws IOException {
+        byte[] source = getRandomBytes(ParallelBackupCompressor.BLOCK_SIZE * 2);
+
+        byte[] compressed;
+        try (InputStream compressedSourceInputStream = parallelBackupCompressor.process(new ByteArrayInputStream(source))) {
+            compressed = getStreamCopyAsByteArray(compressedSourceInputStream);
+        }
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 1);
+
+        try (InputStream decompressedSourceInputStream = parallelBackupCompressor.deprocess(new ByteArrayInputStream(truncated))) {
+            assertThrows(IOException.class, decompressedSourceInputStream::readAllBytes);
+        }
+    }
+}
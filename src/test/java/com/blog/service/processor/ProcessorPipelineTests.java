@@ -0,0 +1,138 @@
+package com.blog.service.processor;
+
+import com.blog.ApplicationTests;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessorPipelineTests extends ApplicationTests {
+    @Autowired
+    private ExecutorService processorExecutorService;
+
+    @Autowired
+    private BackupCompressor backupCompressor;
+
+    @Test
+    void whenProcessAndDeprocessDataOfManyChunks_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(ProcessorPipeline.CHUNK_SIZE * ProcessorPipeline.QUEUE_CAPACITY * 3 + 17);
+
+        LinkedHashMap<String, UnaryOperator<InputStream>> stages = new LinkedHashMap<>();
+        stages.put("compress", backupCompressor::process);
+        stages.put("decompress", backupCompressor::deprocess);
+        ProcessorPipeline pipeline = ProcessorPipeline.start("test", new ByteArrayInputStream(source), stages,
+                processorExecutorService, closedPipeline -> {
+                });
+
+        try (InputStream in = pipeline.getOutput();
+             InputStream sourceIn = new ByteArrayInputStream(source)) {
+            assertThat(in, equalToSourceInputStream(sourceIn));
+        }
+
+        assertEquals(source.length, pipeline.getStatistics().get(0).getProcessedBytes());
+        assertEquals(source.length, pipeline.getStatistics().get(2).getProcessedBytes());
+    }
+
+    @Test
+    void whenStageFails_errorIsThrownOnRead() throws IOException {
+        LinkedHashMap<String, UnaryOperator<InputStream>> stages = new LinkedHashMap<>();
+        stages.put("failing", in -> new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Stage failure");
+            }
+        });
+        ProcessorPipeline pipeline = ProcessorPipeline.start("test", new ByteArrayInputStream(getRandomBytes(1000)), stages,
+                processorExecutorService, closedPipeline -> {
+                });
+
+        try (InputStream in = pipeline.getOutput()) {
+            IOException ex = assertThrows(IOException.class, in::read);
+            assertEquals("Stage failure", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void whenOutputIsClosed_sourceIsClosed() throws IOException, InterruptedException {
+        CountDownLatch sourceClosed = new CountDownLatch(1);
+        Random random = new Random();
+        // endless source keeps the pipeline queues full
+        InputStream source = new InputStream() {
+            @Override
+            public int read() {
+                return random.nextInt(256);
+            }
+
+            @Override
+            public void close() {
+                sourceClosed.countDown();
+            }
+        };
+        CountDownLatch pipelineClosed = new CountDownLatch(1);
+
+        LinkedHashMap<String, UnaryOperator<InputStream>> stages = new LinkedHashMap<>();
+        stages.put("compress", backupCompressor::process);
+        ProcessorPipeline pipeline = ProcessorPipeline.start("test", source, stages, processorExecutorService,
+                closedPipeline -> pipelineClosed.countDown());
+
+        InputStream in = pipeline.getOutput();
+        assertTrue(in.read() != -1);
+        in.close();
+
+        assertTrue(pipelineClosed.await(10, TimeUnit.SECONDS));
+        assertTrue(sourceClosed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void whenOutputIsClosed_stageWaitingForInputIsStopped() throws IOException, InterruptedException {
+        CountDownLatch sourceReleased = new CountDownLatch(1);
+        // source blocks, so the next stage waits for input
+        InputStream source = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    sourceReleased.await();
+                } catch (InterruptedException ex) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        };
+        CountDownLatch stageStopped = new CountDownLatch(1);
+
+        LinkedHashMap<String, UnaryOperator<InputStream>> stages = new LinkedHashMap<>();
+        stages.put("waiting", in -> new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                stageStopped.countDown();
+            }
+        });
+        ProcessorPipeline pipeline = ProcessorPipeline.start("test", source, stages, processorExecutorService, closedPipeline -> {
+        });
+
+        try {
+            pipeline.getOutput().close();
+            assertTrue(stageStopped.await(10, TimeUnit.SECONDS));
+        } finally {
+            sourceReleased.countDown();
+        }
+    }
+}
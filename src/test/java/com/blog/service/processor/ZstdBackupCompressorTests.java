@@ -0,0 +1,124 @@
+package com.blog.service.processor;
+
+import com.blog.ApplicationTests;
+import com.blog.entities.backup.CompressionDictionary;
+import com.blog.manager.CompressionDictionariesManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static com.blog.TestUtils.getStreamCopyAsByteArray;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZstdBackupCompressorTests extends ApplicationTests {
+    private ZstdBackupCompressor zstdBackupCompressor;
+
+    private CompressionDictionariesManager compressionDictionariesManager;
+
+    @Autowired
+    void setZstdBackupCompressor(ZstdBackupCompressor zstdBackupCompressor) {
+        this.zstdBackupCompressor = zstdBackupCompressor;
+    }
+
+    @Autowired
+    void setCompressionDictionariesManager(CompressionDictionariesManager compressionDictionariesManager) {
+        this.compressionDictionariesManager = compressionDictionariesManager;
+    }
+
+    /**
+     * Returns backup of small database, which shares schema and lookup data with other backups.
+     */
+    private static byte[] getSmallDatabaseBackup(Random random) {
+        Random sharedRandom = new Random(0);
+        StringBuilder backup = new StringBuilder();
+        for (int table = 0; table < 40; table++) {
+            backup.append("CREATE TABLE public.table_").append(Long.toHexString(sharedRandom.nextLong())).append(" (\n");
+            for (int column = 0; column < 5; column++) {
+                backup.append("    column_").append(Long.toHexString(sharedRandom.nextLong())).append(" text,\n");
+            }
+            backup.append("    id integer NOT NULL\n);\n\n");
+        }
+        backup.append("COPY public.lookup (id, code) FROM stdin;\n");
+        for (int row = 0; row < 200; row++) {
+            backup.append(row).append('\t').append(Long.toHexString(sharedRandom.nextLong())).append('\n');
+        }
+        for (int row = 0; row < 30; row++) {
+            backup.append(row).append('\t').append(random.nextInt()).append('\n');
+        }
+        return backup.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void assertRoundTrip(byte[] source, ProcessorOptions options) throws IOException {
+        try (
+                InputStream sourceInputStream = new ByteArrayInputStream(source);
+                InputStream compressedSourceInputStream = zstdBackupCompressor.process(sourceInputStream, options);
+                InputStream decompressedSourceInputStream = zstdBackupCompressor.deprocess(compressedSourceInputStream, options)
+        ) {
+            assertThat(decompressedSourceInputStream, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Test
+    void whenCompressAndDecompressBackup_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(100000);
+        Arrays.fill(source, 0, 50000, (byte) 'a');
+
+        assertRoundTrip(source, ProcessorOptions.DEFAULT);
+    }
+
+    @Test
+    void whenCompressAndDecompressBackupWithLevelAndLongRange_contentIsEqualToSource() throws IOException {
+        byte[] source = getRandomBytes(100000);
+        Arrays.fill(source, 0, 50000, (byte) 'a');
+
+        assertRoundTrip(source, new ProcessorOptions(-1, false));
+        assertRoundTrip(source, new ProcessorOptions(19, true));
+    }
+
+    @Test
+    void whenCompressAndDecompressBackupWithTrainedDictionary_contentIsEqualToSourceAndCompressedBetter() throws IOException {
+        Random random = new Random();
+        Optional<CompressionDictionary> dictionary = Optional.empty();
+        while (!dictionary.isPresent()) {
+            DictionarySampler dictionarySampler = new DictionarySampler(CompressionDictionariesManager.MAX_BACKUP_SAMPLES_SIZE);
+            try (InputStream sampledBackupStream = dictionarySampler.wrap(new ByteArrayInputStream(getSmallDatabaseBackup(random)))) {
+                getStreamCopyAsByteArray(sampledBackupStream);
+            }
+            dictionary = compressionDictionariesManager.addSamples("dictionaryTestDatabase", dictionarySampler.getSamples());
+        }
+        ProcessorOptions options = compressionDictionariesManager.withLatestDictionary("dictionaryTestDatabase",
+                Collections.singletonList(ProcessorType.ZSTD_COMPRESSOR), null);
+        byte[] source = getSmallDatabaseBackup(random);
+
+        assertRoundTrip(source, options);
+        try (
+                InputStream compressedWithDictionary = zstdBackupCompressor.process(new ByteArrayInputStream(source), options);
+                InputStream compressedWithoutDictionary = zstdBackupCompressor.process(new ByteArrayInputStream(source))
+        ) {
+            assertTrue(getStreamCopyAsByteArray(compressedWithDictionary).length * 2 <
+                    getStreamCopyAsByteArray(compressedWithoutDictionary).length);
+        }
+    }
+
+    @Test
+    void whenCompressAndDecompressEmptyBackup_contentIsEmpty() throws IOException {
+        assertRoundTrip(new byte[0], ProcessorOptions.DEFAULT);
+    }
+
+    @Test
+    void checkOptions_shouldRejectOutOfRangeLevel() {
+        assertThrows(IllegalArgumentException.class, () -> zstdBackupCompressor.checkOptions(new ProcessorOptions(100, false)));
+    }
+}
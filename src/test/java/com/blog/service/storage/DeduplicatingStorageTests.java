@@ -0,0 +1,160 @@
+package com.blog.service.storage;
+
+import com.blog.ApplicationTests;
+import com.blog.entities.storage.BackupChunk;
+import com.blog.entities.storage.StorageSettings;
+import com.blog.manager.BackupChunksManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+
+import static com.blog.TestUtils.equalToSourceInputStream;
+import static com.blog.TestUtils.getRandomBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeduplicatingStorageTests extends ApplicationTests {
+    private static final Integer testTaskID = 0;
+
+    private FileSystemStorage fileSystemStorage;
+
+    private BackupChunksManager backupChunksManager;
+
+    private StorageSettings localFileSystemStorageSettings;
+
+    private DeduplicatingStorage deduplicatingStorage;
+
+    @Autowired
+    void setFileSystemStorage(FileSystemStorage fileSystemStorage) {
+        this.fileSystemStorage = fileSystemStorage;
+    }
+
+    @Autowired
+    void setBackupChunksManager(BackupChunksManager backupChunksManager) {
+        this.backupChunksManager = backupChunksManager;
+    }
+
+    @Autowired
+    void setLocalFileSystemStorageSettings(StorageSettings localFileSystemStorageSettings) {
+        this.localFileSystemStorageSettings = localFileSystemStorageSettings;
+    }
+
+    @BeforeEach
+    void init() {
+        deduplicatingStorage = new DeduplicatingStorage(fileSystemStorage, backupChunksManager);
+    }
+
+    private static String getBackupName(TestInfo testInfo, int backupNumber) {
+        return testInfo.getDisplayName() + "_" + backupNumber + "_" + StorageConstants.dateFormatter.format(LocalDateTime.now());
+    }
+
+    /**
+     * Returns hash of the chunk, that is equal to the backup smaller than the minimal chunk size.
+     */
+    private static String getChunkHash(byte[] chunk) throws NoSuchAlgorithmException {
+        StringBuilder hash = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(chunk)) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private File getChunkFolder(String hash) {
+        return new File(localFileSystemStorageSettings.getLocalFileSystemSettings().orElseThrow(RuntimeException::new).getBackupPath() +
+                File.separator + String.format(StorageConstants.CHUNK_NAME_TEMPLATE, hash));
+    }
+
+    private void upload(byte[] source, String backupName) {
+        deduplicatingStorage.uploadBackup(new ByteArrayInputStream(source), localFileSystemStorageSettings, backupName, testTaskID);
+    }
+
+    @Test
+    void whenUploadBackupOfManyChunksAndDownload_contentIsEqual(TestInfo testInfo) throws IOException {
+        String backupName = getBackupName(testInfo, 0);
+        byte[] source = getRandomBytes(ContentDefinedChunker.MAX_CHUNK_SIZE + ContentDefinedChunker.AVERAGE_CHUNK_SIZE);
+
+        upload(source, backupName);
+        try (
+                InputStream downloadedBackup = deduplicatingStorage.downloadBackup(localFileSystemStorageSettings, backupName, testTaskID)
+        ) {
+            assertThat(downloadedBackup, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+    }
+
+    @Test
+    void whenUploadSameBackupTwice_chunkIsStoredOnce(TestInfo testInfo) throws NoSuchAlgorithmException {
+        byte[] source = getRandomBytes(ContentDefinedChunker.MIN_CHUNK_SIZE / 2);
+        String hash = getChunkHash(source);
+
+        upload(source, getBackupName(testInfo, 0));
+        upload(source, getBackupName(testInfo, 1));
+
+        BackupChunk backupChunk = backupChunksManager.findChunk(localFileSystemStorageSettings.getSettingsName(), hash)
+                .orElseThrow(RuntimeException::new);
+        assertEquals(2, backupChunk.getReferenceCount());
+        assertEquals(source.length, backupChunk.getSize());
+        assertTrue(getChunkFolder(hash).exists());
+    }
+
+    @Test
+    void whenDeleteBackups_chunkIsDeletedWithLastReference(TestInfo testInfo) throws IOException, NoSuchAlgorithmException {
+        byte[] source = getRandomBytes(ContentDefinedChunker.MIN_CHUNK_SIZE / 2);
+        String hash = getChunkHash(source);
+        String firstBackupName = getBackupName(testInfo, 0);
+        String secondBackupName = getBackupName(testInfo, 1);
+
+        upload(source, firstBackupName);
+        upload(source, secondBackupName);
+
+        deduplicatingStorage.deleteBackup(localFileSystemStorageSettings, firstBackupName, testTaskID);
+        assertTrue(getChunkFolder(hash).exists());
+        try (
+                InputStream downloadedBackup = deduplicatingStorage.downloadBackup(localFileSystemStorageSettings, secondBackupName,
+                        testTaskID)
+        ) {
+            assertThat(downloadedBackup, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+
+        deduplicatingStorage.deleteBackup(localFileSystemStorageSettings, secondBackupName, testTaskID);
+        assertFalse(getChunkFolder(hash).exists());
+        assertFalse(backupChunksManager.findChunk(localFileSystemStorageSettings.getSettingsName(), hash).isPresent());
+
+        assertDoesNotThrow(() -> deduplicatingStorage.deleteBackup(localFileSystemStorageSettings, secondBackupName, testTaskID));
+    }
+
+    @Test
+    void whenChunkIsCorrupted_exceptionIsThrownOnReading(TestInfo testInfo) throws IOException, NoSuchAlgorithmException {
+        String backupName = getBackupName(testInfo, 0);
+        byte[] source = getRandomBytes(ContentDefinedChunker.MIN_CHUNK_SIZE / 2);
+        String hash = getChunkHash(source);
+
+        upload(source, backupName);
+        File[] chunkFiles = getChunkFolder(hash).listFiles();
+        assertEquals(1, chunkFiles.length);
+        Path chunkFile = chunkFiles[0].toPath();
+        byte[] corruptedChunk = Files.readAllBytes(chunkFile);
+        corruptedChunk[100] ^= 1;
+        Files.write(chunkFile, corruptedChunk);
+
+        try (
+                InputStream downloadedBackup = deduplicatingStorage.downloadBackup(localFileSystemStorageSettings, backupName, testTaskID)
+        ) {
+            assertThrows(IOException.class, downloadedBackup::readAllBytes);
+        }
+    }
+}
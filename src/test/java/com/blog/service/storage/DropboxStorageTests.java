@@ -4,6 +4,7 @@ import com.blog.ApplicationTests;
 import com.blog.entities.storage.DropboxSettings;
 import com.blog.entities.storage.StorageSettings;
 import com.blog.manager.StorageSettingsManager;
+import com.blog.service.PipelineTuning;
 import com.dropbox.core.BadRequestException;
 import com.dropbox.core.DbxException;
 import com.dropbox.core.DbxRequestConfig;
@@ -14,10 +15,17 @@ import org.junit.jupiter.api.TestInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.blog.TestUtils.equalToSourceInputStream;
 import static com.blog.TestUtils.getRandomBytes;
@@ -65,6 +73,24 @@ class DropboxStorageTests extends ApplicationTests {
         }
     }
 
+    @Test
+    void whenUploadBackupOfManyPartsConcurrentlyAndDownload_contentIsEqual(TestInfo testInfo) throws IOException {
+        String backupName = testInfo.getDisplayName() + "_" + StorageConstants.dateFormatter.format(LocalDateTime.now());
+        // the last part is of exactly one chunk, so it is finished with empty chunk
+        byte[] source = getRandomBytes(DropboxStorage.MAX_PART_SIZE * 2 + DropboxStorage.UPLOAD_CHUNK_SIZE);
+
+        try (
+                ByteArrayInputStream sourceInputStream = new ByteArrayInputStream(source)
+        ) {
+            dropboxStorage.uploadBackup(sourceInputStream, dropboxStorageSettings, backupName, testTaskID, new PipelineTuning(null, 1, 2));
+            try (
+                    InputStream downloadedBackup = dropboxStorage.downloadBackup(dropboxStorageSettings, backupName, testTaskID)
+            ) {
+                assertThat(downloadedBackup, equalToSourceInputStream(new ByteArrayInputStream(source)));
+            }
+        }
+    }
+
     @Test
     void whenUploadBackupAndDelete_delete_shouldDeleteBackupFromStorage(TestInfo testInfo) throws IOException, DbxException {
         String backupName = testInfo.getDisplayName() + "_" + StorageConstants.dateFormatter.format(LocalDateTime.now());
@@ -126,4 +152,78 @@ class DropboxStorageTests extends ApplicationTests {
             assertDoesNotThrow(() -> dropboxStorage.deleteBackup(dropboxStorageSettings, backupName, testTaskID));
         }
     }
+
+    @Test
+    void whenPartsAreDownloadedOutOfOrder_backupIsReadInPartOrderWithinLimits() throws IOException {
+        int[] sizes = {300_000, 100_000, 500_000, 50_000, 400_000, 200_000, 10};
+        int downloadConcurrency = 3;
+        long downloadMemory = 800_000;
+
+        List<String> partPaths = new ArrayList<>();
+        long[] partSizes = new long[sizes.length];
+        long[] partEnds = new long[sizes.length];
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        List<byte[]> partsData = new ArrayList<>();
+        for (int part = 0; part < sizes.length; part++) {
+            partPaths.add("/backup/part" + part);
+            partSizes[part] = sizes[part];
+            partsData.add(getRandomBytes(sizes[part]));
+            source.write(partsData.get(part));
+            partEnds[part] = source.size();
+        }
+
+        AtomicInteger activeDownloads = new AtomicInteger();
+        AtomicInteger maxActiveDownloads = new AtomicInteger();
+        AtomicLong bytesRead = new AtomicLong();
+        AtomicLong maxKeptInMemory = new AtomicLong();
+        List<Integer> startedParts = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> finishedParts = Collections.synchronizedList(new ArrayList<>());
+
+        DropboxStorage.PartDownloader partDownloader = (partPath, out) -> {
+            int part = partPaths.indexOf(partPath);
+            maxActiveDownloads.accumulateAndGet(activeDownloads.incrementAndGet(), Math::max);
+            startedParts.add(part);
+            // parts not read entirely are kept in memory, including this one
+            long keptInMemory = 0;
+            for (int startedPart : new ArrayList<>(startedParts)) {
+                if (partEnds[startedPart] > bytesRead.get()) {
+                    keptInMemory += partSizes[startedPart];
+                }
+            }
+            maxKeptInMemory.accumulateAndGet(keptInMemory, Math::max);
+
+            try {
+                // later parts are downloaded faster, so they finish before the earlier ones
+                byte[] data = partsData.get(part);
+                out.write(data, 0, data.length / 2);
+                Thread.sleep(20L * (sizes.length - part));
+                out.write(data, data.length / 2, data.length - data.length / 2);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                finishedParts.add(part);
+                activeDownloads.decrementAndGet();
+            }
+        };
+
+        ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+        try (
+                InputStream downloadedBackup = dropboxStorage.downloadParts(partDownloader, "/backup", partPaths, partSizes,
+                        downloadConcurrency, downloadMemory, testTaskID)
+        ) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = downloadedBackup.read(buffer)) != -1) {
+                downloaded.write(buffer, 0, len);
+                bytesRead.addAndGet(len);
+            }
+        }
+
+        assertArrayEquals(source.toByteArray(), downloaded.toByteArray());
+        assertNotEquals(startedParts, finishedParts, "Parts should finish out of order");
+        assertTrue(maxActiveDownloads.get() > 1, "Parts should be downloaded concurrently");
+        assertTrue(maxActiveDownloads.get() <= downloadConcurrency);
+        assertTrue(maxKeptInMemory.get() <= downloadMemory);
+    }
 }
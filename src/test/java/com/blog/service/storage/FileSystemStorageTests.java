@@ -7,15 +7,20 @@ import org.junit.jupiter.api.TestInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 
 import static com.blog.TestUtils.equalToSourceInputStream;
 import static com.blog.TestUtils.getRandomBytes;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 class FileSystemStorageTests extends ApplicationTests {
@@ -82,4 +87,56 @@ class FileSystemStorageTests extends ApplicationTests {
             assertDoesNotThrow(() -> fileSystemStorage.deleteBackup(localFileSystemStorageSettings, backupName, testTaskID));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenUploadBackupAsFileAndDownload_contentIsEqual(TestInfo testInfo) throws IOException {
+        String backupName = testInfo.getDisplayName() + "_" + StorageConstants.dateFormatter.format(LocalDateTime.now());
+        byte[] source = getRandomBytes(1000000);
+
+        fileSystemStorage.setMaxChunkSize(300000);
+        try {
+            Files.write(fileSystemStorage.createBackupFile(localFileSystemStorageSettings, backupName), source);
+        } finally {
+            fileSystemStorage.setMaxChunkSize(FileSystemStorage.MAX_CHUNK_SIZE);
+        }
+
+        try (
+                InputStream downloadedBackup = fileSystemStorage.downloadBackup(localFileSystemStorageSettings, backupName, testTaskID)
+        ) {
+            assertThat(downloadedBackup, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+        fileSystemStorage.readBackupFiles(localFileSystemStorageSettings, backupName, testTaskID, backupFiles -> {
+            assertEquals(1, backupFiles.size());
+            assertDoesNotThrow(() -> assertArrayEquals(source, Files.readAllBytes(backupFiles.get(0))));
+        });
+    }
+
+    @Test
+    void whenUploadBackupInSeveralPartsAndDownload_contentIsEqual(TestInfo testInfo) throws IOException {
+        String backupName = testInfo.getDisplayName() + "_" + StorageConstants.dateFormatter.format(LocalDateTime.now());
+        byte[] source = getRandomBytes(1000000);
+
+        fileSystemStorage.setMaxChunkSize(300000);
+        try (
+                ByteArrayInputStream sourceInputStream = new ByteArrayInputStream(source)
+        ) {
+            fileSystemStorage.uploadBackup(sourceInputStream, localFileSystemStorageSettings, backupName, testTaskID);
+        } finally {
+            fileSystemStorage.setMaxChunkSize(FileSystemStorage.MAX_CHUNK_SIZE);
+        }
+
+        try (
+                InputStream downloadedBackup = fileSystemStorage.downloadBackup(localFileSystemStorageSettings, backupName, testTaskID)
+        ) {
+            assertThat(downloadedBackup, equalToSourceInputStream(new ByteArrayInputStream(source)));
+        }
+        fileSystemStorage.readBackupFiles(localFileSystemStorageSettings, backupName, testTaskID, backupFiles -> {
+            assertEquals(4, backupFiles.size());
+            ByteArrayOutputStream joinedBackup = new ByteArrayOutputStream();
+            for (Path backupFile : backupFiles) {
+                assertDoesNotThrow(() -> joinedBackup.write(Files.readAllBytes(backupFile)));
+            }
+            assertArrayEquals(source, joinedBackup.toByteArray());
+        });
+    }
+}